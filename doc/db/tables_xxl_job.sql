@@ -32,7 +32,12 @@ CREATE TABLE `xxl_job_info` (
   `trigger_status` tinyint(4) NOT NULL DEFAULT '0' COMMENT '调度状态：0-停止，1-运行',
   `trigger_last_time` bigint(13) NOT NULL DEFAULT '0' COMMENT '上次调度时间',
   `trigger_next_time` bigint(13) NOT NULL DEFAULT '0' COMMENT '下次调度时间',
-  PRIMARY KEY (`id`)
+  `schedule_version` int(11) NOT NULL DEFAULT '0' COMMENT '调度版本号：新增任务为0，修改调度配置、启动、停止时加1，时间轮中预先放入的触发按它识别已经过时的触发',
+  `schedule_update_time` datetime DEFAULT NULL COMMENT '调度变更时间：新增、修改调度配置、启动、停止以及停机交接时更新，调度线程写回触发时间时不更新',
+  PRIMARY KEY (`id`),
+  KEY `i_trigger_status_next_time` (`trigger_status`,`trigger_next_time`,`id`) COMMENT '调度扫描：状态过滤、按下次调度时间排序、分区条件都在索引内完成',
+  KEY `i_update_time` (`update_time`),
+  KEY `i_schedule_update_time` (`schedule_update_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 CREATE TABLE `xxl_job_log` (
@@ -113,10 +118,17 @@ CREATE TABLE `xxl_job_lock` (
   PRIMARY KEY (`lock_name`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+CREATE TABLE `xxl_job_id_segment` (
+  `biz_tag` varchar(50) NOT NULL COMMENT '业务标识，如 xxl_job_log',
+  `max_id` bigint(20) NOT NULL DEFAULT '0' COMMENT '已分配出去的最大ID，调度中心每次取一段ID在本地分配',
+  PRIMARY KEY (`biz_tag`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 INSERT INTO `xxl_job_group`(`id`, `app_name`, `title`, `address_type`, `address_list`, `update_time`) VALUES (1, 'xxl-job-executor-sample', '示例执行器', 0, NULL, '2018-11-03 22:21:31' );
 INSERT INTO `xxl_job_info`(`id`, `job_group`, `job_desc`, `add_time`, `update_time`, `author`, `alarm_email`, `schedule_type`, `schedule_conf`, `misfire_strategy`, `executor_route_strategy`, `executor_handler`, `executor_param`, `executor_block_strategy`, `executor_timeout`, `executor_fail_retry_count`, `glue_type`, `glue_source`, `glue_remark`, `glue_updatetime`, `child_jobid`) VALUES (1, 1, '测试任务1', '2018-11-03 22:21:31', '2018-11-03 22:21:31', 'XXL', '', 'CRON', '0 0 0 * * ? *', 'DO_NOTHING', 'FIRST', 'demoJobHandler', '', 'SERIAL_EXECUTION', 0, 0, 'BEAN', '', 'GLUE代码初始化', '2018-11-03 22:21:31', '');
 INSERT INTO `xxl_job_user`(`id`, `username`, `password`, `role`, `permission`) VALUES (1, 'admin', 'e10adc3949ba59abbe56e057f20f883e', 1, NULL);
 INSERT INTO `xxl_job_lock` ( `lock_name`) VALUES ( 'schedule_lock');
+INSERT INTO `xxl_job_id_segment` ( `biz_tag`, `max_id`) VALUES ( 'xxl_job_log', 0);
 
 commit;
 
@@ -0,0 +1,35 @@
+#
+# XXL-JOB v2.4.1-SNAPSHOT
+# Copyright (c) 2015-present, xuxueli.
+
+#
+# 从旧版本升级时执行，全新安装执行 tables_xxl_job.sql 即可
+# 调度日志ID改为从号段表分配，升级时先停止全部旧版本调度中心，不支持新旧版本调度中心混合运行
+#
+
+use `xxl_job`;
+
+SET NAMES utf8mb4;
+
+CREATE TABLE IF NOT EXISTS `xxl_job_id_segment` (
+  `biz_tag` varchar(50) NOT NULL COMMENT '业务标识，如 xxl_job_log',
+  `max_id` bigint(20) NOT NULL DEFAULT '0' COMMENT '已分配出去的最大ID，调度中心每次取一段ID在本地分配',
+  PRIMARY KEY (`biz_tag`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 号段的起点在分配时会和 xxl_job_log 中已有的最大ID比较，这里初始化为0即可
+INSERT IGNORE INTO `xxl_job_id_segment` ( `biz_tag`, `max_id`) VALUES ( 'xxl_job_log', 0);
+
+-- 调度扫描：按 trigger_status 过滤、按 trigger_next_time 排序、调度分区条件（id取模）都在索引内完成，只有命中的行才回表
+ALTER TABLE `xxl_job_info` ADD KEY `i_trigger_status_next_time` (`trigger_status`,`trigger_next_time`,`id`) COMMENT '调度扫描：状态过滤、按下次调度时间排序、分区条件都在索引内完成';
+-- 触发链路缓存按 update_time 增量校验任务快照
+ALTER TABLE `xxl_job_info` ADD KEY `i_update_time` (`update_time`);
+
+-- 调度变更时间，调度内存索引（xxl.job.schedule.dueindex）按这一列增量同步
+ALTER TABLE `xxl_job_info` ADD COLUMN `schedule_update_time` datetime DEFAULT NULL COMMENT '调度变更时间：新增、修改调度配置、启动、停止以及停机交接时更新，调度线程写回触发时间时不更新';
+ALTER TABLE `xxl_job_info` ADD KEY `i_schedule_update_time` (`schedule_update_time`);
+
+-- 调度版本号，时间轮中预先放入的触发按它识别任务停止后又启动、调度配置改过又改回等情况下已经过时的触发
+ALTER TABLE `xxl_job_info` ADD COLUMN `schedule_version` int(11) NOT NULL DEFAULT '0' COMMENT '调度版本号：新增任务为0，修改调度配置、启动、停止时加1，时间轮中预先放入的触发按它识别已经过时的触发' AFTER `trigger_next_time`;
+
+commit;
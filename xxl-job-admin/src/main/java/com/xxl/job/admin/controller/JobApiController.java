@@ -6,21 +6,30 @@ import com.xxl.job.core.biz.AdminBiz;
 import com.xxl.job.core.biz.model.HandleCallbackParam;
 import com.xxl.job.core.biz.model.RegistryParam;
 import com.xxl.job.core.biz.model.ReturnT;
-import com.xxl.job.core.util.GsonTool;
+import com.xxl.job.core.codec.RemotingCodec;
+import com.xxl.job.core.codec.RemotingCodecs;
 import com.xxl.job.core.util.XxlJobRemotingUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.ResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
 
 /**
  * 这个类不对Web界面进行开放，而是程序内部执行远程调用时使用的，只对执行器那一端暴露。
+ * 请求体按 Content-Type 解码，执行器在请求头中声明了首选的编解码器并且和调度中心的首选一致时，响应也用它编码，
+ * 否则和原来一样返回 JSON，协商过程见 RemotingCodecs。
  */
+@Slf4j
 @Controller
 @RequiredArgsConstructor
 @RequestMapping("/api")
@@ -32,11 +41,30 @@ public class JobApiController {
      * 该方法就是执行注册执行器的方法，执行器那一端会访问该接口进行回调、注册、注销
      */
     @RequestMapping("/{uri}")
-    @ResponseBody
     @PermissionLimit(limit = false)
-    public ReturnT<String> api(HttpServletRequest request,
-                               @PathVariable("uri") String uri,
-                               @RequestBody(required = false) String data) {
+    public ResponseEntity<?> api(HttpServletRequest request,
+                                 @PathVariable("uri") String uri,
+                                 @RequestBody(required = false) byte[] data) throws Exception {
+        ReturnT<String> result = process(request, uri, data);
+
+        RemotingCodec responseCodec = RemotingCodecs.forAccept(request.getHeader(RemotingCodecs.XXL_JOB_CODEC_ACCEPT));
+        if (responseCodec != RemotingCodecs.JSON) {
+            ByteBuf content = Unpooled.buffer();
+            try {
+                responseCodec.encode(result, content);
+                return ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_TYPE, responseCodec.contentType())
+                        .body(ByteBufUtil.getBytes(content));
+            } catch (Exception e) {
+                log.debug(">>>>>>>>>>> xxl-job api, codec({}) encode fail, fallback to json.", responseCodec.name(), e);
+            } finally {
+                content.release();
+            }
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    private ReturnT<String> process(HttpServletRequest request, String uri, byte[] data) throws Exception {
         // 判断是否为POST请求
         if (!"POST".equalsIgnoreCase(request.getMethod())) {
             return new ReturnT<>(ReturnT.FAIL_CODE, "invalid request, HttpMethod not support.");
@@ -55,19 +83,21 @@ public class JobApiController {
             return new ReturnT<>(ReturnT.FAIL_CODE, "The access token is wrong.");
         }
 
+        RemotingCodec requestCodec = RemotingCodecs.forContentType(request.getContentType());
+        ByteBuf requestData = data != null ? Unpooled.wrappedBuffer(data) : Unpooled.EMPTY_BUFFER;
         switch (uri) {
             // ==执行器执行结果回调==
             case "callback":
-                List<HandleCallbackParam> callbackParamList = GsonTool.fromJson(data, List.class, HandleCallbackParam.class);
+                List<HandleCallbackParam> callbackParamList = requestCodec.decode(requestData, List.class, HandleCallbackParam.class);
                 return adminBiz.callback(callbackParamList);
             // ==执行器注册==
             case "registry": {
-                RegistryParam registryParam = GsonTool.fromJson(data, RegistryParam.class);
+                RegistryParam registryParam = requestCodec.decode(requestData, RegistryParam.class, null);
                 return adminBiz.registry(registryParam);
             }
             // ==执行器注销==
             case "registryRemove": {
-                RegistryParam registryParam = GsonTool.fromJson(data, RegistryParam.class);
+                RegistryParam registryParam = requestCodec.decode(requestData, RegistryParam.class, null);
                 return adminBiz.registryRemove(registryParam);
             }
             // 请求路径都不匹配则返回失败
@@ -3,6 +3,7 @@ package com.xxl.job.admin.controller;
 import com.xxl.job.admin.controller.annotation.PermissionLimit;
 import com.xxl.job.admin.core.model.XxlJobGroup;
 import com.xxl.job.admin.core.model.XxlJobRegistry;
+import com.xxl.job.admin.core.thread.JobCacheHelper;
 import com.xxl.job.admin.core.util.I18nUtil;
 import com.xxl.job.admin.dao.XxlJobGroupDao;
 import com.xxl.job.admin.dao.XxlJobInfoDao;
@@ -167,6 +168,7 @@ public class JobGroupController {
         xxlJobGroup.setUpdateTime(new Date());
 
         int ret = xxlJobGroupDao.update(xxlJobGroup);
+        JobCacheHelper.getInstance().invalidateGroup(xxlJobGroup.getId());
         return (ret > 0) ? ReturnT.SUCCESS : ReturnT.FAIL;
     }
 
@@ -215,6 +217,7 @@ public class JobGroupController {
         }
 
         int ret = xxlJobGroupDao.remove(id);
+        JobCacheHelper.getInstance().invalidateGroup(id);
         return (ret > 0) ? ReturnT.SUCCESS : ReturnT.FAIL;
     }
 
@@ -1,6 +1,7 @@
 package com.xxl.job.admin.controller;
 
 import com.xxl.job.admin.core.exception.XxlJobException;
+import com.xxl.job.admin.core.metrics.XxlJobMetrics;
 import com.xxl.job.admin.core.model.XxlJobGroup;
 import com.xxl.job.admin.core.model.XxlJobInfo;
 import com.xxl.job.admin.core.model.XxlJobUser;
@@ -18,6 +19,7 @@ import com.xxl.job.core.biz.model.ReturnT;
 import com.xxl.job.core.enums.ExecutorBlockStrategyEnum;
 import com.xxl.job.core.glue.GlueTypeEnum;
 import com.xxl.job.core.util.DateUtil;
+import com.xxl.job.core.util.XxlJobAsyncRemotingUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Controller;
@@ -149,10 +151,32 @@ public class JobInfoController {
             executorParam = "";
         }
 
-        JobTriggerPoolHelper.trigger(id, TriggerTypeEnum.MANUAL, -1, null, executorParam, addressList);
+        if (!JobTriggerPoolHelper.trigger(id, TriggerTypeEnum.MANUAL, -1, null, executorParam, addressList)) {
+            // 触发线程池过载，手动触发先于调度触发被拒绝
+            XxlJobMetrics.getInstance().recordTriggerShed(TriggerTypeEnum.MANUAL.name());
+            return new ReturnT<>(ReturnT.FAIL_CODE, I18nUtil.getString("jobinfo_opt_run_overload"));
+        }
         return ReturnT.SUCCESS;
     }
 
+    /**
+     * 触发线程池各个分道的状态，以及每个任务最近的触发耗时和所在的分道
+     */
+    @RequestMapping("/triggerLanes")
+    @ResponseBody
+    public ReturnT<List<Map<String, Object>>> triggerLanes() {
+        return new ReturnT<>(JobTriggerPoolHelper.getLaneSnapshot());
+    }
+
+    /**
+     * 调用执行器的长连接池按地址统计的请求数、失败数、平均耗时和连接数
+     */
+    @RequestMapping("/remotingStats")
+    @ResponseBody
+    public ReturnT<List<Map<String, Object>>> remotingStats() {
+        return new ReturnT<>(XxlJobAsyncRemotingUtil.hostStatsSnapshot());
+    }
+
     @RequestMapping("/nextTriggerTime")
     @ResponseBody
     public ReturnT<List<String>> nextTriggerTime(String scheduleType, String scheduleConf) {
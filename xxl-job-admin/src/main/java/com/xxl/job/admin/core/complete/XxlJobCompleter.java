@@ -1,6 +1,7 @@
 package com.xxl.job.admin.core.complete;
 
 import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.metrics.XxlJobMetrics;
 import com.xxl.job.admin.core.model.XxlJobInfo;
 import com.xxl.job.admin.core.model.XxlJobLog;
 import com.xxl.job.admin.core.thread.JobTriggerPoolHelper;
@@ -63,10 +64,14 @@ public class XxlJobCompleter {
                             && isNumeric(childJobIds[i])) ? Integer.valueOf(childJobIds[i]) : -1;
                     if (childJobId > 0) {
                         // ==调度子任务==
-                        JobTriggerPoolHelper.trigger(childJobId, TriggerTypeEnum.PARENT, -1,
+                        boolean triggered = JobTriggerPoolHelper.trigger(childJobId, TriggerTypeEnum.PARENT, -1,
                                 null, null, null);
-                        // 设置调度成功的结果
+                        // 设置调度的结果，触发线程池过载没有接收时记为失败
                         ReturnT<String> triggerChildResult = ReturnT.SUCCESS;
+                        if (!triggered) {
+                            XxlJobMetrics.getInstance().recordTriggerShed(TriggerTypeEnum.PARENT.name());
+                            triggerChildResult = new ReturnT<>(ReturnT.FAIL_CODE, I18nUtil.getString("jobinfo_opt_run_overload"));
+                        }
                         triggerChildMsg += MessageFormat.format(I18nUtil.getString("jobconf_callback_child_msg1"),
                                 (i + 1), childJobIds.length, childJobIds[i],
                                 (triggerChildResult.getCode() == ReturnT.SUCCESS_CODE ?
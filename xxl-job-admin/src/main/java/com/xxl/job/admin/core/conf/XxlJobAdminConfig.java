@@ -2,7 +2,10 @@ package com.xxl.job.admin.core.conf;
 
 import com.xxl.job.admin.core.alarm.JobAlarmer;
 import com.xxl.job.admin.core.scheduler.XxlJobScheduler;
+import com.xxl.job.admin.core.trigger.TriggerShedPolicyEnum;
 import com.xxl.job.admin.dao.*;
+import com.xxl.job.core.codec.JsonRemotingCodec;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Getter;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
@@ -12,7 +15,9 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
 import javax.sql.DataSource;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * 这个类是服务端的启动入口，该类实现了Spring的InitializingBean接口，所以该类中
@@ -55,6 +60,10 @@ public class XxlJobAdminConfig implements InitializingBean, DisposableBean {
     }
 
     // conf
+    /** 调度中心的端口，和IP一起作为调度中心节点的标识 */
+    @Getter
+    @Value("${server.port}")
+    private int serverPort;
     @Value("${xxl.job.i18n}")
     private String i18n;
     @Getter
@@ -69,8 +78,83 @@ public class XxlJobAdminConfig implements InitializingBean, DisposableBean {
     /** 慢线程池的最大线程数 */
     @Value("${xxl.job.triggerpool.slow.max}")
     private int triggerPoolSlowMax;
+    /** 触发线程池分道的耗时阈值，单位毫秒，逗号分隔、从小到大，N个阈值对应N+1个线程池，任务按近期触发耗时的p90选择线程池 */
+    @Value("${xxl.job.triggerpool.lanes}")
+    private String triggerPoolLanes;
+    /** 触发线程池过载时调度触发的处理策略：DEFER 推迟到时间轮下一个刻度，MISFIRE 按调度过期丢弃 */
+    @Value("${xxl.job.trigger.shed.policy}")
+    private String triggerShedPolicy;
+    /** 触发队列中为调度触发保留的容量百分比，队列超过 100 - reserve 时先拒绝手动触发和API触发 */
+    @Value("${xxl.job.trigger.shed.reserve}")
+    private int triggerShedReserve;
+    /** 是否使用虚拟线程执行触发，需要运行在支持虚拟线程的JDK上，否则仍然使用快慢线程池 */
+    @Getter
+    @Value("${xxl.job.triggerpool.virtual}")
+    private boolean triggerPoolVirtual;
+    /** 虚拟线程模式下每个执行器同时进行的最大触发数 */
+    @Value("${xxl.job.triggerpool.virtual.group.max}")
+    private int triggerPoolVirtualGroupMax;
     @Value("${xxl.job.logretentiondays}")
     private int logretentiondays;
+    /** 时间轮一个刻度的毫秒数 */
+    @Value("${xxl.job.timewheel.tick}")
+    private int timeWheelTick;
+    /** 调度分区数，任务按照 jobId % 分区数 分配给不同的调度中心节点 */
+    @Value("${xxl.job.schedule.partitions}")
+    private int schedulePartitions;
+    /** 调度周期结束时批量更新任务触发时间，每条update语句最多包含的任务数 */
+    @Value("${xxl.job.schedule.batchsize}")
+    private int scheduleBatchSize;
+    /** 自适应预读窗口的上限，单位毫秒，空闲时扫描间隔最长可以放大到这个值 */
+    @Value("${xxl.job.schedule.prereadmax}")
+    private int schedulePreReadMax;
+    /** 是否启用任务到期时间的内存索引，启用后调度线程不再按触发时间扫表 */
+    @Getter
+    @Value("${xxl.job.schedule.dueindex}")
+    private boolean scheduleDueIndex;
+    /** 每个任务每轮最多预先计算并放入时间轮的触发次数，预读窗口内的触发时间一次算好，下次触发时间只在窗口边界写回 */
+    @Value("${xxl.job.schedule.precompute}")
+    private int schedulePrecompute;
+    /** 间隔小于1秒的固定频率任务调度日志的采样比例，每N次调度触发随机记录一条调度日志，1为全部记录 */
+    @Value("${xxl.job.trigger.logsample}")
+    private int triggerLogSample;
+    /** 调度日志批量写入时每条insert语句最多写入的日志数，为1时同步逐条写入 */
+    @Value("${xxl.job.trigger.logbatch.size}")
+    private int triggerLogBatchSize;
+    /** 调度日志在写入缓冲区中的最长等待时间，单位毫秒 */
+    @Value("${xxl.job.trigger.logbatch.delay}")
+    private int triggerLogBatchDelay;
+    /** 是否使用基于Netty长连接的异步客户端调用执行器，触发线程不再阻塞等待执行器响应 */
+    @Getter
+    @Value("${xxl.job.trigger.async}")
+    private boolean triggerAsync;
+    /** 异步调用时每个执行器地址的最大连接数 */
+    @Value("${xxl.job.trigger.async.connections}")
+    private int triggerAsyncConnections;
+    /** 调用执行器时首选的编解码器：binary 或 json，对方不支持时总是回退到 json */
+    @Value("${xxl.job.trigger.codec}")
+    private String triggerCodec;
+    /** 发往同一个执行器的触发合并成一次请求的等待时间，单位毫秒，为0时不合并 */
+    @Value("${xxl.job.trigger.batch.window}")
+    private int triggerBatchWindow;
+    /** 合并成一次请求的最大触发数 */
+    @Value("${xxl.job.trigger.batch.size}")
+    private int triggerBatchSize;
+    /** 分片广播时同时调用的最大分片数 */
+    @Value("${xxl.job.trigger.broadcast.parallel}")
+    private int triggerBroadcastParallel;
+    /** 故障转移、忙碌转移路由每一波同时探测的执行器地址数 */
+    @Value("${xxl.job.route.probe.parallel}")
+    private int routeProbeParallel;
+    /** 一波探测在多长时间内没有可用的结果就发出下一波，单位毫秒，为0时同时探测全部地址 */
+    @Value("${xxl.job.route.probe.hedge}")
+    private int routeProbeHedge;
+    /** 执行器地址探测结果的缓存时间，单位毫秒，为0时不缓存 */
+    @Value("${xxl.job.route.probe.cache}")
+    private int routeProbeCache;
+    /** "最低负载"路由用到的执行器刷新负载的间隔，单位毫秒 */
+    @Value("${xxl.job.route.load.refresh}")
+    private int routeLoadRefresh;
 
     // dao, service
     @Getter
@@ -97,6 +181,9 @@ public class XxlJobAdminConfig implements InitializingBean, DisposableBean {
     @Getter
     @Resource
     private JobAlarmer jobAlarmer;
+    @Getter
+    @Resource
+    private MeterRegistry meterRegistry;
 
     public String getI18n() {
         if (!Arrays.asList("zh_CN", "zh_TC", "en").contains(i18n)) {
@@ -119,6 +206,214 @@ public class XxlJobAdminConfig implements InitializingBean, DisposableBean {
         return triggerPoolSlowMax;
     }
 
+    public int[] getTriggerPoolLanes() {
+        // 非法的阈值忽略，必须是递增的正数，最多4个阈值（5个线程池），全部非法时使用默认的500ms（快慢两个线程池）
+        List<Integer> thresholds = new ArrayList<>();
+        if (triggerPoolLanes != null) {
+            for (String item : triggerPoolLanes.split(",")) {
+                try {
+                    int threshold = Integer.parseInt(item.trim());
+                    if (threshold > 0 && (thresholds.isEmpty() || threshold > thresholds.get(thresholds.size() - 1))
+                            && thresholds.size() < 4) {
+                        thresholds.add(threshold);
+                    }
+                } catch (NumberFormatException e) {
+                    // ignore
+                }
+            }
+        }
+        if (thresholds.isEmpty()) {
+            return new int[]{500};
+        }
+        int[] result = new int[thresholds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = thresholds.get(i);
+        }
+        return result;
+    }
+
+    public TriggerShedPolicyEnum getTriggerShedPolicy() {
+        return TriggerShedPolicyEnum.match(triggerShedPolicy, TriggerShedPolicyEnum.DEFER);
+    }
+
+    public int getTriggerShedReserve() {
+        if (triggerShedReserve < 0) {
+            return 0;
+        }
+        if (triggerShedReserve > 90) {
+            return 90;
+        }
+        return triggerShedReserve;
+    }
+
+    public int getTriggerPoolVirtualGroupMax() {
+        if (triggerPoolVirtualGroupMax < 1) {
+            return 1;
+        }
+        return triggerPoolVirtualGroupMax;
+    }
+
+    public int getTimeWheelTick() {
+        if (timeWheelTick < 1) {
+            return 1;
+        }
+        if (timeWheelTick > 1000) {
+            return 1000;
+        }
+        return timeWheelTick;
+    }
+
+    public int getSchedulePartitions() {
+        if (schedulePartitions < 1) {
+            return 1;
+        }
+        if (schedulePartitions > 1024) {
+            return 1024;
+        }
+        return schedulePartitions;
+    }
+
+    public int getScheduleBatchSize() {
+        if (scheduleBatchSize < 1) {
+            return 1;
+        }
+        if (scheduleBatchSize > 5000) {
+            return 5000;
+        }
+        return scheduleBatchSize;
+    }
+
+    public int getSchedulePreReadMax() {
+        if (schedulePreReadMax < 5000) {
+            return 5000;
+        }
+        if (schedulePreReadMax > 60000) {
+            return 60000;
+        }
+        return schedulePreReadMax;
+    }
+
+    public int getSchedulePrecompute() {
+        if (schedulePrecompute < 1) {
+            return 1;
+        }
+        if (schedulePrecompute > 10000) {
+            return 10000;
+        }
+        return schedulePrecompute;
+    }
+
+    public int getTriggerLogSample() {
+        if (triggerLogSample < 1) {
+            return 1;
+        }
+        return triggerLogSample;
+    }
+
+    public int getTriggerLogBatchSize() {
+        if (triggerLogBatchSize < 1) {
+            return 1;
+        }
+        if (triggerLogBatchSize > 2000) {
+            return 2000;
+        }
+        return triggerLogBatchSize;
+    }
+
+    public int getTriggerAsyncConnections() {
+        if (triggerAsyncConnections < 1) {
+            return 1;
+        }
+        return triggerAsyncConnections;
+    }
+
+    public String getTriggerCodec() {
+        if (triggerCodec == null || triggerCodec.trim().length() == 0) {
+            return JsonRemotingCodec.NAME;
+        }
+        return triggerCodec.trim();
+    }
+
+    public int getTriggerBatchWindow() {
+        if (triggerBatchWindow < 0) {
+            return 0;
+        }
+        if (triggerBatchWindow > 100) {
+            return 100;
+        }
+        return triggerBatchWindow;
+    }
+
+    public int getTriggerBatchSize() {
+        if (triggerBatchSize < 1) {
+            return 1;
+        }
+        if (triggerBatchSize > 1000) {
+            return 1000;
+        }
+        return triggerBatchSize;
+    }
+
+    public int getTriggerBroadcastParallel() {
+        if (triggerBroadcastParallel < 1) {
+            return 1;
+        }
+        if (triggerBroadcastParallel > 1000) {
+            return 1000;
+        }
+        return triggerBroadcastParallel;
+    }
+
+    public int getRouteProbeParallel() {
+        if (routeProbeParallel < 1) {
+            return 1;
+        }
+        if (routeProbeParallel > 100) {
+            return 100;
+        }
+        return routeProbeParallel;
+    }
+
+    public int getRouteProbeHedge() {
+        if (routeProbeHedge < 0) {
+            return 0;
+        }
+        if (routeProbeHedge > 3000) {
+            return 3000;
+        }
+        return routeProbeHedge;
+    }
+
+    public int getRouteProbeCache() {
+        if (routeProbeCache < 0) {
+            return 0;
+        }
+        if (routeProbeCache > 60000) {
+            return 60000;
+        }
+        return routeProbeCache;
+    }
+
+    public int getRouteLoadRefresh() {
+        if (routeLoadRefresh < 1000) {
+            return 1000;
+        }
+        if (routeLoadRefresh > 60000) {
+            return 60000;
+        }
+        return routeLoadRefresh;
+    }
+
+    public int getTriggerLogBatchDelay() {
+        if (triggerLogBatchDelay < 1) {
+            return 1;
+        }
+        if (triggerLogBatchDelay > 1000) {
+            return 1000;
+        }
+        return triggerLogBatchDelay;
+    }
+
     public int getLogretentiondays() {
         if (logretentiondays < 7) {
             return -1;
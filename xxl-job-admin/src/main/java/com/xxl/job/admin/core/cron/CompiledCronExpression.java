@@ -0,0 +1,363 @@
+package com.xxl.job.admin.core.cron;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <h1>编译后的cron表达式</h1>
+ * {@link CronExpression}每次计算下一次触发时间都要遍历TreeSet、反复读写Calendar，调度线程每刷新一次任务的
+ * 触发时间还要重新解析一遍表达式。这里把解析结果编译成位图：秒、分、时、日、月、周各用一个long/int，年用BitSet，
+ * 计算下一次触发时间时只在本地时间的秒数上做整数运算（日期换算用的是和java.time相同的公历算法），不创建对象。
+ * <p>
+ * 计算结果和{@link CronExpression#getNextValidTimeAfter(Date)}完全一致，以下情况直接交给CronExpression计算：
+ * 1、使用了 L、W、# 这些和月末、工作日、第几周相关的特殊字符；
+ * 2、时区在 [起始时间, 计算结果] 前后一天之内有夏令时切换，Calendar在这种情况下的处理方式比较特殊。
+ * <p>
+ * 通过{@link #of(String)}获取的实例会按表达式缓存起来，缓存有上限，按最近最少使用淘汰。实例是不可变的，可以被多个线程共享。
+ */
+public final class CompiledCronExpression {
+
+    /**
+     * 缓存的表达式数量上限
+     */
+    private static final int CACHE_SIZE = 4096;
+
+    private static final Map<String, CompiledCronExpression> CACHE = new LinkedHashMap<String, CompiledCronExpression>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledCronExpression> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * 从缓存中获取编译后的表达式，没有就解析、编译并放入缓存
+     */
+    public static CompiledCronExpression of(String cronExpression) throws ParseException {
+        CompiledCronExpression compiled;
+        synchronized (CACHE) {
+            compiled = CACHE.get(cronExpression);
+        }
+        if (compiled == null) {
+            compiled = new CompiledCronExpression(new CronExpression(cronExpression));
+            synchronized (CACHE) {
+                CACHE.put(cronExpression, compiled);
+            }
+        }
+        return compiled;
+    }
+
+    private static final int SECONDS_PER_DAY = 86400;
+
+    private final CronExpression expression;
+
+    /**
+     * 是否可以用位图计算，为false时全部交给CronExpression
+     */
+    private final boolean compiled;
+
+    /**
+     * 固定偏移的时区为null，只用fixedOffset
+     */
+    private final ZoneRules rules;
+    private final int fixedOffset;
+
+    private final long secondBits;
+    private final long minuteBits;
+    private final long hourBits;
+    private final long dayOfMonthBits;
+    private final int monthBits;
+    private final int dayOfWeekBits;
+    private final BitSet yearBits;
+
+    /**
+     * true按照日期（day-of-month）匹配，false按照星期（day-of-week）匹配
+     */
+    private final boolean dayOfMonthRule;
+
+    public CompiledCronExpression(CronExpression expression) {
+        this.expression = expression;
+        this.compiled = !expression.lastdayOfMonth
+                && !expression.nearestWeekday
+                && !expression.lastdayOfWeek
+                && expression.nthdayOfWeek == 0;
+
+        ZoneRules zoneRules = expression.getTimeZone().toZoneId().getRules();
+        if (zoneRules.isFixedOffset()) {
+            this.rules = null;
+            this.fixedOffset = zoneRules.getOffset(Instant.EPOCH).getTotalSeconds();
+        } else {
+            this.rules = zoneRules;
+            this.fixedOffset = 0;
+        }
+
+        this.secondBits = toBits(expression.seconds);
+        this.minuteBits = toBits(expression.minutes);
+        this.hourBits = toBits(expression.hours);
+        this.dayOfMonthBits = toBits(expression.daysOfMonth);
+        this.monthBits = (int) toBits(expression.months);
+        this.dayOfWeekBits = (int) toBits(expression.daysOfWeek);
+        this.dayOfMonthRule = !expression.daysOfMonth.contains(CronExpression.NO_SPEC);
+
+        this.yearBits = new BitSet();
+        for (Integer year : expression.years) {
+            if (year >= 0 && year <= CronExpression.MAX_YEAR) {
+                yearBits.set(year);
+            }
+        }
+    }
+
+    public String getCronExpression() {
+        return expression.getCronExpression();
+    }
+
+    /**
+     * 计算指定时间之后的下一次触发时间，没有时返回null
+     */
+    public Date getNextValidTimeAfter(Date date) {
+        long next = nextFireTime(date.getTime());
+        return next < 0 ? null : new Date(next);
+    }
+
+    /**
+     * 计算指定时间之后的下一次触发时间（毫秒），没有时返回-1
+     */
+    public long nextFireTime(long afterMs) {
+        if (!compiled) {
+            return legacyNextFireTime(afterMs);
+        }
+        // 和CronExpression一样，从下一秒开始找，毫秒清零
+        long startSec = Math.floorDiv(afterMs + 1000, 1000);
+        int offset = rules == null ? fixedOffset : rules.getOffset(Instant.ofEpochSecond(startSec)).getTotalSeconds();
+
+        long local = nextLocalSecond(startSec + offset);
+        if (local == Long.MIN_VALUE) {
+            return -1;
+        }
+        long result = local - offset;
+        if (rules != null) {
+            // 切换前后一天内的时间（重复或者跳过的那个小时）Calendar有自己的取舍，留给CronExpression处理
+            ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochSecond(startSec - SECONDS_PER_DAY));
+            if (transition != null && transition.getInstant().getEpochSecond() <= result + SECONDS_PER_DAY) {
+                return legacyNextFireTime(afterMs);
+            }
+        }
+        return result * 1000;
+    }
+
+    /**
+     * 连续计算afterMs之后、不晚于maxTimeMs的触发时间，依次写入fireTimes，最多写满数组，返回写入的个数。
+     * 调度线程用它一次算出预读窗口内的全部触发时间。
+     */
+    public int getNextNFireTimes(long afterMs, long maxTimeMs, long[] fireTimes) {
+        int count = 0;
+        long fireTime = afterMs;
+        while (count < fireTimes.length) {
+            fireTime = nextFireTime(fireTime);
+            if (fireTime < 0 || fireTime > maxTimeMs) {
+                break;
+            }
+            fireTimes[count++] = fireTime;
+        }
+        return count;
+    }
+
+    private long legacyNextFireTime(long afterMs) {
+        Date next = expression.getNextValidTimeAfter(new Date(afterMs));
+        return next == null ? -1 : next.getTime();
+    }
+
+    /**
+     * 在本地时间（从1970-01-01T00:00:00开始的秒数）上查找不早于localSec的第一个匹配时间，没有时返回Long.MIN_VALUE
+     */
+    private long nextLocalSecond(long localSec) {
+        long epochDay = Math.floorDiv(localSec, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(localSec, SECONDS_PER_DAY);
+
+        while (true) {
+            int ymd = civilFromDays(epochDay);
+            int year = ymd >> 9;
+            int month = (ymd >> 5) & 0xF;
+            int day = ymd & 0x1F;
+
+            if (year > CronExpression.MAX_YEAR || year > 2999) {
+                return Long.MIN_VALUE;
+            }
+            // 年
+            if (year < 0 || !yearBits.get(year)) {
+                int nextYear = yearBits.nextSetBit(Math.max(year + 1, 0));
+                if (nextYear < 0) {
+                    return Long.MIN_VALUE;
+                }
+                epochDay = daysFromCivil(nextYear, 1, 1);
+                secondOfDay = 0;
+                continue;
+            }
+            // 月
+            if ((monthBits & (1 << month)) == 0) {
+                int nextMonth = nextBit(monthBits, month + 1);
+                epochDay = nextMonth < 0 ? daysFromCivil(year + 1, 1, 1) : daysFromCivil(year, nextMonth, 1);
+                secondOfDay = 0;
+                continue;
+            }
+            // 日或者星期
+            int lastDay = lastDayOfMonth(year, month);
+            if (dayOfMonthRule) {
+                if ((dayOfMonthBits & (1L << day)) == 0) {
+                    int nextDay = nextBit(dayOfMonthBits, day + 1);
+                    if (nextDay < 0 || nextDay > lastDay) {
+                        epochDay = firstDayOfNextMonth(year, month);
+                    } else {
+                        epochDay += nextDay - day;
+                    }
+                    secondOfDay = 0;
+                    continue;
+                }
+            } else {
+                // 1-周日 ... 7-周六，1970-01-01是周四
+                int dayOfWeek = (int) Math.floorMod(epochDay + 4, 7) + 1;
+                if ((dayOfWeekBits & (1 << dayOfWeek)) == 0) {
+                    int daysToAdd = 1;
+                    while ((dayOfWeekBits & (1 << ((dayOfWeek - 1 + daysToAdd) % 7 + 1))) == 0) {
+                        daysToAdd++;
+                    }
+                    if (day + daysToAdd > lastDay) {
+                        epochDay = firstDayOfNextMonth(year, month);
+                    } else {
+                        epochDay += daysToAdd;
+                    }
+                    secondOfDay = 0;
+                    continue;
+                }
+            }
+            // 时分秒
+            int time = nextSecondOfDay(secondOfDay);
+            if (time < 0) {
+                epochDay++;
+                secondOfDay = 0;
+                continue;
+            }
+            return epochDay * SECONDS_PER_DAY + time;
+        }
+    }
+
+    /**
+     * 当天不早于secondOfDay的第一个匹配的时分秒，没有时返回-1
+     */
+    private int nextSecondOfDay(int secondOfDay) {
+        int hour = secondOfDay / 3600;
+        int minute = secondOfDay / 60 % 60;
+        int second = secondOfDay % 60;
+        while (true) {
+            int nextHour = nextBit(hourBits, hour);
+            if (nextHour < 0) {
+                return -1;
+            }
+            if (nextHour != hour) {
+                hour = nextHour;
+                minute = 0;
+                second = 0;
+            }
+            int nextMinute = nextBit(minuteBits, minute);
+            if (nextMinute < 0) {
+                hour++;
+                minute = 0;
+                second = 0;
+                continue;
+            }
+            if (nextMinute != minute) {
+                minute = nextMinute;
+                second = 0;
+            }
+            int nextSecond = nextBit(secondBits, second);
+            if (nextSecond < 0) {
+                minute++;
+                second = 0;
+                continue;
+            }
+            return hour * 3600 + minute * 60 + nextSecond;
+        }
+    }
+
+
+    // ---------------------- bits ----------------------
+
+    /**
+     * 把解析出来的取值集合转成位图，忽略 '*'、'?' 的标记值
+     */
+    private static long toBits(Set<Integer> values) {
+        long bits = 0;
+        for (Integer value : values) {
+            if (value >= 0 && value < 64) {
+                bits |= 1L << value;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * 不小于from的第一个置位的下标，没有时返回-1
+     */
+    private static int nextBit(long bits, int from) {
+        if (from >= 64) {
+            return -1;
+        }
+        long masked = bits & (-1L << from);
+        return masked == 0 ? -1 : Long.numberOfTrailingZeros(masked);
+    }
+
+
+    // ---------------------- calendar ----------------------
+
+    private static long firstDayOfNextMonth(int year, int month) {
+        return month == 12 ? daysFromCivil(year + 1, 1, 1) : daysFromCivil(year, month + 1, 1);
+    }
+
+    private static int lastDayOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return ((year % 4 == 0 && year % 100 != 0) || year % 400 == 0) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * 公历日期转换成从1970-01-01开始的天数
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * 从1970-01-01开始的天数转换成公历日期，返回 year << 9 | month << 5 | day
+     */
+    private static int civilFromDays(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        return year << 9 | month << 5 | day;
+    }
+}
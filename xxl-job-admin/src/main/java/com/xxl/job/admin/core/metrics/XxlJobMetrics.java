@@ -0,0 +1,234 @@
+package com.xxl.job.admin.core.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调度中心的监控指标，注册到spring-boot-actuator的MeterRegistry中，
+ * 可以通过 /actuator/metrics/{指标名} 查看。
+ * 没有MeterRegistry的时候（比如组件还没有启动），所有的记录操作都会被忽略，不影响调度。
+ * <p>
+ * 耗时类的指标都发布了百分位和直方图（Micrometer内部用HdrHistogram计算百分位），
+ * 调度延迟和调度过期按执行器（jobGroup标签）拆分，是调度中心最主要的SLO指标。
+ */
+public class XxlJobMetrics {
+
+    @Getter
+    private static XxlJobMetrics instance = new XxlJobMetrics();
+
+    /**
+     * 每个调度周期持有调度锁的时长：从 select ... for update 拿到锁开始，到提交事务释放锁为止
+     */
+    public static final String SCHEDULE_LOCK_HOLD = "xxl.job.schedule.lock.hold";
+
+    /**
+     * 每个调度周期等待调度锁的时长：执行 select ... for update 到拿到锁为止
+     */
+    public static final String SCHEDULE_LOCK_WAIT = "xxl.job.schedule.lock.wait";
+
+    /**
+     * 每轮扫描的耗时，包含所有分区
+     */
+    public static final String SCHEDULE_SCAN = "xxl.job.schedule.scan";
+
+    /**
+     * 调度延迟：任务实际派发给触发线程池的时间 - 计划触发时间（trigger_next_time），按jobGroup拆分
+     */
+    public static final String SCHEDULE_DISPATCH_LAG = "xxl.job.schedule.dispatch.lag";
+
+    /**
+     * 时间轮每次推进派发的任务数
+     */
+    public static final String SCHEDULE_RING_BUCKET_SIZE = "xxl.job.schedule.ring.bucket.size";
+
+    /**
+     * 调度过期的次数，按jobGroup和调度过期策略拆分
+     */
+    public static final String SCHEDULE_MISFIRE = "xxl.job.schedule.misfire";
+
+    /**
+     * 触发线程池过载时被推迟到时间轮下一个刻度再触发的次数，按触发类型拆分
+     */
+    public static final String TRIGGER_DEFERRED = "xxl.job.trigger.deferred";
+
+    /**
+     * 触发线程池过载时被丢弃的触发次数，按触发类型拆分
+     */
+    public static final String TRIGGER_SHED = "xxl.job.trigger.shed";
+
+    private static final String TAG_JOB_GROUP = "jobGroup";
+    private static final String TAG_STRATEGY = "strategy";
+    private static final String TAG_TRIGGER_TYPE = "triggerType";
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private volatile MeterRegistry meterRegistry;
+    private volatile Timer scheduleLockHoldTimer;
+    private volatile Timer scheduleLockWaitTimer;
+    private volatile Timer scheduleScanTimer;
+    private volatile DistributionSummary ringBucketSizeSummary;
+
+    private final Map<Integer, Timer> dispatchLagTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> misfireCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> triggerDeferredCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> triggerShedCounters = new ConcurrentHashMap<>();
+
+    /**
+     * 任务ID到执行器ID的映射，由调度线程在读到任务时更新，时间轮派发时只知道任务ID
+     */
+    private final Map<Integer, Integer> jobGroups = new ConcurrentHashMap<>();
+
+    public void start(MeterRegistry meterRegistry) {
+        if (meterRegistry == null) {
+            return;
+        }
+        scheduleLockHoldTimer = timer(SCHEDULE_LOCK_HOLD, "time the schedule lock is held in one schedule cycle")
+                .register(meterRegistry);
+        scheduleLockWaitTimer = timer(SCHEDULE_LOCK_WAIT, "time spent waiting for the schedule lock in one schedule cycle")
+                .register(meterRegistry);
+        scheduleScanTimer = timer(SCHEDULE_SCAN, "duration of one schedule scan over all owned partitions")
+                .register(meterRegistry);
+        ringBucketSizeSummary = DistributionSummary.builder(SCHEDULE_RING_BUCKET_SIZE)
+                .description("jobs dispatched by one time-ring advance")
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void toStop() {
+        meterRegistry = null;
+        scheduleLockHoldTimer = null;
+        scheduleLockWaitTimer = null;
+        scheduleScanTimer = null;
+        ringBucketSizeSummary = null;
+        dispatchLagTimers.clear();
+        misfireCounters.clear();
+        triggerDeferredCounters.clear();
+        triggerShedCounters.clear();
+        jobGroups.clear();
+    }
+
+    /**
+     * 记录一次调度锁的持有时长
+     */
+    public void recordScheduleLockHold(long nanos) {
+        record(scheduleLockHoldTimer, nanos);
+    }
+
+    /**
+     * 记录一次等待调度锁的时长
+     */
+    public void recordScheduleLockWait(long nanos) {
+        record(scheduleLockWaitTimer, nanos);
+    }
+
+    /**
+     * 记录一轮扫描的耗时
+     */
+    public void recordScheduleScan(long nanos) {
+        record(scheduleScanTimer, nanos);
+    }
+
+    /**
+     * 记录时间轮一次推进派发的任务数
+     */
+    public void recordRingBucketSize(int size) {
+        DistributionSummary summary = ringBucketSizeSummary;
+        if (summary != null) {
+            summary.record(size);
+        }
+    }
+
+    /**
+     * 记录任务所属的执行器，调度延迟按执行器拆分时使用
+     */
+    public void bindJobGroup(int jobId, int jobGroup) {
+        if (meterRegistry != null) {
+            jobGroups.put(jobId, jobGroup);
+        }
+    }
+
+    /**
+     * 记录一次调度延迟
+     *
+     * @param jobId 任务ID
+     * @param lagMs 实际派发时间 - 计划触发时间，单位毫秒
+     */
+    public void recordDispatchLag(int jobId, long lagMs) {
+        MeterRegistry registry = meterRegistry;
+        if (registry == null) {
+            return;
+        }
+        int jobGroup = jobGroups.getOrDefault(jobId, 0);
+        Timer timer = dispatchLagTimers.computeIfAbsent(jobGroup, group ->
+                timer(SCHEDULE_DISPATCH_LAG, "delay between a job's planned trigger time and its dispatch")
+                        .tag(TAG_JOB_GROUP, String.valueOf(group))
+                        .register(registry));
+        timer.record(Math.max(0, lagMs), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录一次调度过期
+     */
+    public void recordMisfire(int jobGroup, String strategy) {
+        MeterRegistry registry = meterRegistry;
+        if (registry == null) {
+            return;
+        }
+        Counter counter = misfireCounters.computeIfAbsent(jobGroup + "/" + strategy, key ->
+                Counter.builder(SCHEDULE_MISFIRE)
+                        .description("schedule misfires")
+                        .tag(TAG_JOB_GROUP, String.valueOf(jobGroup))
+                        .tag(TAG_STRATEGY, strategy)
+                        .register(registry));
+        counter.increment();
+    }
+
+    /**
+     * 记录一次因为过载被推迟的触发
+     */
+    public void recordTriggerDeferred(String triggerType) {
+        recordTriggerCounter(triggerDeferredCounters, TRIGGER_DEFERRED, "triggers deferred to the next time-ring tick on overload", triggerType);
+    }
+
+    /**
+     * 记录一次因为过载被丢弃的触发
+     */
+    public void recordTriggerShed(String triggerType) {
+        recordTriggerCounter(triggerShedCounters, TRIGGER_SHED, "triggers shed on overload", triggerType);
+    }
+
+    private void recordTriggerCounter(Map<String, Counter> counters, String name, String description, String triggerType) {
+        MeterRegistry registry = meterRegistry;
+        if (registry == null) {
+            return;
+        }
+        Counter counter = counters.computeIfAbsent(triggerType, key ->
+                Counter.builder(name)
+                        .description(description)
+                        .tag(TAG_TRIGGER_TYPE, triggerType)
+                        .register(registry));
+        counter.increment();
+    }
+
+    private static Timer.Builder timer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram();
+    }
+
+    private static void record(Timer timer, long nanos) {
+        if (timer != null) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import lombok.Data;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -35,16 +36,28 @@ public class XxlJobGroup {
     private Date updateTime;        // 更新时间
 
     // registry list
-    private List<String> registryList;  // 执行器地址列表(系统注册)，这其实是把 addressList 变成 list 集合了
+    private volatile List<String> registryList;  // 执行器地址列表(系统注册)，这其实是把 addressList 变成 list 集合了
+
+    /**
+     * 修改地址列表时清空已经解析好的 registryList，下次读取时重新解析
+     */
+    public void setAddressList(String addressList) {
+        this.addressList = addressList;
+        this.registryList = null;
+    }
 
     /**
      * <h2>这个会将 addressList 属性中的所有地址转变成 list 集合</h2>
+     * 解析结果会缓存起来，执行器组会作为快照缓存在 JobCacheHelper 中被多个触发线程共享，
+     * 所以这里返回的是只读集合，每次触发不再重复切分地址字符串
      */
     public List<String> getRegistryList() {
-        if (addressList != null && addressList.trim().length() > 0) {
-            registryList = new ArrayList<>(Arrays.asList(addressList.split(",")));
+        List<String> list = registryList;
+        if (list == null && addressList != null && addressList.trim().length() > 0) {
+            list = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(addressList.split(","))));
+            registryList = list;
         }
-        return registryList;
+        return list;
     }
 
 }
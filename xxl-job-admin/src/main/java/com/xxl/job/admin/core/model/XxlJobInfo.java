@@ -43,4 +43,7 @@ public class XxlJobInfo {
 	private long triggerLastTime;	// 上次调度时间
 	private long triggerNextTime;	// 下次调度时间
 
+	private int scheduleVersion;		// 调度版本号：修改调度配置、启动、停止时加1
+	private Date scheduleUpdateTime;	// 调度变更时间：新增、修改调度配置、启动、停止时更新，调度线程写回触发时间时不更新
+
 }
@@ -0,0 +1,27 @@
+package com.xxl.job.admin.core.model;
+
+import lombok.Data;
+
+/**
+ * <h1>调度线程使用的轻量任务实体，只包含【xxl-job-info】中和调度有关的列</h1>
+ * 调度线程每个周期都要读写大量任务，只是为了计算下一次触发时间，不需要把
+ * glue_source、executor_param 这些大字段也查出来。
+ */
+@Data
+public class XxlJobSchedule {
+
+	private int id;				// 定时任务 ID
+	private int jobGroup;		// 执行器主键ID，用于按执行器统计调度指标
+
+	private String scheduleType;			// 调度类型
+	private String scheduleConf;			// 调度配置，值含义取决于调度类型
+	private String misfireStrategy;			// 调度过期策略
+
+	private int triggerStatus;		// 调度状态：0-停止，1-运行
+	private long triggerLastTime;	// 上次调度时间
+	private long triggerNextTime;	// 下次调度时间
+	private int scheduleVersion;	// 调度版本号：修改调度配置、启动、停止时加1
+
+	private long writtenNextTime;	// 停机交接时间轮时使用，不对应数据库列：调度线程最后一次写入的下次调度时间
+
+}
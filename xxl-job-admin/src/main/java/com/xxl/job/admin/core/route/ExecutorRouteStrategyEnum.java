@@ -30,6 +30,8 @@ public enum ExecutorRouteStrategyEnum {
     FAILOVER(I18nUtil.getString("jobconf_route_failover"), new ExecutorRouteFailover()),
     // 忙碌转移
     BUSYOVER(I18nUtil.getString("jobconf_route_busyover"), new ExecutorRouteBusyover()),
+    // 最低负载
+    LEAST_LOADED(I18nUtil.getString("jobconf_route_leastloaded"), new ExecutorRouteLeastLoaded()),
     // 分片广播
     SHARDING_BROADCAST(I18nUtil.getString("jobconf_route_shard"), null);
 
@@ -4,18 +4,21 @@ import com.xxl.job.admin.core.route.ExecutorRouter;
 import com.xxl.job.core.biz.model.ReturnT;
 import com.xxl.job.core.biz.model.TriggerParam;
 
-import java.io.UnsupportedEncodingException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * <h1>哈希一致性路由策略</h1>
  * 分组下机器地址相同，不同JOB均匀散列在不同机器上，保证分组下机器分配JOB平均；且每个JOB固定调度其中一台机器；
  * a、virtual node：解决不均衡问题
  * b、hash method replace hashCode：String的hashCode可能重复，需要进一步扩大hashCode的取值范围
+ * <p>
+ * 原来每次触发都重新构建一个 TreeMap 哈希环，对每个地址的100个虚拟节点各做一次MD5。
+ * 现在哈希环按地址列表缓存，同一个执行器下的所有任务共用，只有注册信息变化（JobRegistryHelper 更新了地址列表）时才重新构建；
+ * 环上的节点是排好序的基本类型数组，路由时二分查找，哈希函数改为非加密的64位混合函数。
  */
 public class ExecutorRouteConsistentHash extends ExecutorRouter {
 
@@ -25,68 +28,56 @@ public class ExecutorRouteConsistentHash extends ExecutorRouter {
     private static int VIRTUAL_NODE_NUM = 100;
 
     /**
-     * <h2>MD5 散列的方式计算 hash 值</h2>
+     * 缓存的哈希环数量上限，超过后清空重新构建，正常情况下只和执行器的数量有关
      */
-    private static long hash(String key) {
-        // md5 byte
-        MessageDigest md5;
-        try {
-            md5 = MessageDigest.getInstance("MD5");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("MD5 not supported", e);
-        }
-        md5.reset();
-        byte[] keyBytes = null;
-        try {
-            keyBytes = key.getBytes("UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            throw new RuntimeException("Unknown string :" + key, e);
-        }
+    private static final int MAX_RING_NUM = 1024;
 
-        md5.update(keyBytes);
-        byte[] digest = md5.digest();
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
 
-        // hash code, Truncate to 32-bits
-        long hashCode = ((long) (digest[3] & 0xFF) << 24)
-                | ((long) (digest[2] & 0xFF) << 16)
-                | ((long) (digest[1] & 0xFF) << 8)
-                | (digest[0] & 0xFF);
+    // 地址列表 => 哈希环，地址列表按内容比较，内容相同的地址列表共用一个哈希环
+    private static final ConcurrentMap<List<String>, HashRing> addressRings = new ConcurrentHashMap<>();
+
+    /**
+     * <h2>64位混合函数（SplitMix64的结束步骤），分布均匀，计算只需要几次乘法和移位</h2>
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
 
-        long truncateHashCode = hashCode & 0xffffffffL;
-        return truncateHashCode;
+    /**
+     * <h2>字符串的64位哈希值，FNV-1a 逐个字符累加后再混合一次</h2>
+     */
+    private static long hash(String key) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
     }
 
     /**
      * <h2>这个方法的整体逻辑很简单，就是先计算每一个执行器地址的 hash 值，然后再计算定时任务 ID
      * 的 hash 值，然后将定时任务的哈希值和执行器地址的哈希值做对比，获得距离定时任务 ID 哈希值
      * 最近的那个执行器地址就行了，当然，这里要稍微形象一点，定时任务的哈希值构成了一个圆环，按照
-     * 顺时针的方向，找到里面定时任务 ID 的哈希值最近的那个哈希值即可，这里用到了 TreeMap 结构</h2>
+     * 顺时针的方向，找到里面定时任务 ID 的哈希值最近的那个哈希值即可，这里在排好序的哈希环上二分查找</h2>
      */
     public String hashJob(int jobId, List<String> addressList) {
 
         // ------A1------A2-------A3------
         // -----------J1------------------
-        TreeMap<Long, String> addressRing = new TreeMap<Long, String>();
-        for (String address : addressList) {
-            for (int i = 0; i < VIRTUAL_NODE_NUM; i++) {
-                // 计算执行器地址的哈希值
-                long addressHash = hash("SHARD-" + address + "-NODE-" + i);
-                // 把地址哈希值和地址放到 TreeMap 中
-                addressRing.put(addressHash, address);
+        HashRing addressRing = addressRings.get(addressList);
+        if (addressRing == null) {
+            if (addressRings.size() >= MAX_RING_NUM) {
+                addressRings.clear();
             }
+            // 地址列表复制一份作为key，调用方之后修改列表不会影响缓存
+            addressRing = addressRings.computeIfAbsent(new ArrayList<>(addressList), HashRing::new);
         }
         // 计算定时任务 ID 的哈希值
-        long jobHash = hash(String.valueOf(jobId));
-        // TreeMap 的 tailMap 方法在这里很重要，这个方法会让内部键值对的键跟 jobHash 做比较
-        // 比 jobHash 的值大的键，对应的键值对都会返回给用户
-        // 这里得到的 lastRing 就相当于圆环上所有比定时任务哈希值大的哈希值了
-        SortedMap<Long, String> lastRing = addressRing.tailMap(jobHash);
-        if (!lastRing.isEmpty()) {
-            // 如果不为空，取第一个值就行了，最接近定时任务哈希值就行
-            return lastRing.get(lastRing.firstKey());
-        }
-        // 如果为空，就从 addressRing 中获取第一个执行器地址即可
-        return addressRing.firstEntry().getValue();
+        return addressRing.locate(mix(jobId * GOLDEN_GAMMA));
     }
 
     @Override
@@ -95,4 +86,46 @@ public class ExecutorRouteConsistentHash extends ExecutorRouter {
         return new ReturnT<>(address);
     }
 
+    /**
+     * 构建好的哈希环，nodeHashes 从小到大排列，nodeAddresses[i] 为 nodeHashes[i] 对应的地址
+     */
+    private static class HashRing {
+        private final long[] nodeHashes;
+        private final String[] nodeAddresses;
+
+        private HashRing(List<String> addressList) {
+            int nodeNum = addressList.size() * VIRTUAL_NODE_NUM;
+            // 虚拟节点按哈希值排序，排序时带上地址的下标
+            long[][] nodes = new long[nodeNum][];
+            for (int a = 0; a < addressList.size(); a++) {
+                // 计算执行器地址的哈希值，每个虚拟节点在此基础上再混合一次
+                long addressHash = hash("SHARD-" + addressList.get(a));
+                for (int i = 0; i < VIRTUAL_NODE_NUM; i++) {
+                    nodes[a * VIRTUAL_NODE_NUM + i] = new long[]{mix(addressHash + (i + 1) * GOLDEN_GAMMA), a};
+                }
+            }
+            Arrays.sort(nodes, (o1, o2) -> Long.compare(o1[0], o2[0]));
+            nodeHashes = new long[nodeNum];
+            nodeAddresses = new String[nodeNum];
+            for (int i = 0; i < nodeNum; i++) {
+                nodeHashes[i] = nodes[i][0];
+                nodeAddresses[i] = addressList.get((int) nodes[i][1]);
+            }
+        }
+
+        /**
+         * 顺时针方向第一个哈希值大于等于 jobHash 的节点，超过最后一个节点时回到第一个节点
+         */
+        private String locate(long jobHash) {
+            int index = Arrays.binarySearch(nodeHashes, jobHash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            if (index == nodeHashes.length) {
+                index = 0;
+            }
+            return nodeAddresses[index];
+        }
+    }
+
 }
@@ -4,9 +4,13 @@ import com.xxl.job.admin.core.route.ExecutorRouter;
 import com.xxl.job.core.biz.model.ReturnT;
 import com.xxl.job.core.biz.model.TriggerParam;
 
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * <h1>根据频率/次数，一般不用</h1>
@@ -14,67 +18,153 @@ import java.util.concurrent.ConcurrentMap;
  * 单个JOB对应的每个执行器，使用频率最低的优先被选举
  * a(*)、LFU(Least Frequently Used)：最不经常使用，频率/次数
  * b、LRU(Least Recently Used)：最近最久未使用，时间
+ * <p>
+ * 原来每个任务的使用次数放在 HashMap 中，多个触发线程同时修改并不安全，每次路由还要把整个Map复制成列表排序一次。
+ * 现在每个任务按使用次数维护一个小顶堆，堆顶就是使用次数最少的地址，路由时次数加一后下沉，是O(log n)的；
+ * 堆只由同一个任务的触发线程修改，锁住的是这个任务自己的状态，不同任务之间互不影响。
+ * 地址列表只在变化时（执行器注册、下线）对比一次，删除的地址从堆中移除。
  */
 public class ExecutorRouteLFU extends ExecutorRouter {
 
-    private static ConcurrentMap<Integer, HashMap<String, Integer>> jobLfuMap = new ConcurrentHashMap<>();
-    private static long CACHE_VALID_TIME = 0;
+    /**
+     * 使用次数的上限，堆顶超过后所有地址的次数减去堆顶的次数，保持相对大小不变
+     */
+    private static final long COUNT_REBASE_THRESHOLD = 1000000;
 
-    public String route(int jobId, List<String> addressList) {
+    private static final RouteJobStates<LfuState> jobLfuStates = new RouteJobStates<>(LfuState::new);
 
-        // cache clear
-        if (System.currentTimeMillis() > CACHE_VALID_TIME) {
-            jobLfuMap.clear();
-            CACHE_VALID_TIME = System.currentTimeMillis() + 1000 * 60 * 60 * 24;
+    public String route(int jobId, List<String> addressList) {
+        LfuState lfuState = jobLfuStates.get(jobId);
+        synchronized (lfuState) {
+            lfuState.sync(addressList);
+            return lfuState.useLeast();
         }
+    }
 
-        // lfu item init
-        HashMap<String, Integer> lfuItemMap = jobLfuMap.get(jobId);     // Key排序可以用TreeMap+构造入参Compare；Value
-        // 排序暂时只能通过ArrayList；
-        if (lfuItemMap == null) {
-            lfuItemMap = new HashMap<String, Integer>();
-            jobLfuMap.putIfAbsent(jobId, lfuItemMap);   // 避免重复覆盖
+    @Override
+    public ReturnT<String> route(TriggerParam triggerParam, List<String> addressList) {
+        String address = route(triggerParam.getJobId(), addressList);
+        return new ReturnT<String>(address);
+    }
+
+    /**
+     * 单个任务各个地址的使用次数，按次数组成的小顶堆，读写时锁住自身
+     */
+    private static class LfuState extends RouteJobStates.JobState {
+        // 上次同步的地址列表，执行器的地址列表在注册信息变化前是同一个对象，没有变化时不用对比
+        private List<String> addressList;
+        private String[] heapAddresses = new String[8];
+        private long[] heapCounts = new long[8];
+        private int size = 0;
+        // 地址在堆中的下标
+        private final Map<String, Integer> heapIndex = new HashMap<>();
+
+        private void sync(List<String> addressList) {
+            if (this.addressList == addressList) {
+                return;
+            }
+            this.addressList = addressList;
+            Set<String> addressSet = new HashSet<>(addressList);
+            // remove old
+            List<String> delKeys = new ArrayList<>();
+            for (String existKey : heapIndex.keySet()) {
+                if (!addressSet.contains(existKey)) {
+                    delKeys.add(existKey);
+                }
+            }
+            for (String delKey : delKeys) {
+                remove(heapIndex.get(delKey));
+            }
+            // put new，初始化时主动Random一次，缓解首次压力
+            for (String address : addressList) {
+                if (!heapIndex.containsKey(address)) {
+                    add(address, ThreadLocalRandom.current().nextInt(addressList.size()));
+                }
+            }
         }
 
-        // put new
-        for (String address : addressList) {
-            if (!lfuItemMap.containsKey(address) || lfuItemMap.get(address) > 1000000) {
-                lfuItemMap.put(address, new Random().nextInt(addressList.size()));  // 初始化时主动Random一次，缓解首次压力
+        private String useLeast() {
+            String address = heapAddresses[0];
+            heapCounts[0]++;
+            siftDown(0);
+            if (heapCounts[0] > COUNT_REBASE_THRESHOLD) {
+                long base = heapCounts[0];
+                for (int i = 0; i < size; i++) {
+                    heapCounts[i] -= base;
+                }
             }
+            return address;
         }
-        // remove old
-        List<String> delKeys = new ArrayList<>();
-        for (String existKey : lfuItemMap.keySet()) {
-            if (!addressList.contains(existKey)) {
-                delKeys.add(existKey);
+
+        private void add(String address, long count) {
+            if (size == heapAddresses.length) {
+                String[] addresses = new String[size * 2];
+                long[] counts = new long[size * 2];
+                System.arraycopy(heapAddresses, 0, addresses, 0, size);
+                System.arraycopy(heapCounts, 0, counts, 0, size);
+                heapAddresses = addresses;
+                heapCounts = counts;
             }
+            set(size, address, count);
+            size++;
+            siftUp(size - 1);
         }
-        if (delKeys.size() > 0) {
-            for (String delKey : delKeys) {
-                lfuItemMap.remove(delKey);
+
+        private void remove(int index) {
+            heapIndex.remove(heapAddresses[index]);
+            size--;
+            if (index != size) {
+                set(index, heapAddresses[size], heapCounts[size]);
+                heapAddresses[size] = null;
+                siftDown(index);
+                siftUp(index);
+            } else {
+                heapAddresses[size] = null;
             }
         }
 
-        // load least userd count address
-        List<Map.Entry<String, Integer>> lfuItemList = new ArrayList<Map.Entry<String, Integer>>(lfuItemMap.entrySet());
-        Collections.sort(lfuItemList, new Comparator<Map.Entry<String, Integer>>() {
-            @Override
-            public int compare(Map.Entry<String, Integer> o1, Map.Entry<String, Integer> o2) {
-                return o1.getValue().compareTo(o2.getValue());
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (heapCounts[parent] <= heapCounts[index]) {
+                    break;
+                }
+                swap(index, parent);
+                index = parent;
             }
-        });
+        }
 
-        Map.Entry<String, Integer> addressItem = lfuItemList.get(0);
-        String minAddress = addressItem.getKey();
-        addressItem.setValue(addressItem.getValue() + 1);
+        private void siftDown(int index) {
+            while (true) {
+                int least = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && heapCounts[left] < heapCounts[least]) {
+                    least = left;
+                }
+                if (right < size && heapCounts[right] < heapCounts[least]) {
+                    least = right;
+                }
+                if (least == index) {
+                    return;
+                }
+                swap(index, least);
+                index = least;
+            }
+        }
 
-        return addressItem.getKey();
-    }
+        private void swap(int i, int j) {
+            String address = heapAddresses[i];
+            long count = heapCounts[i];
+            set(i, heapAddresses[j], heapCounts[j]);
+            set(j, address, count);
+        }
 
-    @Override
-    public ReturnT<String> route(TriggerParam triggerParam, List<String> addressList) {
-        String address = route(triggerParam.getJobId(), addressList);
-        return new ReturnT<String>(address);
+        private void set(int index, String address, long count) {
+            heapAddresses[index] = address;
+            heapCounts[index] = count;
+            heapIndex.put(address, index);
+        }
     }
 
 }
@@ -4,11 +4,12 @@ import com.xxl.job.admin.core.route.ExecutorRouter;
 import com.xxl.job.core.biz.model.ReturnT;
 import com.xxl.job.core.biz.model.TriggerParam;
 
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * <h1>最近最久未使用</h1>
@@ -16,56 +17,32 @@ import java.util.concurrent.ConcurrentMap;
  * 单个JOB对应的每个执行器，最久为使用的优先被选举
  * a、LFU(Least Frequently Used)：最不经常使用，频率/次数
  * b(*)、LRU(Least Recently Used)：最近最久未使用，时间
+ * <p>
+ * 原来每个任务使用一个 accessOrder 的 LinkedHashMap，多个触发线程同时读写并不安全，每次路由还要遍历对比一遍地址列表。
+ * 现在每个任务的地址按使用顺序放在无锁的双端队列里，队头就是最久未使用的地址，取出后放回队尾，路由是O(1)的；
+ * 地址列表只在变化时（执行器注册、下线）对比一次，新增的地址放在队头优先使用，删除的地址从队列中移除。
  */
 public class ExecutorRouteLRU extends ExecutorRouter {
 
-    private static ConcurrentMap<Integer, LinkedHashMap<String, String>> jobLRUMap = new ConcurrentHashMap<>();
-    private static long CACHE_VALID_TIME = 0;
+    private static final RouteJobStates<LruState> jobLRUStates = new RouteJobStates<>(LruState::new);
 
     public String route(int jobId, List<String> addressList) {
+        LruState lruState = jobLRUStates.get(jobId);
+        AddressSnapshot snapshot = lruState.sync(addressList);
 
-        // cache clear
-        if (System.currentTimeMillis() > CACHE_VALID_TIME) {
-            jobLRUMap.clear();
-            CACHE_VALID_TIME = System.currentTimeMillis() + 1000 * 60 * 60 * 24;
-        }
-
-        // init lru
-        LinkedHashMap<String, String> lruItem = jobLRUMap.get(jobId);
-        if (lruItem == null) {
-            /**
-             * LinkedHashMap
-             *      a、accessOrder：true=访问顺序排序（get/put时排序）；false=插入顺序排期；
-             *      b、removeEldestEntry：新增元素时将会调用，返回true时会删除最老元素；可封装LinkedHashMap并重写该方法，比如定义最大容量，超出是返回true
-             *      即可实现固定长度的LRU算法；
-             */
-            lruItem = new LinkedHashMap<String, String>(16, 0.75f, true);
-            jobLRUMap.putIfAbsent(jobId, lruItem);
-        }
-
-        // put new
-        for (String address : addressList) {
-            if (!lruItem.containsKey(address)) {
-                lruItem.put(address, address);
+        // 取出最久未使用的地址，放回队尾；已经删除的地址（同步地址时其他线程正好取出了它）直接丢弃
+        for (int i = 0, max = snapshot.addressSet.size() * 2; i < max; i++) {
+            String eldestAddress = lruState.addressQueue.pollFirst();
+            if (eldestAddress == null) {
+                break;
             }
-        }
-        // remove old
-        List<String> delKeys = new ArrayList<>();
-        for (String existKey : lruItem.keySet()) {
-            if (!addressList.contains(existKey)) {
-                delKeys.add(existKey);
-            }
-        }
-        if (delKeys.size() > 0) {
-            for (String delKey : delKeys) {
-                lruItem.remove(delKey);
+            if (lruState.snapshot.get().addressSet.contains(eldestAddress)) {
+                lruState.addressQueue.offerLast(eldestAddress);
+                return eldestAddress;
             }
         }
-
-        // load
-        String eldestKey = lruItem.entrySet().iterator().next().getKey();
-        String eldestValue = lruItem.get(eldestKey);
-        return eldestValue;
+        // 同一个任务的并发触发数超过地址数时队列可能暂时为空，这时随机选择一个地址
+        return addressList.get(ThreadLocalRandom.current().nextInt(addressList.size()));
     }
 
     @Override
@@ -74,4 +51,53 @@ public class ExecutorRouteLRU extends ExecutorRouter {
         return new ReturnT<String>(address);
     }
 
+    /**
+     * 单个任务的地址使用顺序
+     */
+    private static class LruState extends RouteJobStates.JobState {
+        private final ConcurrentLinkedDeque<String> addressQueue = new ConcurrentLinkedDeque<>();
+        private final AtomicReference<AddressSnapshot> snapshot = new AtomicReference<>(new AddressSnapshot(null, new HashSet<>()));
+
+        /**
+         * 地址列表变化时更新队列，执行器的地址列表在注册信息变化前是同一个对象，没有变化时不用对比
+         */
+        private AddressSnapshot sync(List<String> addressList) {
+            AddressSnapshot current = snapshot.get();
+            while (current.addressList != addressList) {
+                AddressSnapshot update = new AddressSnapshot(addressList, new HashSet<>(addressList));
+                if (!snapshot.compareAndSet(current, update)) {
+                    current = snapshot.get();
+                    continue;
+                }
+                // remove old
+                for (String address : current.addressSet) {
+                    if (!update.addressSet.contains(address)) {
+                        addressQueue.removeFirstOccurrence(address);
+                    }
+                }
+                // put new，没有使用过的地址按列表顺序放在队头优先使用
+                Set<String> added = new HashSet<>();
+                for (int i = addressList.size() - 1; i >= 0; i--) {
+                    String address = addressList.get(i);
+                    if (!current.addressSet.contains(address) && added.add(address)) {
+                        addressQueue.removeFirstOccurrence(address);
+                        addressQueue.offerFirst(address);
+                    }
+                }
+                return update;
+            }
+            return current;
+        }
+    }
+
+    private static class AddressSnapshot {
+        private final List<String> addressList;
+        private final Set<String> addressSet;
+
+        private AddressSnapshot(List<String> addressList, Set<String> addressSet) {
+            this.addressList = addressList;
+            this.addressSet = addressSet;
+        }
+    }
+
 }
@@ -0,0 +1,44 @@
+package com.xxl.job.admin.core.route.strategy;
+
+import com.xxl.job.admin.core.route.ExecutorRouter;
+import com.xxl.job.admin.core.thread.JobExecutorLoadHelper;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.biz.model.TriggerParam;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <h1>最低负载</h1>
+ * <p>
+ * 其他路由策略都不知道执行器实际有多忙，忙碌转移也只检测当前这一个任务是否在执行。
+ * 执行器随注册心跳和 beat 响应上报负载（正在执行的任务数、排队的触发数、内嵌服务器线程池使用情况和CPU使用率），
+ * 见 JobExecutorLoadHelper。路由时随机选出两个地址，使用负载分数较低的一个（power of two choices）：
+ * 比每次都选负载最低的地址更不容易在负载信息刷新之前让大量触发涌向同一个执行器，长时间运行的任务也不会一直堆在繁忙的执行器上。
+ */
+public class ExecutorRouteLeastLoaded extends ExecutorRouter {
+
+    @Override
+    public ReturnT<String> route(TriggerParam triggerParam, List<String> addressList) {
+        String address;
+        if (addressList.size() == 1) {
+            address = addressList.get(0);
+        } else {
+            // 随机选出两个不同的地址
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(addressList.size());
+            int second = random.nextInt(addressList.size() - 1);
+            if (second >= first) {
+                second++;
+            }
+            String firstAddress = addressList.get(first);
+            String secondAddress = addressList.get(second);
+            double firstScore = JobExecutorLoadHelper.getInstance().loadScore(firstAddress);
+            double secondScore = JobExecutorLoadHelper.getInstance().loadScore(secondAddress);
+            address = firstScore <= secondScore ? firstAddress : secondAddress;
+        }
+        JobExecutorLoadHelper.getInstance().dispatched(address);
+        return new ReturnT<>(address);
+    }
+
+}
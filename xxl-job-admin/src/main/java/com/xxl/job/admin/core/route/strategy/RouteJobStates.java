@@ -0,0 +1,79 @@
+package com.xxl.job.admin.core.route.strategy;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 路由策略按任务保存的状态（LFU的使用次数、LRU的使用顺序）。
+ * 原来每天整体清空一次，清空之前删除的任务也一直占着内存；现在每分钟由一个触发线程顺带清理一次，
+ * 长时间没有触发的任务的状态被移除，任务数超过上限时缩短空闲时间，保证占用的内存有上限。
+ */
+class RouteJobStates<S extends RouteJobStates.JobState> {
+
+    /**
+     * 任务状态的空闲时间，超过后移除，单位毫秒
+     */
+    private static final long IDLE_EVICT_MS = 24 * 60 * 60 * 1000;
+    /**
+     * 保存状态的任务数上限，超过后移除空闲超过 OVERFLOW_IDLE_EVICT_MS 的任务
+     */
+    private static final int MAX_JOB_STATES = 10000;
+    private static final long OVERFLOW_IDLE_EVICT_MS = 10 * 60 * 1000;
+    private static final long SWEEP_INTERVAL_MS = 60 * 1000;
+
+    private final ConcurrentMap<Integer, S> states = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweepTime = new AtomicLong(0);
+    private final Supplier<S> stateFactory;
+
+    RouteJobStates(Supplier<S> stateFactory) {
+        this.stateFactory = stateFactory;
+    }
+
+    /**
+     * 获取任务的状态，没有时创建
+     */
+    S get(int jobId) {
+        return get(jobId, System.currentTimeMillis());
+    }
+
+    S get(int jobId, long nowTime) {
+        sweep(nowTime);
+        S state = states.get(jobId);
+        if (state == null) {
+            state = states.computeIfAbsent(jobId, key -> stateFactory.get());
+        }
+        state.lastAccessTime = nowTime;
+        return state;
+    }
+
+    /**
+     * 保存状态的任务数
+     */
+    int size() {
+        return states.size();
+    }
+
+    private void sweep(long nowTime) {
+        long sweepTime = nextSweepTime.get();
+        if (nowTime < sweepTime || !nextSweepTime.compareAndSet(sweepTime, nowTime + SWEEP_INTERVAL_MS)) {
+            return;
+        }
+        long idleEvictMs = states.size() > MAX_JOB_STATES ? OVERFLOW_IDLE_EVICT_MS : IDLE_EVICT_MS;
+        Iterator<S> iterator = states.values().iterator();
+        while (iterator.hasNext()) {
+            if (nowTime - iterator.next().lastAccessTime > idleEvictMs) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 单个任务的路由状态
+     */
+    abstract static class JobState {
+        volatile long lastAccessTime;
+    }
+}
@@ -0,0 +1,124 @@
+package com.xxl.job.admin.core.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 任务到期时间的内存索引。
+ * 任务数很多的时候，每个调度周期都按 trigger_next_time 扫一遍 xxl_job_info，数据库的CPU基本都耗在这个查询上。
+ * 这里在调度线程中按照下次触发时间维护一份有序索引（每个分区一棵红黑树），到期的任务直接从内存中取出，
+ * 取出和更新都是O(log n)：
+ * 1、启动、分区归属变化、以及每隔一段时间全量加载一次运行中的任务；
+ * 2、两次全量加载之间，按 schedule_update_time 增量拉取调度被修改过的任务（新增、修改调度配置、启动、停止、停机交接
+ * 都会更新 schedule_update_time，调度线程写回触发时间时不更新）；
+ * 3、调度线程自己刷新了任务的下次触发时间后，同步更新索引。
+ * <p>
+ * 索引只用来找出候选的任务ID，真正调度前仍然会在分区锁内按主键把这些任务读出来校验一遍，所以即使索引落后于
+ * 数据库（比如其他节点刚修改过任务），也只会让任务晚一个周期被发现，不会重复或者提前触发。
+ * <p>
+ * 只由任务扫描线程访问，没有做并发控制。
+ */
+public class JobDueIndex {
+
+    private final int partitionCount;
+
+    /**
+     * 当前节点拥有的分区对应的索引，key为分区ID
+     */
+    private final Map<Integer, TreeSet<Entry>> partitionIndex = new HashMap<>();
+
+    /**
+     * 任务ID到索引项的映射，用来在更新时找到旧的索引项
+     */
+    private final Map<Integer, Entry> entryById = new HashMap<>();
+
+    public JobDueIndex(int partitionCount, int[] ownedPartitions) {
+        this.partitionCount = partitionCount;
+        for (int partitionId : ownedPartitions) {
+            partitionIndex.put(partitionId, new TreeSet<>());
+        }
+    }
+
+    public int size() {
+        return entryById.size();
+    }
+
+    /**
+     * 新增或者更新一个任务，任务不在运行状态或者不属于当前节点的分区时从索引中移除
+     */
+    public void put(int jobId, int triggerStatus, long triggerNextTime) {
+        remove(jobId);
+        if (triggerStatus != 1) {
+            return;
+        }
+        TreeSet<Entry> index = partitionIndex.get(partitionOf(jobId));
+        if (index == null) {
+            return;
+        }
+        Entry entry = new Entry(jobId, triggerNextTime);
+        index.add(entry);
+        entryById.put(jobId, entry);
+    }
+
+    public void remove(int jobId) {
+        Entry entry = entryById.remove(jobId);
+        if (entry != null) {
+            partitionIndex.get(partitionOf(jobId)).remove(entry);
+        }
+    }
+
+    /**
+     * 取出分区中下次触发时间不晚于maxNextTime的任务ID，最多limit个，不会从索引中移除
+     */
+    public List<Integer> due(int partitionId, long maxNextTime, int limit) {
+        TreeSet<Entry> index = partitionIndex.get(partitionId);
+        if (index == null || index.isEmpty() || index.first().triggerNextTime > maxNextTime) {
+            return Collections.emptyList();
+        }
+        List<Integer> jobIds = new ArrayList<>();
+        for (Entry entry : index) {
+            if (entry.triggerNextTime > maxNextTime || jobIds.size() >= limit) {
+                break;
+            }
+            jobIds.add(entry.jobId);
+        }
+        return jobIds;
+    }
+
+    /**
+     * 所有分区中最早的下次触发时间，索引为空时返回Long.MAX_VALUE
+     */
+    public long earliestNextTime() {
+        long earliest = Long.MAX_VALUE;
+        for (TreeSet<Entry> index : partitionIndex.values()) {
+            if (!index.isEmpty() && index.first().triggerNextTime < earliest) {
+                earliest = index.first().triggerNextTime;
+            }
+        }
+        return earliest;
+    }
+
+    private int partitionOf(int jobId) {
+        return partitionCount > 1 ? jobId % partitionCount : 0;
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        private final int jobId;
+        private final long triggerNextTime;
+
+        private Entry(int jobId, long triggerNextTime) {
+            this.jobId = jobId;
+            this.triggerNextTime = triggerNextTime;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            int c = Long.compare(triggerNextTime, o.triggerNextTime);
+            return c != 0 ? c : Integer.compare(jobId, o.jobId);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.xxl.job.admin.core.scheduler;
+
+/**
+ * 调度扫描的自适应预读策略。
+ * 原来预读窗口固定是5秒，预读数量固定是 (快线程池最大线程数 + 慢线程池最大线程数) * 20，相当于假设每次触发
+ * 耗时50ms；扫描线程读到任务就每秒扫一次库，读不到就每5秒扫一次，和集群的实际负载没有关系。这里根据每个
+ * 调度周期的观测值来调整：
+ * 1、预读数量：按照触发线程池实测的平均触发耗时折算，触发得越快，一次能处理的任务越多；触发线程池的队列
+ * 积压越多，预读得越少，避免把任务塞满队列；
+ * 2、预读窗口：读不到任务时逐步放大窗口，直到上限，空闲集群的扫描间隔也随之变长；读到的任务数达到预读数量
+ * 时说明窗口内还有没读完的任务，缩小窗口；
+ * 3、扫描间隔：睡到 "本轮读到的任务中最早的下次触发时间" 和 "本轮窗口的结束时间" 中较早的那个，再减去扫描
+ * 本身耗时的余量，保证任务在触发之前一定会被读到。
+ * <p>
+ * 只由任务扫描线程调用，其他线程只会读取窗口和数量。
+ */
+public class JobPreReadPolicy {
+
+    /**
+     * 原来预读数量隐含的单次触发耗时，单位毫秒
+     */
+    private static final double BASE_TRIGGER_COST = 50;
+
+    /**
+     * 扫描耗时的平滑系数
+     */
+    private static final double EWMA_ALPHA = 0.2;
+
+    /**
+     * 扫描间隔的最小余量，单位毫秒
+     */
+    private static final long MIN_SCAN_MARGIN = 200;
+
+    private final int baseCount;
+    private final long baseWindowMs;
+    private final long minWindowMs;
+    private final long maxWindowMs;
+
+    private volatile long windowMs;
+    private volatile int count;
+
+    /**
+     * 扫描耗时的指数加权平均值，单位毫秒
+     */
+    private double scanCostAvg = 0;
+
+    /**
+     * @param baseCount    基准预读数量，对应原来的 (fastMax + slowMax) * 20
+     * @param baseWindowMs 基准预读窗口，对应原来的5000ms
+     * @param minWindowMs  预读窗口下限
+     * @param maxWindowMs  预读窗口上限
+     */
+    public JobPreReadPolicy(int baseCount, long baseWindowMs, long minWindowMs, long maxWindowMs) {
+        this.baseCount = baseCount;
+        this.baseWindowMs = baseWindowMs;
+        this.minWindowMs = minWindowMs;
+        this.maxWindowMs = Math.max(minWindowMs, maxWindowMs);
+        this.windowMs = Math.min(Math.max(baseWindowMs, this.minWindowMs), this.maxWindowMs);
+        this.count = baseCount;
+    }
+
+    /**
+     * 当前的预读窗口，单位毫秒
+     */
+    public long getWindowMs() {
+        return windowMs;
+    }
+
+    /**
+     * 当前的预读数量
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * 一个调度周期结束后，根据本轮的观测值调整预读窗口和预读数量
+     *
+     * @param readCount      本轮读到的任务数，多个分区时为各分区之和
+     * @param scanCostMs     本轮扫描的总耗时
+     * @param triggerCostAvg 触发线程池的平均触发耗时，没有样本时为0
+     * @param queueSize      触发线程池队列中积压的任务数
+     * @param queueCapacity  触发线程池队列的总容量
+     */
+    public void update(int readCount, long scanCostMs, double triggerCostAvg, int queueSize, int queueCapacity) {
+        scanCostAvg = scanCostAvg == 0 ? scanCostMs : scanCostAvg + EWMA_ALPHA * (scanCostMs - scanCostAvg);
+
+        // 调整预读窗口
+        long window = windowMs;
+        if (readCount == 0) {
+            window = Math.min(window * 2, maxWindowMs);
+        } else if (readCount >= count) {
+            window = Math.max(window / 2, minWindowMs);
+        }
+        windowMs = window;
+
+        // 调整预读数量：按触发耗时和窗口长度折算，再按队列积压程度打折
+        double cost = triggerCostAvg > 0 ? triggerCostAvg : BASE_TRIGGER_COST;
+        double target = baseCount * (BASE_TRIGGER_COST / cost) * ((double) window / baseWindowMs);
+        if (queueCapacity > 0) {
+            double fill = Math.min(1, (double) queueSize / queueCapacity);
+            target *= Math.max(0.1, 1 - fill);
+        }
+        int minCount = Math.max(1, baseCount / 10);
+        int maxCount = baseCount * 5;
+        count = (int) Math.max(minCount, Math.min(maxCount, target));
+    }
+
+    /**
+     * 计算距离下一次扫描还需要等待的毫秒数
+     *
+     * @param scanStart       本轮扫描开始的时间
+     * @param scanWindowMs    本轮扫描使用的预读窗口
+     * @param earliestNext    本轮读到的任务中最早的下次触发时间，没有读到任务时为Long.MAX_VALUE
+     * @param saturated       本轮是否有分区读满了预读数量
+     * @param nowMs           当前时间
+     */
+    public long nextScanDelay(long scanStart, long scanWindowMs, long earliestNext, boolean saturated, long nowMs) {
+        if (saturated) {
+            // 还有没读完的任务，马上开始下一轮
+            return 0;
+        }
+        long margin = Math.max(MIN_SCAN_MARGIN, (long) (scanCostAvg * 2));
+        long wakeUp = Math.min(earliestNext, scanStart + scanWindowMs) - margin;
+        return Math.max(0, wakeUp - nowMs);
+    }
+}
@@ -0,0 +1,302 @@
+package com.xxl.job.admin.core.scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h1>毫秒级分层时间轮</h1>
+ * 原来的时间轮只有60个刻度，一个刻度代表一秒，任务的触发时间会被取整到秒，而且扫描线程往
+ * ArrayList里添加、时间轮线程从Map中移除，两个线程同时操作同一个非线程安全的集合。
+ * <p>
+ * 这里换成了分层时间轮（思路和Kafka的TimingWheel一致）：
+ * 1、第0层每个刻度是tickMs毫秒，共wheelSize个刻度，超出第0层范围的任务放到上一层，上一层的刻度
+ * 等于下一层一圈的时长，层数按需增长；
+ * 2、上层的刻度到期时，把刻度里的任务重新放一遍（降级），最终都会落到第0层，第0层的刻度到期时
+ * 直接派发；
+ * 3、任何线程都可以通过{@link #push(int, long, long)}放入任务，任务先进入一个无锁的待处理栈（CAS），
+ * 只有时间轮线程会把它们搬进刻度，所以刻度里的int[]/long[]只由一个线程读写，不需要加锁，也不
+ * 会为每个任务创建包装对象。每个任务可以附带一个long类型的tag，时间轮不关心它的含义，派发时原样交回。
+ * <p>
+ * 任务不会早于触发时间派发，延迟不超过一个tick，同时会统计派发延迟（实际派发时间 - 计划触发时间），
+ * 用来观察调度精度。
+ */
+public class JobTimeWheel {
+
+    /**
+     * 时间轮派发任务的回调
+     */
+    public interface Dispatcher {
+        /**
+         * @param jobId       任务ID
+         * @param triggerTime 计划触发时间
+         * @param tag         放入时附带的tag
+         */
+        void dispatch(int jobId, long triggerTime, long tag);
+    }
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final int wheelMask;
+
+    /**
+     * 各层时间轮，下标0是精度最高的一层，只由时间轮线程访问
+     */
+    private final List<Level> levels = new ArrayList<>();
+
+    /**
+     * 其他线程放入的任务先进入这个无锁栈，由时间轮线程在每次推进前一次性取走
+     */
+    private final AtomicReference<PendingNode> pending = new AtomicReference<>();
+
+    /**
+     * 时间轮中还未派发的任务数（包含待处理栈中的）
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    // 派发延迟统计
+    private final LongAdder dispatchCount = new LongAdder();
+    private final LongAdder dispatchLagTotal = new LongAdder();
+    private volatile long dispatchLagMax = 0;
+
+    public JobTimeWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs < 1) {
+            throw new IllegalArgumentException("xxl-job, time-wheel tickMs must be positive.");
+        }
+        if (wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("xxl-job, time-wheel wheelSize must be a power of 2.");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.wheelMask = wheelSize - 1;
+        levels.add(new Level(tickMs, startMs));
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    /**
+     * 把任务放入时间轮，可以被任意线程调用
+     */
+    public void push(int jobId, long triggerTime, long tag) {
+        size.incrementAndGet();
+        PendingNode node = new PendingNode(jobId, triggerTime, tag);
+        PendingNode head;
+        do {
+            head = pending.get();
+            node.next = head;
+        } while (!pending.compareAndSet(head, node));
+    }
+
+    /**
+     * 把时间轮推进到nowMs，期间到期的任务都会交给dispatcher，只能由时间轮线程调用
+     */
+    public void advance(long nowMs, Dispatcher dispatcher) {
+        // 先把待处理的任务放进刻度，已经到期的直接派发
+        drainPending(nowMs, dispatcher);
+
+        Level level0 = levels.get(0);
+        while (level0.currentTime + tickMs <= nowMs) {
+            long current = level0.currentTime + tickMs;
+            level0.currentTime = current;
+            for (int i = 1; i < levels.size(); i++) {
+                Level level = levels.get(i);
+                level.currentTime = current - (current % level.tick);
+            }
+            // 第0层当前刻度到期，派发刻度中的所有任务
+            Bucket expired = level0.buckets[(int) ((current / tickMs) & wheelMask)];
+            for (int j = 0; j < expired.size; j++) {
+                fire(expired.jobIds[j], expired.triggerTimes[j], expired.tags[j], nowMs, dispatcher);
+            }
+            expired.clear();
+            // 从最高层开始降级，上层刻度里的任务重新放一遍，最终会落到下层，
+            // 降级必须在第0层当前刻度派发之后，否则会和当前刻度的下标冲突
+            for (int i = levels.size() - 1; i > 0; i--) {
+                Level level = levels.get(i);
+                if (current % level.tick == 0) {
+                    Bucket bucket = level.buckets[(int) ((current / level.tick) & wheelMask)];
+                    for (int j = 0; j < bucket.size; j++) {
+                        place(bucket.jobIds[j], bucket.triggerTimes[j], bucket.tags[j], nowMs, dispatcher);
+                    }
+                    bucket.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * 距离下一个刻度到来还需要等待的毫秒数
+     */
+    public long nextTickDelay(long nowMs) {
+        return tickMs - (nowMs % tickMs);
+    }
+
+    /**
+     * 取出时间轮中所有还未派发的任务（包括待处理栈中的）交给dispatcher，时间轮随之清空，不计入派发延迟。
+     * 只能在时间轮线程停止之后调用，用于停机时把未派发的任务交接出去。
+     */
+    public void drainAll(Dispatcher dispatcher) {
+        for (PendingNode node = pending.getAndSet(null); node != null; node = node.next) {
+            size.decrementAndGet();
+            dispatcher.dispatch(node.jobId, node.triggerTime, node.tag);
+        }
+        for (Level level : levels) {
+            for (Bucket bucket : level.buckets) {
+                for (int j = 0; j < bucket.size; j++) {
+                    size.decrementAndGet();
+                    dispatcher.dispatch(bucket.jobIds[j], bucket.triggerTimes[j], bucket.tags[j]);
+                }
+                bucket.clear();
+            }
+        }
+    }
+
+    private void drainPending(long nowMs, Dispatcher dispatcher) {
+        PendingNode node = pending.getAndSet(null);
+        if (node == null) {
+            return;
+        }
+        // 栈是后进先出的，这里反转一下，保持放入的顺序
+        PendingNode reversed = null;
+        while (node != null) {
+            PendingNode next = node.next;
+            node.next = reversed;
+            reversed = node;
+            node = next;
+        }
+        for (PendingNode item = reversed; item != null; item = item.next) {
+            place(item.jobId, item.triggerTime, item.tag, nowMs, dispatcher);
+        }
+    }
+
+    /**
+     * 找到任务所在的层和刻度，如果触发时间已经落在当前刻度之内，就直接派发
+     */
+    private void place(int jobId, long triggerTime, long tag, long nowMs, Dispatcher dispatcher) {
+        Level level0 = levels.get(0);
+        if (triggerTime <= level0.currentTime) {
+            fire(jobId, triggerTime, tag, nowMs, dispatcher);
+            return;
+        }
+        // 第0层按向上取整放入刻度，刻度到来时里面的任务都已到期，保证不会提前派发
+        if (triggerTime <= level0.currentTime + tickMs * wheelSize) {
+            level0.buckets[(int) (((triggerTime + tickMs - 1) / tickMs) & wheelMask)].add(jobId, triggerTime, tag);
+            return;
+        }
+        // 上层按向下取整放入刻度，刻度到来时降级到下层
+        for (int i = 1; ; i++) {
+            if (i == levels.size()) {
+                Level lower = levels.get(i - 1);
+                long tick = lower.tick * wheelSize;
+                levels.add(new Level(tick, level0.currentTime - (level0.currentTime % tick)));
+            }
+            Level level = levels.get(i);
+            if (triggerTime < level.currentTime + level.tick * wheelSize) {
+                level.buckets[(int) ((triggerTime / level.tick) & wheelMask)].add(jobId, triggerTime, tag);
+                return;
+            }
+        }
+    }
+
+    private void fire(int jobId, long triggerTime, long tag, long nowMs, Dispatcher dispatcher) {
+        size.decrementAndGet();
+
+        long lag = Math.max(0, nowMs - triggerTime);
+        dispatchCount.increment();
+        dispatchLagTotal.add(lag);
+        if (lag > dispatchLagMax) {
+            dispatchLagMax = lag;
+        }
+
+        dispatcher.dispatch(jobId, triggerTime, tag);
+    }
+
+
+    // ---------------------- dispatch lag ----------------------
+
+    /**
+     * 取出并清空派发延迟统计：{派发次数, 延迟总和ms, 最大延迟ms}
+     */
+    public long[] drainLagStats() {
+        long count = dispatchCount.sumThenReset();
+        long total = dispatchLagTotal.sumThenReset();
+        long max = dispatchLagMax;
+        dispatchLagMax = 0;
+        return new long[]{count, total, max};
+    }
+
+
+    // ---------------------- wheel ----------------------
+
+    private final class Level {
+        private final long tick;
+        private final Bucket[] buckets;
+        private long currentTime;
+
+        private Level(long tick, long startMs) {
+            this.tick = tick;
+            this.currentTime = startMs - (startMs % tick);
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket();
+            }
+        }
+    }
+
+    /**
+     * 时间轮的刻度，用基本类型数组存放任务ID、触发时间和tag，只由时间轮线程读写
+     */
+    private static final class Bucket {
+        private int[] jobIds = new int[4];
+        private long[] triggerTimes = new long[4];
+        private long[] tags = new long[4];
+        private int size;
+
+        private void add(int jobId, long triggerTime, long tag) {
+            if (size == jobIds.length) {
+                jobIds = Arrays.copyOf(jobIds, size << 1);
+                triggerTimes = Arrays.copyOf(triggerTimes, size << 1);
+                tags = Arrays.copyOf(tags, size << 1);
+            }
+            jobIds[size] = jobId;
+            triggerTimes[size] = triggerTime;
+            tags[size] = tag;
+            size++;
+        }
+
+        private void clear() {
+            size = 0;
+            // 某个刻度曾经堆积过大量任务时，释放掉多余的空间
+            if (jobIds.length > 1024) {
+                jobIds = new int[4];
+                triggerTimes = new long[4];
+                tags = new long[4];
+            }
+        }
+    }
+
+    private static final class PendingNode {
+        private final int jobId;
+        private final long triggerTime;
+        private final long tag;
+        private PendingNode next;
+
+        private PendingNode(int jobId, long triggerTime, long tag) {
+            this.jobId = jobId;
+            this.triggerTime = triggerTime;
+            this.tag = tag;
+        }
+    }
+}
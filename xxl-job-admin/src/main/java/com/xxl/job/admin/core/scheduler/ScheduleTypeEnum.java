@@ -20,6 +20,35 @@ public enum ScheduleTypeEnum {
 
     private final String title;
 
+    /**
+     * 固定频率的最小间隔，单位毫秒
+     */
+    public static final long FIX_RATE_MIN_MS = 100;
+
+    /**
+     * 解析固定频率的调度配置，返回间隔毫秒数：纯数字的单位是秒（兼容原来的配置），以 ms 结尾的单位是毫秒，比如 "200ms"
+     *
+     * @throws NumberFormatException 配置不是合法的数字
+     */
+    public static long parseFixRateMs(String scheduleConf) {
+        String conf = scheduleConf.trim();
+        if (conf.endsWith("ms")) {
+            return Long.parseLong(conf.substring(0, conf.length() - 2).trim());
+        }
+        return Integer.parseInt(conf) * 1000L;
+    }
+
+    /**
+     * 调度配置的版本号，由调度类型、调度配置和数据库中的调度版本号（schedule_version）计算，不会为0。
+     * 时间轮中预先放入的触发会带上计算它时的版本号，触发时和任务当前的版本号比较，不一致说明调度配置已经修改过。
+     * schedule_version 在每次修改调度配置、启动、停止时加1，调度配置相同时版本号一定不同，
+     * 所以任务停止后又启动、调度配置改过又改回，之前放入的触发也能识别出来
+     */
+    public static int scheduleVersion(String scheduleType, String scheduleConf, int scheduleVersion) {
+        int version = 31 * (31 * String.valueOf(scheduleType).hashCode() + String.valueOf(scheduleConf).hashCode()) + scheduleVersion;
+        return version != 0 ? version : 1;
+    }
+
     public static ScheduleTypeEnum match(String name, ScheduleTypeEnum defaultItem){
         for (ScheduleTypeEnum item: ScheduleTypeEnum.values()) {
             if (item.name().equals(name)) {
@@ -1,16 +1,25 @@
 package com.xxl.job.admin.core.scheduler;
 
 import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.metrics.XxlJobMetrics;
+import com.xxl.job.admin.core.thread.JobCacheHelper;
 import com.xxl.job.admin.core.thread.JobCompleteHelper;
+import com.xxl.job.admin.core.thread.JobExecutorLoadHelper;
 import com.xxl.job.admin.core.thread.JobFailMonitorHelper;
 import com.xxl.job.admin.core.thread.JobLogReportHelper;
+import com.xxl.job.admin.core.thread.JobLogWriteHelper;
 import com.xxl.job.admin.core.thread.JobRegistryHelper;
+import com.xxl.job.admin.core.thread.JobRouteProbeHelper;
+import com.xxl.job.admin.core.thread.JobRunBatchHelper;
 import com.xxl.job.admin.core.thread.JobScheduleHelper;
+import com.xxl.job.admin.core.thread.JobSchedulePartitionHelper;
 import com.xxl.job.admin.core.thread.JobTriggerPoolHelper;
 import com.xxl.job.admin.core.util.I18nUtil;
 import com.xxl.job.core.biz.ExecutorBiz;
 import com.xxl.job.core.biz.client.ExecutorBizClient;
+import com.xxl.job.core.codec.RemotingCodecs;
 import com.xxl.job.core.enums.ExecutorBlockStrategyEnum;
+import com.xxl.job.core.util.XxlJobAsyncRemotingUtil;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.concurrent.ConcurrentHashMap;
@@ -31,12 +40,37 @@ public class XxlJobScheduler {
         // 初始化语言国际化的操作，其实内部就是把一些策略的中文初始化好
         initI18n();
 
+        // 注册监控指标，各个组件在运行过程中会往里面记录数据
+        XxlJobMetrics.getInstance().start(XxlJobAdminConfig.getAdminConfig().getMeterRegistry());
+
+        // 启动任务、执行器快照缓存，触发线程从缓存中读取任务和执行器信息
+        JobCacheHelper.getInstance().start();
+
+        // 启动调度日志批量写入组件，触发线程的调度日志由它合并写入数据库
+        JobLogWriteHelper.getInstance().start();
+
+        // 登记为长连接池的使用方，destroy 时注销，和同一个JVM中的执行器共用连接池
+        XxlJobAsyncRemotingUtil.retain();
+        // 异步调用执行器时每个执行器地址的最大连接数
+        XxlJobAsyncRemotingUtil.setMaxConnectionsPerAddress(XxlJobAdminConfig.getAdminConfig().getTriggerAsyncConnections());
+        // 和执行器之间远程调用首选的编解码器，调用执行器和接收执行器回调、注册都按它协商
+        RemotingCodecs.setPreferredCodec(XxlJobAdminConfig.getAdminConfig().getTriggerCodec());
+
         /*
         初始化任务触发线程池，这里面会创建两个线程池，一个快线程池，一个
         慢线程池，触发器任务的执行就是由这两个线程池负责的。
          */
         JobTriggerPoolHelper.toStart();
 
+        // 启动触发请求合并组件，发往同一个执行器的触发合并成一次请求
+        JobRunBatchHelper.getInstance().start();
+
+        // 启动故障转移、忙碌转移路由的探测组件，并发探测执行器地址并缓存探测结果
+        JobRouteProbeHelper.getInstance().start();
+
+        // 启动执行器负载刷新组件，"最低负载"路由策略用到的执行器定期刷新负载
+        JobExecutorLoadHelper.getInstance().start();
+
         // 初始化注册中心组件
         JobRegistryHelper.getInstance().start();
 
@@ -52,6 +86,12 @@ public class XxlJobScheduler {
          */
         JobLogReportHelper.getInstance().start();
 
+        /*
+        调度分区组件，调度中心节点之间互相感知，并计算出当前节点负责调度的分区，
+        必须在任务调度线程之前启动。
+         */
+        JobSchedulePartitionHelper.getInstance().start();
+
         /*
         初始化任务调度线程，这个线程可以说是xxl-job服务端的核心了。
         注意：所谓的任务调度就是哪个任务该执行了，这个线程就会把该
@@ -65,11 +105,19 @@ public class XxlJobScheduler {
 
     public void destroy() throws Exception {
         JobScheduleHelper.getInstance().toStop();
+        JobSchedulePartitionHelper.getInstance().toStop();
         JobLogReportHelper.getInstance().toStop();
         JobCompleteHelper.getInstance().toStop();
         JobFailMonitorHelper.getInstance().toStop();
         JobRegistryHelper.getInstance().toStop();
         JobTriggerPoolHelper.toStop();
+        JobRunBatchHelper.getInstance().toStop();
+        JobRouteProbeHelper.getInstance().toStop();
+        JobExecutorLoadHelper.getInstance().toStop();
+        JobLogWriteHelper.getInstance().toStop();
+        XxlJobAsyncRemotingUtil.release();
+        JobCacheHelper.getInstance().toStop();
+        XxlJobMetrics.getInstance().toStop();
     }
 
     // ---------------------- I18n ----------------------
@@ -0,0 +1,234 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.model.XxlJobGroup;
+import com.xxl.job.admin.core.model.XxlJobInfo;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 触发链路上的任务、执行器快照缓存。
+ * 每次触发都要按ID查询一次 xxl_job_info 和 xxl_job_group，任务多、触发频繁的时候这两次查询就成了触发线程的主要开销，
+ * 所以这里把查询结果缓存在内存中，正常情况下触发不再访问数据库，执行器的地址列表也在放入缓存前解析好。
+ * <p>
+ * 缓存的失效分为两种：
+ * 1、本节点修改任务、执行器（XxlJobServiceImpl、JobCodeController、JobGroupController、JobRegistryHelper）时直接失效对应的缓存；
+ * 2、其他调度中心节点的修改，由刷新线程每秒按 update_time 增量查询一次，update_time 就是数据的版本号，
+ * 和缓存中快照的 update_time 不一致就失效。update_time 只在用户修改任务时更新，调度线程写回触发时间不会更新它，
+ * 所以任务的每次触发不会使缓存失效。
+ * 另外缓存项有最长存活时间，用来兜底同一秒内多次修改导致 update_time 相同、以及其他节点删除数据的情况。
+ * <p>
+ * 注意：缓存中的对象是多个触发线程共享的只读快照，使用方不能修改，需要修改时先复制一份。
+ */
+@Slf4j
+public class JobCacheHelper {
+
+    @Getter
+    private static JobCacheHelper instance = new JobCacheHelper();
+
+    /**
+     * 缓存项的最长存活时间，单位毫秒
+     */
+    private static final long ENTRY_TTL_MS = 60 * 1000;
+
+    /**
+     * 检查其他节点修改的间隔，单位毫秒
+     */
+    private static final long REFRESH_INTERVAL_MS = 1000;
+
+    /**
+     * 增量查询往前多查的时间，单位毫秒，兼容各节点之间的时钟偏差和查询时还没有提交的事务
+     */
+    private static final long REFRESH_OVERLAP_MS = 10 * 1000;
+
+    private final ConcurrentMap<Integer, CacheEntry<XxlJobInfo>> jobCache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, CacheEntry<XxlJobGroup>> groupCache = new ConcurrentHashMap<>();
+
+    /**
+     * 失效次数，从数据库加载期间如果发生了失效，加载到的数据可能是修改前的，就不放入缓存
+     */
+    private final AtomicLong invalidateCount = new AtomicLong();
+
+    // 刷新线程
+    private Thread refreshThread;
+    // 线程是否停止运行
+    private volatile boolean toStop = false;
+    // 没有启动的时候直接查询数据库
+    private volatile boolean started = false;
+
+    public void start() {
+        toStop = false;
+        started = true;
+        refreshThread = new Thread(() -> {
+            // 上一次增量查询的时间
+            long lastRefreshTime = System.currentTimeMillis();
+            while (!toStop) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(REFRESH_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    if (!toStop) {
+                        log.error(e.getMessage(), e);
+                    }
+                }
+                if (toStop) {
+                    break;
+                }
+                try {
+                    long now = System.currentTimeMillis();
+                    refresh(new Date(lastRefreshTime - REFRESH_OVERLAP_MS));
+                    evictExpired(now);
+                    lastRefreshTime = now;
+                } catch (Exception e) {
+                    if (!toStop) {
+                        log.error(">>>>>>>>>>> xxl-job, job cache refresh error:{}", e);
+                    }
+                }
+            }
+            log.info(">>>>>>>>>>> xxl-job, job cache refresh thread stop");
+        });
+        refreshThread.setDaemon(true);
+        refreshThread.setName("xxl-job, admin JobCacheHelper");
+        refreshThread.start();
+    }
+
+    public void toStop() {
+        toStop = true;
+        started = false;
+        refreshThread.interrupt();
+        try {
+            refreshThread.join();
+        } catch (InterruptedException e) {
+            log.error(e.getMessage(), e);
+        }
+        jobCache.clear();
+        groupCache.clear();
+    }
+
+    /**
+     * 按ID获取任务快照，返回的对象不能修改
+     */
+    public XxlJobInfo loadJob(int jobId) {
+        if (!started) {
+            return XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().loadById(jobId);
+        }
+        CacheEntry<XxlJobInfo> entry = jobCache.get(jobId);
+        long now = System.currentTimeMillis();
+        if (entry != null && now - entry.loadTime < ENTRY_TTL_MS) {
+            return entry.value;
+        }
+        long count = invalidateCount.get();
+        XxlJobInfo jobInfo = XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().loadById(jobId);
+        if (jobInfo == null) {
+            jobCache.remove(jobId);
+        } else if (count == invalidateCount.get()) {
+            jobCache.put(jobId, new CacheEntry<>(jobInfo, now));
+        }
+        return jobInfo;
+    }
+
+    /**
+     * 按ID获取执行器快照，地址列表已经解析好，返回的对象不能修改
+     */
+    public XxlJobGroup loadGroup(int groupId) {
+        if (!started) {
+            return XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().load(groupId);
+        }
+        CacheEntry<XxlJobGroup> entry = groupCache.get(groupId);
+        long now = System.currentTimeMillis();
+        if (entry != null && now - entry.loadTime < ENTRY_TTL_MS) {
+            return entry.value;
+        }
+        long count = invalidateCount.get();
+        XxlJobGroup group = XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().load(groupId);
+        if (group == null) {
+            groupCache.remove(groupId);
+        } else {
+            // 放入缓存之前先解析好地址列表
+            group.getRegistryList();
+            if (count == invalidateCount.get()) {
+                groupCache.put(groupId, new CacheEntry<>(group, now));
+            }
+        }
+        return group;
+    }
+
+    /**
+     * 任务被修改、删除后调用
+     */
+    public void invalidateJob(int jobId) {
+        invalidateCount.incrementAndGet();
+        jobCache.remove(jobId);
+    }
+
+    /**
+     * 执行器被修改、删除或者注册地址刷新后调用
+     */
+    public void invalidateGroup(int groupId) {
+        invalidateCount.incrementAndGet();
+        groupCache.remove(groupId);
+    }
+
+    /**
+     * 增量查询 update_time 不早于指定时间的任务和执行器，update_time 和缓存中快照的不一致就失效
+     */
+    private void refresh(Date since) {
+        List<XxlJobInfo> jobs = XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().findUpdatedSince(since);
+        if (jobs != null) {
+            for (XxlJobInfo job : jobs) {
+                CacheEntry<XxlJobInfo> entry = jobCache.get(job.getId());
+                if (entry != null && !sameVersion(entry.value.getUpdateTime(), job.getUpdateTime())) {
+                    invalidateJob(job.getId());
+                }
+            }
+        }
+        List<XxlJobGroup> groups = XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().findUpdatedSince(since);
+        if (groups != null) {
+            for (XxlJobGroup group : groups) {
+                CacheEntry<XxlJobGroup> entry = groupCache.get(group.getId());
+                if (entry != null && !sameVersion(entry.value.getUpdateTime(), group.getUpdateTime())) {
+                    invalidateGroup(group.getId());
+                }
+            }
+        }
+    }
+
+    /**
+     * 清理过期的缓存项，过期的缓存项读取时也会重新加载，这里清理是为了不让已经删除的数据一直留在内存中
+     */
+    private void evictExpired(long now) {
+        evictExpired(jobCache, now);
+        evictExpired(groupCache, now);
+    }
+
+    private static <T> void evictExpired(ConcurrentMap<Integer, CacheEntry<T>> cache, long now) {
+        Iterator<Map.Entry<Integer, CacheEntry<T>>> it = cache.entrySet().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().getValue().loadTime >= ENTRY_TTL_MS) {
+                it.remove();
+            }
+        }
+    }
+
+    private static boolean sameVersion(Date cached, Date current) {
+        return cached != null && current != null && cached.getTime() == current.getTime();
+    }
+
+    private static class CacheEntry<T> {
+        private final T value;
+        private final long loadTime;
+
+        private CacheEntry(T value, long loadTime) {
+            this.value = value;
+            this.loadTime = loadTime;
+        }
+    }
+}
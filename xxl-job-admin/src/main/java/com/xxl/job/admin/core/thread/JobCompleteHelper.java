@@ -10,6 +10,7 @@ import com.xxl.job.core.util.DateUtil;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -38,6 +39,11 @@ public class JobCompleteHelper {
     private Thread monitorThread;
     private volatile boolean toStop = false;
 
+    /**
+     * 回调时调度日志还在批量写入缓冲区中，最多等待它写入的时间，单位毫秒
+     */
+    private static final long CALLBACK_AWAIT_LOG_MS = 3000;
+
     public void start() {
         callbackThreadPool = new ThreadPoolExecutor(
                 2,
@@ -158,6 +164,19 @@ public class JobCompleteHelper {
 
     /** 处理服务端定时任务执行结果的回调请求 */
     public ReturnT<String> callback(List<HandleCallbackParam> callbackParamList) {
+        /*
+        调度日志是批量写入的，执行很快的任务回调可能比调度日志先到，这时先等待调度日志写入；
+        等待超时说明调度日志还没有落库，应答失败，由执行器写入失败回调文件稍后重试，
+        不能应答成功后只把回调留在内存里，调度中心这时宕机的话调度日志和执行结果都会丢失
+         */
+        List<Long> logIds = new ArrayList<>(callbackParamList.size());
+        for (HandleCallbackParam handleCallbackParam : callbackParamList) {
+            logIds.add(handleCallbackParam.getLogId());
+        }
+        if (!JobLogWriteHelper.getInstance().awaitWritten(logIds, CALLBACK_AWAIT_LOG_MS)) {
+            return new ReturnT<>(ReturnT.FAIL_CODE, "log item not written yet, please retry later.");
+        }
+
         // 对回调请求做异步处理，更新日志中的调用结果
         callbackThreadPool.execute(() -> {
             for (HandleCallbackParam handleCallbackParam : callbackParamList) {
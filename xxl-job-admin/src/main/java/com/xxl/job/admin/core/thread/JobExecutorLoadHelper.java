@@ -0,0 +1,196 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.scheduler.XxlJobScheduler;
+import com.xxl.job.core.biz.ExecutorBiz;
+import com.xxl.job.core.biz.client.ExecutorBizClient;
+import com.xxl.job.core.biz.model.ExecutorLoad;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.enums.RegistryConfig;
+import com.xxl.job.core.util.GsonTool;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 执行器负载信息的缓存，"最低负载"路由策略（ExecutorRouteLeastLoaded）据此选择执行器。
+ * <p>
+ * 负载信息有两个来源：执行器每30秒一次的注册心跳（只会发给其中一个调度中心节点），以及 beat 的响应。
+ * 30秒对路由来说太久了，所以被"最低负载"路由用到的地址，由后台线程每隔 xxl.job.route.load.refresh 毫秒
+ * 调用一次 beat 刷新；两次刷新之间本节点派发给执行器的触发数也计入负载，避免同一时间大量触发都涌向同一个执行器。
+ */
+@Slf4j
+public class JobExecutorLoadHelper {
+
+    @Getter
+    private static JobExecutorLoadHelper instance = new JobExecutorLoadHelper();
+
+    /**
+     * 负载信息的有效时间，超过后视为没有负载信息，单位毫秒
+     */
+    private static final long LOAD_EXPIRE_MS = RegistryConfig.DEAD_TIMEOUT * 1000L;
+    /**
+     * 多长时间没有被路由用到的地址不再刷新负载，单位毫秒
+     */
+    private static final long WATCH_IDLE_MS = 10 * 60 * 1000;
+
+    // 执行器地址 => 负载信息
+    private final ConcurrentMap<String, LoadEntry> executorLoads = new ConcurrentHashMap<>();
+    // 被路由用到的执行器地址 => 最近一次用到的时间
+    private final ConcurrentMap<String, Long> watchedAddresses = new ConcurrentHashMap<>();
+
+    private Thread refreshThread;
+    private volatile boolean toStop = false;
+
+    public void start() {
+        final int refreshInterval = XxlJobAdminConfig.getAdminConfig().getRouteLoadRefresh();
+        refreshThread = new Thread(() -> {
+            while (!toStop) {
+                try {
+                    refresh(refreshInterval);
+                } catch (Exception e) {
+                    if (!toStop) {
+                        log.error(">>>>>>>>>>> xxl-job, JobExecutorLoadHelper refresh error:{}", e.getMessage(), e);
+                    }
+                }
+                try {
+                    TimeUnit.MILLISECONDS.sleep(refreshInterval);
+                } catch (InterruptedException e) {
+                    if (!toStop) {
+                        log.error(e.getMessage(), e);
+                    }
+                }
+            }
+            log.info(">>>>>>>>>>> xxl-job, JobExecutorLoadHelper stop");
+        });
+        refreshThread.setDaemon(true);
+        refreshThread.setName("xxl-job, admin JobExecutorLoadHelper");
+        refreshThread.start();
+    }
+
+    public void toStop() {
+        toStop = true;
+        if (refreshThread == null) {
+            return;
+        }
+        refreshThread.interrupt();
+        try {
+            refreshThread.join();
+        } catch (InterruptedException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 记录执行器上报的负载，注册心跳和 beat 响应都会调用
+     */
+    public void report(String address, ExecutorLoad executorLoad) {
+        if (address == null || executorLoad == null) {
+            return;
+        }
+        executorLoads.put(address, new LoadEntry(executorLoad, System.currentTimeMillis()));
+    }
+
+    /**
+     * 记录 beat 响应中的负载，老版本执行器的响应没有负载信息
+     */
+    public void reportBeat(String address, ReturnT<String> beatResult) {
+        if (beatResult == null || beatResult.getCode() != ReturnT.SUCCESS_CODE
+                || beatResult.getContent() == null || !beatResult.getContent().startsWith("{")) {
+            return;
+        }
+        try {
+            report(address, GsonTool.fromJson(beatResult.getContent(), ExecutorLoad.class));
+        } catch (Exception e) {
+            log.debug(">>>>>>>>>>> xxl-job, parse executor load fail, address:{}, content:{}", address, beatResult.getContent());
+        }
+    }
+
+    /**
+     * 执行器的负载分数，越小越空闲：正在执行的任务数 + 排队的触发数 + 内嵌服务器正在处理和排队的请求数
+     * + CPU使用率 × 10（CPU占满相当于10个正在执行的任务）+ 上次上报之后本节点派发给它的触发数。
+     * 没有负载信息（老版本执行器、刚注册的执行器）时只计算派发数，同时开始定期刷新它的负载。
+     */
+    public double loadScore(String address) {
+        long nowTime = System.currentTimeMillis();
+        Long watchTime = watchedAddresses.get(address);
+        if (watchTime == null || nowTime - watchTime > 1000) {
+            watchedAddresses.put(address, nowTime);
+        }
+        LoadEntry entry = executorLoads.get(address);
+        if (entry == null) {
+            return 0;
+        }
+        double score = entry.dispatched.get();
+        if (nowTime - entry.reportTime <= LOAD_EXPIRE_MS) {
+            ExecutorLoad load = entry.executorLoad;
+            score += load.getRunningJobThreads()
+                    + load.getQueuedTriggers()
+                    + load.getBizActiveThreads()
+                    + load.getBizQueuedRequests()
+                    + Math.max(0, load.getProcessCpuLoad()) * 10;
+        }
+        return score;
+    }
+
+    /**
+     * 本节点向执行器派发了一次触发，在下次上报负载之前计入负载分数
+     */
+    public void dispatched(String address) {
+        LoadEntry entry = executorLoads.get(address);
+        if (entry == null) {
+            entry = executorLoads.computeIfAbsent(address, key -> new LoadEntry(new ExecutorLoad(), 0));
+        }
+        entry.dispatched.incrementAndGet();
+    }
+
+    /**
+     * 刷新被路由用到、并且负载信息已经过了刷新间隔的执行器
+     */
+    private void refresh(int refreshInterval) {
+        long nowTime = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Long>> iterator = watchedAddresses.entrySet().iterator();
+        while (iterator.hasNext() && !toStop) {
+            Map.Entry<String, Long> watched = iterator.next();
+            final String address = watched.getKey();
+            if (nowTime - watched.getValue() > WATCH_IDLE_MS) {
+                // 不再被路由用到，执行器可能已经下线
+                iterator.remove();
+                executorLoads.remove(address);
+                continue;
+            }
+            LoadEntry entry = executorLoads.get(address);
+            if (entry != null && nowTime - entry.reportTime < refreshInterval) {
+                continue;
+            }
+            try {
+                ExecutorBiz executorBiz = XxlJobScheduler.getExecutorBiz(address);
+                if (XxlJobAdminConfig.getAdminConfig().isTriggerAsync() && executorBiz instanceof ExecutorBizClient) {
+                    ((ExecutorBizClient) executorBiz).beatAsync().thenAccept(beatResult -> reportBeat(address, beatResult));
+                } else if (executorBiz != null) {
+                    reportBeat(address, executorBiz.beat());
+                }
+            } catch (Exception e) {
+                log.debug(">>>>>>>>>>> xxl-job, refresh executor load fail, address:{}", address, e);
+            }
+        }
+    }
+
+    private static class LoadEntry {
+        private final ExecutorLoad executorLoad;
+        private final long reportTime;
+        // 上报之后本节点派发给执行器的触发数
+        private final AtomicInteger dispatched = new AtomicInteger();
+
+        private LoadEntry(ExecutorLoad executorLoad, long reportTime) {
+            this.executorLoad = executorLoad;
+            this.reportTime = reportTime;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.xxl.job.admin.core.thread;
 
 import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.metrics.XxlJobMetrics;
 import com.xxl.job.admin.core.model.XxlJobInfo;
 import com.xxl.job.admin.core.model.XxlJobLog;
 import com.xxl.job.admin.core.trigger.TriggerTypeEnum;
@@ -78,8 +79,13 @@ public class JobFailMonitorHelper {
                                     // EXEC JobTriggerPoolHelper#trigger
 									// 如果大于0就立刻远程调度一次
 									// 【注意】log.getExecutorFailRetryCount()-1这行代码，就会在每次重试的时候把重试次数减1，直到为0
-                                    JobTriggerPoolHelper.trigger(log.getJobId(), TriggerTypeEnum.RETRY, (log.getExecutorFailRetryCount() - 1),
-                                            log.getExecutorShardingParam(), log.getExecutorParam(), null);
+                                    if (!JobTriggerPoolHelper.trigger(log.getJobId(), TriggerTypeEnum.RETRY, (log.getExecutorFailRetryCount() - 1),
+                                            log.getExecutorShardingParam(), log.getExecutorParam(), null)) {
+										// 触发线程池过载没有接收重试，解除锁定，下一轮检测时再重试，也先不告警
+										XxlJobMetrics.getInstance().recordTriggerDeferred(TriggerTypeEnum.RETRY.name());
+										XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateAlarmStatus(failLogId, -1, 0);
+										continue;
+                                    }
 									// 记录下来失败重试调用了一次
                                     String retryMsg = "<br><br><span style=\"color:#F39C12;\" > >>>>>>>>>>>" + I18nUtil.getString("jobconf_trigger_type_retry") + "<<<<<<<<<<< </span><br>";
                                     log.setTriggerMsg(log.getTriggerMsg() + retryMsg);
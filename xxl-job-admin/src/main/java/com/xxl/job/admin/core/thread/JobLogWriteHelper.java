@@ -0,0 +1,445 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.exception.XxlJobException;
+import com.xxl.job.admin.core.model.XxlJobLog;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调度日志的批量写入组件。
+ * 原来每次触发都要先insert一条调度日志拿到日志ID，远程调用之后再update触发信息，一次分片广播有多少执行器就要写两倍的数据库，
+ * 现在调度日志ID是从 xxl_job_id_segment 表中按段预先分配的，远程调用时直接携带，调用完成后把完整的调度日志放入写入缓冲区，
+ * 由写入线程把多个触发线程的日志合并成多行insert语句写入数据库，每次触发只写一行、并且和其他触发共用一次数据库交互。
+ * <p>
+ * 日志在缓冲区中最多等待 xxl.job.trigger.logbatch.delay 毫秒；缓冲区满的时候触发线程会等待，等待超时后直接同步写入，
+ * 这样数据库变慢时触发线程也会跟着慢下来，不会无限制地积压日志。
+ * 执行器的执行结果回调可能比调度日志先到，日志ID分配之后就登记为待写入，回调请求要等这些日志写入后才会应答成功，
+ * 等待超时则应答失败，由执行器的失败回调重试机制稍后重新回调，保证应答成功时调度日志已经在数据库中。
+ * <p>
+ * 写入失败的日志（比如数据库暂时不可用）保留在内存中，由写入线程定期重试，直到写入成功，期间回调依然等待它写入；
+ * 远程调用已经发出，调度日志不能丢。
+ * <p>
+ * 集群中所有调度中心都从号段表分配日志ID，不能再有节点使用自增ID写入 xxl_job_log，否则自增ID会和号段中的ID冲突：
+ * 从旧版本升级、没有执行 xxl_job_id_segment 建表脚本时，启动时会尝试自动建表并初始化号段记录，失败时调度中心启动失败；
+ * 升级时需要先停止所有旧版本的调度中心，不支持新旧版本混合运行。
+ */
+@Slf4j
+public class JobLogWriteHelper {
+
+    @Getter
+    private static JobLogWriteHelper instance = new JobLogWriteHelper();
+
+    /**
+     * xxl_job_id_segment 表中调度日志ID对应的业务标识
+     */
+    private static final String LOG_ID_BIZ_TAG = "xxl_job_log";
+
+    /**
+     * 每次从数据库中取出的日志ID数量
+     */
+    private static final int LOG_ID_SEGMENT_STEP = 1000;
+
+    /**
+     * 号段记录的建表语句，和 tables_xxl_job.sql 中一致
+     */
+    private static final String LOG_ID_SEGMENT_DDL = "CREATE TABLE IF NOT EXISTS `xxl_job_id_segment` (\n" +
+            "  `biz_tag` varchar(50) NOT NULL COMMENT '业务标识，如 xxl_job_log',\n" +
+            "  `max_id` bigint(20) NOT NULL DEFAULT '0' COMMENT '已分配出去的最大ID，调度中心每次取一段ID在本地分配',\n" +
+            "  PRIMARY KEY (`biz_tag`)\n" +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+
+    /**
+     * 写入缓冲区的容量
+     */
+    private static final int QUEUE_CAPACITY = 10000;
+
+    /**
+     * 缓冲区满的时候触发线程最多等待的时间，超时后同步写入，单位毫秒
+     */
+    private static final long OFFER_TIMEOUT_MS = 1000;
+
+    /**
+     * 写入失败的日志的重试间隔，单位毫秒
+     */
+    private static final long RETRY_INTERVAL_MS = 1000;
+
+    // 当前号段中下一个可以分配的日志ID和号段中最大的日志ID
+    private final Object logIdLock = new Object();
+    private long nextLogId = 1;
+    private long maxLogId = 0;
+
+    private final BlockingQueue<XxlJobLog> logQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    // 写入失败、等待重试的日志，只由写入线程重试
+    private final Queue<XxlJobLog> failedLogs = new ConcurrentLinkedQueue<>();
+    private long nextRetryTime = 0;
+
+    /**
+     * 已经登记但还没有写入数据库的日志ID，回调处理时用来判断日志是否还没有写入
+     */
+    private final Set<Long> pendingLogIds = ConcurrentHashMap.newKeySet();
+    // 日志写入或者取消登记时通知等待的回调请求
+    private final Object writtenMonitor = new Object();
+
+    // 写入线程
+    private Thread writerThread;
+    // 线程是否停止运行
+    private volatile boolean toStop = false;
+    // 没有启动的时候同步写入
+    private volatile boolean started = false;
+    // 批量数量为1的时候同步写入，写入线程只负责重试
+    private volatile boolean batching = false;
+    private int batchSize = 1;
+
+    public void start() {
+        batchSize = XxlJobAdminConfig.getAdminConfig().getTriggerLogBatchSize();
+        final long batchDelay = XxlJobAdminConfig.getAdminConfig().getTriggerLogBatchDelay();
+        // 号段表不可用时启动失败，不退回自增ID，见类注释
+        initLogIdSegment();
+        batching = batchSize > 1;
+        toStop = false;
+        started = true;
+        writerThread = new Thread(() -> {
+            List<XxlJobLog> batch = new ArrayList<>(batchSize);
+            // 停止之后要把缓冲区中剩下的日志写完再退出
+            while (!toStop || !logQueue.isEmpty()) {
+                try {
+                    XxlJobLog first = logQueue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        retryFailedLogs(false);
+                        continue;
+                    }
+                    batch.add(first);
+                    // 凑满一批或者第一条日志等待超过 batchDelay 就写入
+                    long deadline = System.currentTimeMillis() + batchDelay;
+                    while (batch.size() < batchSize) {
+                        logQueue.drainTo(batch, batchSize - batch.size());
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (batch.size() >= batchSize || remaining <= 0 || toStop) {
+                            break;
+                        }
+                        XxlJobLog next = logQueue.poll(remaining, TimeUnit.MILLISECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                } catch (InterruptedException e) {
+                    if (!toStop) {
+                        log.error(e.getMessage(), e);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                    batch.clear();
+                }
+                retryFailedLogs(false);
+            }
+            // 停止前最后重试一次，仍然失败的日志只能记录下来
+            retryFailedLogs(true);
+            for (XxlJobLog jobLog : failedLogs) {
+                log.error(">>>>>>>>>>> xxl-job, job log write fail and dropped on stop, logId:{}", jobLog.getId());
+            }
+            log.info(">>>>>>>>>>> xxl-job, job log writer thread stop");
+        });
+        writerThread.setDaemon(true);
+        writerThread.setName("xxl-job, admin JobLogWriteHelper");
+        writerThread.start();
+    }
+
+    public void toStop() {
+        if (!started) {
+            return;
+        }
+        // 触发线程池已经停止，这里不再有新的日志进来，等待写入线程把缓冲区写完
+        toStop = true;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            log.error(e.getMessage(), e);
+        }
+        started = false;
+    }
+
+    /**
+     * 在远程调用之前从号段中给调度日志分配ID，并登记为待写入，调用之后的执行结果回调就能知道这条日志还没有写入
+     */
+    public void assignLogId(XxlJobLog jobLog) {
+        jobLog.setId(nextLogId());
+        pendingLogIds.add(jobLog.getId());
+    }
+
+    /**
+     * 分配一个调度日志ID，当前号段用完时从数据库中再取一段
+     */
+    public long nextLogId() {
+        synchronized (logIdLock) {
+            if (nextLogId > maxLogId) {
+                allocateLogIdSegment();
+            }
+            return nextLogId++;
+        }
+    }
+
+    /**
+     * 取消日志ID的待写入登记，触发过程出错、调度日志不会再交给 write 写入时调用，避免回调一直等待这条日志
+     */
+    public void unreserve(long logId) {
+        if (pendingLogIds.remove(logId)) {
+            synchronized (writtenMonitor) {
+                writtenMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 写入一条完整的调度日志，日志ID必须已经通过 assignLogId 分配好
+     */
+    public void write(XxlJobLog jobLog) {
+        if (!started || !batching) {
+            flush(Collections.singletonList(jobLog));
+            return;
+        }
+        pendingLogIds.add(jobLog.getId());
+        boolean queued = false;
+        try {
+            queued = logQueue.offer(jobLog, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            // 触发线程池关闭时会中断触发线程，日志直接同步写入
+            Thread.currentThread().interrupt();
+        }
+        if (!queued) {
+            // 写入线程跟不上，由触发线程自己同步写入
+            flush(Collections.singletonList(jobLog));
+        }
+    }
+
+    /**
+     * 一次写入同一批的多条调度日志（比如分片广播的所有分片），合并成一条insert语句直接写入
+     */
+    public void writeAll(List<XxlJobLog> jobLogs) {
+        if (jobLogs.isEmpty()) {
+            return;
+        }
+        if (jobLogs.size() == 1) {
+            for (XxlJobLog jobLog : jobLogs) {
+                write(jobLog);
+            }
+            return;
+        }
+        // 每条insert语句最多包含 xxl.job.trigger.logbatch.size 条日志
+        int batchSize = XxlJobAdminConfig.getAdminConfig().getTriggerLogBatchSize();
+        for (int from = 0; from < jobLogs.size(); from += batchSize) {
+            flush(jobLogs.subList(from, Math.min(jobLogs.size(), from + batchSize)));
+        }
+    }
+
+    /**
+     * 等待一批日志写入数据库，没有登记为待写入的日志直接视为已经写入
+     *
+     * @return 全部写入（或者取消登记）返回true，超时或者被中断返回false
+     */
+    public boolean awaitWritten(Collection<Long> logIds, long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (writtenMonitor) {
+            for (Long logId : logIds) {
+                while (pendingLogIds.contains(logId)) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    try {
+                        writtenMonitor.wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 把一批日志合并成一条insert语句写入，失败时逐条写入，避免一条日志的问题影响整批；
+     * 仍然失败的日志放入重试队列，保持待写入登记，回调继续等待
+     */
+    private void flush(List<XxlJobLog> batch) {
+        Set<Long> failedLogIds = Collections.emptySet();
+        try {
+            XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().saveBatch(batch);
+        } catch (Exception e) {
+            log.error(">>>>>>>>>>> xxl-job, job log batch write error, size:{}", batch.size(), e);
+            failedLogIds = new HashSet<>();
+            for (XxlJobLog jobLog : batch) {
+                Exception error = e;
+                if (batch.size() > 1) {
+                    try {
+                        XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().saveBatch(Collections.singletonList(jobLog));
+                        continue;
+                    } catch (Exception e2) {
+                        error = e2;
+                    }
+                }
+                if (error instanceof DuplicateKeyException) {
+                    // 日志ID已经有记录，重试也不会成功；所有调度中心都从号段分配ID时不会出现
+                    log.error(">>>>>>>>>>> xxl-job, job log write error, duplicate logId:{}", jobLog.getId(), error);
+                    continue;
+                }
+                log.error(">>>>>>>>>>> xxl-job, job log write error, retry later, logId:{}", jobLog.getId(), error);
+                failedLogIds.add(jobLog.getId());
+                failedLogs.add(jobLog);
+            }
+        } finally {
+            for (XxlJobLog jobLog : batch) {
+                if (!failedLogIds.contains(jobLog.getId())) {
+                    pendingLogIds.remove(jobLog.getId());
+                }
+            }
+            synchronized (writtenMonitor) {
+                writtenMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 重试写入失败的日志，只由写入线程调用；每 RETRY_INTERVAL_MS 最多重试一次，force 时立即重试
+     */
+    private void retryFailedLogs(boolean force) {
+        if (failedLogs.isEmpty()) {
+            return;
+        }
+        long nowTime = System.currentTimeMillis();
+        if (!force && nowTime < nextRetryTime) {
+            return;
+        }
+        nextRetryTime = nowTime + RETRY_INTERVAL_MS;
+        List<XxlJobLog> retryLogs = new ArrayList<>();
+        XxlJobLog jobLog;
+        while ((jobLog = failedLogs.poll()) != null) {
+            retryLogs.add(jobLog);
+        }
+        for (int from = 0; from < retryLogs.size(); from += batchSize) {
+            flush(retryLogs.subList(from, Math.min(retryLogs.size(), from + batchSize)));
+        }
+    }
+
+    /**
+     * 确认号段表和调度日志的号段记录存在，从旧版本升级上来没有的话自动建表、初始化号段记录；
+     * 建表失败（比如没有DDL权限）时抛出异常，调度中心启动失败
+     */
+    private void initLogIdSegment() {
+        try (Connection conn = XxlJobAdminConfig.getAdminConfig().getDataSource().getConnection()) {
+            try (Statement statement = conn.createStatement()) {
+                statement.execute(LOG_ID_SEGMENT_DDL);
+            }
+            // 号段的起点在分配时会和 xxl_job_log 中已有的最大ID比较，这里初始化为0即可；多个调度中心同时启动时只有一个插入成功
+            try (PreparedStatement preparedStatement = conn.prepareStatement("insert ignore into xxl_job_id_segment (biz_tag, max_id) values (?, 0)")) {
+                preparedStatement.setString(1, LOG_ID_BIZ_TAG);
+                preparedStatement.executeUpdate();
+            }
+        } catch (SQLException e) {
+            log.error(">>>>>>>>>>> xxl-job, init xxl_job_id_segment error, please execute doc/db/tables_xxl_job_upgrade.sql.", e);
+            throw new XxlJobException("init xxl_job_id_segment error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 在一个事务中锁住号段记录，取出一段日志ID。
+     * 号段的起点不小于 xxl_job_log 中已有的最大ID，兼容从自增ID升级上来的库表
+     */
+    private void allocateLogIdSegment() {
+        Connection conn = null;
+        Boolean connAutoCommit = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            conn = XxlJobAdminConfig.getAdminConfig().getDataSource().getConnection();
+            connAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            preparedStatement = conn.prepareStatement("select max_id from xxl_job_id_segment where biz_tag = ? for update");
+            preparedStatement.setString(1, LOG_ID_BIZ_TAG);
+            resultSet = preparedStatement.executeQuery();
+            if (!resultSet.next()) {
+                throw new XxlJobException("xxl_job_id_segment not initialized, biz_tag:" + LOG_ID_BIZ_TAG);
+            }
+            long segmentMaxId = resultSet.getLong(1);
+            resultSet.close();
+            preparedStatement.close();
+
+            preparedStatement = conn.prepareStatement("select ifnull(max(id), 0) from xxl_job_log");
+            resultSet = preparedStatement.executeQuery();
+            resultSet.next();
+            long logMaxId = resultSet.getLong(1);
+            resultSet.close();
+            preparedStatement.close();
+
+            long from = Math.max(segmentMaxId, logMaxId) + 1;
+            long to = from + LOG_ID_SEGMENT_STEP - 1;
+            preparedStatement = conn.prepareStatement("update xxl_job_id_segment set max_id = ? where biz_tag = ?");
+            preparedStatement.setLong(1, to);
+            preparedStatement.setString(2, LOG_ID_BIZ_TAG);
+            preparedStatement.executeUpdate();
+            conn.commit();
+
+            nextLogId = from;
+            maxLogId = to;
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException e2) {
+                    log.error(e2.getMessage(), e2);
+                }
+            }
+            throw new XxlJobException("allocate job log id error: " + e.getMessage());
+        } finally {
+            if (resultSet != null) {
+                try {
+                    resultSet.close();
+                } catch (SQLException e) {
+                    log.error(e.getMessage(), e);
+                }
+            }
+            if (preparedStatement != null) {
+                try {
+                    preparedStatement.close();
+                } catch (SQLException e) {
+                    log.error(e.getMessage(), e);
+                }
+            }
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(connAutoCommit);
+                } catch (SQLException e) {
+                    log.error(e.getMessage(), e);
+                }
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    log.error(e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
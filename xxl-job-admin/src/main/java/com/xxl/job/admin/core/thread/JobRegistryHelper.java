@@ -184,6 +184,7 @@ public class JobRegistryHelper {
                                 WHERE id = #{id}
                              */
                             XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().update(group);
+                            JobCacheHelper.getInstance().invalidateGroup(group.getId());
                         }
                     }
                 } catch (Exception e) {
@@ -235,6 +236,9 @@ public class JobRegistryHelper {
             return new ReturnT<>(ReturnT.FAIL_CODE, "Illegal Argument.");
         }
 
+        // 记录执行器随心跳上报的负载，"最低负载"路由策略会用到
+        JobExecutorLoadHelper.getInstance().report(registryParam.getRegistryValue(), registryParam.getExecutorLoad());
+
         // 【全异步化调用】提交注册执行器的任务给线程池
         registryOrRemoveThreadPool.execute(() -> {
             /*
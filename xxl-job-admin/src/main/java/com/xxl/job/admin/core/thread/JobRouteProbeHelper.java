@@ -0,0 +1,297 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.scheduler.XxlJobScheduler;
+import com.xxl.job.core.biz.ExecutorBiz;
+import com.xxl.job.core.biz.client.ExecutorBizClient;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.util.ThrowableUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 故障转移、忙碌转移路由的探测组件。
+ * 原来这两种路由策略按顺序逐个调用执行器的 beat/idleBeat，前面几个执行器宕机时，每个都要等到连接超时（3秒）
+ * 才轮到下一个，一次触发的路由耗时是宕机执行器数量乘以超时时间。
+ * <p>
+ * 现在按顺序每 xxl.job.route.probe.parallel 个地址为一波同时探测，第一个可用的结果胜出；一波探测全部失败，
+ * 或者 xxl.job.route.probe.hedge 毫秒后还没有可用的结果，就发出下一波，路由耗时接近一次探测的往返时间。
+ * <p>
+ * 探测结果按地址缓存 xxl.job.route.probe.cache 毫秒：连接不上的地址在缓存期内直接跳过，心跳正常的地址在缓存期内
+ * 故障转移直接使用。忙碌检测的结果和任务的运行状态有关，本身不缓存，只用来更新地址是否可达。
+ */
+@Slf4j
+public class JobRouteProbeHelper {
+
+    @Getter
+    private static JobRouteProbeHelper instance = new JobRouteProbeHelper();
+
+    /**
+     * 调用执行器失败（连接失败、超时、响应异常）时返回信息的前缀，见 XxlJobRemotingUtil、XxlJobAsyncRemotingUtil
+     */
+    private static final String REMOTING_FAIL_PREFIX = "xxl-job remoting";
+
+    // 地址的探测结果缓存
+    private final ConcurrentMap<String, ProbeCache> probeCaches = new ConcurrentHashMap<>();
+
+    // 发出下一波探测的定时线程
+    private ScheduledThreadPoolExecutor hedgeScheduler;
+    // 同步调用执行器（关闭 xxl.job.trigger.async）时并发探测的线程池
+    private ThreadPoolExecutor probePool;
+    private int probeParallel;
+    private int probeHedge;
+    private int probeCacheMs;
+    // 没有启动时按原来的方式逐个探测
+    private volatile boolean started = false;
+
+    public void start() {
+        probeParallel = XxlJobAdminConfig.getAdminConfig().getRouteProbeParallel();
+        probeHedge = XxlJobAdminConfig.getAdminConfig().getRouteProbeHedge();
+        probeCacheMs = XxlJobAdminConfig.getAdminConfig().getRouteProbeCache();
+        hedgeScheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "xxl-job, admin JobRouteProbeHelper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!XxlJobAdminConfig.getAdminConfig().isTriggerAsync()) {
+            probePool = new ThreadPoolExecutor(
+                    XxlJobAdminConfig.getAdminConfig().getTriggerPoolFastMax(),
+                    XxlJobAdminConfig.getAdminConfig().getTriggerPoolFastMax(),
+                    60L,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    r -> {
+                        Thread thread = new Thread(r, "xxl-job, admin JobRouteProbeHelper-probePool-" + r.hashCode());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            probePool.allowCoreThreadTimeOut(true);
+        }
+        started = true;
+    }
+
+    public void toStop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        hedgeScheduler.shutdownNow();
+        if (probePool != null) {
+            probePool.shutdownNow();
+        }
+        probeCaches.clear();
+    }
+
+    /**
+     * 探测执行器地址，返回第一个可用的地址
+     *
+     * @param addressList  执行器地址列表
+     * @param title        探测信息的标题，拼接在调度日志中
+     * @param trustAlive   缓存中可达的地址是否直接视为可用，心跳检测为true，忙碌检测为false
+     * @param syncProbe    同步探测一个执行器
+     * @param asyncProbe   异步探测一个执行器，返回的 Future 总是正常完成
+     * @return 成功时 content 为选中的地址，msg 为各个地址的探测信息
+     */
+    public ReturnT<String> probe(List<String> addressList,
+                                 String title,
+                                 boolean trustAlive,
+                                 Function<ExecutorBiz, ReturnT<String>> syncProbe,
+                                 Function<ExecutorBizClient, CompletableFuture<ReturnT<String>>> asyncProbe) {
+        List<String> candidates = new ArrayList<>(addressList.size());
+        StringBuffer probeResultSB = new StringBuffer();
+        long nowTime = System.currentTimeMillis();
+        for (String address : addressList) {
+            ProbeCache cache = started ? probeCaches.get(address) : null;
+            if (cache == null || cache.expireTime < nowTime) {
+                candidates.add(address);
+            } else if (!cache.reachable) {
+                // 最近连接不上，跳过
+                appendProbeResult(probeResultSB, title, address, cache.result);
+            } else if (trustAlive) {
+                // 最近心跳正常，直接使用
+                appendProbeResult(probeResultSB, title, address, cache.result);
+                return routeResult(probeResultSB, address);
+            } else {
+                candidates.add(address);
+            }
+        }
+        if (candidates.isEmpty()) {
+            // 缓存中所有地址都连接不上，可能执行器刚刚恢复，重新探测全部地址
+            candidates.addAll(addressList);
+            probeResultSB.setLength(0);
+        }
+
+        ProbeRound round = new ProbeRound(candidates, syncProbe, asyncProbe);
+        round.launchWave();
+        int winner = round.winner.join();
+
+        // 按地址顺序拼接已经返回的探测结果，胜出之后才返回的结果不再拼接
+        ReturnT<String>[] results;
+        synchronized (round) {
+            results = round.results.clone();
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            if (results[i] != null) {
+                appendProbeResult(probeResultSB, title, candidates.get(i), results[i]);
+            }
+        }
+        if (winner < 0) {
+            return new ReturnT<>(ReturnT.FAIL_CODE, probeResultSB.toString());
+        }
+        return routeResult(probeResultSB, candidates.get(winner));
+    }
+
+    private static ReturnT<String> routeResult(StringBuffer probeResultSB, String address) {
+        ReturnT<String> routeResult = new ReturnT<>(ReturnT.SUCCESS_CODE, probeResultSB.toString());
+        routeResult.setContent(address);
+        return routeResult;
+    }
+
+    private static void appendProbeResult(StringBuffer probeResultSB, String title, String address, ReturnT<String> result) {
+        probeResultSB.append((probeResultSB.length() > 0) ? "<br><br>" : "")
+                .append(title).append("：")
+                .append("<br>address：").append(address)
+                .append("<br>code：").append(result.getCode())
+                .append("<br>msg：").append(result.getMsg());
+    }
+
+    /**
+     * 探测一个地址，返回的 Future 总是正常完成
+     */
+    private CompletableFuture<ReturnT<String>> probeAddress(String address,
+                                                           Function<ExecutorBiz, ReturnT<String>> syncProbe,
+                                                           Function<ExecutorBizClient, CompletableFuture<ReturnT<String>>> asyncProbe) {
+        CompletableFuture<ReturnT<String>> resultFuture;
+        try {
+            ExecutorBiz executorBiz = XxlJobScheduler.getExecutorBiz(address);
+            if (probePool == null && started && executorBiz instanceof ExecutorBizClient) {
+                resultFuture = asyncProbe.apply((ExecutorBizClient) executorBiz);
+            } else if (probePool != null && started) {
+                resultFuture = CompletableFuture.supplyAsync(() -> syncProbe.apply(executorBiz), probePool);
+            } else {
+                resultFuture = CompletableFuture.completedFuture(syncProbe.apply(executorBiz));
+            }
+        } catch (Exception e) {
+            log.error(">>>>>>>>>>> xxl-job, probe executor error, address:{}, {}", address, ThrowableUtil.toString(e));
+            resultFuture = CompletableFuture.completedFuture(new ReturnT<>(ReturnT.FAIL_CODE, "" + e));
+        }
+        return resultFuture.handle((result, e) -> {
+            if (e != null) {
+                result = new ReturnT<>(ReturnT.FAIL_CODE, "" + e);
+            }
+            cacheResult(address, result);
+            // beat 的响应中带有执行器的负载
+            JobExecutorLoadHelper.getInstance().reportBeat(address, result);
+            return result;
+        });
+    }
+
+    private void cacheResult(String address, ReturnT<String> result) {
+        if (probeCacheMs <= 0 || !started) {
+            return;
+        }
+        long expireTime = System.currentTimeMillis() + probeCacheMs;
+        if (result.getCode() == ReturnT.SUCCESS_CODE) {
+            probeCaches.put(address, new ProbeCache(true, result, expireTime));
+        } else if (result.getMsg() != null && result.getMsg().startsWith(REMOTING_FAIL_PREFIX)) {
+            probeCaches.put(address, new ProbeCache(false, result, expireTime));
+        } else {
+            // 执行器返回的失败（忙碌、令牌错误等），执行器本身可达，但结果不能作为心跳正常使用
+            probeCaches.remove(address);
+        }
+    }
+
+    /**
+     * 一次路由的探测过程，按波次发出探测，第一个成功的结果胜出
+     */
+    private class ProbeRound {
+        private final List<String> candidates;
+        private final Function<ExecutorBiz, ReturnT<String>> syncProbe;
+        private final Function<ExecutorBizClient, CompletableFuture<ReturnT<String>>> asyncProbe;
+        private final ReturnT<String>[] results;
+        // 胜出的地址下标，全部失败时为-1
+        private final CompletableFuture<Integer> winner = new CompletableFuture<>();
+        // 已经发出探测的地址数、已经返回结果的地址数，读写时锁住自身
+        private int launched = 0;
+        private int finished = 0;
+
+        @SuppressWarnings("unchecked")
+        private ProbeRound(List<String> candidates,
+                           Function<ExecutorBiz, ReturnT<String>> syncProbe,
+                           Function<ExecutorBizClient, CompletableFuture<ReturnT<String>>> asyncProbe) {
+            this.candidates = candidates;
+            this.syncProbe = syncProbe;
+            this.asyncProbe = asyncProbe;
+            this.results = new ReturnT[candidates.size()];
+        }
+
+        private void launchWave() {
+            int from;
+            int to;
+            synchronized (this) {
+                if (winner.isDone() || launched >= candidates.size()) {
+                    return;
+                }
+                from = launched;
+                // 没有启动或者不对冲时一次全部发出
+                int wave = (!started || probeHedge <= 0) ? candidates.size() : probeParallel;
+                to = Math.min(candidates.size(), from + wave);
+                launched = to;
+            }
+            for (int i = from; i < to; i++) {
+                final int index = i;
+                probeAddress(candidates.get(i), syncProbe, asyncProbe).thenAccept(result -> onResult(index, result));
+            }
+            if (to < candidates.size() && started) {
+                // 这一波在对冲时间内没有可用的结果，就发出下一波
+                try {
+                    hedgeScheduler.schedule(this::launchWave, probeHedge, TimeUnit.MILLISECONDS);
+                } catch (Exception e) {
+                    // 正在关闭，等这一波返回后再发出下一波
+                }
+            }
+        }
+
+        private void onResult(int index, ReturnT<String> result) {
+            boolean nextWave = false;
+            synchronized (this) {
+                results[index] = result;
+                finished++;
+                if (result.getCode() == ReturnT.SUCCESS_CODE) {
+                    winner.complete(index);
+                } else if (finished == candidates.size()) {
+                    winner.complete(-1);
+                } else if (finished == launched) {
+                    // 已经发出的探测全部失败，不用等对冲时间
+                    nextWave = true;
+                }
+            }
+            if (nextWave) {
+                launchWave();
+            }
+        }
+    }
+
+    private static class ProbeCache {
+        private final boolean reachable;
+        private final ReturnT<String> result;
+        private final long expireTime;
+
+        private ProbeCache(boolean reachable, ReturnT<String> result, long expireTime) {
+            this.reachable = reachable;
+            this.result = result;
+            this.expireTime = expireTime;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.scheduler.XxlJobScheduler;
+import com.xxl.job.core.biz.ExecutorBiz;
+import com.xxl.job.core.biz.client.ExecutorBizClient;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.biz.model.TriggerParam;
+import com.xxl.job.core.util.ThrowableUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 触发请求的合并组件。
+ * 原来每次触发都是一次单独的 /run 请求，整点时同一个执行器上几千个任务同时触发，就是几千次请求的编解码和网络往返。
+ * 开启异步调用（xxl.job.trigger.async）时，发往同一个执行器地址的触发先在这里等待 xxl.job.trigger.batch.window 毫秒，
+ * 或者凑满 xxl.job.trigger.batch.size 个，合并成一次 /runBatch 请求，执行器逐个触发后按顺序返回每个触发的结果。
+ * <p>
+ * 老版本的执行器没有 /runBatch 接口，请求失败时改为逐个 /run 调用，并在一段时间内不再对这个地址合并请求。
+ */
+@Slf4j
+public class JobRunBatchHelper {
+
+    @Getter
+    private static JobRunBatchHelper instance = new JobRunBatchHelper();
+
+    /**
+     * 执行器不支持 /runBatch 时，多长时间内不再对这个地址合并请求，单位毫秒，过后再尝试（执行器可能已经升级）
+     */
+    private static final long UNSUPPORTED_RETRY_MS = 10 * 60 * 1000;
+
+    /**
+     * 执行器没有对应接口时返回的错误信息，见 EmbedServer
+     */
+    private static final String URI_NOT_FOUND_MSG = "uri-mapping(/runBatch) not found";
+
+    // 每个执行器地址等待合并的触发
+    private final ConcurrentMap<String, AddressBatch> batches = new ConcurrentHashMap<>();
+    // 不支持 /runBatch 的执行器地址，value为下次尝试合并的时间
+    private final Map<String, Long> unsupportedAddresses = new ConcurrentHashMap<>();
+
+    // 到时间后发送请求的定时线程
+    private ScheduledThreadPoolExecutor flushScheduler;
+    private int batchWindow;
+    private int batchSize;
+    // 没有启动或者关闭了合并时直接逐个调用
+    private volatile boolean started = false;
+
+    public void start() {
+        batchWindow = XxlJobAdminConfig.getAdminConfig().getTriggerBatchWindow();
+        batchSize = XxlJobAdminConfig.getAdminConfig().getTriggerBatchSize();
+        if (!XxlJobAdminConfig.getAdminConfig().isTriggerAsync() || batchWindow <= 0 || batchSize <= 1) {
+            return;
+        }
+        flushScheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "xxl-job, admin JobRunBatchHelper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        started = true;
+    }
+
+    public void toStop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        // 触发线程池已经停止，把还在等待的触发直接发出去
+        flushAll();
+        flushScheduler.shutdownNow();
+        /*
+        已经通过 started 检查的 run 可能在上面的 flushAll 之后才加入批次，并且在 shutdownNow 之前安排了发送，
+        这个发送任务被 shutdownNow 丢弃了，所以再发送一遍；之后加入的批次安排发送时会被拒绝，由 run 自己直接发送
+         */
+        flushAll();
+    }
+
+    private void flushAll() {
+        for (Map.Entry<String, AddressBatch> entry : batches.entrySet()) {
+            flush(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 触发一个任务，可以合并的话等待和同一个执行器的其他触发一起发送
+     *
+     * @return 执行器返回的这次触发的结果，总是正常完成
+     */
+    public CompletableFuture<ReturnT<String>> run(String address, TriggerParam triggerParam) {
+        if (!started || !batchSupported(address)) {
+            return runSingle(address, triggerParam);
+        }
+        AddressBatch batch = batches.computeIfAbsent(address, key -> new AddressBatch());
+        PendingRun run = new PendingRun(triggerParam);
+        List<PendingRun> fullRuns = null;
+        boolean firstRun = false;
+        synchronized (batch) {
+            batch.runs.add(run);
+            if (batch.runs.size() >= batchSize) {
+                fullRuns = batch.take();
+            } else if (batch.runs.size() == 1) {
+                firstRun = true;
+            }
+        }
+        if (fullRuns != null) {
+            // 凑满一批直接发送
+            send(address, fullRuns);
+        } else if (firstRun) {
+            // 这一批的第一个触发，等待窗口结束后发送
+            try {
+                flushScheduler.schedule(() -> flush(address, batch), batchWindow, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                // 正在关闭，直接发送
+                flush(address, batch);
+            }
+        }
+        return run.future;
+    }
+
+    private void flush(String address, AddressBatch batch) {
+        List<PendingRun> runs;
+        synchronized (batch) {
+            runs = batch.take();
+        }
+        if (!runs.isEmpty()) {
+            send(address, runs);
+        }
+    }
+
+    private void send(String address, List<PendingRun> runs) {
+        ExecutorBizClient client = client(address);
+        if (runs.size() == 1 || client == null) {
+            for (PendingRun run : runs) {
+                runSingle(address, run.triggerParam).thenAccept(run.future::complete);
+            }
+            return;
+        }
+        List<TriggerParam> triggerParamList = new ArrayList<>(runs.size());
+        for (PendingRun run : runs) {
+            triggerParamList.add(run.triggerParam);
+        }
+        client.runBatchAsync(triggerParamList).thenAccept(batchResult -> {
+            List<ReturnT<String>> results = batchResult.getContent();
+            if (batchResult.getCode() == ReturnT.SUCCESS_CODE && results != null && results.size() == runs.size()) {
+                for (int i = 0; i < runs.size(); i++) {
+                    runs.get(i).future.complete(results.get(i));
+                }
+                return;
+            }
+            if (batchResult.getMsg() != null && batchResult.getMsg().contains(URI_NOT_FOUND_MSG)) {
+                // 老版本的执行器，改为逐个调用
+                log.info(">>>>>>>>>>> xxl-job, executor[{}] does not support runBatch, fall back to run.", address);
+                unsupportedAddresses.put(address, System.currentTimeMillis() + UNSUPPORTED_RETRY_MS);
+                for (PendingRun run : runs) {
+                    runSingle(address, run.triggerParam).thenAccept(run.future::complete);
+                }
+                return;
+            }
+            // 请求失败（连接失败、超时等），这一批的触发都按失败处理
+            for (PendingRun run : runs) {
+                run.future.complete(new ReturnT<>(batchResult.getCode() == ReturnT.SUCCESS_CODE ? ReturnT.FAIL_CODE : batchResult.getCode(),
+                        batchResult.getMsg()));
+            }
+        });
+    }
+
+    private boolean batchSupported(String address) {
+        Long retryTime = unsupportedAddresses.get(address);
+        if (retryTime == null) {
+            return true;
+        }
+        if (System.currentTimeMillis() >= retryTime) {
+            unsupportedAddresses.remove(address);
+            return true;
+        }
+        return false;
+    }
+
+    private static CompletableFuture<ReturnT<String>> runSingle(String address, TriggerParam triggerParam) {
+        ExecutorBizClient client = client(address);
+        if (client == null) {
+            return CompletableFuture.completedFuture(new ReturnT<>(ReturnT.FAIL_CODE, "executor client not found, address:" + address));
+        }
+        return client.runAsync(triggerParam);
+    }
+
+    private static ExecutorBizClient client(String address) {
+        try {
+            ExecutorBiz executorBiz = XxlJobScheduler.getExecutorBiz(address);
+            return executorBiz instanceof ExecutorBizClient ? (ExecutorBizClient) executorBiz : null;
+        } catch (Exception e) {
+            log.error(">>>>>>>>>>> xxl-job, get executor client error, address:{}, {}", address, ThrowableUtil.toString(e));
+            return null;
+        }
+    }
+
+    /**
+     * 一个执行器地址上等待合并的触发，读写时锁住自身
+     */
+    private static class AddressBatch {
+        private List<PendingRun> runs = new ArrayList<>();
+
+        private List<PendingRun> take() {
+            List<PendingRun> taken = runs;
+            runs = new ArrayList<>();
+            return taken;
+        }
+    }
+
+    private static class PendingRun {
+        private final TriggerParam triggerParam;
+        private final CompletableFuture<ReturnT<String>> future = new CompletableFuture<>();
+
+        private PendingRun(TriggerParam triggerParam) {
+            this.triggerParam = triggerParam;
+        }
+    }
+}
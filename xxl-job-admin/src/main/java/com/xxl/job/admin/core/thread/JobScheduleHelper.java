@@ -1,10 +1,16 @@
 package com.xxl.job.admin.core.thread;
 
 import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
-import com.xxl.job.admin.core.cron.CronExpression;
+import com.xxl.job.admin.core.cron.CompiledCronExpression;
+import com.xxl.job.admin.core.metrics.XxlJobMetrics;
 import com.xxl.job.admin.core.model.XxlJobInfo;
+import com.xxl.job.admin.core.model.XxlJobSchedule;
+import com.xxl.job.admin.core.scheduler.JobDueIndex;
+import com.xxl.job.admin.core.scheduler.JobPreReadPolicy;
+import com.xxl.job.admin.core.scheduler.JobTimeWheel;
 import com.xxl.job.admin.core.scheduler.MisfireStrategyEnum;
 import com.xxl.job.admin.core.scheduler.ScheduleTypeEnum;
+import com.xxl.job.admin.core.trigger.TriggerShedPolicyEnum;
 import com.xxl.job.admin.core.trigger.TriggerTypeEnum;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -14,11 +20,13 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
@@ -33,11 +41,58 @@ public class JobScheduleHelper {
     private static JobScheduleHelper instance = new JobScheduleHelper();
 
     /**
-     * 这里定义了5000毫秒，查询数据库的时候会用到，
-     * 查询就是当前时间5秒之内可以执行的定时任务信息。
+     * 这里定义了5000毫秒，是预读窗口的基准值，实际的预读窗口由preReadPolicy根据负载调整。
+     * 任务的触发时间已经过去超过这个时间，就认为是调度过期（misfire）。
      */
     public static final long PRE_READ_MS = 5000;
 
+    /**
+     * 自适应预读策略，决定每轮扫描的预读窗口、预读数量和扫描间隔，详见{@link JobPreReadPolicy}
+     */
+    private volatile JobPreReadPolicy preReadPolicy;
+
+    /**
+     * 时间轮tag中标记触发已经被推迟过的位，详见{@link #fireTag(TriggerTypeEnum, int, boolean)}
+     */
+    private static final long FIRE_TAG_DEFERRED = 1L << 8;
+
+    /**
+     * 本轮扫描读到的任务中最早的下次触发时间，只由任务扫描线程读写
+     */
+    private long cycleEarliestNextTime;
+
+    /**
+     * 内存索引每隔多久全量加载一次，作为增量同步的兜底，单位毫秒
+     */
+    private static final long DUE_INDEX_RELOAD_MS = 5 * 60 * 1000;
+
+    /**
+     * 按 schedule_update_time 增量同步时向前多查的时间，用来容忍调度中心节点之间的时钟偏差
+     * 和datetime字段的精度，单位毫秒
+     */
+    private static final long DUE_INDEX_DELTA_OVERLAP_MS = 10 * 1000;
+
+    /**
+     * 【内存索引】
+     * 任务到期时间的内存索引，开启 xxl.job.schedule.dueindex 时才会创建，详见{@link JobDueIndex}。
+     * 下面几个变量都只由任务扫描线程读写。
+     */
+    private JobDueIndex dueIndex;
+    private int[] dueIndexPartitions;
+    private long dueIndexLoadTime;
+    private long dueIndexWatermark;
+
+    /**
+     * 本节点最后一次写回数据库的各任务下次触发时间，停机交接时间轮时只回退数据库中仍是这个值的任务，
+     * 说明这期间任务没有被修改、也没有被其他节点调度过
+     */
+    private final Map<Integer, Long> writtenNextTimes = new ConcurrentHashMap<>();
+
+    /**
+     * 预计算触发时间用的缓冲区，只由任务扫描线程使用，详见{@link #pushFireWindow(XxlJobSchedule, long)}
+     */
+    private long[] fireTimeBuffer;
+
     /**
      * 【任务扫描线程】
      * 下面这个成员变量就是用来扫描任务的线程，其实在该类中工作的都是线程，并没有创建线
@@ -53,7 +108,7 @@ public class JobScheduleHelper {
      * 【时间轮线程】
      * 这个就是时间轮线程，时间轮并不只是线程，也并不只是容器，容器和线程结合在一起，构
      * 成了可以运行的时间轮，这个时间轮线程就是用来主要向触发器线程池提交触发任务的，它
-     * 提交的任务是从Map中获得的，而Map中的任务是由上面的任务扫描线程添加的。
+     * 提交的任务是从时间轮容器中获得的，而容器中的任务是由上面的任务扫描线程添加的。
      */
     private Thread ringThread;
     private volatile boolean ringThreadToStop = false;
@@ -61,10 +116,10 @@ public class JobScheduleHelper {
     /**
      * 【时间轮容器】
      * 这个就是时间轮的容器，该容器中的数据是由任务扫描线程添加的，但是移除是由时间轮线程
-     * 线程移除的，Map的key为时间轮中任务的执行时间，value是需要执行的定时任务ID集合，意
-     * 思就是在这个时间，有这么多定时任务要被提交给调度线程池。
+     * 移除的。原来是一个以秒为刻度的Map，现在换成了毫秒级的分层时间轮，任务按照真实的
+     * triggerNextTime入轮，到点后由时间轮线程提交给调度线程池，详见{@link JobTimeWheel}。
      */
-    private volatile static Map<Integer, List<Integer>> ringData = new ConcurrentHashMap<>();
+    private volatile JobTimeWheel timeWheel;
 
     /**
      * 当该方法被调用的时候，调度模块中调度定时任务的线程就开始工作了。
@@ -82,6 +137,9 @@ public class JobScheduleHelper {
      * 维护定时任务下一次的执行时间。
      */
     public void start() {
+        // 创建时间轮，刻度默认是5ms，第0层一圈512个刻度
+        timeWheel = new JobTimeWheel(XxlJobAdminConfig.getAdminConfig().getTimeWheelTick(), 512, System.currentTimeMillis());
+
         // ====== 任务扫描线程 ======
         scheduleThread = new Thread(new Runnable() {
             // kのt{【性能问题】抢分布式锁，一直扫表}
@@ -113,226 +171,49 @@ public class JobScheduleHelper {
                 任务，现在有300个线程，所以，最后可以得到，每秒最多可以调度6000个定时任务，6000就是一个限制的
                 最大值，如果调度线程要扫描数据库，从数据库取出要执行的任务，每次最多可以取6000个，数据库取出任
                 务限制6000，也只是为了配合这个限制的数量。
+                现在这个值只作为基准值，实际的预读数量会按照实测的触发耗时和触发队列的积压程度调整。
                  */
-                int preReadCount = (XxlJobAdminConfig.getAdminConfig().getTriggerPoolFastMax() +
+                int baseCount = (XxlJobAdminConfig.getAdminConfig().getTriggerPoolFastMax() +
                         XxlJobAdminConfig.getAdminConfig().getTriggerPoolSlowMax()) * 20;
+                preReadPolicy = new JobPreReadPolicy(baseCount, PRE_READ_MS, 1000,
+                        XxlJobAdminConfig.getAdminConfig().getSchedulePreReadMax());
 
                 // 如果调度线程没有停止，将会被一直执行
                 while (!scheduleThreadToStop) {
                     // 这个时间用来做判断的，看看扫描数据库耗费了多少时间
                     long start = System.currentTimeMillis();
+                    long scanStartNanos = System.nanoTime();
+                    // 本轮使用的预读窗口和预读数量
+                    long preReadMs = preReadPolicy.getWindowMs();
+                    int preReadCount = preReadPolicy.getCount();
 
                     /*
-                    判断是否从数据库中读取到了数据，读取到了就意味着有任务要执行，
-                    当有查询出了可调度的定时任务时，值为true，反之为false。
-                     */
-                    boolean preReadSuc = true;
-
-                    /*
-                    下面这几个步骤都和数据库有关，因为xxl-job是使用数据库来实现分布式锁的，
-                    既然是数据锁，就不能自动提交事务，所以这里要手动设置
+                    依次调度当前节点拥有的每一个分区，记录一共读到了多少个任务、有没有分区读满，
+                    以及这些任务中最早的下次触发时间，用来调整预读策略和计算下一次扫描的时间。
+                    预读数量是本节点一轮的总预算，按拥有的分区平分，否则拥有P个分区时一轮会读出P倍的任务。
                      */
-                    Connection conn = null;
-                    // 设置事务不自动提交
-                    Boolean connAutoCommit = null;
-                    PreparedStatement preparedStatement = null;
-                    try {
-                        // 获得数据库连接
-                        conn = XxlJobAdminConfig.getAdminConfig().getDataSource().getConnection();
-                        // 拿到事务自动提交标志
-                        connAutoCommit = conn.getAutoCommit();
-                        // 设置为不自动提交
-                        conn.setAutoCommit(false);
-                        /*
-                        设置sql语句，获得【数据库锁】
-                        【注意】一旦调度中心形成集群，就要防止定时任务被重复调度，这时就
-                        必须要用到【分布式锁】，在xxl-job 中，分布式锁是用数据库实现的。
-                         */
-                        preparedStatement = conn.prepareStatement("select * from xxl_job_lock where lock_name = 'schedule_lock' for update");
-                        // 开始执行sql语句，拿到数据库锁(分布式锁)
-                        preparedStatement.execute();
-
-                        /*
-                        获取当前时间，这里要把这个时间和上面那个start做一下区分，
-                        这两个时间变量的作用不同，现在这个时间变量是用来得到要调
-                        度的任务的，上面那个是最后用来做判断的，看看扫描数据库耗
-                        费了多少时间。
-                         */
-                        long nowTime = System.currentTimeMillis();
-                        /*
-                        查找出当前时间+5秒之内所有可以执行的定时任务信息：
-                            SELECT *
-                            FROM  xxl_job_info AS t
-                            WHERE t.trigger_status = 1
-                            AND   t.trigger_next_time <= #{maxNextTime} // 预读时间，当前时间+5s
-                            ORDER BY id ASC
-                            LIMIT #{pagesize} // 预读数量，默认6000
-                         */
-                        List<XxlJobInfo> scheduleList = XxlJobAdminConfig.getAdminConfig()
-                                .getXxlJobInfoDao().scheduleJobQuery(nowTime + PRE_READ_MS, preReadCount);
-                        // 如果在数据库中查询到了要执行的任务，就循环的处理每一个任务
-                        if (!CollectionUtils.isEmpty(scheduleList)) {
-                            // 时间轮入轮操作
-                            for (XxlJobInfo jobInfo : scheduleList) {
-                                /*
-                                这里做了一个判断：刚才得到的当前时间 > 任务的下一次执行时间 + 5秒，为什么会出现这种情况呢？
-
-                                仔细想想，本来一个任务被调度执行了，就会计算出它下一次的执行时间，然后更新数据库中的任务的
-                                下一次执行时间，但是如果服务器宕机了呢？
-                                本来上一次要执行的任务却没有执行，比如这个任务要在第5秒执行，但是服务器在第4秒就宕机了，重新
-                                恢复运行后，已经是第12秒了，现在去数据库中查询任务，12>5+5，就是if括号中的不等式，这样一来，
-                                是不是就查到了执行时间比当前时间还小的任务呢？
-                                所以，作者早已考虑到了这种情况
-                                 */
-                                if (nowTime > jobInfo.getTriggerNextTime() + PRE_READ_MS/*已超时5s以上*/) {
-                                    log.warn(">>>>>>>>>>> xxl-job, schedule misfire, jobId = " + jobInfo.getId());
-                                    /*
-                                    既然有过期的任务，就要看看怎么处理，是直接不处理，还是其他的处理方式，这里程序默认的是什么
-                                    也不做，过期就过期呗。当然，下面还是要再判断一次，万一失败策略是【立刻重试一次】，那就立刻
-                                    执行一次任务的调度。
-                                     */
-                                    MisfireStrategyEnum misfireStrategyEnum = MisfireStrategyEnum.match(jobInfo.getMisfireStrategy(), MisfireStrategyEnum.DO_NOTHING);
-                                    if (MisfireStrategyEnum.FIRE_ONCE_NOW == misfireStrategyEnum) {
-                                        // ==立即触发任务调度==
-                                        JobTriggerPoolHelper.trigger(jobInfo.getId(), TriggerTypeEnum.MISFIRE, -1,null, null, null);
-                                        log.debug(">>>>>>>>>>> xxl-job, schedule push trigger : jobId = " + jobInfo.getId());
-                                    }
-
-                                    // 在这里把过期任务的下次执行时间刷新一下，放到下一次来执行
-                                    refreshNextValidTime(jobInfo, new Date());
-                                } else if (nowTime > jobInfo.getTriggerNextTime()/*已超时但不足5s*/) {
-                                    /*
-                                    这里得到的就是要执行的任务的下一次执行时间同样也小于了当前时间，但是这里和上面不同的是，没有
-                                    超过当前时间加5秒那个时间。
-                                    现在大家应该都清楚了，上面加的那个5秒其实是调度周期，每一次处理的任务都是当前任务加5秒这个时
-                                    间段内的这一次得到的任务仅仅是小于当前时间，但是并没有加上5秒，说明这个任务虽然过期了但仍然是
-                                    在当前的调度周期中。比如说这个任务要在第2秒执行，但是服务器在第1秒就宕机了，恢复之后已经是第
-                                    4秒了，现在任务的执行时间小于了当前时间，但是仍然在5秒的调度器内，所以直接执行即可。
-                                     */
-
-                                    // ==立即触发任务调度==
-                                    JobTriggerPoolHelper.trigger(jobInfo.getId(), TriggerTypeEnum.CRON, -1,
-                                            null, null, null);
-                                    // 刷新任务下一次的触发时间
-                                    refreshNextValidTime(jobInfo, new Date());
-
-                                    log.debug(">>>>>>>>>>> xxl-job, schedule push trigger : jobId = " + jobInfo.getId());
-
-                                    /*
-                                    如果发现任务在5秒内会再次触发，便会将这个任务直接放入到时间轮中，由时间轮来进行下
-                                    一次调度。
-                                    下面这个分支中的任务就是比较正常的，但是又有些特殊？
-                                    首先判断它是不是在启动的状态，然后判断这个任务的下一次执行时间是否小于这个执行周期。
-                                    注意：上面的refreshNextValidTime方法已经把该任务的下一次执行时间更新了，如果更新
-                                    后的时间仍然小于执行周期，说明这个任务会在执行周期中再执行一次，当然也可能执行多次。
-                                    这个时候，就不让调度线程来处理这个任务了，而是把它提交给时间轮，让时间轮去执行。
-
-                                    【问题思考】为什么需要时间轮去执行呢？
-                                               调度线程自己去把任务给触发器线程池执行不行吗？
-                                               为什么要设计一个5秒的调度周期呢？
-                                               xxl-job定时任务的调度精度究竟准确吗？
-                                     */
-                                    if (jobInfo.getTriggerStatus() == 1
-                                            && nowTime + PRE_READ_MS > jobInfo.getTriggerNextTime()) {
-                                        /*
-                                        计算该任务要放在时间轮的刻度，也就是在时间轮中的执行时间。
-                                        【注意】千万别被这个取余迷惑了？
-                                        这里的余数计算结果为0~59，单位是秒，意味着时间轮有60个刻度，一个代表一秒。
-                                        调度线程是按调度周期来处理任务的，举个例子，调度线程从0秒开始启动，第5秒为一个周期，把
-                                        这5秒要执行的任务交给时间轮了，就去处理下一个调度周期，千万不要把调度线程处理调度任务时
-                                        不断增加的调度周期就是增长的时间，调度线程每次扫描数据库不会耗费那么多时间，这个时间是
-                                        作者自己设定的，并且调度线程也不是真的只按整数5秒去调度任务。实际上，调度线程从0秒开始
-                                        工作，扫描0~5秒的任务，调度这些任务耗费了1秒，再次循环时，调度线程就会从1秒开始，处理
-                                        1~6秒的任务，虽说是1~6秒，但是1~5秒的任务都被处理过了，但是请大家想一想，有些任务也仅
-                                        仅只是被执行了一次，如果有一个任务在0~5秒调度器内被执行了，但是该任务没1秒执行一次，从
-                                        第1秒开始，那它是不是会在调度期内执行多次？可是上一次循环它可能最多只被执行了2次，一次
-                                        在调度线程内，一次在时间轮内，还有几次并未执行呢？所以要交给下一个周期去执行，但是这时
-                                        候它的下次执行时间还在当前时间的5秒内，如果下个周期直接从6秒开始，这个任务就无法执行了，
-                                        大家可以仔细想想。【时间轮才是真正按照时间增长的速度去处理定时任务的】
-                                         */
-                                        // 计算该任务要放在时间轮的刻度，也就是在时间轮中的执行时间
-                                        int ringSecond = (int) ((jobInfo.getTriggerNextTime() / 1000) % 60);
-                                        // ==把任务推送到时间轮==
-                                        pushTimeRing(ringSecond, jobInfo.getId());
-                                        /*
-                                        刷新定时任务的下一次执行时间。
-                                        注意：这里传进来的不是当前时间了，而是定时任务的下一次执行时间，
-                                        因为放到时间轮中就意味着它要执行了，所以计算新的执行时间就行了。
-                                         */
-                                        refreshNextValidTime(jobInfo, new Date(jobInfo.getTriggerNextTime()));
-                                    }
-                                } else /*还未到触发时间*/{
-                                    /*
-                                    最后这里得到的就是最正常的任务，也就是执行时间在当前时间之后，但是又小于执行周期的
-                                    任务，上面的几个判断，都是当前时间大于任务的下次执行时间，实际上都是在过期的任务中
-                                    做判断。这样的任务就很好处理了，反正都是调度周期，也就是当前时间5秒内要执行的任务，
-                                    所以直接放到时间轮中就行。计算出定时任务在时间轮中的刻度，其实就是定时任务执行的时
-                                    间对应的秒数，随着时间的流逝，时间轮也是根据当前时间秒数来获取要执行的任务的，所以
-                                    这样就可以对应上了。
-                                     */
-                                    // 计算该任务要放在时间轮的刻度，也就是在时间轮中的执行时间
-                                    int ringSecond = (int) ((jobInfo.getTriggerNextTime() / 1000) % 60);
-                                    // ==把任务推送到时间轮==
-                                    pushTimeRing(ringSecond, jobInfo.getId());
-                                    // 刷新定时任务下一次的执行时间
-                                    refreshNextValidTime(jobInfo, new Date(jobInfo.getTriggerNextTime()));
-                                }
-                            }
-
-                            /*
-                            最后更新一下所有的任务执行信息：
-                                UPDATE xxl_job_info
-                                SET trigger_last_time = #{triggerLastTime}, 任务最后一次触发时间
-                                    trigger_next_time = #{triggerNextTime}, 任务下一次触发时间
-                                    trigger_status = #{triggerStatus}       任务状态
-                                WHERE id = #{id}                            任务ID
-                             */
-                            for (XxlJobInfo jobInfo : scheduleList) {
-                                XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().scheduleUpdate(jobInfo);
-                            }
-
-                        } else {
-                            // 走到这里，说明根本就没有从数据库中扫描到任何任务，把preReadSuc标记设为false
-                            preReadSuc = false;
-                        }
-                    } catch (Exception e) {
-                        if (!scheduleThreadToStop) {
-                            log.error(">>>>>>>>>>> xxl-job, JobScheduleHelper#scheduleThread error:{}", e.getMessage(), e);
-                        }
-                    } finally {
-                        // 提交事务、释放锁、再次设置非手动提交、释放资源
-                        if (conn != null) {
-                            try {
-                                conn.commit();
-                            } catch (SQLException e) {
-                                if (!scheduleThreadToStop) {
-                                    log.error(e.getMessage(), e);
-                                }
-                            }
-                            try {
-                                conn.setAutoCommit(connAutoCommit);
-                            } catch (SQLException e) {
-                                if (!scheduleThreadToStop) {
-                                    log.error(e.getMessage(), e);
-                                }
-                            }
-                            try {
-                                conn.close();
-                            } catch (SQLException e) {
-                                if (!scheduleThreadToStop) {
-                                    log.error(e.getMessage(), e);
-                                }
-                            }
-                        }
-                        if (null != preparedStatement) {
-                            try {
-                                preparedStatement.close();
-                            } catch (SQLException e) {
-                                if (!scheduleThreadToStop) {
-                                    log.error(e.getMessage(), e);
-                                }
-                            }
+                    int totalReadCount = 0;
+                    boolean saturated = false;
+                    cycleEarliestNextTime = Long.MAX_VALUE;
+                    JobSchedulePartitionHelper partitionHelper = JobSchedulePartitionHelper.getInstance();
+                    int[] ownedPartitions = partitionHelper.getOwnedPartitions();
+                    int partitionReadCount = ownedPartitions.length > 1
+                            ? Math.max(1, (preReadCount + ownedPartitions.length - 1) / ownedPartitions.length)
+                            : preReadCount;
+                    if (XxlJobAdminConfig.getAdminConfig().isScheduleDueIndex()) {
+                        refreshDueIndex(ownedPartitions, partitionHelper.getPartitionCount());
+                    }
+                    for (int partitionId : ownedPartitions) {
+                        if (scheduleThreadToStop) {
+                            break;
                         }
+                        int readCount = schedulePartition(partitionId, partitionHelper.getPartitionCount(), preReadMs, partitionReadCount);
+                        totalReadCount += readCount;
+                        saturated |= readCount >= partitionReadCount;
+                    }
+                    // 有内存索引的时候，可以直接知道所有任务中最早的下次触发时间
+                    if (dueIndex != null) {
+                        cycleEarliestNextTime = Math.min(cycleEarliestNextTime, dueIndex.earliestNextTime());
                     }
 
                     /*
@@ -340,19 +221,20 @@ public class JobScheduleHelper {
                     就得到了执行扫描数据库，并且调度任务的总耗时。
                      */
                     long cost = System.currentTimeMillis() - start;
+                    XxlJobMetrics.getInstance().recordScheduleScan(System.nanoTime() - scanStartNanos);
+
                     /*
-                    这里有个判断，1000毫秒就是1秒，如果总耗时小于1s，就默认数据库中可能没多少
-                    数据，线程不必工作的这么繁忙，所以下面要让线程休息一会儿，然后再继续工作。
+                    原来这里是读到任务就睡到下一个整秒，读不到任务就睡5秒。现在睡到本轮读到的任务中
+                    最早的下次触发时间和本轮预读窗口结束时间中较早的那个，并留出扫描耗时的余量；
+                    有分区读满了预读数量，说明还有没读完的任务，不睡直接进入下一轮。
                      */
-                    if (cost < 1000) {
+                    long sleepTime = preReadPolicy.nextScanDelay(start, preReadMs, cycleEarliestNextTime,
+                            saturated, System.currentTimeMillis());
+                    // 有分区读满时窗口内还有没读完的任务，按读满了整个预算处理
+                    preReadPolicy.update(saturated ? Math.max(totalReadCount, preReadCount) : totalReadCount, cost, JobTriggerPoolHelper.getTriggerCostAvg(),
+                            JobTriggerPoolHelper.getQueueSize(), JobTriggerPoolHelper.getQueueCapacity());
+                    if (sleepTime > 0) {
                         try {
-                            /*
-                            下面有一个三元运算，判断preReadSuc是否为true，如果扫描到数据了，
-                            就让该线程小睡一会儿，最多睡1秒。如果根本就没有数据，就说明5秒的
-                            调度器内没有任何任务可以执行，那就让线程最多睡5秒，把时间睡过去，
-                            过5秒再开始工作。
-                             */
-                            long sleepTime = (preReadSuc ? 1000 : PRE_READ_MS) - (System.currentTimeMillis() % 1000);
                             TimeUnit.MILLISECONDS.sleep(sleepTime);
                         } catch (InterruptedException e) {
                             if (!scheduleThreadToStop) {
@@ -374,93 +256,382 @@ public class JobScheduleHelper {
         ringThread = new Thread(new Runnable() {
             @Override
             public void run() {
+                // 上一次输出派发延迟统计的时间
+                long lastLagReport = System.currentTimeMillis();
                 while (!ringThreadToStop) {
                     try {
                         /*
-                        这里让线程睡一会儿，作用还是比较明确的，因为该线程是时间轮线程，时间轮执行任务是按照时间
-                        刻度来执行的，如果这一秒内的所有任务都执行完了，但是耗时只用了500毫秒，剩下的500毫秒就只
-                        好睡过去，等待下一个整秒到来再继续开始工作，System.currentTimeMillis() % 1000计算出来
-                        的结果如果是500ms，1000-500=500线程就继续睡500毫秒，如果System.currentTimeMillis() %
-                        1000计算出来的是0，说明现在是整秒，那就睡1秒，等到下个工作时间再开始工作。
+                        把时间轮推进到当前时间，到期的任务会被依次取出来提交给调度线程池。
+                        如果上一次推进耗时太长跨过了若干个刻度，这里会把跨过的刻度逐个补上，
+                        不会像原来那样只能向前多看一个刻度。
                          */
-                        TimeUnit.MILLISECONDS.sleep(1000 - System.currentTimeMillis() % 1000);
+                        int[] dispatched = new int[1];
+                        timeWheel.advance(System.currentTimeMillis(), (jobId, triggerTime, tag) -> {
+                            // ==触发定时任务==，触发类型、调度配置版本号都从tag中取出，见 fireTag
+                            if (!dispatchTrigger(jobId, tagTriggerType(tag), triggerTime, tagScheduleVersion(tag), tagDeferred(tag))) {
+                                return;
+                            }
+                            XxlJobMetrics.getInstance().recordDispatchLag(jobId, System.currentTimeMillis() - triggerTime);
+                            dispatched[0]++;
+                            log.debug(">>>>>>>>>>> xxl-job, time-ring beat : jobId = {}, triggerTime = {}", jobId, triggerTime);
+                        });
+                        if (dispatched[0] > 0) {
+                            XxlJobMetrics.getInstance().recordRingBucketSize(dispatched[0]);
+                        }
+
+                        // 每分钟输出一次派发延迟，用来观察调度精度
+                        long nowTime = System.currentTimeMillis();
+                        if (nowTime - lastLagReport >= 60 * 1000) {
+                            lastLagReport = nowTime;
+                            long[] lagStats = timeWheel.drainLagStats();
+                            if (lagStats[0] > 0) {
+                                log.info(">>>>>>>>>>> xxl-job, time-ring dispatch lag: count = {}, avg = {}ms, max = {}ms",
+                                        lagStats[0], lagStats[1] / lagStats[0], lagStats[2]);
+                            }
+                        }
+                    } catch (Exception e) {
+                        if (!ringThreadToStop) {
+                            log.error(">>>>>>>>>>> xxl-job, JobScheduleHelper#ringThread error:{}", e.getMessage(), e);
+                        }
+                    }
+
+                    try {
+                        // 睡到下一个刻度再继续推进
+                        TimeUnit.MILLISECONDS.sleep(timeWheel.nextTickDelay(System.currentTimeMillis()));
                     } catch (InterruptedException e) {
                         if (!ringThreadToStop) {
                             log.error(e.getMessage(), e);
                         }
                     }
+                }
 
-                    try {
+                log.info(">>>>>>>>>>> xxl-job, JobScheduleHelper#ringThread stop");
+            }
+        });
+        ringThread.setDaemon(true);
+        ringThread.setName("xxl-job, admin JobScheduleHelper#ringThread");
+        ringThread.start();
+    }
+
+
+    /**
+     * 调度一个分区：拿到分区的锁，预读分区中预读窗口内要执行的任务，放入时间轮或者直接触发，
+     * 然后更新任务的下一次执行时间，最后提交事务释放锁。
+     *
+     * @return 读取到的任务数
+     */
+    private int schedulePartition(int partitionId, int partitionCount, long preReadMs, int preReadCount) {
+        int readCount = 0;
+
+        /*
+        开启了内存索引时，先从索引中找出预读窗口内到期的候选任务，
+        一个都没有就不需要去抢锁和查库了。
+         */
+        JobDueIndex index = dueIndex;
+        List<Integer> dueJobIds = null;
+        if (index != null) {
+            dueJobIds = index.due(partitionId, System.currentTimeMillis() + preReadMs, preReadCount);
+            if (dueJobIds.isEmpty()) {
+                return 0;
+            }
+        }
+
+        /*
+        下面这几个步骤都和数据库有关，因为xxl-job是使用数据库来实现分布式锁的，
+        既然是数据锁，就不能自动提交事务，所以这里要手动设置
+         */
+        Connection conn = null;
+        // 设置事务不自动提交
+        Boolean connAutoCommit = null;
+        PreparedStatement preparedStatement = null;
+        // 拿到锁的时间，用来统计每个调度周期持有锁的时长
+        long lockStart = 0;
+        try {
+            // 获得数据库连接
+            conn = XxlJobAdminConfig.getAdminConfig().getDataSource().getConnection();
+            // 拿到事务自动提交标志
+            connAutoCommit = conn.getAutoCommit();
+            // 设置为不自动提交
+            conn.setAutoCommit(false);
+            /*
+            设置sql语句，获得【数据库锁】
+            【注意】一旦调度中心形成集群，就要防止定时任务被重复调度，这时就
+            必须要用到【分布式锁】，在xxl-job 中，分布式锁是用数据库实现的。
+            每个分区都有自己的锁行，分区数为1时锁名就是 schedule_lock。
+             */
+            preparedStatement = conn.prepareStatement("select * from xxl_job_lock where lock_name = ? for update");
+            preparedStatement.setString(1, JobSchedulePartitionHelper.getInstance().lockName(partitionId));
+            // 开始执行sql语句，拿到数据库锁(分布式锁)
+            long lockWaitStart = System.nanoTime();
+            preparedStatement.execute();
+            lockStart = System.nanoTime();
+            XxlJobMetrics.getInstance().recordScheduleLockWait(lockStart - lockWaitStart);
+
+            /*
+            获取当前时间，这里要把这个时间和调度线程中的start做一下区分，
+            这两个时间变量的作用不同，现在这个时间变量是用来得到要调
+            度的任务的，start是最后用来做判断的，看看扫描数据库耗费了
+            多少时间。
+             */
+            long nowTime = System.currentTimeMillis();
+            /*
+            查找出当前分区中当前时间+预读窗口之内所有可以执行的定时任务信息：
+                SELECT *
+                FROM  xxl_job_info AS t
+                WHERE t.trigger_status = 1
+                AND   t.trigger_next_time <= #{maxNextTime} // 预读时间，当前时间+预读窗口（默认从5s开始自适应调整）
+                AND   t.id % #{partitionCount} = #{partitionId} // 分区数大于1时才有这个条件
+                ORDER BY id ASC
+                LIMIT #{pagesize} // 预读数量，默认从6000开始自适应调整
+             */
+            List<XxlJobSchedule> scheduleList = dueJobIds != null
+                    ? loadDueJobs(index, dueJobIds, nowTime + preReadMs)
+                    : XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().scheduleJobQuery(nowTime + preReadMs, preReadCount, partitionId, partitionCount);
+            // 如果在数据库中查询到了要执行的任务，就循环的处理每一个任务
+            if (!CollectionUtils.isEmpty(scheduleList)) {
+                // 时间轮入轮操作
+                for (XxlJobSchedule jobInfo : scheduleList) {
+                    XxlJobMetrics.getInstance().bindJobGroup(jobInfo.getId(), jobInfo.getJobGroup());
+                    /*
+                    这里做了一个判断：刚才得到的当前时间 > 任务的下一次执行时间 + 5秒，为什么会出现这种情况呢？
+
+                    仔细想想，本来一个任务被调度执行了，就会计算出它下一次的执行时间，然后更新数据库中的任务的
+                    下一次执行时间，但是如果服务器宕机了呢？
+                    本来上一次要执行的任务却没有执行，比如这个任务要在第5秒执行，但是服务器在第4秒就宕机了，重新
+                    恢复运行后，已经是第12秒了，现在去数据库中查询任务，12>5+5，就是if括号中的不等式，这样一来，
+                    是不是就查到了执行时间比当前时间还小的任务呢？
+                    所以，作者早已考虑到了这种情况
+                     */
+                    if (nowTime > jobInfo.getTriggerNextTime() + PRE_READ_MS/*已超时5s以上*/) {
+                        log.warn(">>>>>>>>>>> xxl-job, schedule misfire, jobId = " + jobInfo.getId());
                         /*
-                        即将要执行的定时任务ID集合。
-                        时间轮是一个Map容器，Map的key是定时任务要执行的时间，value是定时
-                        任务的JobId的集合，到了固定时间，要把对应时刻的定时任务从集合中取
-                        出来，所以自然也要用集合来存放这些定时任务的id。
+                        既然有过期的任务，就要看看怎么处理，是直接不处理，还是其他的处理方式，这里程序默认的是什么
+                        也不做，过期就过期呗。当然，下面还是要再判断一次，万一失败策略是【立刻重试一次】，那就立刻
+                        执行一次任务的调度。
                          */
-                        List<Integer> ringItemData = new ArrayList<>();
+                        MisfireStrategyEnum misfireStrategyEnum = MisfireStrategyEnum.match(jobInfo.getMisfireStrategy(), MisfireStrategyEnum.DO_NOTHING);
+                        XxlJobMetrics.getInstance().recordMisfire(jobInfo.getJobGroup(), misfireStrategyEnum.name());
+                        if (MisfireStrategyEnum.FIRE_ONCE_NOW == misfireStrategyEnum) {
+                            // ==立即触发任务调度==
+                            dispatchTrigger(jobInfo.getId(), TriggerTypeEnum.MISFIRE, nowTime, scheduleVersion(jobInfo), false);
+                            log.debug(">>>>>>>>>>> xxl-job, schedule push trigger : jobId = " + jobInfo.getId());
+                        }
+
+                        // 在这里把过期任务的下次执行时间刷新一下，放到下一次来执行
+                        refreshNextValidTime(jobInfo, new Date());
+                    } else if (nowTime > jobInfo.getTriggerNextTime()/*已超时但不足5s*/) {
                         /*
-                        ==获取当前时间的秒数==
-                        避免处理耗时太长，跨过刻度，向前校验一个刻度
+                        这里得到的就是要执行的任务的下一次执行时间同样也小于了当前时间，但是这里和上面不同的是，没有
+                        超过当前时间加5秒那个时间。
+                        现在大家应该都清楚了，上面加的那个5秒其实是调度周期，每一次处理的任务都是当前任务加5秒这个时
+                        间段内的这一次得到的任务仅仅是小于当前时间，但是并没有加上5秒，说明这个任务虽然过期了但仍然是
+                        在当前的调度周期中。比如说这个任务要在第2秒执行，但是服务器在第1秒就宕机了，恢复之后已经是第
+                        4秒了，现在任务的执行时间小于了当前时间，但是仍然在5秒的调度器内，所以直接执行即可。
                          */
-                        int nowSecond = Calendar.getInstance().get(Calendar.SECOND);
+
+                        // ==立即触发任务调度==
+                        if (dispatchTrigger(jobInfo.getId(), TriggerTypeEnum.CRON, jobInfo.getTriggerNextTime(), scheduleVersion(jobInfo), false)) {
+                            XxlJobMetrics.getInstance().recordDispatchLag(jobInfo.getId(), nowTime - jobInfo.getTriggerNextTime());
+                        }
+                        // 刷新任务下一次的触发时间
+                        refreshNextValidTime(jobInfo, new Date());
+
+                        log.debug(">>>>>>>>>>> xxl-job, schedule push trigger : jobId = " + jobInfo.getId());
+
                         /*
-                        ==从时间轮中取出当前秒和前一秒的所有任务，循环ringItemData，依次触发其
-                        中的每一个任务==
-                        下面这里很有意思，如果我们计算出来的是第3秒，时间轮线程会把第2秒和第3秒
-                        的任务都取出来，一起执行。这里肯定会让大家感到困惑，时间轮不是按照时间刻
-                        度走的吗？如果走到第3秒的刻度，说明第2秒的任务已经执行完了，为什么还要再
-                        拿出来？这是因为考虑到定时任务的调度情况了，如果时间轮某个刻度对应的定时
-                        任务太多，本来该最多1秒就调度完成的，结果调度了2秒，直接把下一个刻度跳过
-                        了，这样不就出错了吗？所以，每次执行的时候要把前一秒的也取出来，检查一下
-                        看是否有任务，这也算是一个兜底的方法。
+                        如果发现任务在5秒内会再次触发，便会将这个任务直接放入到时间轮中，由时间轮来进行下
+                        一次调度。
+                        下面这个分支中的任务就是比较正常的，但是又有些特殊？
+                        首先判断它是不是在启动的状态，然后判断这个任务的下一次执行时间是否小于这个执行周期。
+                        注意：上面的refreshNextValidTime方法已经把该任务的下一次执行时间更新了，如果更新
+                        后的时间仍然小于执行周期，说明这个任务会在执行周期中再执行一次，当然也可能执行多次。
+                        这个时候，就不让调度线程来处理这个任务了，而是把它提交给时间轮，让时间轮去执行。
+
+                        【问题思考】为什么需要时间轮去执行呢？
+                                   调度线程自己去把任务给触发器线程池执行不行吗？
+                                   为什么要设计一个5秒的调度周期呢？
+                                   xxl-job定时任务的调度精度究竟准确吗？
                          */
-                        for (int i = 0; i < 2; i++) {
+                        if (jobInfo.getTriggerStatus() == 1
+                                && nowTime + preReadMs > jobInfo.getTriggerNextTime()) {
                             /*
-                            循环两次，第一次取出当前刻度的任务，第二次取出前一刻度的任务。
-                            注意：这里取出任务的时候，定时任务就会从时间轮中被删除。
+                            把任务按照下一次的触发时间放到时间轮中。
+                            调度线程是按调度周期来处理任务的，举个例子，调度线程从0秒开始启动，第5秒为一个周期，把
+                            这5秒要执行的任务交给时间轮了，就去处理下一个调度周期，千万不要把调度线程处理调度任务时
+                            不断增加的调度周期就是增长的时间，调度线程每次扫描数据库不会耗费那么多时间，这个时间是
+                            作者自己设定的，并且调度线程也不是真的只按整数5秒去调度任务。实际上，调度线程从0秒开始
+                            工作，扫描0~5秒的任务，调度这些任务耗费了1秒，再次循环时，调度线程就会从1秒开始，处理
+                            1~6秒的任务，虽说是1~6秒，但是1~5秒的任务都被处理过了，但是请大家想一想，有些任务也仅
+                            仅只是被执行了一次，如果有一个任务在0~5秒调度器内被执行了，但是该任务没1秒执行一次，从
+                            第1秒开始，那它是不是会在调度期内执行多次？可是上一次循环它可能最多只被执行了2次，一次
+                            在调度线程内，一次在时间轮内，还有几次并未执行呢？所以要交给下一个周期去执行，但是这时
+                            候它的下次执行时间还在当前时间的5秒内，如果下个周期直接从6秒开始，这个任务就无法执行了，
+                            大家可以仔细想想。【时间轮才是真正按照时间增长的速度去处理定时任务的】
                              */
-                            List<Integer> tmpData = ringData.remove((nowSecond + 60 - i) % 60);
-                            if (tmpData != null) {
-                                // 把要执行的定时任务ID数据添加到ringItemData集合中
-                                ringItemData.addAll(tmpData);
-                            }
+                            // ==把任务在预读窗口内的全部触发时间推送到时间轮，并刷新下一次执行时间==
+                            pushFireWindow(jobInfo, nowTime + preReadMs);
                         }
-
-                        log.debug(">>>>>>>>>>> xxl-job, time-ring beat : " + nowSecond + " = " + Collections.singletonList(ringItemData));
-
+                    } else /*还未到触发时间*/{
                         /*
-                        如果存放要执行的定时任务的ID不为空，就表示里面有任务，
-                        那么就先遍历要执行的定时任务，再循环执行，最后清空集合。
+                        最后这里得到的就是最正常的任务，也就是执行时间在当前时间之后，但是又小于执行周期的
+                        任务，上面的几个判断，都是当前时间大于任务的下次执行时间，实际上都是在过期的任务中
+                        做判断。这样的任务就很好处理了，反正都是调度周期，也就是当前时间5秒内要执行的任务，
+                        所以直接放到时间轮中就行。时间轮按照任务的触发时间（毫秒）计算刻度，随着时间的流逝，
+                        时间轮线程会在刻度到来时取出要执行的任务，所以这样就可以对应上了。
                          */
-                        if (!ringItemData.isEmpty()) {
-                            for (int jobId : ringItemData) {
-                                // ==触发定时任务==
-                                JobTriggerPoolHelper.trigger(jobId, TriggerTypeEnum.CRON, -1,
-                                        null, null, null);
-                            }
+                        // ==把任务在预读窗口内的全部触发时间推送到时间轮，并刷新下一次执行时间==
+                        pushFireWindow(jobInfo, nowTime + preReadMs);
+                    }
+                }
 
-                            ringItemData.clear();
-                        }
-                    } catch (Exception e) {
-                        if (!ringThreadToStop) {
-                            log.error(">>>>>>>>>>> xxl-job, JobScheduleHelper#ringThread error:{}", e.getMessage(), e);
-                        }
+                /*
+                最后更新一下所有的任务执行信息，原来是一行一条update，6000个任务就要在持有锁的时候
+                和数据库交互6000次，现在按照batchsize分批，每批合并成一条update：
+                    UPDATE xxl_job_info
+                    SET trigger_last_time = CASE id WHEN #{id} THEN #{triggerLastTime} ... END, 任务最后一次触发时间
+                        trigger_next_time = CASE id WHEN #{id} THEN #{triggerNextTime} ... END, 任务下一次触发时间
+                        trigger_status = CASE id WHEN #{id} THEN #{triggerStatus} ... END       任务状态
+                    WHERE id IN (#{id}, ...)                                                      任务ID
+                 */
+                // 记录刷新后最早的下次触发时间，扫描线程最晚要在这个时间之前开始下一轮扫描
+                for (XxlJobSchedule jobInfo : scheduleList) {
+                    if (jobInfo.getTriggerStatus() == 1 && jobInfo.getTriggerNextTime() < cycleEarliestNextTime) {
+                        cycleEarliestNextTime = jobInfo.getTriggerNextTime();
+                    }
+                }
+                readCount = scheduleList.size();
+
+                int batchSize = XxlJobAdminConfig.getAdminConfig().getScheduleBatchSize();
+                for (int from = 0; from < scheduleList.size(); from += batchSize) {
+                    int to = Math.min(from + batchSize, scheduleList.size());
+                    XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().scheduleUpdateBatch(scheduleList.subList(from, to));
+                }
+                for (XxlJobSchedule jobInfo : scheduleList) {
+                    if (jobInfo.getTriggerStatus() == 1) {
+                        writtenNextTimes.put(jobInfo.getId(), jobInfo.getTriggerNextTime());
+                    } else {
+                        writtenNextTimes.remove(jobInfo.getId());
+                    }
+                }
+
+                // 写回数据库之后，同步更新内存索引
+                if (index != null) {
+                    for (XxlJobSchedule jobInfo : scheduleList) {
+                        index.put(jobInfo.getId(), jobInfo.getTriggerStatus(), jobInfo.getTriggerNextTime());
                     }
                 }
 
-                log.info(">>>>>>>>>>> xxl-job, JobScheduleHelper#ringThread stop");
             }
-        });
-        ringThread.setDaemon(true);
-        ringThread.setName("xxl-job, admin JobScheduleHelper#ringThread");
-        ringThread.start();
+        } catch (Exception e) {
+            if (!scheduleThreadToStop) {
+                log.error(">>>>>>>>>>> xxl-job, JobScheduleHelper#scheduleThread error:{}", e.getMessage(), e);
+            }
+        } finally {
+            // 提交事务、释放锁、再次设置非手动提交、释放资源
+            if (conn != null) {
+                try {
+                    conn.commit();
+                } catch (SQLException e) {
+                    if (!scheduleThreadToStop) {
+                        log.error(e.getMessage(), e);
+                    }
+                }
+                if (lockStart > 0) {
+                    XxlJobMetrics.getInstance().recordScheduleLockHold(System.nanoTime() - lockStart);
+                }
+                try {
+                    conn.setAutoCommit(connAutoCommit);
+                } catch (SQLException e) {
+                    if (!scheduleThreadToStop) {
+                        log.error(e.getMessage(), e);
+                    }
+                }
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    if (!scheduleThreadToStop) {
+                        log.error(e.getMessage(), e);
+                    }
+                }
+            }
+            if (null != preparedStatement) {
+                try {
+                    preparedStatement.close();
+                } catch (SQLException e) {
+                    if (!scheduleThreadToStop) {
+                        log.error(e.getMessage(), e);
+                    }
+                }
+            }
+        }
+
+        return readCount;
     }
 
+    /**
+     * 在分区锁内按主键读出索引给出的候选任务，只保留确实在预读窗口内到期的任务。
+     * 索引和数据库不一致的任务（被其他节点修改或删除过），以数据库为准修正索引。
+     */
+    private List<XxlJobSchedule> loadDueJobs(JobDueIndex index, List<Integer> dueJobIds, long maxNextTime) {
+        List<XxlJobSchedule> jobList = XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().scheduleJobLoadByIds(dueJobIds);
+        Set<Integer> missingJobIds = new HashSet<>(dueJobIds);
+        List<XxlJobSchedule> scheduleList = new ArrayList<>(jobList.size());
+        for (XxlJobSchedule jobInfo : jobList) {
+            missingJobIds.remove(jobInfo.getId());
+            if (jobInfo.getTriggerStatus() == 1 && jobInfo.getTriggerNextTime() <= maxNextTime) {
+                scheduleList.add(jobInfo);
+            } else {
+                index.put(jobInfo.getId(), jobInfo.getTriggerStatus(), jobInfo.getTriggerNextTime());
+            }
+        }
+        for (Integer jobId : missingJobIds) {
+            index.remove(jobId);
+        }
+        return scheduleList;
+    }
+
+    /**
+     * 同步内存索引：启动、分区归属变化或者距离上次全量加载超过DUE_INDEX_RELOAD_MS时全量加载，
+     * 否则按 schedule_update_time 增量拉取调度被修改过的任务。
+     */
+    private void refreshDueIndex(int[] ownedPartitions, int partitionCount) {
+        try {
+            long nowTime = System.currentTimeMillis();
+            if (dueIndex == null
+                    || !Arrays.equals(ownedPartitions, dueIndexPartitions)
+                    || nowTime - dueIndexLoadTime > DUE_INDEX_RELOAD_MS) {
+                JobDueIndex index = new JobDueIndex(partitionCount, ownedPartitions);
+                List<XxlJobSchedule> jobList = XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().scheduleIndexLoad();
+                for (XxlJobSchedule jobInfo : jobList) {
+                    index.put(jobInfo.getId(), jobInfo.getTriggerStatus(), jobInfo.getTriggerNextTime());
+                }
+                dueIndex = index;
+                dueIndexPartitions = ownedPartitions;
+                dueIndexLoadTime = nowTime;
+                dueIndexWatermark = nowTime;
+                log.info(">>>>>>>>>>> xxl-job, schedule due index loaded, size = {}, cost = {}ms",
+                        index.size(), System.currentTimeMillis() - nowTime);
+                return;
+            }
+
+            List<XxlJobSchedule> jobList = XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao()
+                    .scheduleIndexDelta(new Date(dueIndexWatermark - DUE_INDEX_DELTA_OVERLAP_MS));
+            for (XxlJobSchedule jobInfo : jobList) {
+                dueIndex.put(jobInfo.getId(), jobInfo.getTriggerStatus(), jobInfo.getTriggerNextTime());
+            }
+            dueIndexWatermark = nowTime;
+        } catch (Exception e) {
+            // 同步失败时继续使用旧的索引，调度前的主键校验保证不会误触发；还没有索引时本轮退回扫表
+            if (!scheduleThreadToStop) {
+                log.error(">>>>>>>>>>> xxl-job, JobScheduleHelper#refreshDueIndex error:{}", e.getMessage(), e);
+            }
+        }
+    }
 
     /**
      * 刷新定时任务下一次的执行时间
      */
-    private void refreshNextValidTime(XxlJobInfo jobInfo, Date fromTime) throws Exception {
+    private void refreshNextValidTime(XxlJobSchedule jobInfo, Date fromTime) throws Exception {
         Date nextValidTime = generateNextValidTime(jobInfo, fromTime);
         if (nextValidTime != null) {
             jobInfo.setTriggerLastTime(jobInfo.getTriggerNextTime());
@@ -474,21 +645,124 @@ public class JobScheduleHelper {
     }
 
     /**
-     * 把定时任务放到时间轮中
+     * 把任务的下一次触发时间，以及之后不晚于windowEnd的触发时间一次性放入时间轮，最多放入
+     * xxl.job.schedule.precompute 次，然后把下一次执行时间刷新到最后一次放入的触发时间之后。
+     * <p>
+     * 原来每轮只放入一次触发，每秒执行的任务每次触发都要算一次cron、写一次库，扫描线程也要
+     * 每秒醒来一次；现在一轮把窗口内的触发都算好，trigger_next_time只在窗口边界写回一次。
+     * 任务在窗口内被停止或者修改了调度配置时，已经放入时间轮的触发不再执行：每次触发都带着计算它时的
+     * 调度配置版本号，触发线程从 JobCacheHelper 取到任务快照后，发现任务已经停止或者版本号变了就丢弃。
+     * <p>
+     * 间隔小于1秒的固定频率任务（比如 "200ms"）不受次数上限的限制，窗口内的触发全部由时间轮在内存中
+     * 完成，数据库里的下次触发时间相当于每个预读窗口做一次checkpoint。
+     */
+    private void pushFireWindow(XxlJobSchedule jobInfo, long windowEnd) throws Exception {
+        int scheduleVersion = scheduleVersion(jobInfo);
+        long fireTime = jobInfo.getTriggerNextTime();
+        pushTimeRing(jobInfo.getId(), fireTime, scheduleVersion);
+
+        if (ScheduleTypeEnum.FIX_RATE == ScheduleTypeEnum.match(jobInfo.getScheduleType(), null)) {
+            long interval = ScheduleTypeEnum.parseFixRateMs(jobInfo.getScheduleConf());
+            if (interval > 0 && interval < 1000) {
+                while (fireTime + interval <= windowEnd) {
+                    fireTime += interval;
+                    pushTimeRing(jobInfo.getId(), fireTime, scheduleVersion);
+                }
+                jobInfo.setTriggerNextTime(fireTime);
+                refreshNextValidTime(jobInfo, new Date(fireTime));
+                return;
+            }
+        }
+
+        int bufferSize = XxlJobAdminConfig.getAdminConfig().getSchedulePrecompute() - 1;
+        if (fireTimeBuffer == null || fireTimeBuffer.length != bufferSize) {
+            fireTimeBuffer = new long[bufferSize];
+        }
+        int count = generateNextValidTimes(jobInfo, fireTime, windowEnd, fireTimeBuffer);
+        for (int i = 0; i < count; i++) {
+            pushTimeRing(jobInfo.getId(), fireTimeBuffer[i], scheduleVersion);
+        }
+        if (count > 0) {
+            jobInfo.setTriggerNextTime(fireTimeBuffer[count - 1]);
+        }
+        /*
+        刷新定时任务的下一次执行时间。
+        注意：这里传进来的不是当前时间了，而是最后一次放入时间轮的触发时间，
+        因为放到时间轮中就意味着它要执行了，所以计算新的执行时间就行了。
+         */
+        refreshNextValidTime(jobInfo, new Date(jobInfo.getTriggerNextTime()));
+    }
+
+    /**
+     * 把调度触发提交给触发线程池。触发线程池过载没有接收时，按 xxl.job.trigger.shed.policy 处理：
+     * DEFER 放回时间轮，保留原来的计划触发时间和触发类型，下一个刻度再尝试，推迟超过 PRE_READ_MS 后按调度过期丢弃；
+     * MISFIRE 直接按调度过期丢弃。这里不会抛出异常，同一轮中后面的任务照常触发。
+     * 一次触发在每个刻度重试时不重复计数，推迟指标只在第一次推迟时记录。
+     *
+     * @param scheduleVersion 计算这次触发时的调度配置版本号，触发时任务已经停止或者版本号变了就不再执行
+     * @param deferred        这次触发是否已经被推迟过
+     * @return 触发线程池接收了这次触发返回true
+     */
+    private boolean dispatchTrigger(int jobId, TriggerTypeEnum triggerType, long triggerTime, int scheduleVersion, boolean deferred) {
+        if (JobTriggerPoolHelper.trigger(jobId, triggerType, scheduleVersion)) {
+            return true;
+        }
+        if (XxlJobAdminConfig.getAdminConfig().getTriggerShedPolicy() == TriggerShedPolicyEnum.DEFER
+                && System.currentTimeMillis() - triggerTime <= PRE_READ_MS) {
+            timeWheel.push(jobId, triggerTime, fireTag(triggerType, scheduleVersion, true));
+            if (!deferred) {
+                XxlJobMetrics.getInstance().recordTriggerDeferred(triggerType.name());
+            }
+            log.debug(">>>>>>>>>>> xxl-job, trigger pool overloaded, defer trigger : jobId = {}, triggerTime = {}", jobId, triggerTime);
+        } else {
+            XxlJobMetrics.getInstance().recordTriggerShed(triggerType.name());
+            log.warn(">>>>>>>>>>> xxl-job, trigger pool overloaded, shed trigger : jobId = {}, triggerTime = {}", jobId, triggerTime);
+        }
+        return false;
+    }
+
+    /**
+     * 把定时任务放到时间轮中，带上调度配置的版本号
      */
-    private void pushTimeRing(int ringSecond, int jobId) {
-        List<Integer> ringItemData = ringData.computeIfAbsent(ringSecond, k -> new ArrayList<>());
-        ringItemData.add(jobId);
-        log.debug(">>>>>>>>>>> xxl-job, schedule push time-ring : " + ringSecond + " = " + Collections.singletonList(ringItemData));
+    private void pushTimeRing(int jobId, long triggerTime, int scheduleVersion) {
+        timeWheel.push(jobId, triggerTime, fireTag(TriggerTypeEnum.CRON, scheduleVersion, false));
+        log.debug(">>>>>>>>>>> xxl-job, schedule push time-ring : jobId = {}, triggerTime = {}", jobId, triggerTime);
+    }
+
+    private static int scheduleVersion(XxlJobSchedule jobInfo) {
+        return ScheduleTypeEnum.scheduleVersion(jobInfo.getScheduleType(), jobInfo.getScheduleConf(), jobInfo.getScheduleVersion());
+    }
+
+    /**
+     * 时间轮中每次触发附带的tag：高32位是调度配置版本号，低8位是触发类型，第9位标记这次触发已经被推迟过。
+     * 被推迟的 MISFIRE 触发放回时间轮后仍然按 MISFIRE 派发
+     */
+    private static long fireTag(TriggerTypeEnum triggerType, int scheduleVersion, boolean deferred) {
+        return ((long) scheduleVersion << 32) | (deferred ? FIRE_TAG_DEFERRED : 0) | triggerType.ordinal();
+    }
+
+    private static TriggerTypeEnum tagTriggerType(long tag) {
+        return TriggerTypeEnum.values()[(int) (tag & 0xFF)];
+    }
+
+    private static int tagScheduleVersion(long tag) {
+        return (int) (tag >>> 32);
+    }
+
+    private static boolean tagDeferred(long tag) {
+        return (tag & FIRE_TAG_DEFERRED) != 0;
     }
 
     /**
-     * 停止任务调度器的方法，其实就是终止本类的两个线程
+     * 停止任务调度器的方法，其实就是终止本类的两个线程。
+     * 原来时间轮里还有任务时会固定睡8秒，之后剩下的任务直接丢掉；现在两个线程停止后，把时间轮中
+     * 还未派发的任务交接给数据库，详见{@link #handOffTimeRing()}。
      */
     public void toStop() {
         scheduleThreadToStop = true;
         try {
-            TimeUnit.SECONDS.sleep(1);
+            // 最多等1秒，让正在进行的调度周期提交事务，线程在睡眠中的话直接中断
+            scheduleThread.join(1000);
         } catch (InterruptedException e) {
             log.error(e.getMessage(), e);
         }
@@ -500,38 +774,108 @@ public class JobScheduleHelper {
                 log.error(e.getMessage(), e);
             }
         }
-        boolean hasRingData = false;
-        if (!ringData.isEmpty()) {
-            for (int second : ringData.keySet()) {
-                List<Integer> tmpData = ringData.get(second);
-                if (tmpData != null && tmpData.size() > 0) {
-                    hasRingData = true;
-                    break;
-                }
-            }
-        }
-        if (hasRingData) {
-            try {
-                TimeUnit.SECONDS.sleep(8);
-            } catch (InterruptedException e) {
-                log.error(e.getMessage(), e);
-            }
-        }
         ringThreadToStop = true;
+        ringThread.interrupt();
         try {
-            TimeUnit.SECONDS.sleep(1);
+            ringThread.join();
         } catch (InterruptedException e) {
             log.error(e.getMessage(), e);
         }
-        if (ringThread.getState() != Thread.State.TERMINATED) {
-            ringThread.interrupt();
-            try {
-                ringThread.join();
-            } catch (InterruptedException e) {
-                log.error(e.getMessage(), e);
+        handOffTimeRing();
+        log.info(">>>>>>>>>>> xxl-job, JobScheduleHelper stop");
+    }
+
+    /**
+     * 停机时交接时间轮中还未派发的触发。
+     * 每个任务取最早的一次未派发的触发时间，在分区锁内把任务的下次触发时间回退到这个时间，数据库中的
+     * 下次触发时间必须还是本节点最后写入的值，任务被修改过（包括改到更晚的时间）或者被停止的不回退；之后拿到
+     * 分区锁的调度中心节点（其他节点，或者重启后的本节点）会按正常流程重新读到这些任务，从这个时间
+     * 开始重新放入时间轮。时间轮按触发时间先后派发，早于这个时间的触发都已经派发过，所以交接后不会
+     * 重复触发，也不会丢失；接手时已经超过调度过期时间的，按任务的调度过期策略处理。
+     */
+    private void handOffTimeRing() {
+        Map<Integer, Long> pendingFires = new HashMap<>();
+        timeWheel.drainAll((jobId, triggerTime, tag) -> pendingFires.merge(jobId, triggerTime, Math::min));
+        if (pendingFires.isEmpty()) {
+            return;
+        }
+
+        // 按分区分组，和调度时一样在分区锁内更新
+        int partitionCount = JobSchedulePartitionHelper.getInstance().getPartitionCount();
+        Map<Integer, List<XxlJobSchedule>> partitionJobs = new HashMap<>();
+        for (Map.Entry<Integer, Long> entry : pendingFires.entrySet()) {
+            Long writtenNextTime = writtenNextTimes.get(entry.getKey());
+            if (writtenNextTime == null) {
+                continue;
             }
+            int partitionId = partitionCount > 1 ? entry.getKey() % partitionCount : 0;
+            XxlJobSchedule jobSchedule = new XxlJobSchedule();
+            jobSchedule.setId(entry.getKey());
+            jobSchedule.setTriggerNextTime(entry.getValue());
+            jobSchedule.setWrittenNextTime(writtenNextTime);
+            partitionJobs.computeIfAbsent(partitionId, k -> new ArrayList<>()).add(jobSchedule);
         }
-        log.info(">>>>>>>>>>> xxl-job, JobScheduleHelper stop");
+
+        int handOffCount = 0;
+        for (Map.Entry<Integer, List<XxlJobSchedule>> entry : partitionJobs.entrySet()) {
+            handOffCount += handOffPartition(entry.getKey(), entry.getValue());
+        }
+        log.info(">>>>>>>>>>> xxl-job, JobScheduleHelper hand off time-ring, jobs = {}, handed off = {}",
+                pendingFires.size(), handOffCount);
+    }
+
+    /**
+     * 在分区锁内回退一个分区中任务的下次触发时间
+     *
+     * @return 实际回退的任务数
+     */
+    private int handOffPartition(int partitionId, List<XxlJobSchedule> jobList) {
+        int handOffCount = 0;
+        Connection conn = null;
+        Boolean connAutoCommit = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            conn = XxlJobAdminConfig.getAdminConfig().getDataSource().getConnection();
+            connAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            preparedStatement = conn.prepareStatement("select * from xxl_job_lock where lock_name = ? for update");
+            preparedStatement.setString(1, JobSchedulePartitionHelper.getInstance().lockName(partitionId));
+            preparedStatement.execute();
+
+            int batchSize = XxlJobAdminConfig.getAdminConfig().getScheduleBatchSize();
+            for (int from = 0; from < jobList.size(); from += batchSize) {
+                int to = Math.min(from + batchSize, jobList.size());
+                handOffCount += XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().scheduleHandOff(jobList.subList(from, to));
+            }
+        } catch (Exception e) {
+            log.error(">>>>>>>>>>> xxl-job, JobScheduleHelper#handOffPartition error:{}", e.getMessage(), e);
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.commit();
+                } catch (SQLException e) {
+                    log.error(e.getMessage(), e);
+                }
+                try {
+                    conn.setAutoCommit(connAutoCommit);
+                } catch (SQLException e) {
+                    log.error(e.getMessage(), e);
+                }
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    log.error(e.getMessage(), e);
+                }
+            }
+            if (null != preparedStatement) {
+                try {
+                    preparedStatement.close();
+                } catch (SQLException e) {
+                    log.error(e.getMessage(), e);
+                }
+            }
+        }
+        return handOffCount;
     }
 
 
@@ -541,11 +885,39 @@ public class JobScheduleHelper {
      * 集合cron表达式计算定时任务下一次的执行时间
      */
     public static Date generateNextValidTime(XxlJobInfo jobInfo, Date fromTime) throws Exception {
-        ScheduleTypeEnum scheduleTypeEnum = ScheduleTypeEnum.match(jobInfo.getScheduleType(), null);
+        return generateNextValidTime(jobInfo.getScheduleType(), jobInfo.getScheduleConf(), fromTime);
+    }
+
+    public static Date generateNextValidTime(XxlJobSchedule jobSchedule, Date fromTime) throws Exception {
+        return generateNextValidTime(jobSchedule.getScheduleType(), jobSchedule.getScheduleConf(), fromTime);
+    }
+
+    /**
+     * 连续计算fromTime之后、不晚于maxTime的触发时间，依次写入fireTimes，最多写满数组，返回写入的个数
+     */
+    public static int generateNextValidTimes(XxlJobSchedule jobSchedule, long fromTime, long maxTime, long[] fireTimes) throws Exception {
+        ScheduleTypeEnum scheduleTypeEnum = ScheduleTypeEnum.match(jobSchedule.getScheduleType(), null);
+        if (ScheduleTypeEnum.CRON == scheduleTypeEnum) {
+            return CompiledCronExpression.of(jobSchedule.getScheduleConf()).getNextNFireTimes(fromTime, maxTime, fireTimes);
+        } else if (ScheduleTypeEnum.FIX_RATE == scheduleTypeEnum) {
+            long interval = ScheduleTypeEnum.parseFixRateMs(jobSchedule.getScheduleConf());
+            int count = 0;
+            long fireTime = fromTime + interval;
+            while (count < fireTimes.length && interval > 0 && fireTime <= maxTime) {
+                fireTimes[count++] = fireTime;
+                fireTime += interval;
+            }
+            return count;
+        }
+        return 0;
+    }
+
+    private static Date generateNextValidTime(String scheduleType, String scheduleConf, Date fromTime) throws Exception {
+        ScheduleTypeEnum scheduleTypeEnum = ScheduleTypeEnum.match(scheduleType, null);
         if (ScheduleTypeEnum.CRON == scheduleTypeEnum) {
-            return new CronExpression(jobInfo.getScheduleConf()).getNextValidTimeAfter(fromTime);
+            return CompiledCronExpression.of(scheduleConf).getNextValidTimeAfter(fromTime);
         } else if (ScheduleTypeEnum.FIX_RATE == scheduleTypeEnum /*|| ScheduleTypeEnum.FIX_DELAY ==scheduleTypeEnum*/) {
-            return new Date(fromTime.getTime() + Integer.valueOf(jobInfo.getScheduleConf()) * 1000);
+            return new Date(fromTime.getTime() + ScheduleTypeEnum.parseFixRateMs(scheduleConf));
         }
         return null;
     }
@@ -0,0 +1,246 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.model.XxlJobRegistry;
+import com.xxl.job.core.enums.RegistryConfig;
+import com.xxl.job.core.util.IpUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调度分区组件。
+ * 原来所有调度中心节点都去抢同一行 schedule_lock，谁抢到谁调度全部任务，所以不管部署多少个调度中心，
+ * 调度能力都只相当于一个节点。这里把任务按照 jobId % 分区数 拆成多个分区，每个分区有自己的锁行，
+ * 各个调度中心节点通过注册表（registry_group=ADMIN）互相感知，再用最高随机权重哈希（rendezvous hash）
+ * 把分区分配给存活的节点：
+ * 1、每个节点只扫描分配给自己的分区，调度能力随节点数近似线性增长；
+ * 2、节点加入或宕机时只有它自己的分区会被移动，其他分区的归属不变；
+ * 3、分区在节点之间交接的瞬间，两个节点可能同时认为自己拥有同一个分区，但扫描前都要先拿到分区的
+ * 锁行，任务的下次触发时间也是在锁内更新的，所以不会重复调度。
+ * 分区数为1时就是原来的单锁模式，锁名仍然是 schedule_lock。
+ */
+@Slf4j
+public class JobSchedulePartitionHelper {
+
+    @Getter
+    private static JobSchedulePartitionHelper instance = new JobSchedulePartitionHelper();
+
+    /**
+     * 调度中心节点在注册表中的key
+     */
+    public static final String ADMIN_REGISTRY_KEY = "xxl-job-admin";
+
+    /**
+     * 调度中心节点的心跳周期和存活判断的超时时间，单位秒
+     */
+    public static final int BEAT_INTERVAL = 10;
+    public static final int BEAT_TIMEOUT = BEAT_INTERVAL * 3;
+
+    private static final String LOCK_NAME = "schedule_lock";
+
+    private Thread partitionMonitorThread;
+    private volatile boolean toStop = false;
+
+    /**
+     * 当前节点的标识，ip:port
+     */
+    @Getter
+    private String nodeId;
+
+    /**
+     * 分区总数
+     */
+    @Getter
+    private int partitionCount;
+
+    /**
+     * 当前节点拥有的分区，由partitionMonitorThread整体替换
+     */
+    private volatile int[] ownedPartitions = new int[0];
+
+    public void start() {
+        nodeId = IpUtil.getIpPort(XxlJobAdminConfig.getAdminConfig().getServerPort());
+        partitionCount = XxlJobAdminConfig.getAdminConfig().getSchedulePartitions();
+
+        // 保证每个分区的锁行都存在
+        initLockRows();
+        // 先同步执行一次，调度线程启动时就能拿到自己的分区
+        refresh();
+
+        partitionMonitorThread = new Thread(() -> {
+            while (!toStop) {
+                try {
+                    TimeUnit.SECONDS.sleep(BEAT_INTERVAL);
+                } catch (InterruptedException e) {
+                    if (!toStop) {
+                        log.error(">>>>>>>>>>> xxl-job, job schedule partition monitor thread error:{}", e.getMessage(), e);
+                    }
+                }
+                if (toStop) {
+                    break;
+                }
+                try {
+                    refresh();
+                } catch (Exception e) {
+                    if (!toStop) {
+                        log.error(">>>>>>>>>>> xxl-job, job schedule partition monitor thread error:{}", e.getMessage(), e);
+                    }
+                }
+            }
+            log.info(">>>>>>>>>>> xxl-job, job schedule partition monitor thread stop");
+        });
+        partitionMonitorThread.setDaemon(true);
+        partitionMonitorThread.setName("xxl-job, admin JobSchedulePartitionHelper#partitionMonitorThread");
+        partitionMonitorThread.start();
+    }
+
+    public void toStop() {
+        toStop = true;
+        partitionMonitorThread.interrupt();
+        try {
+            partitionMonitorThread.join();
+        } catch (InterruptedException e) {
+            log.error(e.getMessage(), e);
+        }
+
+        // 主动注销，其他节点在下一次心跳时就会接管本节点的分区，不需要等待超时
+        try {
+            XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().registryDelete(
+                    RegistryConfig.RegistType.ADMIN.name(), ADMIN_REGISTRY_KEY, nodeId);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+        ownedPartitions = new int[0];
+    }
+
+    /**
+     * 当前节点拥有的分区
+     */
+    public int[] getOwnedPartitions() {
+        return ownedPartitions;
+    }
+
+    /**
+     * 分区对应的锁名
+     */
+    public String lockName(int partitionId) {
+        return partitionCount == 1 ? LOCK_NAME : LOCK_NAME + "_" + partitionId;
+    }
+
+    /**
+     * 心跳 + 重新计算当前节点拥有的分区
+     */
+    private void refresh() {
+        Date now = new Date();
+        // 心跳，和执行器的注册一样，先更新，更新不到再插入
+        int ret = XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().registryUpdate(
+                RegistryConfig.RegistType.ADMIN.name(), ADMIN_REGISTRY_KEY, nodeId, now);
+        if (ret < 1) {
+            XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().registrySave(
+                    RegistryConfig.RegistType.ADMIN.name(), ADMIN_REGISTRY_KEY, nodeId, now);
+        }
+
+        // 查询存活的调度中心节点
+        List<String> nodeList = new ArrayList<>();
+        List<XxlJobRegistry> registryList = XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().findAll(BEAT_TIMEOUT, now);
+        if (registryList != null) {
+            for (XxlJobRegistry item : registryList) {
+                if (RegistryConfig.RegistType.ADMIN.name().equals(item.getRegistryGroup())
+                        && ADMIN_REGISTRY_KEY.equals(item.getRegistryKey())
+                        && !nodeList.contains(item.getRegistryValue())) {
+                    nodeList.add(item.getRegistryValue());
+                }
+            }
+        }
+        if (!nodeList.contains(nodeId)) {
+            nodeList.add(nodeId);
+        }
+        Collections.sort(nodeList);
+
+        int[] owned = assign(nodeId, nodeList, partitionCount);
+        if (!Arrays.equals(owned, ownedPartitions)) {
+            log.info(">>>>>>>>>>> xxl-job, schedule partitions rebalanced, nodeId = {}, nodes = {}, ownedPartitions = {}/{}",
+                    nodeId, nodeList, Arrays.toString(owned), partitionCount);
+        }
+        ownedPartitions = owned;
+    }
+
+    /**
+     * 用最高随机权重哈希计算某个节点拥有的分区：每个分区归属于 hash(节点, 分区) 最大的那个节点
+     */
+    static int[] assign(String nodeId, List<String> nodeList, int partitionCount) {
+        int[] owned = new int[partitionCount];
+        int size = 0;
+        for (int partitionId = 0; partitionId < partitionCount; partitionId++) {
+            String owner = null;
+            long maxScore = Long.MIN_VALUE;
+            for (String node : nodeList) {
+                long score = mix(((long) node.hashCode() << 32) ^ partitionId);
+                if (owner == null || score > maxScore || (score == maxScore && node.compareTo(owner) < 0)) {
+                    owner = node;
+                    maxScore = score;
+                }
+            }
+            if (nodeId.equals(owner)) {
+                owned[size++] = partitionId;
+            }
+        }
+        return Arrays.copyOf(owned, size);
+    }
+
+    /**
+     * 64位混淆函数（MurmurHash3 fmix64）
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 分区的锁行不存在时自动插入
+     */
+    private void initLockRows() {
+        Connection conn = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            conn = XxlJobAdminConfig.getAdminConfig().getDataSource().getConnection();
+            preparedStatement = conn.prepareStatement("insert ignore into xxl_job_lock (lock_name) values (?)");
+            for (int partitionId = 0; partitionId < partitionCount; partitionId++) {
+                preparedStatement.setString(1, lockName(partitionId));
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        } catch (SQLException e) {
+            log.error(">>>>>>>>>>> xxl-job, init schedule partition lock error:{}", e.getMessage(), e);
+        } finally {
+            if (null != preparedStatement) {
+                try {
+                    preparedStatement.close();
+                } catch (SQLException e) {
+                    log.error(e.getMessage(), e);
+                }
+            }
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    log.error(e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
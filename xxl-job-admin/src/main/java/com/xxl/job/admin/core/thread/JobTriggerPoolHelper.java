@@ -1,16 +1,32 @@
 package com.xxl.job.admin.core.thread;
 
 import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.model.XxlJobInfo;
 import com.xxl.job.admin.core.trigger.TriggerTypeEnum;
 import com.xxl.job.admin.core.trigger.XxlJobTrigger;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 触发任务的类，这个类就负责把定时任务的信息向程序内部继续传递下去。
@@ -30,13 +46,16 @@ public class JobTriggerPoolHelper {
     影响到了其他正常任务的调度。
 
     什么样的任务算作是慢任务？
-    在程序中使用ConcurrentHashMap维护了一个计数器，key为jobId，value为超
-    时次数，当任务触发时间超过500ms时，超时次数 + 1，同一个任务在1分钟内超时
-    超过了10次，这个任务就会被定义为慢任务，后续就会由slowTriggerPool来进行
-    调度。后续通过helper.addTrigger，就会从线程池中获取一个线程，执行任务触
-    发操作，在做实际的触发操作之前，还需要处理一下传入的参数。
+    每个任务记录最近32次触发的耗时（JobLatency），按其中的p90选择线程池：
+    xxl.job.triggerpool.lanes 配置了N个递增的耗时阈值，就有N+1个线程池（分道），
+    p90达到第i个阈值的任务进入第i个分道，默认只有500ms一个阈值，也就是原来的快慢两个线程池，
+    配置成"500,3000"就是快、慢、很慢三个线程池。
+    原来的做法是每分钟统计超过500ms的次数，超过10次就进慢线程池，整分钟时清空计数，
+    任务会在两个线程池之间来回切换，清空和计数之间也有并发问题。现在按滑动窗口的百分位判断，
+    并且进入更慢分道的阈值和回到更快分道的阈值之间留有余量（回到更快分道要求p90低于阈值的80%），
+    任务不会因为偶尔一次慢或者耗时在阈值附近波动而频繁切换。
 
-    下面这两个快慢线程池没有什么本质上的区别，都是线程池而已，只不过快线程池的
+    下面这几个线程池没有什么本质上的区别，都是线程池而已，只不过快线程池的
     最大线程数为200，慢线程池的最大线程数为 100，任务队列也是如此，并且会根据
     任务执行的耗时来决定下次任务执行的时候是要让快线程池来执行还是让慢线程池来
     执行，默认选择的是使用快线程池来执行。
@@ -44,51 +63,201 @@ public class JobTriggerPoolHelper {
     的快慢直接来讲，执行耗时较短的任务，我们可以称它为快速任务，而执行这些任务
     的线程池，就被称为了快线程池，如果任务耗时较长，就给慢线程池来执行。
     */
-    private ThreadPoolExecutor fastTriggerPool = null;
-    private ThreadPoolExecutor slowTriggerPool = null;
+    private ThreadPoolExecutor[] triggerPools = null;
+    // 每个分道的耗时阈值，triggerPools[i + 1] 对应 p90 >= laneThresholds[i] 的任务
+    private int[] laneThresholds = new int[0];
+
+    /*
+    完成线程池：开启异步远程调用（xxl.job.trigger.async）后，触发线程发出请求就返回了，
+    远程调用的结果由Netty的IO线程收到，拼接触发信息、写调度日志这些后续工作交给这个线程池，
+    不占用IO线程。它的任务数受连接池排队上限的约束，所以队列不设上限，保证每次调用的结果都能被记录。
+     */
+    private ThreadPoolExecutor completePool = null;
+
+    /*
+    广播线程池：同步调用执行器（关闭 xxl.job.trigger.async）时，分片广播的各个分片在这个线程池中并发调用，
+    每次广播同时占用的线程数受 xxl.job.trigger.broadcast.parallel 限制，空闲线程60秒后回收。
+     */
+    private ThreadPoolExecutor broadcastPool = null;
+
+    /*
+    虚拟线程模式（xxl.job.triggerpool.virtual）：运行在支持虚拟线程的JDK（21及以上）上时，每次触发使用一个
+    虚拟线程执行，不再受快慢线程池的线程数和队列长度限制，触发中阻塞的数据库、HTTP操作不会占用平台线程。
+    并发数改为按执行器限制，每个执行器同时进行的触发数不超过 xxl.job.triggerpool.virtual.group.max，
+    避免某一个执行器的大量触发压垮执行器或者占满数据库连接。JDK不支持时仍然使用快慢线程池。
+     */
+    private ExecutorService virtualTriggerExecutor = null;
+    private final ConcurrentMap<Integer, Semaphore> groupPermits = new ConcurrentHashMap<>();
+    // 虚拟线程模式下等待执行器并发许可的触发数
+    private final AtomicInteger virtualWaitingCount = new AtomicInteger();
+
+    /*
+    准入控制：原来快线程池的1000个队列位置满了之后，execute 抛出的 RejectedExecutionException 会一直抛到
+    调度线程或者时间轮线程中，同一轮里剩下的任务也跟着不触发了，过载时哪些任务被丢掉完全是随机的。
+    现在线程池的队列是有界的优先级队列（TriggerPriorityQueue），调度触发排在失败重试、子任务触发前面，
+    失败重试、子任务触发又排在手动触发、API触发前面；队列超过 100 - xxl.job.trigger.shed.reserve 百分比时
+    先拒绝手动触发和API触发，把剩下的容量留给调度触发。没有被接收的触发不再抛出异常，而是返回false，
+    由调用方按 xxl.job.trigger.shed.policy 推迟或者丢弃，详见 JobScheduleHelper#dispatchTrigger。
+     */
+    private int shedReserve = 0;
 
     public void start() {
-        // 快线程池，核心线程10，最大线程200，阻塞队列1000
-        fastTriggerPool = new ThreadPoolExecutor(
-                10,
+        shedReserve = XxlJobAdminConfig.getAdminConfig().getTriggerShedReserve();
+        if (XxlJobAdminConfig.getAdminConfig().isTriggerPoolVirtual()) {
+            virtualTriggerExecutor = newVirtualThreadExecutor();
+            if (virtualTriggerExecutor == null) {
+                log.warn(">>>>>>>>> xxl-job, virtual threads are not supported by the running JDK, fall back to trigger thread pools.");
+            } else {
+                log.info(">>>>>>>>> xxl-job, trigger runs on virtual threads, max concurrent triggers per executor group: {}",
+                        XxlJobAdminConfig.getAdminConfig().getTriggerPoolVirtualGroupMax());
+            }
+        }
+        if (virtualTriggerExecutor == null) {
+            laneThresholds = XxlJobAdminConfig.getAdminConfig().getTriggerPoolLanes();
+            ThreadPoolExecutor[] pools = new ThreadPoolExecutor[laneThresholds.length + 1];
+            // 快线程池，核心线程10，最大线程200，阻塞队列1000
+            pools[0] = new ThreadPoolExecutor(
+                    10,
+                    XxlJobAdminConfig.getAdminConfig().getTriggerPoolFastMax(),
+                    60L,
+                    TimeUnit.SECONDS,
+                    new TriggerPriorityQueue(1000),
+                    r -> new Thread(r, "xxl-job, admin JobTriggerPoolHelper-fastTriggerPool-" + r.hashCode())
+            );
+            // 慢线程池，每个分道核心线程10，最大线程100，阻塞队列2000
+            for (int i = 1; i < pools.length; i++) {
+                final String poolName = i == 1 ? "slowTriggerPool" : "slowTriggerPool" + i;
+                pools[i] = new ThreadPoolExecutor(
+                        10,
+                        XxlJobAdminConfig.getAdminConfig().getTriggerPoolSlowMax(),
+                        60L,
+                        TimeUnit.SECONDS,
+                        new TriggerPriorityQueue(2000),
+                        r -> new Thread(r, "xxl-job, admin JobTriggerPoolHelper-" + poolName + "-" + r.hashCode())
+                );
+            }
+            triggerPools = pools;
+        }
+        broadcastPool = new ThreadPoolExecutor(
+                XxlJobAdminConfig.getAdminConfig().getTriggerPoolFastMax(),
                 XxlJobAdminConfig.getAdminConfig().getTriggerPoolFastMax(),
                 60L,
                 TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>(1000),
-                r -> new Thread(r, "xxl-job, admin JobTriggerPoolHelper-fastTriggerPool-" + r.hashCode())
+                new LinkedBlockingQueue<>(),
+                r -> new Thread(r, "xxl-job, admin JobTriggerPoolHelper-broadcastPool-" + r.hashCode())
         );
-        // 慢线程池，核心线程10，最大线程100，阻塞队列2000
-        slowTriggerPool = new ThreadPoolExecutor(
-                10,
-                XxlJobAdminConfig.getAdminConfig().getTriggerPoolSlowMax(),
+        broadcastPool.allowCoreThreadTimeOut(true);
+        completePool = new ThreadPoolExecutor(
+                COMPLETE_POOL_SIZE,
+                COMPLETE_POOL_SIZE,
                 60L,
                 TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>(2000),
-                r -> new Thread(r, "xxl-job, admin JobTriggerPoolHelper-slowTriggerPool-" + r.hashCode())
+                new LinkedBlockingQueue<>(),
+                r -> new Thread(r, "xxl-job, admin JobTriggerPoolHelper-completePool-" + r.hashCode())
         );
     }
 
     public void stop() {
-        fastTriggerPool.shutdownNow();
-        slowTriggerPool.shutdownNow();
+        /*
+        时间轮中还未派发的触发在停机时会交接给数据库，已经派发到线程池队列中的触发这里先执行完，
+        最多等待一段时间，超时后再强制关闭
+         */
+        long deadline = System.currentTimeMillis() + STOP_AWAIT_MS;
+        awaitStop(virtualTriggerExecutor, deadline);
+        if (triggerPools != null) {
+            for (ThreadPoolExecutor triggerPool : triggerPools) {
+                awaitStop(triggerPool, deadline);
+            }
+        }
+        awaitStop(broadcastPool, deadline);
+        // 已经发出的异步调用在超时之前都会完成，完成后的工作同样执行完再关闭
+        awaitStop(completePool, deadline);
         log.info(">>>>>>>>> xxl-job trigger thread pool shutdown success.");
     }
 
+    private static void awaitStop(ExecutorService executor, long deadline) {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            log.error(e.getMessage(), e);
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器，项目按JDK8编译，运行的JDK不支持虚拟线程时返回null
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, "xxl-job, admin JobTriggerPoolHelper-virtualTrigger-", 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 获取当前的系统时间，这里计算出来的其实是系统当前的分钟数，每分钟清理一次长时间没有触发的任务的耗时记录
+     */
+    private final AtomicLong minTim = new AtomicLong(System.currentTimeMillis() / 60000);
+
     /**
-     * 获取当前的系统时间，这里计算出来的其实是系统当前的分钟数，下面马上就会用到
+     * 每个任务最近的触发耗时和所在的分道，key为jobId。
+     * | 任务id | 最近耗时p90 | 线程池执行 |
+     * |   1    |   800ms    | 慢线程池  |
+     * |   2    |   20ms     | 快线程池  |
      */
-    private volatile long minTim = System.currentTimeMillis() / 60000;
+    private final ConcurrentMap<Integer, JobLatency> jobLatencyMap = new ConcurrentHashMap<>();
 
     /**
-     * 如果有任务出现慢执行情况了，就会被记录在该Map中。
-     * 所谓慢执行，就是执行的时间超过了500ms，该Map的key为jobId，value
-     * 为慢执行的次数，如果一分钟慢执行的次数超过了10次，该任务就会被交给
-     * 慢线程池来执行，而该Map也会一分钟清空一次，来循环记录慢执行的情况。
-     * | 任务id | 慢执行次数 | 线程池执行 |
-     * |   1    |    15    | 慢线程池  |
-     * |   2    |    5     | 快线程池  |
+     * 触发耗时的指数加权平均值，单位毫秒，调度扫描线程会根据它调整预读数量。
+     * 多个触发线程同时更新时可能丢掉个别样本，对平均值没有影响，所以没有加锁。
      */
-    private volatile ConcurrentMap<Integer, AtomicInteger> jobTimeoutCountMap = new ConcurrentHashMap<>();
+    private volatile double triggerCostAvg = 0;
+
+    /**
+     * 停止时等待线程池队列中已派发的触发执行完的最长时间，单位毫秒
+     */
+    private static final long STOP_AWAIT_MS = 5000;
+
+    /**
+     * 完成线程池的线程数，完成阶段只做内存操作和提交调度日志，少量线程就够了
+     */
+    private static final int COMPLETE_POOL_SIZE = 8;
+
+    /**
+     * 虚拟线程模式下衡量触发积压程度的容量，和快慢线程池队列的总长度一致
+     */
+    private static final int VIRTUAL_BACKLOG_CAPACITY = 3000;
+
+    /**
+     * 每个任务参与计算百分位的最近触发次数
+     */
+    private static final int LATENCY_WINDOW = 32;
+
+    /**
+     * 至少有这么多次触发耗时之后才会离开快线程池，避免第一次触发（建立连接、加载GLUE等）就被判定为慢任务
+     */
+    private static final int LATENCY_MIN_SAMPLES = 5;
+
+    /**
+     * 回到更快分道时p90需要低于阈值的比例，留出余量避免耗时在阈值附近的任务来回切换
+     */
+    private static final double LANE_DOWNGRADE_RATIO = 0.8;
+
+    /**
+     * 超过这个时间没有触发的任务清理掉耗时记录，单位毫秒
+     */
+    private static final long LATENCY_IDLE_EVICT_MS = 10 * 60 * 1000;
 
     /**
      * 这个方法就是远程调用的起点，很重要的入口方法，JobInfoController中的triggerJob会调用到这里，
@@ -101,24 +270,45 @@ public class JobTriggerPoolHelper {
      * @param executorShardingParam 分片参数
      * @param executorParam         执行器方法参数
      * @param addressList           执行器的地址列表
+     * @param scheduleVersion       调度触发时计算触发时间所用的调度配置版本号，其他触发为0
+     * @return 触发线程池过载没有接收这次触发时返回false
      */
-    public void addTrigger(final int jobId,
+    public boolean addTrigger(final int jobId,
                            final TriggerTypeEnum triggerType,
                            final int failRetryCount,
                            final String executorShardingParam,
                            final String executorParam,
-                           final String addressList) {
+                           final String addressList,
+                           final int scheduleVersion) {
+        int priority = priorityOf(triggerType);
+        // 虚拟线程模式，每次触发一个虚拟线程，按执行器限制并发
+        if (virtualTriggerExecutor != null) {
+            // 没有队列，按等待执行器并发许可的触发数做准入控制
+            if (!admit(virtualWaitingCount.get(), VIRTUAL_BACKLOG_CAPACITY, priority)) {
+                return false;
+            }
+            virtualWaitingCount.incrementAndGet();
+            virtualTriggerExecutor.execute(() -> {
+                Semaphore permit;
+                try {
+                    permit = acquireGroupPermit(jobId);
+                } catch (InterruptedException e) {
+                    log.warn(">>>>>>>>>>> xxl-job, trigger interrupted while waiting for executor group permit, jobId:{}", jobId);
+                    return;
+                } finally {
+                    virtualWaitingCount.decrementAndGet();
+                }
+                runTrigger(jobId, triggerType, failRetryCount, executorShardingParam, executorParam, addressList, scheduleVersion, permit);
+            });
+            return true;
+        }
+
         /*
         ==确定执行任务的线程池==
-        快慢线程执行，默认是快线程，如果任务是在1分钟内超时10次，转换到慢线程执行。
-        用jobId从jobTimeoutCountMap中得到该job对应的慢执行次数，如果慢执行次数
-        不为null，并且一分钟超过了10次，就选用慢线程池来执行该任务。
+        默认是快线程池，用jobId从jobLatencyMap中得到该job最近耗时所在的分道，
+        选用对应分道的线程池来执行该任务。
          */
-        ThreadPoolExecutor triggerPool_ = fastTriggerPool;
-        AtomicInteger jobTimeoutCount = jobTimeoutCountMap.get(jobId);
-        if (jobTimeoutCount != null && jobTimeoutCount.get() > 10) {
-            triggerPool_ = slowTriggerPool;
-        }
+        ThreadPoolExecutor triggerPool_ = triggerPools[laneOf(jobId)];
 
         /*
         ==向线程池中提交任务==
@@ -126,45 +316,295 @@ public class JobTriggerPoolHelper {
         的各种信息整合到一起，在触发器任务中，会进行job的远程调用，这个调用链还是比较
         短的，执行流程也很清晰。
          */
-        triggerPool_.execute(() -> {
-            // 再次获取当前时间，这个时间后面会用到
-            long start = System.currentTimeMillis();
-            try {
-                // kのt { 触发任务 }
-                XxlJobTrigger.trigger(jobId, triggerType, failRetryCount, executorShardingParam, executorParam, addressList);
-            } catch (Exception e) {
+        BlockingQueue<Runnable> queue = triggerPool_.getQueue();
+        if (!admit(queue.size(), queue.size() + queue.remainingCapacity(), priority)) {
+            return false;
+        }
+        try {
+            triggerPool_.execute(new PriorityTrigger(priority,
+                    () -> runTrigger(jobId, triggerType, failRetryCount, executorShardingParam, executorParam, addressList, scheduleVersion, null)));
+        } catch (RejectedExecutionException e) {
+            // 队列满了或者线程池已经停止
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 触发的优先级，数值越小越优先：调度触发 0，失败重试、子任务触发 1，手动触发、API触发 2
+     */
+    private static int priorityOf(TriggerTypeEnum triggerType) {
+        switch (triggerType) {
+            case CRON:
+            case MISFIRE:
+                return 0;
+            case RETRY:
+            case PARENT:
+                return 1;
+            default:
+                return 2;
+        }
+    }
+
+    /**
+     * 判断积压程度是否还能接收这个优先级的触发，手动触发、API触发只能使用去掉保留容量之后的部分
+     */
+    private boolean admit(int backlog, int capacity, int priority) {
+        if (priority < 2) {
+            return backlog < capacity;
+        }
+        return backlog < (long) capacity * (100 - shedReserve) / 100;
+    }
+
+    /**
+     * 执行一次触发，触发完成（包括异步远程调用完成）之后统计耗时、归还执行器并发许可
+     *
+     * @param permit 虚拟线程模式下占用的执行器并发许可，没有时为null
+     */
+    private void runTrigger(int jobId, TriggerTypeEnum triggerType, int failRetryCount,
+                            String executorShardingParam, String executorParam, String addressList,
+                            int scheduleVersion, Semaphore permit) {
+        // 再次获取当前时间，这个时间后面会用到
+        long start = System.currentTimeMillis();
+        CompletableFuture<Void> triggerFuture;
+        try {
+            // kのt { 触发任务 }，异步远程调用时这里发出请求就返回了
+            triggerFuture = XxlJobTrigger.trigger(jobId, triggerType, failRetryCount, executorShardingParam, executorParam, addressList, scheduleVersion);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            triggerFuture = CompletableFuture.completedFuture(null);
+        }
+        // 远程调用全部完成之后再统计触发耗时，异步调用时同样按整个触发过程判断是不是慢任务
+        triggerFuture.whenComplete((result, e) -> {
+            if (permit != null) {
+                permit.release();
+            }
+            if (e != null) {
                 log.error(e.getMessage(), e);
-            } finally {
-                // 这里再次获取当前的分钟数，这个分钟数会和minTim做对比
-                long minTim_now = System.currentTimeMillis() / 60000;
-                /*
-                这里就用到了两个分钟数做对比，如果两个分钟数不等，说明过去了一分钟，
-                而慢执行Map中的数据是一分钟清理一次，所以这里就把慢执行Map清空掉。
-                注意：这个清空的动作是线程池中的线程来执行的，并且这个动作是在finally
-                代码块中执行的，也就是意味着是在上面的触发器任务执行完毕后才进行清空操作。
-                 */
-                if (minTim != minTim_now) {
-                    minTim = minTim_now;
-                    jobTimeoutCountMap.clear();
+            }
+            onTriggerComplete(jobId, start);
+        });
+    }
+
+    /**
+     * 获取任务所属执行器的并发许可，执行器的并发触发数达到上限时等待
+     */
+    private Semaphore acquireGroupPermit(int jobId) throws InterruptedException {
+        XxlJobInfo jobInfo = JobCacheHelper.getInstance().loadJob(jobId);
+        int jobGroup = jobInfo != null ? jobInfo.getJobGroup() : 0;
+        Semaphore permit = groupPermits.computeIfAbsent(jobGroup,
+                group -> new Semaphore(XxlJobAdminConfig.getAdminConfig().getTriggerPoolVirtualGroupMax()));
+        permit.acquire();
+        return permit;
+    }
+
+    /**
+     * 一次触发完成之后统计触发耗时
+     */
+    private void onTriggerComplete(int jobId, long start) {
+        long now = System.currentTimeMillis();
+        // 这里再次获取当前的分钟数，和minTim不等说明过去了一分钟，由一个线程清理长时间没有触发的任务
+        long minTim_now = now / 60000;
+        long minTim_last = minTim.get();
+        if (minTim_last != minTim_now && minTim.compareAndSet(minTim_last, minTim_now)) {
+            jobLatencyMap.values().removeIf(latency -> now - latency.lastUpdateTime > LATENCY_IDLE_EVICT_MS);
+        }
+
+        // 在这里用当前毫秒值减去之前得到的毫秒值，得到任务执行耗时
+        long cost = now - start;
+        double costAvg = triggerCostAvg;
+        triggerCostAvg = costAvg == 0 ? cost : costAvg + 0.1 * (cost - costAvg);
+        /*
+        远程调用完成之后才会执行到这里，所以这个时候也就能用得到job的执行时间。
+        记录到该任务的耗时窗口中，并重新计算它所在的分道。
+         */
+        JobLatency latency = jobLatencyMap.computeIfAbsent(jobId, id -> new JobLatency());
+        latency.record((int) Math.min(cost, Integer.MAX_VALUE), now, laneThresholds);
+    }
+
+    /**
+     * 任务当前所在的分道，没有耗时记录的任务在快线程池
+     */
+    private int laneOf(int jobId) {
+        JobLatency latency = jobLatencyMap.get(jobId);
+        if (latency == null) {
+            return 0;
+        }
+        return Math.min(latency.lane, triggerPools.length - 1);
+    }
+
+    /**
+     * 各个分道的线程池状态和其中的任务，用于查看当前任务在哪个线程池中执行
+     */
+    public List<Map<String, Object>> laneSnapshot() {
+        List<Map<String, Object>> lanes = new ArrayList<>();
+        if (triggerPools == null) {
+            return lanes;
+        }
+        List<List<Map<String, Object>>> laneJobs = new ArrayList<>();
+        for (int i = 0; i < triggerPools.length; i++) {
+            laneJobs.add(new ArrayList<>());
+        }
+        for (Map.Entry<Integer, JobLatency> entry : jobLatencyMap.entrySet()) {
+            Map<String, Object> job = entry.getValue().snapshot();
+            job.put("jobId", entry.getKey());
+            laneJobs.get(Math.min(entry.getValue().lane, triggerPools.length - 1)).add(job);
+        }
+        for (int i = 0; i < triggerPools.length; i++) {
+            Map<String, Object> lane = new LinkedHashMap<>();
+            lane.put("lane", i);
+            // 进入该分道的p90下限，快线程池为0
+            lane.put("threshold", i == 0 ? 0 : laneThresholds[i - 1]);
+            lane.put("poolSize", triggerPools[i].getPoolSize());
+            lane.put("activeCount", triggerPools[i].getActiveCount());
+            lane.put("queueSize", triggerPools[i].getQueue().size());
+            lane.put("jobs", laneJobs.get(i));
+            lanes.add(lane);
+        }
+        return lanes;
+    }
+
+    /**
+     * 带优先级的触发，优先级相同时按提交顺序执行
+     */
+    private static class PriorityTrigger implements Runnable {
+        private static final AtomicLong SEQUENCE = new AtomicLong();
+        private final int priority;
+        private final long sequence = SEQUENCE.getAndIncrement();
+        private final Runnable task;
+
+        private PriorityTrigger(int priority, Runnable task) {
+            this.priority = priority;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+
+    /**
+     * 有界的优先级队列，PriorityBlockingQueue 本身是无界的，这里限制容量，满了之后 offer 返回false，
+     * 线程池会先扩充线程，线程数也到上限之后拒绝
+     */
+    private static class TriggerPriorityQueue extends PriorityBlockingQueue<Runnable> {
+        private final int capacity;
+
+        private TriggerPriorityQueue(int capacity) {
+            super(16, (r1, r2) -> {
+                PriorityTrigger t1 = (PriorityTrigger) r1;
+                PriorityTrigger t2 = (PriorityTrigger) r2;
+                if (t1.priority != t2.priority) {
+                    return Integer.compare(t1.priority, t2.priority);
                 }
+                return Long.compare(t1.sequence, t2.sequence);
+            });
+            this.capacity = capacity;
+        }
 
-                // 在这里用当前毫秒值减去之前得到的毫秒值，得到任务执行耗时
-                long cost = System.currentTimeMillis() - start;
-                /*
-                判断任务执行时间是否超过500ms。
-                这里仍然要结合上面的finally代码块来理解，因为远程调用行完了才会执行finally
-                代码块中的代码，所以这个时候也就能用得到job的执行时间。
-                执行时间超过500毫秒了，就判断当前执行的任务为慢执行任务，所以将它在慢执行Map
-                中记录一次，Map的key为jobId，value为慢执行的次数。
-                 */
-                if (cost > 500) {
-                    AtomicInteger timeoutCount = jobTimeoutCountMap.putIfAbsent(jobId, new AtomicInteger(1));
-                    if (timeoutCount != null) {
-                        timeoutCount.incrementAndGet();
-                    }
+        @Override
+        public boolean offer(Runnable runnable) {
+            // 只有入队会让队列变长，入队之间互斥就能保证不超过容量
+            synchronized (this) {
+                if (size() >= capacity) {
+                    return false;
                 }
+                return super.offer(runnable);
             }
-        });
+        }
+
+        @Override
+        public int remainingCapacity() {
+            return Math.max(0, capacity - size());
+        }
+    }
+
+    /**
+     * 一个任务最近的触发耗时，环形数组记录最近 LATENCY_WINDOW 次，按p90决定分道
+     */
+    private static class JobLatency {
+        private final int[] costs = new int[LATENCY_WINDOW];
+        private int count = 0;
+        private int next = 0;
+        private volatile int lane = 0;
+        private volatile long lastUpdateTime = System.currentTimeMillis();
+
+        private synchronized void record(int cost, long now, int[] thresholds) {
+            costs[next] = cost;
+            next = (next + 1) % LATENCY_WINDOW;
+            if (count < LATENCY_WINDOW) {
+                count++;
+            }
+            lastUpdateTime = now;
+            if (count < LATENCY_MIN_SAMPLES) {
+                return;
+            }
+            int p90 = percentile(0.9);
+            // p90达到阈值就进入更慢的分道，低于阈值的80%才回到更快的分道
+            int upLane = 0;
+            int downLane = 0;
+            for (int threshold : thresholds) {
+                if (p90 >= threshold) {
+                    upLane++;
+                }
+                if (p90 >= threshold * LANE_DOWNGRADE_RATIO) {
+                    downLane++;
+                }
+            }
+            int lane_ = lane;
+            if (upLane > lane_) {
+                lane = upLane;
+            } else if (downLane < lane_) {
+                lane = downLane;
+            }
+        }
+
+        private int percentile(double p) {
+            int[] sorted = Arrays.copyOf(costs, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(p * count) - 1;
+            return sorted[Math.max(0, Math.min(index, count - 1))];
+        }
+
+        private synchronized Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("samples", count);
+            snapshot.put("p50", count == 0 ? 0 : percentile(0.5));
+            snapshot.put("p90", count == 0 ? 0 : percentile(0.9));
+            snapshot.put("lane", lane);
+            return snapshot;
+        }
+    }
+
+
+    /**
+     * 触发线程池队列中积压的任务数
+     */
+    public int queueSize() {
+        if (virtualTriggerExecutor != null) {
+            return virtualWaitingCount.get();
+        }
+        int size = 0;
+        for (ThreadPoolExecutor triggerPool : triggerPools) {
+            size += triggerPool.getQueue().size();
+        }
+        return size;
+    }
+
+    /**
+     * 触发线程池队列的总容量
+     */
+    public int queueCapacity() {
+        if (virtualTriggerExecutor != null) {
+            // 虚拟线程模式没有队列，等待许可的触发数按快慢线程池队列的总长度衡量积压程度
+            return VIRTUAL_BACKLOG_CAPACITY;
+        }
+        int capacity = 0;
+        for (ThreadPoolExecutor triggerPool : triggerPools) {
+            capacity += triggerPool.getQueue().size() + triggerPool.getQueue().remainingCapacity();
+        }
+        return capacity;
     }
 
 
@@ -184,6 +624,36 @@ public class JobTriggerPoolHelper {
         helper.stop();
     }
 
+    /**
+     * 异步远程调用完成之后执行后续工作的线程池
+     */
+    public static Executor getCompleteExecutor() {
+        return helper.completePool;
+    }
+
+    /**
+     * 同步调用时分片广播并发调用各分片的线程池
+     */
+    public static Executor getBroadcastExecutor() {
+        return helper.broadcastPool;
+    }
+
+    public static double getTriggerCostAvg() {
+        return helper.triggerCostAvg;
+    }
+
+    public static int getQueueSize() {
+        return helper.queueSize();
+    }
+
+    public static int getQueueCapacity() {
+        return helper.queueCapacity();
+    }
+
+    public static List<Map<String, Object>> getLaneSnapshot() {
+        return helper.laneSnapshot();
+    }
+
     /**
      * 该方法会对外暴露，然后调用到该类内部的addTrigger方法，该方法的作用就是把要执行的
      * job包装成一个触发器任务，在触发器任务中进行远程调用，然后在执行器那一端执行该job。
@@ -194,9 +664,21 @@ public class JobTriggerPoolHelper {
      * @param executorShardingParam 定时任务的分片参数，对应Web界面的“路由策略-分片广播”，并且重试次数大于0
      * @param executorParam         执行器方法参数，对应Web界面的”任务参数“
      * @param addressList           执行器的地址列表，对应Web界面的“机器地址”
+     * @return 触发线程池过载没有接收这次触发时返回false，由调用方决定推迟、丢弃还是提示用户
+     */
+    public static boolean trigger(int jobId, TriggerTypeEnum triggerType, int failRetryCount,
+                                  String executorShardingParam, String executorParam, String addressList) {
+        return helper.addTrigger(jobId, triggerType, failRetryCount, executorShardingParam, executorParam, addressList, 0);
+    }
+
+    /**
+     * 调度线程和时间轮发起的调度触发，使用任务配置中的参数。
+     * 触发时任务已经停止，或者调度配置的版本号和 scheduleVersion 不一致，说明这次触发是按旧的配置预先计算的，不再执行
+     *
+     * @param scheduleVersion 计算这次触发时间时的调度配置版本号，见 ScheduleTypeEnum.scheduleVersion
+     * @return 触发线程池过载没有接收这次触发时返回false
      */
-    public static void trigger(int jobId, TriggerTypeEnum triggerType, int failRetryCount,
-                               String executorShardingParam, String executorParam, String addressList) {
-        helper.addTrigger(jobId, triggerType, failRetryCount, executorShardingParam, executorParam, addressList);
+    public static boolean trigger(int jobId, TriggerTypeEnum triggerType, int scheduleVersion) {
+        return helper.addTrigger(jobId, triggerType, -1, null, null, null, scheduleVersion);
     }
 }
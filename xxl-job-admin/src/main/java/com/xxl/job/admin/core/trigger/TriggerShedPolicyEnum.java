@@ -0,0 +1,23 @@
+package com.xxl.job.admin.core.trigger;
+
+/**
+ * 触发线程池过载时，调度触发（CRON、调度过期补偿）没有被接收的处理策略。
+ * 手动触发、API触发总是先于调度触发被拒绝，详见 xxl.job.trigger.shed.reserve
+ */
+public enum TriggerShedPolicyEnum {
+
+    /** 放回时间轮，下一个刻度再触发，推迟超过调度过期时间（5秒）后按调度过期丢弃 */
+    DEFER,
+
+    /** 直接按调度过期丢弃本次触发 */
+    MISFIRE;
+
+    public static TriggerShedPolicyEnum match(String name, TriggerShedPolicyEnum defaultItem) {
+        for (TriggerShedPolicyEnum item : TriggerShedPolicyEnum.values()) {
+            if (item.name().equals(name)) {
+                return item;
+            }
+        }
+        return defaultItem;
+    }
+}
@@ -5,17 +5,32 @@ import com.xxl.job.admin.core.model.XxlJobGroup;
 import com.xxl.job.admin.core.model.XxlJobInfo;
 import com.xxl.job.admin.core.model.XxlJobLog;
 import com.xxl.job.admin.core.route.ExecutorRouteStrategyEnum;
+import com.xxl.job.admin.core.scheduler.ScheduleTypeEnum;
 import com.xxl.job.admin.core.scheduler.XxlJobScheduler;
+import com.xxl.job.admin.core.thread.JobCacheHelper;
+import com.xxl.job.admin.core.thread.JobLogWriteHelper;
+import com.xxl.job.admin.core.thread.JobRunBatchHelper;
+import com.xxl.job.admin.core.thread.JobTriggerPoolHelper;
 import com.xxl.job.admin.core.util.I18nUtil;
 import com.xxl.job.core.biz.ExecutorBiz;
+import com.xxl.job.core.biz.client.ExecutorBizClient;
 import com.xxl.job.core.biz.model.ReturnT;
 import com.xxl.job.core.biz.model.TriggerParam;
 import com.xxl.job.core.enums.ExecutorBlockStrategyEnum;
 import com.xxl.job.core.util.IpUtil;
 import com.xxl.job.core.util.ThrowableUtil;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
 
 /**
  * 这个类就是用来真正触发定时任务远程调用的。
@@ -27,6 +42,12 @@ import java.util.Date;
 @Slf4j
 public class XxlJobTrigger {
 
+    /**
+     * 没有被采样记录调度日志的触发使用的日志ID，取负数，保证和数据库中的日志ID不冲突、彼此之间也不重复，
+     * 执行器按日志ID去重和写日志文件，回调时调度中心找不到对应的日志会直接忽略
+     */
+    private static final AtomicLong UNSAMPLED_LOG_ID = new AtomicLong();
+
     /**
      * 该方法是远程调用前的准备阶段，在该方法内，如果用户自己设置了执行器的
      * 地址和执行器的任务参数，以及分片策略，在该方法内会对这些操作进行处理。
@@ -37,29 +58,57 @@ public class XxlJobTrigger {
      * @param executorShardingParam 分片参数
      * @param executorParam         执行器方法参数
      * @param addressList           执行器的地址列表
+     * @return 所有远程调用完成、调度日志交给写入组件之后完成
      */
-    public static void trigger(int jobId,
-                               TriggerTypeEnum triggerType,
-                               int failRetryCount,
-                               String executorShardingParam,
-                               String executorParam,
-                               String addressList) {
+    public static CompletableFuture<Void> trigger(int jobId,
+                                                  TriggerTypeEnum triggerType,
+                                                  int failRetryCount,
+                                                  String executorShardingParam,
+                                                  String executorParam,
+                                                  String addressList) {
+        return trigger(jobId, triggerType, failRetryCount, executorShardingParam, executorParam, addressList, 0);
+    }
+
+    /**
+     * @param scheduleVersion 调度触发时计算触发时间所用的调度配置版本号，任务已经停止或者版本号变了就不再触发；为0时不检查
+     */
+    public static CompletableFuture<Void> trigger(int jobId,
+                                                  TriggerTypeEnum triggerType,
+                                                  int failRetryCount,
+                                                  String executorShardingParam,
+                                                  String executorParam,
+                                                  String addressList,
+                                                  int scheduleVersion) {
         // ==【参数处理】==
         /*
-        使用jobId查询出数据库中的定时任务配置，后续的流程以此为基础
+        使用jobId查询出定时任务配置，后续的流程以此为基础，正常情况下从JobCacheHelper的缓存中获取，不访问数据库
             SELECT *
             FROM  xxl_job_info AS t
             WHERE t.id = #{id} // jobId
         如果任务信息为null，则打印一条警告信息后直接退出
          */
-        XxlJobInfo jobInfo = XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().loadById(jobId);
+        XxlJobInfo jobInfo = JobCacheHelper.getInstance().loadJob(jobId);
         if (jobInfo == null) {
             log.warn(">>>>>>>>>>>> trigger fail, jobId invalid，jobId={}", jobId);
-            return;
+            return CompletableFuture.completedFuture(null);
+        }
+
+        /*
+        调度线程一次会把预读窗口内的多次触发放入时间轮，等待期间任务可能被停止（之后又启动）或者修改了调度配置，
+        这些触发是按旧的配置算出来的，不再执行。本节点的修改会直接失效缓存，其他节点的修改在缓存刷新（1秒）后生效
+         */
+        if (scheduleVersion != 0 && (jobInfo.getTriggerStatus() != 1
+                || scheduleVersion != ScheduleTypeEnum.scheduleVersion(jobInfo.getScheduleType(), jobInfo.getScheduleConf(), jobInfo.getScheduleVersion()))) {
+            log.debug(">>>>>>>>>>>> trigger skipped, job stopped or schedule changed, jobId={}", jobId);
+            return CompletableFuture.completedFuture(null);
         }
 
         // 如果传入的执行参数executorParam，则优先使用传入的，反之使用任务配置中的参数
+        // 缓存中的任务是共享的快照，不能直接修改，先复制一份
         if (executorParam != null) {
+            XxlJobInfo jobInfoCopy = new XxlJobInfo();
+            BeanUtils.copyProperties(jobInfo, jobInfoCopy);
+            jobInfo = jobInfoCopy;
             jobInfo.setExecutorParam(executorParam);
         }
 
@@ -77,7 +126,7 @@ public class XxlJobTrigger {
             FROM  xxl_job_group AS t
             WHERE t.id = #{id} // jobGroup
          */
-        XxlJobGroup group = XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().load(jobInfo.getJobGroup());
+        XxlJobGroup group = JobCacheHelper.getInstance().loadGroup(jobInfo.getJobGroup());
 
         /*
         如果传入了执行器地址，则以传入的为准，反之使用注册中心中的执行器地址。
@@ -86,6 +135,10 @@ public class XxlJobTrigger {
         addressType：0 是自动注册，1 是用户手动注册。
          */
         if (addressList != null && addressList.trim().length() > 0) {
+            // 同样先复制一份，不能修改缓存中的执行器快照
+            XxlJobGroup groupCopy = new XxlJobGroup();
+            BeanUtils.copyProperties(group, groupCopy);
+            group = groupCopy;
             group.setAddressType(1);
             group.setAddressList(addressList.trim());
         }
@@ -137,10 +190,21 @@ public class XxlJobTrigger {
             程序员自己在定时任务逻辑中把并发问题规避了，反正你能从定时任务中得到分片参数，能得到该定时
             任务具体是哪个分片序号。
              */
-            for (int i = 0; i < group.getRegistryList().size(); i++) {
-                // ==执行真正的远程调用==
-                processTrigger(group, jobInfo, finalFailRetryCount, triggerType, i, group.getRegistryList().size());
-            }
+            /*
+            原来是在一个触发线程上依次调用每个执行器，同步调用时有300个执行器、连接超时3秒的话，
+            一次广播要几分钟，而且一直占用着触发线程。现在各分片并发调用，同时进行的分片数不超过
+            xxl.job.trigger.broadcast.parallel，广播的耗时接近最慢的执行器而不是所有执行器之和；
+            各分片的调度日志先收集起来，全部完成后合并成一条insert语句写入。
+             */
+            final XxlJobGroup broadcastGroup = group;
+            final XxlJobInfo broadcastJobInfo = jobInfo;
+            final int total = group.getRegistryList().size();
+            final List<XxlJobLog> shardLogs = Collections.synchronizedList(new ArrayList<>(total));
+            final long start = System.currentTimeMillis();
+            return fanOut(total, XxlJobAdminConfig.getAdminConfig().getTriggerBroadcastParallel(),
+                    // ==执行真正的远程调用==
+                    index -> processShard(broadcastGroup, broadcastJobInfo, finalFailRetryCount, triggerType, index, total, shardLogs))
+                    .whenComplete((result, e) -> completeBroadcast(broadcastJobInfo, total, shardLogs, start));
         } else /*没有配置分片策略*/{
             /*
             如果没有配置分片策略，并且executorShardingParam数据为null，那就直接使用默认的值，
@@ -156,22 +220,111 @@ public class XxlJobTrigger {
             那分片序号为0，分片总数为1，分片序号代表的是执行器，如果有3个执行器，那分片序号就是0、1、2，
             分片总数就为3，在该方法之内，会真正开始远程调用，这个方法也是远程调用的核心方法。
              */
-            processTrigger(group, jobInfo, finalFailRetryCount, triggerType, shardingParam[0], shardingParam[1]);
+            return processTrigger(group, jobInfo, finalFailRetryCount, triggerType, shardingParam[0], shardingParam[1], null);
+        }
+    }
+
+    /**
+     * 按分片序号发起调用，同时进行的分片数不超过parallel，一个分片完成后再发起下一个
+     *
+     * @return 所有分片都完成之后完成
+     */
+    private static CompletableFuture<Void> fanOut(int total, int parallel, IntFunction<CompletableFuture<Void>> shard) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(total);
+        for (int i = 0; i < Math.min(parallel, total); i++) {
+            launchShards(total, next, remaining, shard, done);
+        }
+        return done;
+    }
+
+    private static void launchShards(int total, AtomicInteger next, AtomicInteger remaining,
+                                     IntFunction<CompletableFuture<Void>> shard, CompletableFuture<Void> done) {
+        // 已经完成的分片在当前线程继续发起下一个，没有完成的在完成时发起，不会递归调用
+        while (true) {
+            int index = next.getAndIncrement();
+            if (index >= total) {
+                return;
+            }
+            CompletableFuture<Void> shardFuture;
+            try {
+                shardFuture = shard.apply(index);
+            } catch (Exception e) {
+                log.error(">>>>>>>>>>> xxl-job broadcast shard error, index:{}", index, e);
+                shardFuture = CompletableFuture.completedFuture(null);
+            }
+            if (!shardFuture.isDone()) {
+                shardFuture.whenComplete((result, e) -> {
+                    onShardDone(e, remaining, done);
+                    launchShards(total, next, remaining, shard, done);
+                });
+                return;
+            }
+            Throwable error = null;
+            try {
+                shardFuture.join();
+            } catch (Exception e) {
+                error = e;
+            }
+            onShardDone(error, remaining, done);
+        }
+    }
+
+    private static void onShardDone(Throwable e, AtomicInteger remaining, CompletableFuture<Void> done) {
+        if (e != null) {
+            log.error(">>>>>>>>>>> xxl-job broadcast shard error", e);
+        }
+        if (remaining.decrementAndGet() == 0) {
+            done.complete(null);
         }
     }
 
+    /**
+     * 发起一个分片的调用，同步调用时交给广播线程池执行，不占用当前线程
+     */
+    private static CompletableFuture<Void> processShard(XxlJobGroup group, XxlJobInfo jobInfo, int finalFailRetryCount,
+                                                        TriggerTypeEnum triggerType, int index, int total, List<XxlJobLog> shardLogs) {
+        if (XxlJobAdminConfig.getAdminConfig().isTriggerAsync()) {
+            return processTrigger(group, jobInfo, finalFailRetryCount, triggerType, index, total, shardLogs);
+        }
+        return CompletableFuture.supplyAsync(() -> processTrigger(group, jobInfo, finalFailRetryCount, triggerType, index, total, shardLogs),
+                JobTriggerPoolHelper.getBroadcastExecutor()).thenCompose(shardFuture -> shardFuture);
+    }
+
+    /**
+     * 所有分片完成之后，合并写入各分片的调度日志，汇总调用结果
+     */
+    private static void completeBroadcast(XxlJobInfo jobInfo, int total, List<XxlJobLog> shardLogs, long start) {
+        int success = 0;
+        synchronized (shardLogs) {
+            for (XxlJobLog shardLog : shardLogs) {
+                if (shardLog.getTriggerCode() == ReturnT.SUCCESS_CODE) {
+                    success++;
+                }
+            }
+            JobLogWriteHelper.getInstance().writeAll(new ArrayList<>(shardLogs));
+        }
+        log.debug(">>>>>>>>>>> xxl-job broadcast trigger end, jobId:{}, total:{}, success:{}, cost:{}ms",
+                jobInfo.getId(), total, success, System.currentTimeMillis() - start);
+    }
+
     /**
      * 在该方法中会进一步处理分片和路由策略，并执行真正的远程调用。
      * 分片逻辑是程序内部自动处理好的，就是根据定时任务执行器的数量来自动分片，序号也是从小到大自动分配，
      * 而执行器的定时任务中可以获得分片的序号。分片广播的逻辑是在调度中心这一端实现的，调度中心实现的逻
      * 辑并不能保证同时调度的这些定时任务不会出现并发问题，要想解决可能出现的并发问题，就要在定时任务中
      * 编写具体的业务逻辑时动点脑子，把每个定时任务需要处理的数据分隔开。
+     * 开启异步远程调用时，该方法发出请求后立刻返回，远程调用完成后再由完成线程池记录调度日志。
+     *
+     * @param shardLogs 分片广播时收集各分片调度日志的集合，所有分片完成后统一写入；不是分片广播时为null
      */
-    private static void processTrigger(XxlJobGroup group,
-                                       XxlJobInfo jobInfo,
-                                       int finalFailRetryCount,
-                                       TriggerTypeEnum triggerType,
-                                       int index, int total) {
+    private static CompletableFuture<Void> processTrigger(XxlJobGroup group,
+                                                          XxlJobInfo jobInfo,
+                                                          int finalFailRetryCount,
+                                                          TriggerTypeEnum triggerType,
+                                                          int index, int total,
+                                                          List<XxlJobLog> shardLogs) {
         // 获得定时任务的阻塞策略，默认是串行
         ExecutorBlockStrategyEnum blockStrategy = ExecutorBlockStrategyEnum.match(jobInfo.getExecutorBlockStrategy(), ExecutorBlockStrategyEnum.SERIAL_EXECUTION);
         // 得到当前要调度的执行任务的路由策略，默认是没有
@@ -189,12 +342,53 @@ public class XxlJobTrigger {
         // 设置定时任务的触发时间
         jobLog.setTriggerTime(new Date());
         /*
-        把定时任务日志保存到数据库中，保存成功之后，定时任务日志的ID也就有了
-        INSERT INTO xxl_job_log (`job_group`,`job_id`,`trigger_time`,`trigger_code`,`handle_code`)
-        VALUES (#{jobGroup},#{jobId},#{triggerTime},#{triggerCode},#{handleCode})
+        分配定时任务日志的ID，日志ID是按号段预先分配的，号段用完之前不访问数据库，
+        远程调用之后才把完整的调度日志交给JobLogWriteHelper批量写入数据库。
+        分配时登记为待写入，执行结果回调比调度日志先到时会等日志写入后再应答。
+        没有被采样的高频触发不写调度日志，只分配一个负数的日志ID
          */
-        XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().save(jobLog);
+        boolean logSampled = isLogSampled(jobInfo, triggerType);
+        if (logSampled) {
+            JobLogWriteHelper.getInstance().assignLogId(jobLog);
+        } else {
+            jobLog.setId(UNSAMPLED_LOG_ID.decrementAndGet());
+        }
 
+        // 之后出错时调度日志不会再交给写入组件，要取消待写入登记，否则这条日志的回调会一直等到超时
+        try {
+            CompletableFuture<Void> triggerFuture = routeAndRun(group, jobInfo, finalFailRetryCount, triggerType, blockStrategy,
+                    executorRouteStrategyEnum, shardingParam, index, total, jobLog, logSampled, shardLogs);
+            if (logSampled) {
+                // 完成线程池关闭时拒绝任务，或者拼接触发信息时出错，Future都会异常完成
+                triggerFuture.whenComplete((result, e) -> {
+                    if (e != null) {
+                        JobLogWriteHelper.getInstance().unreserve(jobLog.getId());
+                    }
+                });
+            }
+            return triggerFuture;
+        } catch (RuntimeException e) {
+            if (logSampled) {
+                JobLogWriteHelper.getInstance().unreserve(jobLog.getId());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 调度日志ID分配好之后，构建触发参数、路由并发起远程调用
+     */
+    private static CompletableFuture<Void> routeAndRun(XxlJobGroup group,
+                                                       XxlJobInfo jobInfo,
+                                                       int finalFailRetryCount,
+                                                       TriggerTypeEnum triggerType,
+                                                       ExecutorBlockStrategyEnum blockStrategy,
+                                                       ExecutorRouteStrategyEnum executorRouteStrategyEnum,
+                                                       String shardingParam,
+                                                       int index, int total,
+                                                       XxlJobLog jobLog,
+                                                       boolean logSampled,
+                                                       List<XxlJobLog> shardLogs) {
         log.debug(">>>>>>>>>>> xxl-job trigger start, jobId:{}", jobLog.getId());
 
         // ====== 2、初始化触发器参数 ======
@@ -252,18 +446,47 @@ public class XxlJobTrigger {
         }
 
         // ====== 4、远程调用 ======
-        ReturnT<String> triggerResult = null;
+        CompletableFuture<ReturnT<String>> triggerResultFuture;
         if (address != null) {
             /*
             kのt { 触发定时任务 }
             在这里真正进行远程调用，这里就是最核心远程调用的方法，
             但是方法内部的逻辑很简单，就是使用HTTP发送调用消息而已。
              */
-            triggerResult = runExecutor(triggerParam, address);
+            triggerResultFuture = runExecutorAsync(triggerParam, address);
         } else {
-            triggerResult = new ReturnT<>(ReturnT.FAIL_CODE, null);
+            triggerResultFuture = CompletableFuture.completedFuture(new ReturnT<>(ReturnT.FAIL_CODE, null));
         }
 
+        // 同步调用已经有了结果，直接在当前线程完成；异步调用在完成线程池中完成，不占用Netty的IO线程
+        final String finalAddress = address;
+        final ReturnT<String> finalRouteAddressResult = routeAddressResult;
+        if (triggerResultFuture.isDone()) {
+            completeTrigger(group, jobInfo, finalFailRetryCount, triggerType, blockStrategy, executorRouteStrategyEnum,
+                    shardingParam, finalRouteAddressResult, finalAddress, jobLog, logSampled, shardLogs, triggerResultFuture.join());
+            return CompletableFuture.completedFuture(null);
+        }
+        return triggerResultFuture.thenAcceptAsync(triggerResult -> completeTrigger(group, jobInfo, finalFailRetryCount, triggerType,
+                blockStrategy, executorRouteStrategyEnum, shardingParam, finalRouteAddressResult, finalAddress, jobLog, logSampled, shardLogs, triggerResult),
+                JobTriggerPoolHelper.getCompleteExecutor());
+    }
+
+    /**
+     * 远程调用完成之后，拼接触发信息并写入调度日志
+     */
+    private static void completeTrigger(XxlJobGroup group,
+                                        XxlJobInfo jobInfo,
+                                        int finalFailRetryCount,
+                                        TriggerTypeEnum triggerType,
+                                        ExecutorBlockStrategyEnum blockStrategy,
+                                        ExecutorRouteStrategyEnum executorRouteStrategyEnum,
+                                        String shardingParam,
+                                        ReturnT<String> routeAddressResult,
+                                        String address,
+                                        XxlJobLog jobLog,
+                                        boolean logSampled,
+                                        List<XxlJobLog> shardLogs,
+                                        ReturnT<String> triggerResult) {
         // ====== 5、拼接触发任务信息 ======
         StringBuffer triggerMsgSb = new StringBuffer();
         triggerMsgSb.append(I18nUtil.getString("jobconf_trigger_type")).append("：").append(triggerType.getTitle());
@@ -293,23 +516,45 @@ public class XxlJobTrigger {
         // 设置触发任务信息，也就是调度备注
         jobLog.setTriggerMsg(triggerMsgSb.toString());
         /*
-        更新定时任务调度日志:
-        UPDATE xxl_job_log
-		SET `trigger_time`= #{triggerTime},
-			`trigger_code`= #{triggerCode},
-			`trigger_msg`= #{triggerMsg},
-			`executor_address`= #{executorAddress},
-			`executor_handler`=#{executorHandler},
-			`executor_param`= #{executorParam},
-			`executor_sharding_param`= #{executorShardingParam},
-			`executor_fail_retry_count`= #{executorFailRetryCount}
-		WHERE `id`= #{id}
+        写入定时任务调度日志，日志先进入写入缓冲区，和其他触发的日志合并成一条多行insert语句:
+        INSERT INTO xxl_job_log (`id`, `job_group`, `job_id`, `trigger_time`, `trigger_code`, `trigger_msg`, ...)
+        VALUES (...), (...), ...
          */
-        XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateTriggerInfo(jobLog);
+        if (logSampled) {
+            if (shardLogs != null) {
+                // 分片广播的日志等所有分片完成后合并写入
+                shardLogs.add(jobLog);
+            } else {
+                JobLogWriteHelper.getInstance().write(jobLog);
+            }
+        }
 
         log.debug(">>>>>>>>>>> xxl-job trigger end, jobId:{}", jobLog.getId());
     }
 
+    /**
+     * 异步进行远程调用，开启 xxl.job.trigger.async 时使用基于Netty的长连接异步客户端，
+     * 不阻塞触发线程，并且和同一个执行器的其他触发合并发送；否则同步调用，返回一个已经完成的 Future。
+     */
+    public static CompletableFuture<ReturnT<String>> runExecutorAsync(TriggerParam triggerParam, String address) {
+        if (!XxlJobAdminConfig.getAdminConfig().isTriggerAsync()) {
+            return CompletableFuture.completedFuture(runExecutor(triggerParam, address));
+        }
+        ExecutorBiz executorBiz;
+        try {
+            executorBiz = XxlJobScheduler.getExecutorBiz(address);
+        } catch (Exception e) {
+            log.error(">>>>>>>>>>> xxl-job trigger error, please check if the executor[{}] is running.", address, e);
+            return CompletableFuture.completedFuture(buildRunResult(new ReturnT<>(ReturnT.FAIL_CODE, ThrowableUtil.toString(e)), address));
+        }
+        if (!(executorBiz instanceof ExecutorBizClient)) {
+            return CompletableFuture.completedFuture(runExecutor(triggerParam, address));
+        }
+        // 发往同一个执行器的触发在短时间内合并成一次 /runBatch 请求，详见 JobRunBatchHelper
+        return JobRunBatchHelper.getInstance().run(address, triggerParam)
+                .thenApply(runResult -> buildRunResult(runResult, address));
+    }
+
     /**
      * 该方法内部进行远程调用，通过http协议，把封装好定时任务信息的对象发送给定时任务执行程序。
      */
@@ -329,7 +574,10 @@ public class XxlJobTrigger {
             log.error(">>>>>>>>>>> xxl-job trigger error, please check if the executor[{}] is running.", address, e);
             runResult = new ReturnT<>(ReturnT.FAIL_CODE, ThrowableUtil.toString(e));
         }
+        return buildRunResult(runResult, address);
+    }
 
+    private static ReturnT<String> buildRunResult(ReturnT<String> runResult, String address) {
         // 在这里拼接一下远程调用返回的状态码和消息
         StringBuffer runResultSB = new StringBuffer(I18nUtil.getString("jobconf_trigger_run") + "：");
         runResultSB.append("<br>address：").append(address);
@@ -340,6 +588,28 @@ public class XxlJobTrigger {
     }
 
 
+    /**
+     * 是否记录这一次触发的调度日志。
+     * 间隔小于1秒的固定频率任务每秒会触发多次，开启 xxl.job.trigger.logsample 后，调度触发的日志按
+     * 1/N 随机采样记录；没有记录日志的触发不会有失败重试和告警。手动触发、失败重试等其他触发类型总是记录。
+     */
+    private static boolean isLogSampled(XxlJobInfo jobInfo, TriggerTypeEnum triggerType) {
+        int logSample = XxlJobAdminConfig.getAdminConfig().getTriggerLogSample();
+        if (logSample <= 1
+                || triggerType != TriggerTypeEnum.CRON
+                || ScheduleTypeEnum.FIX_RATE != ScheduleTypeEnum.match(jobInfo.getScheduleType(), null)) {
+            return true;
+        }
+        try {
+            if (ScheduleTypeEnum.parseFixRateMs(jobInfo.getScheduleConf()) >= 1000) {
+                return true;
+            }
+        } catch (NumberFormatException e) {
+            return true;
+        }
+        return ThreadLocalRandom.current().nextInt(logSample) == 0;
+    }
+
     /** 判断字符串的内容是不是数字 */
     private static boolean isNumeric(String str) {
         try {
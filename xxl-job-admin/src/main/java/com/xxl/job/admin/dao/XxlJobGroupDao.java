@@ -4,6 +4,7 @@ import com.xxl.job.admin.core.model.XxlJobGroup;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -24,6 +25,11 @@ public interface XxlJobGroupDao {
 
     XxlJobGroup load(@Param("id") int id);
 
+    /**
+     * 查询 update_time 不早于指定时间的执行器，只查询ID和更新时间，用于校验缓存中的执行器快照是否过期
+     */
+    List<XxlJobGroup> findUpdatedSince(@Param("updateTime") Date updateTime);
+
     List<XxlJobGroup> pageList(@Param("offset") int offset,
                                @Param("pagesize") int pagesize,
                                @Param("appname") String appname,
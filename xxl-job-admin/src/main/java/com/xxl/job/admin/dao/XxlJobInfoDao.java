@@ -1,9 +1,11 @@
 package com.xxl.job.admin.dao;
 
 import com.xxl.job.admin.core.model.XxlJobInfo;
+import com.xxl.job.admin.core.model.XxlJobSchedule;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -47,9 +49,47 @@ public interface XxlJobInfoDao {
 	 * 比如当前时间是0秒，要查询10秒以内的可以执行的定时任务，那么就
 	 * 判断定时任务下一次的执行时间只要是小于10秒的，都返回给用户，
 	 * 这些定时任务都是在10秒内可以执行的。
+	 * 分区数大于1时，只查询 id % partitionCount = partitionId 的任务。
+	 * 只查询调度需要的列，按下次触发时间排序，预读数量不够时先处理最早到期的任务。
 	 */
-	List<XxlJobInfo> scheduleJobQuery(@Param("maxNextTime") long maxNextTime,
-									  @Param("pagesize") int pagesize );
+	List<XxlJobSchedule> scheduleJobQuery(@Param("maxNextTime") long maxNextTime,
+									  @Param("pagesize") int pagesize,
+									  @Param("partitionId") int partitionId,
+									  @Param("partitionCount") int partitionCount);
+
+	/**
+	 * 按主键批量查询任务，调度线程用来校验内存索引给出的候选任务
+	 */
+	List<XxlJobSchedule> scheduleJobLoadByIds(@Param("ids") List<Integer> ids);
+
+	/**
+	 * 全量加载运行中的任务，只查询ID、调度状态和下次触发时间，用来构建内存索引
+	 */
+	List<XxlJobSchedule> scheduleIndexLoad();
+
+	/**
+	 * 增量查询 schedule_update_time 不早于指定时间的任务，只查询ID、调度状态和下次触发时间
+	 */
+	List<XxlJobSchedule> scheduleIndexDelta(@Param("scheduleUpdateTime") Date scheduleUpdateTime);
+
+	/**
+	 * 查询 update_time 不早于指定时间的任务，只查询ID和更新时间，用于校验缓存中的任务快照是否过期
+	 */
+	List<XxlJobInfo> findUpdatedSince(@Param("updateTime") Date updateTime);
 
 	int scheduleUpdate(XxlJobInfo xxlJobInfo);
+
+	/**
+	 * 批量更新任务的触发时间和状态，多行合并为一条 CASE 语句。
+	 * 不更新 update_time 和 schedule_update_time：写回的触发时间只有持有分区锁的节点关心，它自己同步内存索引，
+	 * 其他节点的任务快照缓存也不需要因为触发时间变化而失效
+	 */
+	int scheduleUpdateBatch(@Param("list") List<XxlJobSchedule> list);
+
+	/**
+	 * 停机交接时间轮：把运行中任务的下次触发时间回退到还未派发的最早一次触发，
+	 * 只有下次触发时间仍是调度线程写入的值（writtenNextTime）时才回退，任务已经被停止或者被修改过时不做处理；
+	 * 回退的任务刷新 schedule_update_time，接手分区的节点按它增量同步内存索引
+	 */
+	int scheduleHandOff(@Param("list") List<XxlJobSchedule> list);
 }
@@ -35,6 +35,11 @@ public interface XxlJobLogDao {
 
 	long save(XxlJobLog xxlJobLog);
 
+	/**
+	 * 批量写入完整的调度日志，日志ID已经预先分配好
+	 */
+	int saveBatch(@Param("list") List<XxlJobLog> list);
+
 	int updateTriggerInfo(XxlJobLog xxlJobLog);
 
 	int updateHandleInfo(XxlJobLog xxlJobLog);
@@ -1,5 +1,6 @@
 package com.xxl.job.admin.service.impl;
 
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
 import com.xxl.job.admin.core.cron.CronExpression;
 import com.xxl.job.admin.core.model.XxlJobGroup;
 import com.xxl.job.admin.core.model.XxlJobInfo;
@@ -7,6 +8,7 @@ import com.xxl.job.admin.core.model.XxlJobLogReport;
 import com.xxl.job.admin.core.route.ExecutorRouteStrategyEnum;
 import com.xxl.job.admin.core.scheduler.MisfireStrategyEnum;
 import com.xxl.job.admin.core.scheduler.ScheduleTypeEnum;
+import com.xxl.job.admin.core.thread.JobCacheHelper;
 import com.xxl.job.admin.core.thread.JobScheduleHelper;
 import com.xxl.job.admin.core.util.I18nUtil;
 import com.xxl.job.admin.dao.XxlJobGroupDao;
@@ -105,8 +107,8 @@ public class XxlJobServiceImpl implements XxlJobService {
                 return new ReturnT<>(ReturnT.FAIL_CODE, (I18nUtil.getString("schedule_type")));
             }
             try {
-                int fixSecond = Integer.valueOf(jobInfo.getScheduleConf());
-                if (fixSecond < 1) {
+                long fixRateMs = ScheduleTypeEnum.parseFixRateMs(jobInfo.getScheduleConf());
+                if (fixRateMs < ScheduleTypeEnum.FIX_RATE_MIN_MS) {
                     return new ReturnT<>(ReturnT.FAIL_CODE, (I18nUtil.getString("schedule_type") + I18nUtil.getString("system_unvalid")));
                 }
             } catch (Exception e) {
@@ -174,6 +176,7 @@ public class XxlJobServiceImpl implements XxlJobService {
         jobInfo.setAddTime(new Date());
         jobInfo.setUpdateTime(new Date());
         jobInfo.setGlueUpdatetime(new Date());
+        jobInfo.setScheduleUpdateTime(new Date());
         /*
         保存定时任务:
         INSERT INTO xxl_job_info (
@@ -272,8 +275,8 @@ public class XxlJobServiceImpl implements XxlJobService {
                 return new ReturnT<>(ReturnT.FAIL_CODE, (I18nUtil.getString("schedule_type") + I18nUtil.getString("system_unvalid")));
             }
             try {
-                int fixSecond = Integer.valueOf(jobInfo.getScheduleConf());
-                if (fixSecond < 1) {
+                long fixRateMs = ScheduleTypeEnum.parseFixRateMs(jobInfo.getScheduleConf());
+                if (fixRateMs < ScheduleTypeEnum.FIX_RATE_MIN_MS) {
                     return new ReturnT<>(ReturnT.FAIL_CODE, (I18nUtil.getString("schedule_type") + I18nUtil.getString("system_unvalid")));
                 }
             } catch (Exception e) {
@@ -328,7 +331,7 @@ public class XxlJobServiceImpl implements XxlJobService {
             return new ReturnT<>(ReturnT.FAIL_CODE, (I18nUtil.getString("jobinfo_field_id") + I18nUtil.getString("system_not_found")));
         }
 
-        // next trigger time (5s后生效，避开预读周期)
+        // next trigger time (预读窗口上限之后生效，避开预读周期)
         // 既然是更新定时任务，下面就要做点不一样的事，先得到定时任务下一次的执行时间
         long nextTriggerTime = exists_jobInfo.getTriggerNextTime();
         // 判断调度类型是不是和数据库中存储的相同
@@ -336,9 +339,9 @@ public class XxlJobServiceImpl implements XxlJobService {
         // 如果调度类型不一样，并且定时任务现在处于运行的状态，想想你修改的cron表达式，它就会在下面这里生效
         if (exists_jobInfo.getTriggerStatus() == 1 && !scheduleDataNotChanged) {
             try {
-                // 根据新的cron表达式，计算定时任务下一次的执行时间，但这里有个条件，就是从当前时间加5秒之后的定时任务的
-                // 执行时间，这么做其实就是在一个新的调度周期中，开始以新的执行时间来调度定时任务
-                Date nextValidTime = JobScheduleHelper.generateNextValidTime(jobInfo, new Date(System.currentTimeMillis() + JobScheduleHelper.PRE_READ_MS));
+                // 根据新的cron表达式，计算定时任务下一次的执行时间，但这里有个条件，就是从当前时间加预读窗口上限之后的
+                // 定时任务的执行时间，这么做其实就是在一个新的调度周期中，开始以新的执行时间来调度定时任务
+                Date nextValidTime = JobScheduleHelper.generateNextValidTime(jobInfo, new Date(System.currentTimeMillis() + XxlJobAdminConfig.getAdminConfig().getSchedulePreReadMax()));
                 if (nextValidTime == null) {
                     return new ReturnT<>(ReturnT.FAIL_CODE, (I18nUtil.getString("schedule_type") + I18nUtil.getString("system_unvalid")));
                 }
@@ -365,9 +368,16 @@ public class XxlJobServiceImpl implements XxlJobService {
         exists_jobInfo.setExecutorFailRetryCount(jobInfo.getExecutorFailRetryCount());
         exists_jobInfo.setChildJobId(jobInfo.getChildJobId());
         exists_jobInfo.setTriggerNextTime(nextTriggerTime);
+        // 调度配置变了才刷新调度变更时间，其他节点的调度内存索引按它增量同步；
+        // 同时调度版本号加1，时间轮中按旧配置预先放入的触发不再执行
+        if (!scheduleDataNotChanged) {
+            exists_jobInfo.setScheduleVersion(exists_jobInfo.getScheduleVersion() + 1);
+            exists_jobInfo.setScheduleUpdateTime(new Date());
+        }
         // 更新定时任务
         exists_jobInfo.setUpdateTime(new Date());
         xxlJobInfoDao.update(exists_jobInfo);
+        JobCacheHelper.getInstance().invalidateJob(exists_jobInfo.getId());
         return ReturnT.SUCCESS;
     }
 
@@ -381,6 +391,7 @@ public class XxlJobServiceImpl implements XxlJobService {
             return ReturnT.SUCCESS;
         }
         xxlJobInfoDao.delete(id);
+        JobCacheHelper.getInstance().invalidateJob(id);
         xxlJobLogDao.delete(id);
         xxlJobLogGlueDao.deleteByJobId(id);
         return ReturnT.SUCCESS;
@@ -401,11 +412,11 @@ public class XxlJobServiceImpl implements XxlJobService {
             return new ReturnT<>(ReturnT.FAIL_CODE, (I18nUtil.getString("schedule_type_none_limit_start")));
         }
 
-        // next trigger time (5s后生效，避开预读周期)
+        // next trigger time (预读窗口上限之后生效，避开预读周期)
         long nextTriggerTime = 0;
         try {
-            // 得到定时任务5秒后的执行时间，这里之所以要得到5秒后，是因为调度定时任务的线程，刚开始执行的时候会睡4~5秒
-            Date nextValidTime = JobScheduleHelper.generateNextValidTime(xxlJobInfo, new Date(System.currentTimeMillis() + JobScheduleHelper.PRE_READ_MS));
+            // 得到定时任务在预读窗口上限之后的执行时间，因为调度扫描线程空闲时，两次扫描之间最长会间隔一个预读窗口上限
+            Date nextValidTime = JobScheduleHelper.generateNextValidTime(xxlJobInfo, new Date(System.currentTimeMillis() + XxlJobAdminConfig.getAdminConfig().getSchedulePreReadMax()));
             if (nextValidTime == null) {
                 return new ReturnT<>(ReturnT.FAIL_CODE, (I18nUtil.getString("schedule_type") + I18nUtil.getString("system_unvalid")));
             }
@@ -420,7 +431,11 @@ public class XxlJobServiceImpl implements XxlJobService {
         xxlJobInfo.setTriggerLastTime(0);
         xxlJobInfo.setTriggerNextTime(nextTriggerTime);
         xxlJobInfo.setUpdateTime(new Date());
+        // 停止之前放入时间轮、还没有执行的触发不再执行
+        xxlJobInfo.setScheduleVersion(xxlJobInfo.getScheduleVersion() + 1);
+        xxlJobInfo.setScheduleUpdateTime(new Date());
         xxlJobInfoDao.update(xxlJobInfo);
+        JobCacheHelper.getInstance().invalidateJob(id);
         return ReturnT.SUCCESS;
     }
 
@@ -435,7 +450,10 @@ public class XxlJobServiceImpl implements XxlJobService {
         // 关键是这里，直接把下一次执行时间置为0了
         xxlJobInfo.setTriggerNextTime(0);
         xxlJobInfo.setUpdateTime(new Date());
+        xxlJobInfo.setScheduleVersion(xxlJobInfo.getScheduleVersion() + 1);
+        xxlJobInfo.setScheduleUpdateTime(new Date());
         xxlJobInfoDao.update(xxlJobInfo);
+        JobCacheHelper.getInstance().invalidateJob(id);
         return ReturnT.SUCCESS;
     }
 
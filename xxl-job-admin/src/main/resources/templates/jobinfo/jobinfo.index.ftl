@@ -157,7 +157,7 @@
                         </div>
                         <div class="schedule_conf schedule_conf_FIX_RATE" style="display: none" >
                             <label for="lastname" class="col-sm-2 control-label">${I18n.schedule_type_fix_rate}<font color="red">*</font></label>
-                            <div class="col-sm-4"><input type="text" class="form-control" name="schedule_conf_FIX_RATE" placeholder="${I18n.system_please_input} （ Second ）" maxlength="10" onkeyup="this.value=this.value.replace(/\D/g,'')" onafterpaste="this.value=this.value.replace(/\D/g,'')" ></div>
+                            <div class="col-sm-4"><input type="text" class="form-control" name="schedule_conf_FIX_RATE" placeholder="${I18n.system_please_input} （ Second, or 200ms ）" maxlength="10" onkeyup="this.value=this.value.replace(/[^\dms]/g,'')" onafterpaste="this.value=this.value.replace(/[^\dms]/g,'')" ></div>
                         </div>
                         <div class="schedule_conf schedule_conf_FIX_DELAY" style="display: none" >
                             <label for="lastname" class="col-sm-2 control-label">${I18n.schedule_type_fix_delay}<font color="red">*</font></label>
@@ -402,7 +402,7 @@ exit 0
                         </div>
                         <div class="schedule_conf schedule_conf_FIX_RATE" style="display: none" >
                             <label for="lastname" class="col-sm-2 control-label">${I18n.schedule_type_fix_rate}<font color="red">*</font></label>
-                            <div class="col-sm-4"><input type="text" class="form-control" name="schedule_conf_FIX_RATE" placeholder="${I18n.system_please_input} （ Second ）" maxlength="10" onkeyup="this.value=this.value.replace(/\D/g,'')" onafterpaste="this.value=this.value.replace(/\D/g,'')" ></div>
+                            <div class="col-sm-4"><input type="text" class="form-control" name="schedule_conf_FIX_RATE" placeholder="${I18n.system_please_input} （ Second, or 200ms ）" maxlength="10" onkeyup="this.value=this.value.replace(/[^\dms]/g,'')" onafterpaste="this.value=this.value.replace(/[^\dms]/g,'')" ></div>
                         </div>
                         <div class="schedule_conf schedule_conf_FIX_DELAY" style="display: none" >
                             <label for="lastname" class="col-sm-2 control-label">${I18n.schedule_type_fix_delay}<font color="red">*</font></label>
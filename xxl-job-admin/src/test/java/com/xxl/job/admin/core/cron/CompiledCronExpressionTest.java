@@ -0,0 +1,141 @@
+package com.xxl.job.admin.core.cron;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 和CronExpression做差分对比，随机表达式、随机时间、多个时区下的计算结果必须完全一致
+ */
+public class CompiledCronExpressionTest {
+
+    private static final String[] ZONES = {"UTC", "Asia/Shanghai", "America/New_York", "Europe/London", "Australia/Lord_Howe"};
+
+    private static final String[] SPECIAL_EXPRESSIONS = {
+            "0 0 12 L * ?",
+            "0 0 12 L-3 * ?",
+            "0 0 12 15W * ?",
+            "0 0 12 LW * ?",
+            "0 0 12 ? * 6L",
+            "0 0 12 ? * 2#3",
+            "0 30 2 * * ?",
+            "0 0 0 29 2 ?",
+            "0 0 0 31 * ?",
+            "0 0 0 ? * SUN",
+            "0 0 0 1 1 ? 2030",
+            "* * * * * ?"
+    };
+
+    @Test
+    public void shouldMatchCronExpression() throws ParseException {
+        Random random = new Random(20240101);
+        for (int i = 0; i < 2000; i++) {
+            String cron = randomExpression(random);
+            for (String zone : ZONES) {
+                assertSameFireTimes(cron, TimeZone.getTimeZone(zone), random);
+            }
+        }
+    }
+
+    @Test
+    public void shouldMatchCronExpressionWithSpecialCharacters() throws ParseException {
+        Random random = new Random(20240102);
+        for (String cron : SPECIAL_EXPRESSIONS) {
+            for (String zone : ZONES) {
+                assertSameFireTimes(cron, TimeZone.getTimeZone(zone), random);
+            }
+        }
+    }
+
+    @Test
+    public void shouldGetNextNFireTimes() throws ParseException {
+        CronExpression legacy = new CronExpression("*/2 * * * * ?");
+        CompiledCronExpression compiled = new CompiledCronExpression(legacy);
+        long after = 1700000000500L;
+
+        long[] fireTimes = new long[10];
+        int count = compiled.getNextNFireTimes(after, after + 5000, fireTimes);
+        assertEquals(2, count);
+
+        Date expected = new Date(after);
+        for (int i = 0; i < count; i++) {
+            expected = legacy.getNextValidTimeAfter(expected);
+            assertEquals(expected.getTime(), fireTimes[i]);
+        }
+
+        // 数组写满为止
+        assertEquals(3, compiled.getNextNFireTimes(after, after + 60000, new long[3]));
+    }
+
+    @Test
+    public void shouldCacheByExpression() throws ParseException {
+        assertSame(CompiledCronExpression.of("0 0/5 * * * ?"), CompiledCronExpression.of("0 0/5 * * * ?"));
+    }
+
+    private static void assertSameFireTimes(String cron, TimeZone timeZone, Random random) throws ParseException {
+        CronExpression legacy = new CronExpression(cron);
+        legacy.setTimeZone(timeZone);
+        CompiledCronExpression compiled = new CompiledCronExpression(legacy);
+
+        // 2000-01-01 ~ 2090-01-01
+        long from = 946684800000L;
+        long to = 3786912000000L;
+        for (int i = 0; i < 5; i++) {
+            Date after = new Date(from + (long) (random.nextDouble() * (to - from)));
+            // 连续计算若干次，覆盖跨分钟、跨天、跨月的情况
+            for (int j = 0; j < 20 && after != null; j++) {
+                Date expected = legacy.getNextValidTimeAfter(after);
+                Date actual = compiled.getNextValidTimeAfter(after);
+                assertEquals(expected, actual, cron + " @" + timeZone.getID() + " after " + after.getTime());
+                after = expected;
+            }
+        }
+    }
+
+    private static String randomExpression(Random random) {
+        String second = randomField(random, 0, 59);
+        String minute = randomField(random, 0, 59);
+        String hour = randomField(random, 0, 23);
+        String month = randomField(random, 1, 12);
+        String dayOfMonth;
+        String dayOfWeek;
+        if (random.nextBoolean()) {
+            dayOfMonth = randomField(random, 1, 31);
+            dayOfWeek = "?";
+        } else {
+            dayOfMonth = "?";
+            dayOfWeek = randomField(random, 1, 7);
+        }
+        String cron = second + " " + minute + " " + hour + " " + dayOfMonth + " " + month + " " + dayOfWeek;
+        if (random.nextInt(10) == 0) {
+            int year = 2000 + random.nextInt(90);
+            cron += " " + year + "-" + (year + random.nextInt(20));
+        }
+        return cron;
+    }
+
+    private static String randomField(Random random, int min, int max) {
+        int a = min + random.nextInt(max - min + 1);
+        int b = min + random.nextInt(max - min + 1);
+        switch (random.nextInt(6)) {
+            case 0:
+                return "*";
+            case 1:
+                return String.valueOf(a);
+            case 2:
+                return Math.min(a, b) + "-" + Math.max(a, b);
+            case 3:
+                return a + "/" + (1 + random.nextInt(Math.max(1, (max - min) / 2)));
+            case 4:
+                return "*/" + (1 + random.nextInt(Math.max(1, (max - min) / 2)));
+            default:
+                return a + "," + b;
+        }
+    }
+}
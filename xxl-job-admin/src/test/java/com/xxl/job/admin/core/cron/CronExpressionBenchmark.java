@@ -0,0 +1,73 @@
+package com.xxl.job.admin.core.cron;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 计算下一次触发时间的基准测试：
+ * parseAndNext   - 调度线程原来的做法，每次都重新解析表达式
+ * legacyNext     - 复用解析好的CronExpression
+ * compiledNext   - 从缓存获取CompiledCronExpression
+ * <p>
+ * 直接运行main方法即可
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CronExpressionBenchmark {
+
+    @Param({"0/5 * * * * ?", "0 0/5 9-18 ? * MON-FRI", "0 0 2 1 * ?"})
+    private String cron;
+
+    private CronExpression legacy;
+    private long time;
+
+    @Setup
+    public void setup() throws ParseException {
+        legacy = new CronExpression(cron);
+        time = System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public Date parseAndNext() throws ParseException {
+        time += 7919;
+        return new CronExpression(cron).getNextValidTimeAfter(new Date(time));
+    }
+
+    @Benchmark
+    public Date legacyNext() {
+        time += 7919;
+        return legacy.getNextValidTimeAfter(new Date(time));
+    }
+
+    @Benchmark
+    public long compiledNext() throws ParseException {
+        time += 7919;
+        return CompiledCronExpression.of(cron).nextFireTime(time);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CronExpressionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,103 @@
+package com.xxl.job.admin.core.route;
+
+import com.xxl.job.admin.core.route.strategy.ExecutorRouteConsistentHash;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一致性哈希路由的基准测试，每次路由一个不同的任务：
+ * legacyRoute - 原来的做法，每次路由都用MD5重新构建 TreeMap 哈希环
+ * cachedRoute - 按地址列表缓存的哈希环，二分查找
+ * <p>
+ * 直接运行main方法即可
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsistentHashBenchmark {
+
+    @Param({"3", "20"})
+    private int addressNum;
+
+    private List<String> addressList;
+    private ExecutorRouteConsistentHash router;
+    private int jobId;
+
+    @Setup
+    public void setup() {
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < addressNum; i++) {
+            list.add("http://192.168.0." + (i + 1) + ":9999/");
+        }
+        addressList = Collections.unmodifiableList(list);
+        router = new ExecutorRouteConsistentHash();
+    }
+
+    @Benchmark
+    public String legacyRoute() throws NoSuchAlgorithmException {
+        return legacyHashJob(++jobId, addressList);
+    }
+
+    @Benchmark
+    public String cachedRoute() {
+        return router.hashJob(++jobId, addressList);
+    }
+
+    /**
+     * 原来的实现
+     */
+    private static String legacyHashJob(int jobId, List<String> addressList) throws NoSuchAlgorithmException {
+        TreeMap<Long, String> addressRing = new TreeMap<>();
+        for (String address : addressList) {
+            for (int i = 0; i < 100; i++) {
+                addressRing.put(md5Hash("SHARD-" + address + "-NODE-" + i), address);
+            }
+        }
+        SortedMap<Long, String> lastRing = addressRing.tailMap(md5Hash(String.valueOf(jobId)));
+        if (!lastRing.isEmpty()) {
+            return lastRing.get(lastRing.firstKey());
+        }
+        return addressRing.firstEntry().getValue();
+    }
+
+    private static long md5Hash(String key) throws NoSuchAlgorithmException {
+        MessageDigest md5 = MessageDigest.getInstance("MD5");
+        byte[] digest = md5.digest(key.getBytes(StandardCharsets.UTF_8));
+        long hashCode = ((long) (digest[3] & 0xFF) << 24)
+                | ((long) (digest[2] & 0xFF) << 16)
+                | ((long) (digest[1] & 0xFF) << 8)
+                | (digest[0] & 0xFF);
+        return hashCode & 0xffffffffL;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ConsistentHashBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
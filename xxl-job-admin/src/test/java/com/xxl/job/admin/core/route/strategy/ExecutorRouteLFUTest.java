@@ -0,0 +1,114 @@
+package com.xxl.job.admin.core.route.strategy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 每个地址的使用次数保持均衡：地址删除后不再被选中，重新加入的地址优先使用，
+ * 次数超过上限后整体减小、相对大小不变，多个触发线程同时路由同一个任务时次数不丢失
+ */
+public class ExecutorRouteLFUTest {
+
+    private final ExecutorRouteLFU router = new ExecutorRouteLFU();
+
+    @Test
+    public void shouldUseLeastFrequentlyUsedAddress() {
+        int jobId = 1001;
+        List<String> addressList = Arrays.asList("a", "b", "c");
+        Map<String, Integer> counts = route(jobId, addressList, 300);
+        for (String address : addressList) {
+            // 初始次数随机在 [0, 3) 之间
+            int count = counts.get(address);
+            assertTrue(count >= 98 && count <= 102, address + " used " + count);
+        }
+    }
+
+    @Test
+    public void shouldRemoveAndReAddAddress() {
+        int jobId = 1002;
+        route(jobId, Arrays.asList("a", "b", "c"), 300);
+
+        // 删除的地址不再被选中
+        Map<String, Integer> counts = route(jobId, new ArrayList<>(Arrays.asList("a", "c")), 100);
+        assertFalse(counts.containsKey("b"));
+        assertEquals(100, counts.get("a") + counts.get("c"));
+
+        // 重新加入的地址次数从头开始，优先使用直到追上其他地址
+        counts = route(jobId, new ArrayList<>(Arrays.asList("a", "b", "c")), 100);
+        assertTrue(counts.get("b") >= 96, "b used " + counts.get("b"));
+    }
+
+    @Test
+    public void shouldKeepBalanceAfterRebase() {
+        int jobId = 1003;
+        List<String> addressList = Arrays.asList("a", "b");
+        // 次数超过 1000000 后整体减去堆顶的次数
+        Map<String, Integer> counts = route(jobId, addressList, 2100000);
+        assertTrue(Math.abs(counts.get("a") - counts.get("b")) <= 2, counts.toString());
+
+        // 减小后两个地址依然交替使用
+        counts = route(jobId, addressList, 1000);
+        assertTrue(Math.abs(counts.get("a") - counts.get("b")) <= 2, counts.toString());
+    }
+
+    @Test
+    public void shouldCountConcurrentRoutes() throws Exception {
+        int jobId = 1004;
+        final List<String> addressList = Arrays.asList("a", "b", "c", "d");
+        final List<String> sameAddressList = new ArrayList<>(addressList);
+        final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+        int threads = 8;
+        final int routesPerThread = 10000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            // 内容相同的两个列表对象交替传入，每次都要对比一次地址
+            final List<String> threadAddressList = t % 2 == 0 ? addressList : sameAddressList;
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                for (int i = 0; i < routesPerThread; i++) {
+                    String address = router.route(jobId, threadAddressList);
+                    counts.computeIfAbsent(address, key -> new LongAdder()).increment();
+                }
+                return null;
+            }));
+        }
+        startLatch.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(addressList.size(), counts.size());
+        for (String address : addressList) {
+            long count = counts.get(address).sum();
+            assertTrue(Math.abs(count - threads * routesPerThread / addressList.size()) <= addressList.size(), address + " used " + count);
+        }
+    }
+
+    private Map<String, Integer> route(int jobId, List<String> addressList, int times) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < times; i++) {
+            counts.merge(router.route(jobId, addressList), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+}
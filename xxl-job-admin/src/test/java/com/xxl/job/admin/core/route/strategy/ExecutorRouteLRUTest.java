@@ -0,0 +1,99 @@
+package com.xxl.job.admin.core.route.strategy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 地址按最久未使用的顺序轮流选中：新增的地址优先使用，删除的地址不再被选中，
+ * 多个触发线程同时路由、同时同步地址列表后，队列中每个地址依然只有一个
+ */
+public class ExecutorRouteLRUTest {
+
+    private final ExecutorRouteLRU router = new ExecutorRouteLRU();
+
+    @Test
+    public void shouldUseLeastRecentlyUsedAddress() {
+        int jobId = 2001;
+        List<String> addressList = Arrays.asList("a", "b", "c");
+        for (int round = 0; round < 3; round++) {
+            for (String address : addressList) {
+                assertEquals(address, router.route(jobId, addressList));
+            }
+        }
+    }
+
+    @Test
+    public void shouldAddAndRemoveAddress() {
+        int jobId = 2002;
+        List<String> addressList = Arrays.asList("a", "b", "c");
+        assertEquals("a", router.route(jobId, addressList));
+
+        // 新增的地址放在队头
+        addressList = Arrays.asList("a", "b", "c", "d");
+        assertEquals("d", router.route(jobId, addressList));
+        assertEquals("b", router.route(jobId, addressList));
+
+        // 删除的地址不再被选中，其余地址的顺序不变
+        addressList = Arrays.asList("a", "c", "d");
+        assertEquals("c", router.route(jobId, addressList));
+        assertEquals("a", router.route(jobId, addressList));
+        assertEquals("d", router.route(jobId, addressList));
+        for (int i = 0; i < 30; i++) {
+            assertNotEquals("b", router.route(jobId, addressList));
+        }
+
+        // 重新加入的地址又放在队头
+        addressList = Arrays.asList("a", "b", "c", "d");
+        assertEquals("b", router.route(jobId, addressList));
+    }
+
+    @Test
+    public void shouldKeepEachAddressOnceUnderConcurrentRoutes() throws Exception {
+        int jobId = 2003;
+        final List<String> addressList = Arrays.asList("a", "b", "c", "d");
+        final List<String> sameAddressList = new ArrayList<>(addressList);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            // 内容相同的两个列表对象交替传入，地址快照不停地被 CAS 替换
+            final List<String> threadAddressList = t % 2 == 0 ? addressList : sameAddressList;
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                for (int i = 0; i < 10000; i++) {
+                    String address = router.route(jobId, threadAddressList);
+                    assertTrue(addressList.contains(address), "unknown address " + address);
+                }
+                return null;
+            }));
+        }
+        startLatch.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // 队列中每个地址只有一个，依次路由每个地址恰好选中一次
+        Set<String> routed = new HashSet<>();
+        for (int i = 0; i < addressList.size(); i++) {
+            routed.add(router.route(jobId, addressList));
+        }
+        assertEquals(new HashSet<>(addressList), routed);
+    }
+
+}
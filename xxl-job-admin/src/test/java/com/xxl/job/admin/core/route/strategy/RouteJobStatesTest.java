@@ -0,0 +1,68 @@
+package com.xxl.job.admin.core.route.strategy;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 任务状态按空闲时间移除，任务数超过上限时缩短空闲时间，清理每分钟最多一次
+ */
+public class RouteJobStatesTest {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long DAY = 24 * 60 * MINUTE;
+
+    @Test
+    public void shouldEvictIdleJobs() {
+        RouteJobStates<TestState> states = new RouteJobStates<>(TestState::new);
+        long startTime = 1700000000000L;
+        TestState idleState = states.get(1, startTime);
+        states.get(2, startTime);
+        assertSame(idleState, states.get(1, startTime + MINUTE / 2));
+
+        // 任务2一直在触发，任务1空闲超过一天
+        states.get(2, startTime + DAY - MINUTE);
+        states.get(3, startTime + DAY + MINUTE);
+        assertEquals(2, states.size());
+        assertNotSame(idleState, states.get(1, startTime + DAY + MINUTE));
+    }
+
+    @Test
+    public void shouldSweepAtMostOncePerMinute() {
+        RouteJobStates<TestState> states = new RouteJobStates<>(TestState::new);
+        long startTime = 1700000000000L;
+        states.get(1, startTime);
+        states.get(2, startTime + MINUTE / 2);
+        long sweepTime = startTime + DAY + 1000;
+        states.get(3, sweepTime);
+        assertEquals(2, states.size());
+
+        // 上次清理不到一分钟，任务2空闲超过一天也还在
+        states.get(3, sweepTime + MINUTE / 2);
+        assertEquals(2, states.size());
+        states.get(3, sweepTime + MINUTE);
+        assertEquals(1, states.size());
+    }
+
+    @Test
+    public void shouldShortenIdleTimeWhenOverflow() {
+        RouteJobStates<TestState> states = new RouteJobStates<>(TestState::new);
+        long startTime = 1700000000000L;
+        for (int jobId = 0; jobId < 10000; jobId++) {
+            states.get(jobId, startTime);
+        }
+        // 没有超过上限，空闲十几分钟的任务不移除
+        states.get(-1, startTime + 11 * MINUTE);
+        assertEquals(10001, states.size());
+
+        // 超过上限，空闲超过10分钟的任务移除
+        states.get(-2, startTime + 12 * MINUTE + 1);
+        assertEquals(2, states.size());
+    }
+
+    private static class TestState extends RouteJobStates.JobState {
+    }
+
+}
@@ -0,0 +1,171 @@
+package com.xxl.job.admin.core.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 时间轮按模拟的时间推进：任务不早于触发时间派发、延迟不超过一个tick，跨越多层的任务逐层降级后也是如此；
+ * tag 原样交回，并发放入的任务恰好派发一次，停机时未派发的任务全部交接出去
+ */
+public class JobTimeWheelTest {
+
+    private static final long START_MS = 1700000000003L;
+
+    @Test
+    public void shouldDispatchWithinOneTick() {
+        long tickMs = 10;
+        // 每层8个刻度，20秒的范围需要4层
+        JobTimeWheel wheel = new JobTimeWheel(tickMs, 8, START_MS);
+        Random random = new Random(20240301);
+        Map<Integer, Long> triggerTimes = new HashMap<>();
+        for (int jobId = 0; jobId < 2000; jobId++) {
+            long triggerTime = START_MS + random.nextInt(20000);
+            triggerTimes.put(jobId, triggerTime);
+            wheel.push(jobId, triggerTime, tag(jobId));
+        }
+        assertEquals(2000, wheel.size());
+
+        Map<Integer, Long> dispatched = new HashMap<>();
+        for (long nowMs = START_MS; nowMs <= START_MS + 20000 + tickMs; nowMs++) {
+            final long advanceMs = nowMs;
+            wheel.advance(nowMs, (jobId, triggerTime, tag) -> {
+                assertEquals((long) triggerTimes.get(jobId), triggerTime);
+                assertEquals(tag(jobId), tag);
+                assertTrue(triggerTime <= advanceMs, "job " + jobId + " dispatched early");
+                assertTrue(advanceMs - triggerTime < tickMs, "job " + jobId + " lag " + (advanceMs - triggerTime));
+                assertNull(dispatched.put(jobId, advanceMs), "job " + jobId + " dispatched twice");
+            });
+        }
+        assertEquals(2000, dispatched.size());
+        assertTrue(wheel.isEmpty());
+
+        long[] lagStats = wheel.drainLagStats();
+        assertEquals(2000, lagStats[0]);
+        assertTrue(lagStats[2] < tickMs);
+    }
+
+    @Test
+    public void shouldDispatchOverdueJobsInPushOrder() {
+        JobTimeWheel wheel = new JobTimeWheel(100, 16, START_MS);
+        wheel.advance(START_MS + 1000, (jobId, triggerTime, tag) -> {
+        });
+        for (int jobId = 0; jobId < 10; jobId++) {
+            wheel.push(jobId, START_MS + 500 - jobId, tag(jobId));
+        }
+        List<Integer> order = new ArrayList<>();
+        wheel.advance(START_MS + 1000, (jobId, triggerTime, tag) -> order.add(jobId));
+        for (int jobId = 0; jobId < 10; jobId++) {
+            assertEquals(jobId, (int) order.get(jobId));
+        }
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void shouldDispatchConcurrentPushesOnce() throws Exception {
+        final long tickMs = 5;
+        final JobTimeWheel wheel = new JobTimeWheel(tickMs, 64, START_MS);
+        int threads = 4;
+        final int pushesPerThread = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int base = t * pushesPerThread;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(base);
+                startLatch.await();
+                for (int i = 0; i < pushesPerThread; i++) {
+                    wheel.push(base + i, START_MS + random.nextInt(3000), tag(base + i));
+                }
+                return null;
+            }));
+        }
+
+        // 放入的同时推进时间轮
+        int[] dispatchCounts = new int[threads * pushesPerThread];
+        JobTimeWheel.Dispatcher dispatcher = (jobId, triggerTime, tag) -> {
+            assertEquals(tag(jobId), tag);
+            dispatchCounts[jobId]++;
+        };
+        startLatch.countDown();
+        long nowMs = START_MS;
+        while (!allDone(futures)) {
+            nowMs += 1;
+            wheel.advance(nowMs, dispatcher);
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        wheel.advance(Math.max(nowMs, START_MS + 3000) + tickMs, dispatcher);
+
+        for (int jobId = 0; jobId < dispatchCounts.length; jobId++) {
+            assertEquals(1, dispatchCounts[jobId], "job " + jobId);
+        }
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void shouldDrainAllUndispatchedJobs() {
+        JobTimeWheel wheel = new JobTimeWheel(10, 8, START_MS);
+        for (int jobId = 0; jobId < 100; jobId++) {
+            wheel.push(jobId, START_MS + jobId * 100L, tag(jobId));
+        }
+        wheel.advance(START_MS + 2000, (jobId, triggerTime, tag) -> {
+        });
+        // 前20个任务已经派发
+        assertEquals(80, wheel.size());
+        // 还没推进时放入的任务在待处理栈中，也要交接出去
+        wheel.push(1000, START_MS + 1000, tag(1000));
+        wheel.drainLagStats();
+
+        Map<Integer, Long> drained = new HashMap<>();
+        wheel.drainAll((jobId, triggerTime, tag) -> {
+            assertEquals(tag(jobId), tag);
+            drained.put(jobId, triggerTime);
+        });
+        assertEquals(81, drained.size());
+        for (int jobId = 20; jobId < 100; jobId++) {
+            assertEquals(START_MS + jobId * 100L, (long) drained.get(jobId));
+        }
+        assertEquals(START_MS + 1000, (long) drained.get(1000));
+        assertTrue(wheel.isEmpty());
+        // 交接出去的任务不计入派发延迟
+        assertEquals(0, wheel.drainLagStats()[0]);
+    }
+
+    @Test
+    public void shouldRejectInvalidWheelSize() {
+        assertThrows(IllegalArgumentException.class, () -> new JobTimeWheel(10, 60, START_MS));
+        assertThrows(IllegalArgumentException.class, () -> new JobTimeWheel(0, 64, START_MS));
+    }
+
+    private static long tag(int jobId) {
+        return ((long) jobId << 32) | 0x1ff;
+    }
+
+    private static boolean allDone(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            if (!future.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
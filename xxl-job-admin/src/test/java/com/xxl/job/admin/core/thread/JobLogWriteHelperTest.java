@@ -0,0 +1,140 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.core.model.XxlJobLog;
+import com.xxl.job.admin.dao.XxlJobLogDao;
+import com.xxl.job.core.biz.model.ReturnT;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 调度日志ID按号段分配不重复；分配之后、写入之前的日志登记为待写入，回调等待它写入或者取消登记；
+ * 批量写入的日志都能查到
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class JobLogWriteHelperTest {
+
+    // 不存在的任务，测试结束后删除它的调度日志
+    private static final int JOB_ID = 100001;
+
+    @Resource
+    private XxlJobLogDao xxlJobLogDao;
+
+    private final JobLogWriteHelper helper = JobLogWriteHelper.getInstance();
+
+    @AfterEach
+    public void clean() {
+        xxlJobLogDao.delete(JOB_ID);
+    }
+
+    @Test
+    public void shouldAssignUniqueLogIdsAcrossSegments() throws Exception {
+        int threads = 8;
+        // 每个号段1000个ID，一共分配多个号段
+        final int idsPerThread = 500;
+        final Set<Long> logIds = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                for (int i = 0; i < idsPerThread; i++) {
+                    assertTrue(logIds.add(helper.nextLogId()));
+                }
+                return null;
+            }));
+        }
+        startLatch.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertEquals(threads * idsPerThread, logIds.size());
+    }
+
+    @Test
+    public void shouldAwaitWrittenLog() {
+        XxlJobLog jobLog = newJobLog();
+        helper.assignLogId(jobLog);
+        List<Long> logIds = Collections.singletonList(jobLog.getId());
+        // 登记之后、写入之前，回调等不到这条日志
+        assertFalse(helper.awaitWritten(logIds, 50));
+
+        helper.write(jobLog);
+        assertTrue(helper.awaitWritten(logIds, 3000));
+        XxlJobLog saved = xxlJobLogDao.load(jobLog.getId());
+        assertNotNull(saved);
+        assertEquals(ReturnT.SUCCESS_CODE, saved.getTriggerCode());
+    }
+
+    @Test
+    public void shouldWakeUpWaiterOnUnreserve() throws Exception {
+        XxlJobLog jobLog = newJobLog();
+        helper.assignLogId(jobLog);
+        List<Long> logIds = Collections.singletonList(jobLog.getId());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        long startTime = System.currentTimeMillis();
+        Future<Boolean> waiter = executor.submit(() -> helper.awaitWritten(logIds, 10000));
+        Thread.sleep(100);
+        assertFalse(waiter.isDone());
+
+        // 触发出错，这条日志不会再写入
+        helper.unreserve(jobLog.getId());
+        assertTrue(waiter.get(3, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - startTime < 3000);
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldWriteAllInBatch() {
+        List<XxlJobLog> jobLogs = new ArrayList<>();
+        List<Long> logIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            XxlJobLog jobLog = newJobLog();
+            jobLog.setExecutorShardingParam(i + "/20");
+            helper.assignLogId(jobLog);
+            jobLogs.add(jobLog);
+            logIds.add(jobLog.getId());
+        }
+        helper.writeAll(jobLogs);
+        assertTrue(helper.awaitWritten(logIds, 3000));
+        for (XxlJobLog jobLog : jobLogs) {
+            XxlJobLog saved = xxlJobLogDao.load(jobLog.getId());
+            assertNotNull(saved);
+            assertEquals(jobLog.getExecutorShardingParam(), saved.getExecutorShardingParam());
+        }
+    }
+
+    private static XxlJobLog newJobLog() {
+        XxlJobLog jobLog = new XxlJobLog();
+        jobLog.setJobGroup(1);
+        jobLog.setJobId(JOB_ID);
+        jobLog.setTriggerTime(new Date());
+        jobLog.setTriggerCode(ReturnT.SUCCESS_CODE);
+        jobLog.setTriggerMsg("JobLogWriteHelperTest");
+        jobLog.setExecutorAddress("127.0.0.1:9999");
+        jobLog.setExecutorHandler("demoJobHandler");
+        return jobLog;
+    }
+
+}
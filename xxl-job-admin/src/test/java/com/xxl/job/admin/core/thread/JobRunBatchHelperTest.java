@@ -0,0 +1,209 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.biz.model.TriggerParam;
+import com.xxl.job.core.util.GsonTool;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 本地启动模拟执行器：发往同一个地址的触发在窗口内合并成一次 /runBatch 请求，凑满一批直接发送，
+ * 每个触发拿到自己对应的结果；老版本执行器没有 /runBatch 时改为逐个 /run，之后不再尝试合并
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "xxl.job.trigger.async=true",
+        "xxl.job.trigger.batch.window=50",
+        "xxl.job.trigger.batch.size=5"
+})
+public class JobRunBatchHelperTest {
+
+    private final List<MockExecutor> executors = new ArrayList<>();
+
+    @AfterEach
+    public void stopExecutors() {
+        for (MockExecutor executor : executors) {
+            executor.stop();
+        }
+    }
+
+    @Test
+    public void shouldCoalesceRunsToSameAddress() throws Exception {
+        MockExecutor executor = startExecutor(true);
+        List<CompletableFuture<ReturnT<String>>> futures = run(executor, 0, 3);
+
+        assertResults(futures, 0);
+        assertEquals(1, executor.batchSizes.size());
+        assertEquals(3, (int) executor.batchSizes.get(0));
+        assertEquals(0, executor.singleRuns.get());
+    }
+
+    @Test
+    public void shouldSendFullBatchWithoutWaiting() throws Exception {
+        MockExecutor executor = startExecutor(true);
+        List<CompletableFuture<ReturnT<String>>> futures = run(executor, 0, 12);
+
+        assertResults(futures, 0);
+        // 每批最多5个，前两批凑满直接发送，剩下的等窗口结束
+        List<Integer> batchSizes = new ArrayList<>(executor.batchSizes);
+        batchSizes.sort(null);
+        assertEquals(3, batchSizes.size());
+        assertEquals(2, (int) batchSizes.get(0));
+        assertEquals(5, (int) batchSizes.get(1));
+        assertEquals(5, (int) batchSizes.get(2));
+    }
+
+    @Test
+    public void shouldFallBackToRunForOldExecutor() throws Exception {
+        MockExecutor executor = startExecutor(false);
+        assertResults(run(executor, 0, 3), 0);
+        assertEquals(1, executor.batchSizes.size());
+        assertEquals(3, executor.singleRuns.get());
+
+        // 之后不再尝试合并，直接逐个调用
+        assertResults(run(executor, 3, 3), 3);
+        assertEquals(1, executor.batchSizes.size());
+        assertEquals(6, executor.singleRuns.get());
+    }
+
+    @Test
+    public void shouldFailAllRunsWhenExecutorUnreachable() throws Exception {
+        MockExecutor executor = startExecutor(true);
+        executor.stop();
+        List<CompletableFuture<ReturnT<String>>> futures = run(executor, 0, 3);
+        for (CompletableFuture<ReturnT<String>> future : futures) {
+            assertEquals(ReturnT.FAIL_CODE, future.get(10, TimeUnit.SECONDS).getCode());
+        }
+    }
+
+    private MockExecutor startExecutor(boolean supportBatch) throws InterruptedException {
+        MockExecutor executor = new MockExecutor(supportBatch);
+        executors.add(executor);
+        return executor;
+    }
+
+    private static List<CompletableFuture<ReturnT<String>>> run(MockExecutor executor, int fromLogId, int count) {
+        List<CompletableFuture<ReturnT<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            TriggerParam triggerParam = new TriggerParam();
+            triggerParam.setJobId(1);
+            triggerParam.setExecutorHandler("demoJobHandler");
+            triggerParam.setLogId(fromLogId + i);
+            triggerParam.setLogDateTime(System.currentTimeMillis());
+            futures.add(JobRunBatchHelper.getInstance().run(executor.address, triggerParam));
+        }
+        return futures;
+    }
+
+    /**
+     * 模拟执行器在每个触发的结果里返回它的日志ID，每个触发拿到的必须是自己的结果
+     */
+    private static void assertResults(List<CompletableFuture<ReturnT<String>>> futures, int fromLogId) throws Exception {
+        for (int i = 0; i < futures.size(); i++) {
+            ReturnT<String> result = futures.get(i).get(10, TimeUnit.SECONDS);
+            assertEquals(ReturnT.SUCCESS_CODE, result.getCode(), result.getMsg());
+            assertEquals(String.valueOf(fromLogId + i), result.getMsg());
+        }
+    }
+
+    /**
+     * 模拟执行器的内嵌服务器，记录每次 /runBatch 的触发数和 /run 的次数
+     */
+    private static class MockExecutor {
+        private final boolean supportBatch;
+        private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        private final AtomicInteger singleRuns = new AtomicInteger();
+        private final EventLoopGroup group = new NioEventLoopGroup(1);
+        private final Channel serverChannel;
+        private final String address;
+
+        private MockExecutor(boolean supportBatch) throws InterruptedException {
+            this.supportBatch = supportBatch;
+            serverChannel = new ServerBootstrap()
+                    .group(group)
+                    .channel(NioServerSocketChannel.class)
+                    .childHandler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        public void initChannel(SocketChannel channel) {
+                            channel.pipeline()
+                                    .addLast(new HttpServerCodec())
+                                    .addLast(new HttpObjectAggregator(5 * 1024 * 1024))
+                                    .addLast(new MockExecutorHandler());
+                        }
+                    })
+                    .bind("127.0.0.1", 0).sync().channel();
+            address = "http://127.0.0.1:" + ((InetSocketAddress) serverChannel.localAddress()).getPort() + "/";
+        }
+
+        private void stop() {
+            serverChannel.close().syncUninterruptibly();
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+
+        private class MockExecutorHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+
+            @Override
+            protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest msg) {
+                String body = msg.content().toString(CharsetUtil.UTF_8);
+                Object result;
+                if ("/runBatch".equals(msg.uri())) {
+                    if (supportBatch) {
+                        TriggerParam[] triggerParams = GsonTool.fromJson(body, TriggerParam[].class);
+                        batchSizes.add(triggerParams.length);
+                        ReturnT[] results = new ReturnT[triggerParams.length];
+                        for (int i = 0; i < triggerParams.length; i++) {
+                            results[i] = new ReturnT<String>(ReturnT.SUCCESS_CODE, String.valueOf(triggerParams[i].getLogId()));
+                        }
+                        result = new ReturnT<ReturnT[]>(results);
+                    } else {
+                        // 和老版本 EmbedServer 的应答一致
+                        batchSizes.add(0);
+                        result = new ReturnT<String>(ReturnT.FAIL_CODE, "invalid request, uri-mapping(/runBatch) not found.");
+                    }
+                } else {
+                    singleRuns.incrementAndGet();
+                    TriggerParam triggerParam = GsonTool.fromJson(body, TriggerParam.class);
+                    result = new ReturnT<String>(ReturnT.SUCCESS_CODE, String.valueOf(triggerParam.getLogId()));
+                }
+                FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                        Unpooled.copiedBuffer(GsonTool.toJson(result), CharsetUtil.UTF_8));
+                response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/html;charset=UTF-8");
+                response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+                response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+                ctx.writeAndFlush(response);
+            }
+        }
+    }
+
+}
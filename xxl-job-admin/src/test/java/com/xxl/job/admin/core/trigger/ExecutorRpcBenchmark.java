@@ -0,0 +1,185 @@
+package com.xxl.job.admin.core.trigger;
+
+import com.xxl.job.core.biz.client.ExecutorBizClient;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.biz.model.TriggerParam;
+import com.xxl.job.core.util.XxlJobAsyncRemotingUtil;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调用执行器的基准测试，本地启动一个模拟执行器的HTTP服务，每次调用延迟 executorLatencyMs 后返回成功，
+ * 一次基准调用并发触发 concurrency 次：
+ * syncClient  - 原来的做法，200个线程（和快线程池一致）使用阻塞的 ExecutorBizClient.run（同样复用长连接池）
+ * asyncClient - 单个线程使用基于Netty长连接的 ExecutorBizClient.runAsync 发出全部请求后等待完成
+ * <p>
+ * 直接运行main方法即可
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutorRpcBenchmark {
+
+    @Param({"1000"})
+    private int concurrency;
+
+    @Param({"0", "20"})
+    private int executorLatencyMs;
+
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private Channel serverChannel;
+    private ExecutorService syncPool;
+    private ExecutorBizClient client;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup();
+        serverChannel = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    public void initChannel(SocketChannel channel) {
+                        channel.pipeline()
+                                .addLast(new HttpServerCodec())
+                                .addLast(new HttpObjectAggregator(5 * 1024 * 1024))
+                                .addLast(new MockExecutorHandler(executorLatencyMs));
+                    }
+                })
+                .bind("127.0.0.1", 0).sync().channel();
+        int port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+
+        syncPool = Executors.newFixedThreadPool(200);
+        XxlJobAsyncRemotingUtil.setMaxConnectionsPerAddress(200);
+        client = new ExecutorBizClient("http://127.0.0.1:" + port + "/", null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        syncPool.shutdownNow();
+        XxlJobAsyncRemotingUtil.shutdown();
+        serverChannel.close();
+        workerGroup.shutdownGracefully();
+        bossGroup.shutdownGracefully();
+    }
+
+    @Benchmark
+    public int syncClient() throws Exception {
+        @SuppressWarnings("unchecked")
+        Future<ReturnT<String>>[] futures = new Future[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            final TriggerParam triggerParam = triggerParam(i);
+            futures[i] = syncPool.submit(() -> client.run(triggerParam));
+        }
+        int success = 0;
+        for (Future<ReturnT<String>> future : futures) {
+            if (future.get().getCode() == ReturnT.SUCCESS_CODE) {
+                success++;
+            }
+        }
+        return success;
+    }
+
+    @Benchmark
+    public int asyncClient() {
+        @SuppressWarnings("unchecked")
+        CompletableFuture<ReturnT<String>>[] futures = new CompletableFuture[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            futures[i] = client.runAsync(triggerParam(i));
+        }
+        CompletableFuture.allOf(futures).join();
+        int success = 0;
+        for (CompletableFuture<ReturnT<String>> future : futures) {
+            if (future.join().getCode() == ReturnT.SUCCESS_CODE) {
+                success++;
+            }
+        }
+        return success;
+    }
+
+    private static TriggerParam triggerParam(int i) {
+        TriggerParam triggerParam = new TriggerParam();
+        triggerParam.setJobId(1);
+        triggerParam.setExecutorHandler("demoJobHandler");
+        triggerParam.setLogId(i);
+        triggerParam.setLogDateTime(System.currentTimeMillis());
+        return triggerParam;
+    }
+
+    /**
+     * 模拟执行器的内嵌服务器，延迟一段时间后返回成功，延迟期间不占用线程
+     */
+    private static class MockExecutorHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        private final int latencyMs;
+
+        private MockExecutorHandler(int latencyMs) {
+            this.latencyMs = latencyMs;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest msg) {
+            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                    Unpooled.copiedBuffer("{\"code\":200}", CharsetUtil.UTF_8));
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/html;charset=UTF-8");
+            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            if (latencyMs > 0) {
+                ctx.executor().schedule(() -> ctx.writeAndFlush(response), latencyMs, TimeUnit.MILLISECONDS);
+            } else {
+                ctx.writeAndFlush(response);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ExecutorRpcBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
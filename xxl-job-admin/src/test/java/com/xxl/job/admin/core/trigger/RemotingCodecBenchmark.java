@@ -0,0 +1,128 @@
+package com.xxl.job.admin.core.trigger;
+
+import com.xxl.job.core.biz.model.LogResult;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.biz.model.TriggerParam;
+import com.xxl.job.core.codec.RemotingCodec;
+import com.xxl.job.core.codec.RemotingCodecs;
+import com.xxl.job.core.util.GsonTool;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 远程调用编解码的基准测试，每次调用编码一个请求（或响应）再解码回来：
+ * legacyJson - 原来的做法，GsonTool 生成完整的字符串，再转成 ByteBuf；解码时反过来
+ * json       - JsonRemotingCodec，Gson 直接读写 ByteBuf
+ * binary     - BinaryRemotingCodec
+ * payload 为 trigger（单个触发）、batch（100个触发合并的 /runBatch 请求）、log（4KB日志的 /log 响应）
+ * <p>
+ * 直接运行main方法即可，会先打印每种编码的字节数
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RemotingCodecBenchmark {
+
+    @Param({"trigger", "batch", "log"})
+    private String payload;
+
+    private Object requestObj;
+    private Class<?> classOfT;
+    private Class<?> argClassOfT;
+
+    @Setup
+    public void setup() {
+        switch (payload) {
+            case "trigger":
+                requestObj = RemotingCodecTest.triggerParam(1);
+                classOfT = TriggerParam.class;
+                break;
+            case "batch":
+                List<TriggerParam> triggerParams = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    triggerParams.add(RemotingCodecTest.triggerParam(i));
+                }
+                requestObj = triggerParams;
+                classOfT = TriggerParam[].class;
+                break;
+            default:
+                StringBuilder logContent = new StringBuilder();
+                while (logContent.length() < 4096) {
+                    logContent.append("2024-01-01 00:00:00 [com.xxl.job.core.thread.JobThread#run]-[133]-[xxl-job, JobThread] <br>----------- xxl-job job execute start -----------<br>\n");
+                }
+                requestObj = new ReturnT<>(new LogResult(1, 30, logContent.toString(), false));
+                classOfT = ReturnT.class;
+                argClassOfT = LogResult.class;
+        }
+    }
+
+    @Benchmark
+    public Object legacyJson() {
+        ByteBuf buf = Unpooled.copiedBuffer(GsonTool.toJson(requestObj), CharsetUtil.UTF_8);
+        try {
+            String json = buf.toString(CharsetUtil.UTF_8);
+            return argClassOfT != null ? GsonTool.fromJson(json, classOfT, argClassOfT) : GsonTool.fromJson(json, classOfT);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Benchmark
+    public Object json() throws Exception {
+        return roundTrip(RemotingCodecs.JSON);
+    }
+
+    @Benchmark
+    public Object binary() throws Exception {
+        return roundTrip(RemotingCodecs.BINARY);
+    }
+
+    private Object roundTrip(RemotingCodec codec) throws Exception {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.buffer();
+        try {
+            codec.encode(requestObj, buf);
+            return codec.decode(buf, classOfT, argClassOfT);
+        } finally {
+            buf.release();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (String payload : new String[]{"trigger", "batch", "log"}) {
+            RemotingCodecBenchmark benchmark = new RemotingCodecBenchmark();
+            benchmark.payload = payload;
+            benchmark.setup();
+            for (RemotingCodec codec : new RemotingCodec[]{RemotingCodecs.JSON, RemotingCodecs.BINARY}) {
+                ByteBuf buf = Unpooled.buffer();
+                codec.encode(benchmark.requestObj, buf);
+                System.out.println(payload + ", " + codec.name() + ": " + buf.readableBytes() + " bytes");
+                buf.release();
+            }
+        }
+        new Runner(new OptionsBuilder()
+                .include(RemotingCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,153 @@
+package com.xxl.job.admin.core.trigger;
+
+import com.xxl.job.core.biz.model.ExecutorLoad;
+import com.xxl.job.core.biz.model.HandleCallbackParam;
+import com.xxl.job.core.biz.model.LogResult;
+import com.xxl.job.core.biz.model.RegistryParam;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.biz.model.TriggerParam;
+import com.xxl.job.core.codec.BinaryRemotingCodec;
+import com.xxl.job.core.codec.RemotingCodec;
+import com.xxl.job.core.codec.RemotingCodecs;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 两种编解码器编码后再解码，结果必须和原来的对象一致，二进制编解码器还要能跳过不认识的字段和类型
+ */
+public class RemotingCodecTest {
+
+    private static final RemotingCodec[] CODECS = {RemotingCodecs.JSON, RemotingCodecs.BINARY};
+
+    @Test
+    public void shouldRoundTripRpcModels() throws Exception {
+        for (RemotingCodec codec : CODECS) {
+            TriggerParam triggerParam = triggerParam(7);
+            assertEquals(triggerParam, roundTrip(codec, triggerParam, TriggerParam.class, null));
+
+            TriggerParam[] triggerParams = {triggerParam(1), triggerParam(2)};
+            assertArrayEquals(triggerParams, roundTrip(codec, Arrays.asList(triggerParams), TriggerParam[].class, null));
+
+            List<HandleCallbackParam> callbackParams = new ArrayList<>();
+            callbackParams.add(new HandleCallbackParam(1L, 1700000000000L, 200, "中文 msg"));
+            callbackParams.add(new HandleCallbackParam(-2L, 0L, 500, null));
+            assertEquals(callbackParams, roundTrip(codec, callbackParams, List.class, HandleCallbackParam.class));
+
+            ExecutorLoad executorLoad = new ExecutorLoad();
+            executorLoad.setRunningJobThreads(3);
+            executorLoad.setQueuedTriggers(12);
+            RegistryParam registryParam = new RegistryParam("EXECUTOR", "xxl-job-executor-sample", "http://127.0.0.1:9999/", executorLoad);
+            assertEquals(registryParam, roundTrip(codec, registryParam, RegistryParam.class, null));
+            assertEquals(-1, roundTrip(codec, new RegistryParam("EXECUTOR", "app", "addr", new ExecutorLoad()), RegistryParam.class, null)
+                    .getExecutorLoad().getProcessCpuLoad());
+
+            ReturnT<LogResult> logResult = new ReturnT<>(new LogResult(1, 20, "line1\nline2\t\"quoted\"", true));
+            assertEquals(logResult, roundTrip(codec, logResult, ReturnT.class, LogResult.class));
+
+            ReturnT<String> fail = new ReturnT<>(ReturnT.FAIL_CODE, "xxl-job remoting fail");
+            assertEquals(fail, roundTrip(codec, fail, ReturnT.class, String.class));
+
+            ReturnT<ReturnT[]> batchResult = new ReturnT<>(new ReturnT[]{ReturnT.SUCCESS, new ReturnT<String>(ReturnT.FAIL_CODE, "busy")});
+            ReturnT decoded = roundTrip(codec, batchResult, ReturnT.class, ReturnT[].class);
+            assertArrayEquals(batchResult.getContent(), (ReturnT[]) decoded.getContent());
+        }
+    }
+
+    @Test
+    public void shouldSkipUnknownFieldsAndTypes() throws Exception {
+        // 对方的 TriggerParam 多了一个字段，还多了一个本端不认识的类型
+        BinaryRemotingCodec newerCodec = new BinaryRemotingCodec();
+        newerCodec.registerSchema(new BinaryRemotingCodec.Schema<TriggerParam>(2, TriggerParam.class) {
+            @Override
+            public void write(TriggerParam obj, BinaryRemotingCodec.Writer writer) {
+                writer.writeInt(1, obj.getJobId());
+                writer.writeValue(99, Arrays.asList("new", 1L, 2.5d, true));
+                writer.writeString(2, obj.getExecutorHandler());
+            }
+
+            @Override
+            public TriggerParam read(BinaryRemotingCodec.Reader reader) {
+                throw new UnsupportedOperationException();
+            }
+        });
+        newerCodec.registerSchema(new BinaryRemotingCodec.Schema<StringBuilder>(100, StringBuilder.class) {
+            @Override
+            public void write(StringBuilder obj, BinaryRemotingCodec.Writer writer) {
+                writer.writeString(1, obj.toString());
+            }
+
+            @Override
+            public StringBuilder read(BinaryRemotingCodec.Reader reader) {
+                throw new UnsupportedOperationException();
+            }
+        });
+
+        ByteBuf buf = Unpooled.buffer();
+        TriggerParam triggerParam = new TriggerParam();
+        triggerParam.setJobId(42);
+        triggerParam.setExecutorHandler("demoJobHandler");
+        newerCodec.encode(triggerParam, buf);
+        TriggerParam decoded = RemotingCodecs.BINARY.decode(buf, TriggerParam.class, null);
+        assertEquals(42, decoded.getJobId());
+        assertEquals("demoJobHandler", decoded.getExecutorHandler());
+
+        buf = Unpooled.buffer();
+        newerCodec.encode(new ReturnT<>(new StringBuilder("unknown")), buf);
+        ReturnT returnT = RemotingCodecs.BINARY.decode(buf, ReturnT.class, String.class);
+        assertEquals(ReturnT.SUCCESS_CODE, returnT.getCode());
+        assertNull(returnT.getContent());
+    }
+
+    @Test
+    public void shouldNegotiateCodec() {
+        assertSame(RemotingCodecs.JSON, RemotingCodecs.forContentType(null));
+        assertSame(RemotingCodecs.JSON, RemotingCodecs.forContentType("text/html;charset=UTF-8"));
+        assertSame(RemotingCodecs.BINARY, RemotingCodecs.forContentType(RemotingCodecs.BINARY.contentType()));
+        assertSame(RemotingCodecs.JSON, RemotingCodecs.forAccept(null));
+        try {
+            RemotingCodecs.setPreferredCodec("binary");
+            assertSame(RemotingCodecs.BINARY, RemotingCodecs.forAccept("binary"));
+            RemotingCodecs.setPreferredCodec("json");
+            assertSame(RemotingCodecs.JSON, RemotingCodecs.forAccept("binary"));
+        } finally {
+            RemotingCodecs.setPreferredCodec(BinaryRemotingCodec.NAME);
+        }
+    }
+
+    private static <T> T roundTrip(RemotingCodec codec, Object obj, Class<T> classOfT, Class argClassOfT) throws Exception {
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            codec.encode(obj, buf);
+            return codec.decode(buf, classOfT, argClassOfT);
+        } finally {
+            buf.release();
+        }
+    }
+
+    static TriggerParam triggerParam(int jobId) {
+        TriggerParam triggerParam = new TriggerParam();
+        triggerParam.setJobId(jobId);
+        triggerParam.setExecutorHandler("demoJobHandler");
+        triggerParam.setExecutorParams("{\"shard\":" + jobId + "}");
+        triggerParam.setExecutorBlockStrategy("SERIAL_EXECUTION");
+        triggerParam.setExecutorTimeout(0);
+        triggerParam.setLogId(1000000L + jobId);
+        triggerParam.setLogDateTime(1700000000000L + jobId);
+        triggerParam.setGlueType("BEAN");
+        triggerParam.setGlueUpdatetime(1690000000000L);
+        triggerParam.setBroadcastIndex(jobId % 4);
+        triggerParam.setBroadcastTotal(4);
+        return triggerParam;
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.xxl.job.admin.dao;
 
 import com.xxl.job.admin.core.model.XxlJobInfo;
+import com.xxl.job.admin.core.model.XxlJobSchedule;
 import com.xxl.job.admin.core.scheduler.MisfireStrategyEnum;
 import com.xxl.job.admin.core.scheduler.ScheduleTypeEnum;
 import org.junit.jupiter.api.Test;
@@ -9,6 +10,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import javax.annotation.Resource;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -83,4 +85,17 @@ public class XxlJobInfoDaoTest {
 
 	}
 
+	@Test
+	public void scheduleUpdateBatch(){
+		List<XxlJobSchedule> list = xxlJobInfoDao.scheduleJobQuery(System.currentTimeMillis() + 5000, 10, 0, 1);
+		if (list.isEmpty()) {
+			return;
+		}
+		int ret = xxlJobInfoDao.scheduleUpdateBatch(list);
+
+		XxlJobSchedule first = list.get(0);
+		int ret2 = xxlJobInfoDao.scheduleUpdateBatch(Arrays.asList(first));
+		logger.info("", ret, ret2);
+	}
+
 }
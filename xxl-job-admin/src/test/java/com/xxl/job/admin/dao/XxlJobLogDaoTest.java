@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import javax.annotation.Resource;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -43,6 +44,17 @@ public class XxlJobLogDaoTest {
         dto = xxlJobLogDao.load(log.getId());
 
 
+        XxlJobLog batchLog = new XxlJobLog();
+        batchLog.setId(log.getId() + 1000);
+        batchLog.setJobGroup(1);
+        batchLog.setJobId(1);
+        batchLog.setTriggerTime(new Date());
+        batchLog.setTriggerCode(200);
+        batchLog.setTriggerMsg("1");
+        ret1 = xxlJobLogDao.saveBatch(Collections.singletonList(batchLog));
+        dto = xxlJobLogDao.load(batchLog.getId());
+
+
         List<Long> ret4 = xxlJobLogDao.findClearLogIds(1, 1, new Date(), 100, 100);
 
         int ret2 = xxlJobLogDao.delete(log.getJobId());
@@ -2,6 +2,8 @@ package com.xxl.job.core.biz;
 
 import com.xxl.job.core.biz.model.*;
 
+import java.util.List;
+
 /**
  * 执行器 RESTful API，提供给调度端进行调用
  * API服务位置：com.xxl.job.core.biz.ExecutorBiz
@@ -11,7 +13,7 @@ public interface ExecutorBiz {
     /**
      * 心跳检测
      * ------
-     * 说明：    调度中心检测执行器是否在线时使用
+     * 说明：    调度中心检测执行器是否在线时使用，响应内容为执行器当前负载（ExecutorLoad）的JSON
      * 地址格式：{执行器内嵌服务根地址}/beat
      */
     ReturnT<String> beat();
@@ -32,6 +34,14 @@ public interface ExecutorBiz {
      */
     ReturnT<String> run(TriggerParam triggerParam);
 
+    /**
+     * 批量触发任务
+     * ------
+     * 说明：    调度中心把短时间内发往同一个执行器的多个触发合并成一次请求，逐个触发，按请求顺序返回每个触发的结果
+     * 地址格式：{执行器内嵌服务根地址}/runBatch
+     */
+    ReturnT<List<ReturnT<String>>> runBatch(List<TriggerParam> triggerParamList);
+
     /**
      * 终止任务
      * ------
@@ -2,8 +2,13 @@ package com.xxl.job.core.biz.client;
 
 import com.xxl.job.core.biz.ExecutorBiz;
 import com.xxl.job.core.biz.model.*;
+import com.xxl.job.core.util.XxlJobAsyncRemotingUtil;
 import com.xxl.job.core.util.XxlJobRemotingUtil;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * 调度中心 => 执行器
  */
@@ -31,11 +36,64 @@ public class ExecutorBizClient implements ExecutorBiz {
         return XxlJobRemotingUtil.postBody(addressUrl + "idleBeat", accessToken, timeout, idleBeatParam, String.class);
     }
 
+    /**
+     * 异步心跳检测，基于Netty长连接，不阻塞调用方线程，返回的 Future 总是正常完成
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<ReturnT<String>> beatAsync() {
+        return (CompletableFuture) XxlJobAsyncRemotingUtil.postBodyAsync(addressUrl + "beat", accessToken, timeout, "", String.class);
+    }
+
+    /**
+     * 异步忙碌检测，基于Netty长连接，不阻塞调用方线程，返回的 Future 总是正常完成
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<ReturnT<String>> idleBeatAsync(IdleBeatParam idleBeatParam) {
+        return (CompletableFuture) XxlJobAsyncRemotingUtil.postBodyAsync(addressUrl + "idleBeat", accessToken, timeout, idleBeatParam, String.class);
+    }
+
     @Override
     public ReturnT<String> run(TriggerParam triggerParam) {
         return XxlJobRemotingUtil.postBody(addressUrl + "run", accessToken, timeout, triggerParam, String.class);
     }
 
+    /**
+     * 异步触发任务，基于Netty长连接，不阻塞调用方线程，返回的 Future 总是正常完成
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<ReturnT<String>> runAsync(TriggerParam triggerParam) {
+        return (CompletableFuture) XxlJobAsyncRemotingUtil.postBodyAsync(addressUrl + "run", accessToken, timeout, triggerParam, String.class);
+    }
+
+    @Override
+    public ReturnT<List<ReturnT<String>>> runBatch(List<TriggerParam> triggerParamList) {
+        return toBatchResult(XxlJobRemotingUtil.postBody(addressUrl + "runBatch", accessToken, timeout, triggerParamList, ReturnT[].class));
+    }
+
+    /**
+     * 异步批量触发任务，基于Netty长连接，不阻塞调用方线程，返回的 Future 总是正常完成
+     */
+    public CompletableFuture<ReturnT<List<ReturnT<String>>>> runBatchAsync(List<TriggerParam> triggerParamList) {
+        return XxlJobAsyncRemotingUtil.postBodyAsync(addressUrl + "runBatch", accessToken, timeout, triggerParamList, ReturnT[].class)
+                .thenApply(ExecutorBizClient::toBatchResult);
+    }
+
+    /**
+     * 批量触发的响应内容按 ReturnT[] 解析，这里转换成每个触发的结果列表
+     */
+    @SuppressWarnings("unchecked")
+    private static ReturnT<List<ReturnT<String>>> toBatchResult(ReturnT returnT) {
+        ReturnT<List<ReturnT<String>>> batchResult = new ReturnT<>(returnT.getCode(), returnT.getMsg());
+        if (returnT.getContent() instanceof ReturnT[]) {
+            List<ReturnT<String>> results = new ArrayList<>();
+            for (ReturnT result : (ReturnT[]) returnT.getContent()) {
+                results.add(new ReturnT<>(result.getCode(), result.getMsg()));
+            }
+            batchResult.setContent(results);
+        }
+        return batchResult;
+    }
+
     @Override
     public ReturnT<String> kill(KillParam killParam) {
         return XxlJobRemotingUtil.postBody(addressUrl + "kill", accessToken, timeout, killParam, String.class);
@@ -16,9 +16,12 @@ import com.xxl.job.core.handler.impl.GlueJobHandler;
 import com.xxl.job.core.handler.impl.ScriptJobHandler;
 import com.xxl.job.core.log.XxlJobFileAppender;
 import com.xxl.job.core.thread.JobThread;
+import com.xxl.job.core.util.GsonTool;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 /**
  * 该类就是在执行器端进行定时任务调用的类
@@ -28,7 +31,8 @@ public class ExecutorBizImpl implements ExecutorBiz {
 
     @Override
     public ReturnT<String> beat() {
-        return ReturnT.SUCCESS;
+        // 响应内容是执行器当前负载的JSON，老版本的调度中心会忽略它
+        return new ReturnT<>(GsonTool.toJson(XxlJobExecutor.loadSnapshot()));
     }
 
     @Override
@@ -190,6 +194,21 @@ public class ExecutorBizImpl implements ExecutorBiz {
         return jobThread.pushTriggerQueue(triggerParam);
     }
 
+    @Override
+    public ReturnT<List<ReturnT<String>>> runBatch(List<TriggerParam> triggerParamList) {
+        // 按请求顺序逐个触发，一个触发失败不影响其他触发
+        List<ReturnT<String>> results = new ArrayList<>(triggerParamList.size());
+        for (TriggerParam triggerParam : triggerParamList) {
+            try {
+                results.add(run(triggerParam));
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+                results.add(new ReturnT<>(ReturnT.FAIL_CODE, "run error:" + e.getMessage()));
+            }
+        }
+        return new ReturnT<>(results);
+    }
+
     @Override
     public ReturnT<String> kill(KillParam killParam) {
         // 根据jobId获取到对应的执行任务的线程
@@ -0,0 +1,37 @@
+package com.xxl.job.core.biz.model;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 执行器的负载信息，随注册心跳（RegistryParam）和 beat 响应一起发送给调度中心，
+ * 调度中心的"最低负载"路由策略据此选择执行器
+ */
+@Data
+public class ExecutorLoad implements Serializable {
+
+    private static final long serialVersionUID = 42L;
+
+    /**
+     * 正在执行定时任务的 JobThread 数量
+     */
+    private int runningJobThreads;
+    /**
+     * 所有 JobThread 的 triggerQueue 中排队等待执行的触发总数
+     */
+    private int queuedTriggers;
+    /**
+     * 内嵌服务器 bizThreadPool 中正在处理请求的线程数
+     */
+    private int bizActiveThreads;
+    /**
+     * 内嵌服务器 bizThreadPool 中排队的请求数
+     */
+    private int bizQueuedRequests;
+    /**
+     * 进程的CPU使用率，0~1，获取不到时为-1
+     */
+    private double processCpuLoad = -1;
+
+}
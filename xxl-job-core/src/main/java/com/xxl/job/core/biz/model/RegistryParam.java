@@ -28,4 +28,12 @@ public class RegistryParam implements Serializable {
      * 执行器的地址（定时任务程序部署的服务器的ip地址）
      */
     private String registryValue;
+    /**
+     * 执行器的负载信息，执行器注册时附带，调度中心用于"最低负载"路由策略；老版本的执行器没有该信息
+     */
+    private ExecutorLoad executorLoad;
+
+    public RegistryParam(String registryGroup, String registryKey, String registryValue) {
+        this(registryGroup, registryKey, registryValue, null);
+    }
 }
@@ -0,0 +1,667 @@
+package com.xxl.job.core.codec;
+
+import com.xxl.job.core.biz.model.ExecutorLoad;
+import com.xxl.job.core.biz.model.HandleCallbackParam;
+import com.xxl.job.core.biz.model.IdleBeatParam;
+import com.xxl.job.core.biz.model.KillParam;
+import com.xxl.job.core.biz.model.LogParam;
+import com.xxl.job.core.biz.model.LogResult;
+import com.xxl.job.core.biz.model.RegistryParam;
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.biz.model.TriggerParam;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <h1>二进制编解码器</h1>
+ * 按类型的 Schema 编码，格式：1个字节的版本号 + 一个值。
+ * 值以1个字节的类型开头：空、true、false、int、long（ZigZag + 变长编码）、double（8个字节）、
+ * 字符串（变长编码的字节数 + UTF-8）、列表（变长编码的元素个数 + 各个值）、对象（变长编码的 Schema 编号 + 各个字段 + 0）。
+ * 对象的字段为 变长编码的字段编号 + 值，值为空的字段不写；解码时不认识的字段编号、Schema 编号直接跳过，
+ * 所以两端的模型类新增字段后仍然可以互相调用，但字段编号一旦确定就不能修改或者复用。
+ * <p>
+ * 和 JSON 相比不需要字段名，数字不需要转成十进制文本，字符串不需要转义，编码后更小，编解码也更快。
+ */
+public class BinaryRemotingCodec implements RemotingCodec {
+
+    public static final String NAME = "binary";
+
+    private static final byte VERSION = 1;
+
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_TRUE = 1;
+    private static final int TYPE_FALSE = 2;
+    private static final int TYPE_INT = 3;
+    private static final int TYPE_LONG = 4;
+    private static final int TYPE_DOUBLE = 5;
+    private static final int TYPE_STRING = 6;
+    private static final int TYPE_LIST = 7;
+    private static final int TYPE_OBJECT = 8;
+
+    /**
+     * 列表、对象最多的嵌套层数，防止异常的数据导致栈溢出
+     */
+    private static final int MAX_DEPTH = 32;
+
+    // 类型 => Schema
+    private final ConcurrentMap<Class<?>, Schema<?>> schemasByType = new ConcurrentHashMap<>();
+    // Schema 编号 => Schema
+    private final ConcurrentMap<Integer, Schema<?>> schemasById = new ConcurrentHashMap<>();
+
+    public BinaryRemotingCodec() {
+        registerSchema(new Schema<ReturnT>(1, ReturnT.class) {
+            @Override
+            public void write(ReturnT obj, Writer writer) {
+                writer.writeInt(1, obj.getCode());
+                writer.writeString(2, obj.getMsg());
+                writer.writeValue(3, obj.getContent());
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public ReturnT read(Reader reader) {
+                ReturnT returnT = new ReturnT<>(0, null);
+                for (int field = reader.nextField(); field != 0; field = reader.nextField()) {
+                    switch (field) {
+                        case 1: returnT.setCode(reader.readInt()); break;
+                        case 2: returnT.setMsg(reader.readString()); break;
+                        case 3: returnT.setContent(reader.readValue()); break;
+                        default: reader.skipValue();
+                    }
+                }
+                return returnT;
+            }
+        });
+        registerSchema(new Schema<TriggerParam>(2, TriggerParam.class) {
+            @Override
+            public void write(TriggerParam obj, Writer writer) {
+                writer.writeInt(1, obj.getJobId());
+                writer.writeString(2, obj.getExecutorHandler());
+                writer.writeString(3, obj.getExecutorParams());
+                writer.writeString(4, obj.getExecutorBlockStrategy());
+                writer.writeInt(5, obj.getExecutorTimeout());
+                writer.writeLong(6, obj.getLogId());
+                writer.writeLong(7, obj.getLogDateTime());
+                writer.writeString(8, obj.getGlueType());
+                writer.writeString(9, obj.getGlueSource());
+                writer.writeLong(10, obj.getGlueUpdatetime());
+                writer.writeInt(11, obj.getBroadcastIndex());
+                writer.writeInt(12, obj.getBroadcastTotal());
+            }
+
+            @Override
+            public TriggerParam read(Reader reader) {
+                TriggerParam triggerParam = new TriggerParam();
+                for (int field = reader.nextField(); field != 0; field = reader.nextField()) {
+                    switch (field) {
+                        case 1: triggerParam.setJobId(reader.readInt()); break;
+                        case 2: triggerParam.setExecutorHandler(reader.readString()); break;
+                        case 3: triggerParam.setExecutorParams(reader.readString()); break;
+                        case 4: triggerParam.setExecutorBlockStrategy(reader.readString()); break;
+                        case 5: triggerParam.setExecutorTimeout(reader.readInt()); break;
+                        case 6: triggerParam.setLogId(reader.readLong()); break;
+                        case 7: triggerParam.setLogDateTime(reader.readLong()); break;
+                        case 8: triggerParam.setGlueType(reader.readString()); break;
+                        case 9: triggerParam.setGlueSource(reader.readString()); break;
+                        case 10: triggerParam.setGlueUpdatetime(reader.readLong()); break;
+                        case 11: triggerParam.setBroadcastIndex(reader.readInt()); break;
+                        case 12: triggerParam.setBroadcastTotal(reader.readInt()); break;
+                        default: reader.skipValue();
+                    }
+                }
+                return triggerParam;
+            }
+        });
+        registerSchema(new Schema<HandleCallbackParam>(3, HandleCallbackParam.class) {
+            @Override
+            public void write(HandleCallbackParam obj, Writer writer) {
+                writer.writeLong(1, obj.getLogId());
+                writer.writeLong(2, obj.getLogDateTim());
+                writer.writeInt(3, obj.getHandleCode());
+                writer.writeString(4, obj.getHandleMsg());
+            }
+
+            @Override
+            public HandleCallbackParam read(Reader reader) {
+                HandleCallbackParam callbackParam = new HandleCallbackParam();
+                for (int field = reader.nextField(); field != 0; field = reader.nextField()) {
+                    switch (field) {
+                        case 1: callbackParam.setLogId(reader.readLong()); break;
+                        case 2: callbackParam.setLogDateTim(reader.readLong()); break;
+                        case 3: callbackParam.setHandleCode(reader.readInt()); break;
+                        case 4: callbackParam.setHandleMsg(reader.readString()); break;
+                        default: reader.skipValue();
+                    }
+                }
+                return callbackParam;
+            }
+        });
+        registerSchema(new Schema<RegistryParam>(4, RegistryParam.class) {
+            @Override
+            public void write(RegistryParam obj, Writer writer) {
+                writer.writeString(1, obj.getRegistryGroup());
+                writer.writeString(2, obj.getRegistryKey());
+                writer.writeString(3, obj.getRegistryValue());
+                writer.writeValue(4, obj.getExecutorLoad());
+            }
+
+            @Override
+            public RegistryParam read(Reader reader) {
+                RegistryParam registryParam = new RegistryParam(null, null, null);
+                for (int field = reader.nextField(); field != 0; field = reader.nextField()) {
+                    switch (field) {
+                        case 1: registryParam.setRegistryGroup(reader.readString()); break;
+                        case 2: registryParam.setRegistryKey(reader.readString()); break;
+                        case 3: registryParam.setRegistryValue(reader.readString()); break;
+                        case 4: registryParam.setExecutorLoad(reader.readValue(ExecutorLoad.class)); break;
+                        default: reader.skipValue();
+                    }
+                }
+                return registryParam;
+            }
+        });
+        registerSchema(new Schema<ExecutorLoad>(5, ExecutorLoad.class) {
+            @Override
+            public void write(ExecutorLoad obj, Writer writer) {
+                writer.writeInt(1, obj.getRunningJobThreads());
+                writer.writeInt(2, obj.getQueuedTriggers());
+                writer.writeInt(3, obj.getBizActiveThreads());
+                writer.writeInt(4, obj.getBizQueuedRequests());
+                writer.writeDouble(5, obj.getProcessCpuLoad());
+            }
+
+            @Override
+            public ExecutorLoad read(Reader reader) {
+                ExecutorLoad executorLoad = new ExecutorLoad();
+                for (int field = reader.nextField(); field != 0; field = reader.nextField()) {
+                    switch (field) {
+                        case 1: executorLoad.setRunningJobThreads(reader.readInt()); break;
+                        case 2: executorLoad.setQueuedTriggers(reader.readInt()); break;
+                        case 3: executorLoad.setBizActiveThreads(reader.readInt()); break;
+                        case 4: executorLoad.setBizQueuedRequests(reader.readInt()); break;
+                        case 5: executorLoad.setProcessCpuLoad(reader.readDouble()); break;
+                        default: reader.skipValue();
+                    }
+                }
+                return executorLoad;
+            }
+        });
+        registerSchema(new Schema<IdleBeatParam>(6, IdleBeatParam.class) {
+            @Override
+            public void write(IdleBeatParam obj, Writer writer) {
+                writer.writeInt(1, obj.getJobId());
+            }
+
+            @Override
+            public IdleBeatParam read(Reader reader) {
+                IdleBeatParam idleBeatParam = new IdleBeatParam(0);
+                for (int field = reader.nextField(); field != 0; field = reader.nextField()) {
+                    if (field == 1) {
+                        idleBeatParam.setJobId(reader.readInt());
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                return idleBeatParam;
+            }
+        });
+        registerSchema(new Schema<KillParam>(7, KillParam.class) {
+            @Override
+            public void write(KillParam obj, Writer writer) {
+                writer.writeInt(1, obj.getJobId());
+            }
+
+            @Override
+            public KillParam read(Reader reader) {
+                KillParam killParam = new KillParam(0);
+                for (int field = reader.nextField(); field != 0; field = reader.nextField()) {
+                    if (field == 1) {
+                        killParam.setJobId(reader.readInt());
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                return killParam;
+            }
+        });
+        registerSchema(new Schema<LogParam>(8, LogParam.class) {
+            @Override
+            public void write(LogParam obj, Writer writer) {
+                writer.writeLong(1, obj.getLogDateTim());
+                writer.writeLong(2, obj.getLogId());
+                writer.writeInt(3, obj.getFromLineNum());
+            }
+
+            @Override
+            public LogParam read(Reader reader) {
+                LogParam logParam = new LogParam(0, 0, 0);
+                for (int field = reader.nextField(); field != 0; field = reader.nextField()) {
+                    switch (field) {
+                        case 1: logParam.setLogDateTim(reader.readLong()); break;
+                        case 2: logParam.setLogId(reader.readLong()); break;
+                        case 3: logParam.setFromLineNum(reader.readInt()); break;
+                        default: reader.skipValue();
+                    }
+                }
+                return logParam;
+            }
+        });
+        registerSchema(new Schema<LogResult>(9, LogResult.class) {
+            @Override
+            public void write(LogResult obj, Writer writer) {
+                writer.writeInt(1, obj.getFromLineNum());
+                writer.writeInt(2, obj.getToLineNum());
+                writer.writeString(3, obj.getLogContent());
+                writer.writeBoolean(4, obj.isEnd());
+            }
+
+            @Override
+            public LogResult read(Reader reader) {
+                LogResult logResult = new LogResult(0, 0, null, false);
+                for (int field = reader.nextField(); field != 0; field = reader.nextField()) {
+                    switch (field) {
+                        case 1: logResult.setFromLineNum(reader.readInt()); break;
+                        case 2: logResult.setToLineNum(reader.readInt()); break;
+                        case 3: logResult.setLogContent(reader.readString()); break;
+                        case 4: logResult.setEnd(reader.readBoolean()); break;
+                        default: reader.skipValue();
+                    }
+                }
+                return logResult;
+            }
+        });
+    }
+
+    /**
+     * 注册一个类型的 Schema，自定义的类型编号从 100 开始，1~99 保留给内置的模型类
+     */
+    public void registerSchema(Schema<?> schema) {
+        schemasByType.put(schema.type, schema);
+        schemasById.put(schema.id, schema);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String contentType() {
+        return "application/x-xxl-job-binary";
+    }
+
+    @Override
+    public void encode(Object obj, ByteBuf out) {
+        out.writeByte(VERSION);
+        new Writer(out).writeValue(obj);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T decode(ByteBuf in, Class<T> classOfT, Class argClassOfT) {
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("xxl-job binary codec, version(" + version + ") not support.");
+        }
+        Object value = new Reader(in).readValue();
+        if (value == null) {
+            return null;
+        }
+        if (classOfT.isArray()) {
+            return (T) toArray(value, classOfT.getComponentType());
+        }
+        if (value instanceof ReturnT && argClassOfT != null && argClassOfT.isArray()) {
+            ReturnT returnT = (ReturnT) value;
+            returnT.setContent(toArray(returnT.getContent(), argClassOfT.getComponentType()));
+        }
+        if (!classOfT.isInstance(value)) {
+            throw new IllegalArgumentException("xxl-job binary codec, expect " + classOfT.getName() + " but " + value.getClass().getName() + ".");
+        }
+        return (T) value;
+    }
+
+    /**
+     * 解码后的列表转为数组，比如批量触发的 TriggerParam[]、ReturnT[]
+     */
+    private static Object toArray(Object value, Class<?> componentType) {
+        if (!(value instanceof List)) {
+            return value;
+        }
+        List<?> list = (List<?>) value;
+        Object array = Array.newInstance(componentType, list.size());
+        for (int i = 0; i < list.size(); i++) {
+            Array.set(array, i, list.get(i));
+        }
+        return array;
+    }
+
+    /**
+     * 一个类型的编解码方式，字段编号从 1 开始
+     */
+    public abstract static class Schema<T> {
+        private final int id;
+        private final Class<T> type;
+
+        protected Schema(int id, Class<T> type) {
+            if (id <= 0) {
+                throw new IllegalArgumentException("xxl-job binary codec, schema id must be positive.");
+            }
+            this.id = id;
+            this.type = type;
+        }
+
+        /**
+         * 依次写入各个字段，不需要写结束标记
+         */
+        public abstract void write(T obj, Writer writer);
+
+        /**
+         * 循环 Reader#nextField 直到返回 0，不认识的字段调用 Reader#skipValue 跳过
+         */
+        public abstract T read(Reader reader);
+    }
+
+    /**
+     * 编码
+     */
+    public final class Writer {
+        private final ByteBuf out;
+
+        private Writer(ByteBuf out) {
+            this.out = out;
+        }
+
+        public void writeInt(int field, int value) {
+            writeVarint(field);
+            out.writeByte(TYPE_INT);
+            writeVarint((value << 1) ^ (value >> 31));
+        }
+
+        public void writeLong(int field, long value) {
+            writeVarint(field);
+            out.writeByte(TYPE_LONG);
+            writeVarlong((value << 1) ^ (value >> 63));
+        }
+
+        public void writeDouble(int field, double value) {
+            writeVarint(field);
+            out.writeByte(TYPE_DOUBLE);
+            out.writeLong(Double.doubleToRawLongBits(value));
+        }
+
+        public void writeBoolean(int field, boolean value) {
+            writeVarint(field);
+            out.writeByte(value ? TYPE_TRUE : TYPE_FALSE);
+        }
+
+        public void writeString(int field, String value) {
+            if (value != null) {
+                writeVarint(field);
+                writeValue(value);
+            }
+        }
+
+        public void writeValue(int field, Object value) {
+            if (value != null) {
+                writeVarint(field);
+                writeValue(value);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void writeValue(Object value) {
+            if (value == null) {
+                out.writeByte(TYPE_NULL);
+            } else if (value instanceof String) {
+                String str = (String) value;
+                int length = ByteBufUtil.utf8Bytes(str);
+                out.writeByte(TYPE_STRING);
+                writeVarint(length);
+                ByteBufUtil.reserveAndWriteUtf8(out, str, length);
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                int intValue = ((Number) value).intValue();
+                out.writeByte(TYPE_INT);
+                writeVarint((intValue << 1) ^ (intValue >> 31));
+            } else if (value instanceof Long) {
+                long longValue = (Long) value;
+                out.writeByte(TYPE_LONG);
+                writeVarlong((longValue << 1) ^ (longValue >> 63));
+            } else if (value instanceof Boolean) {
+                out.writeByte((Boolean) value ? TYPE_TRUE : TYPE_FALSE);
+            } else if (value instanceof Double || value instanceof Float) {
+                out.writeByte(TYPE_DOUBLE);
+                out.writeLong(Double.doubleToRawLongBits(((Number) value).doubleValue()));
+            } else if (value instanceof Collection) {
+                Collection<?> collection = (Collection<?>) value;
+                out.writeByte(TYPE_LIST);
+                writeVarint(collection.size());
+                for (Object item : collection) {
+                    writeValue(item);
+                }
+            } else if (value instanceof Object[]) {
+                Object[] array = (Object[]) value;
+                out.writeByte(TYPE_LIST);
+                writeVarint(array.length);
+                for (Object item : array) {
+                    writeValue(item);
+                }
+            } else {
+                Schema<Object> schema = (Schema<Object>) schemasByType.get(value.getClass());
+                if (schema == null) {
+                    throw new IllegalArgumentException("xxl-job binary codec, type(" + value.getClass().getName() + ") not support.");
+                }
+                out.writeByte(TYPE_OBJECT);
+                writeVarint(schema.id);
+                schema.write(value, this);
+                writeVarint(0);
+            }
+        }
+
+        private void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        private void writeVarlong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+    }
+
+    /**
+     * 解码
+     */
+    public final class Reader {
+        private final ByteBuf in;
+        private int depth;
+
+        private Reader(ByteBuf in) {
+            this.in = in;
+        }
+
+        /**
+         * 下一个字段的编号，0 表示对象的字段已经读完
+         */
+        public int nextField() {
+            return readVarint();
+        }
+
+        public int readInt() {
+            return (int) readLong();
+        }
+
+        public long readLong() {
+            int type = in.readUnsignedByte();
+            switch (type) {
+                case TYPE_NULL:
+                    return 0;
+                case TYPE_INT: {
+                    int value = readVarint();
+                    return (value >>> 1) ^ -(value & 1);
+                }
+                case TYPE_LONG: {
+                    long value = readVarlong();
+                    return (value >>> 1) ^ -(value & 1);
+                }
+                case TYPE_DOUBLE:
+                    return (long) Double.longBitsToDouble(in.readLong());
+                default:
+                    throw new IllegalArgumentException("xxl-job binary codec, expect number but type(" + type + ").");
+            }
+        }
+
+        public double readDouble() {
+            int type = in.getUnsignedByte(in.readerIndex());
+            if (type == TYPE_DOUBLE) {
+                in.skipBytes(1);
+                return Double.longBitsToDouble(in.readLong());
+            }
+            return readLong();
+        }
+
+        public boolean readBoolean() {
+            int type = in.readUnsignedByte();
+            switch (type) {
+                case TYPE_NULL:
+                case TYPE_FALSE:
+                    return false;
+                case TYPE_TRUE:
+                    return true;
+                default:
+                    throw new IllegalArgumentException("xxl-job binary codec, expect boolean but type(" + type + ").");
+            }
+        }
+
+        public String readString() {
+            Object value = readValue();
+            if (value != null && !(value instanceof String)) {
+                throw new IllegalArgumentException("xxl-job binary codec, expect string but " + value.getClass().getName() + ".");
+            }
+            return (String) value;
+        }
+
+        /**
+         * 读取一个指定类型的值，类型不一致（比如对方的 Schema 编号本端不认识）时为空
+         */
+        public <V> V readValue(Class<V> type) {
+            Object value = readValue();
+            return type.isInstance(value) ? type.cast(value) : null;
+        }
+
+        public void skipValue() {
+            readValue();
+        }
+
+        public Object readValue() {
+            int type = in.readUnsignedByte();
+            switch (type) {
+                case TYPE_NULL:
+                    return null;
+                case TYPE_TRUE:
+                    return Boolean.TRUE;
+                case TYPE_FALSE:
+                    return Boolean.FALSE;
+                case TYPE_INT: {
+                    int value = readVarint();
+                    return (value >>> 1) ^ -(value & 1);
+                }
+                case TYPE_LONG: {
+                    long value = readVarlong();
+                    return (value >>> 1) ^ -(value & 1);
+                }
+                case TYPE_DOUBLE:
+                    return Double.longBitsToDouble(in.readLong());
+                case TYPE_STRING: {
+                    int length = readLength();
+                    String value = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+                    in.skipBytes(length);
+                    return value;
+                }
+                case TYPE_LIST: {
+                    int size = readLength();
+                    enter();
+                    List<Object> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(readValue());
+                    }
+                    depth--;
+                    return list;
+                }
+                case TYPE_OBJECT: {
+                    Schema<?> schema = schemasById.get(readVarint());
+                    enter();
+                    Object value;
+                    if (schema != null) {
+                        value = schema.read(this);
+                    } else {
+                        // 对方新增的类型，跳过所有字段
+                        for (int field = nextField(); field != 0; field = nextField()) {
+                            skipValue();
+                        }
+                        value = null;
+                    }
+                    depth--;
+                    return value;
+                }
+                default:
+                    throw new IllegalArgumentException("xxl-job binary codec, type(" + type + ") invalid.");
+            }
+        }
+
+        private void enter() {
+            if (++depth > MAX_DEPTH) {
+                throw new IllegalArgumentException("xxl-job binary codec, nested too deep.");
+            }
+        }
+
+        /**
+         * 字符串的字节数、列表的元素个数，每个元素至少一个字节，不会超过剩余的字节数
+         */
+        private int readLength() {
+            int length = readVarint();
+            if (length < 0 || length > in.readableBytes()) {
+                throw new IllegalArgumentException("xxl-job binary codec, length(" + length + ") invalid.");
+            }
+            return length;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = in.readByte();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("xxl-job binary codec, varint invalid.");
+        }
+
+        private long readVarlong() {
+            long value = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                byte b = in.readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("xxl-job binary codec, varint invalid.");
+        }
+    }
+
+}
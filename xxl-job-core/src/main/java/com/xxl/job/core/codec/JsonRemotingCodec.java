@@ -0,0 +1,47 @@
+package com.xxl.job.core.codec;
+
+import com.xxl.job.core.util.GsonTool;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <h1>JSON 编解码器</h1>
+ * 和原来的协议完全一致，老版本的调度中心、执行器只支持这一种，协商失败时总是回退到这里。
+ * 原来先生成完整的 JSON 字符串再转成字节（接收时反过来），这里 Gson 直接读写 ByteBuf。
+ */
+public class JsonRemotingCodec implements RemotingCodec {
+
+    public static final String NAME = "json";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String contentType() {
+        return "application/json;charset=UTF-8";
+    }
+
+    @Override
+    public void encode(Object obj, ByteBuf out) throws Exception {
+        try (Writer writer = new OutputStreamWriter(new ByteBufOutputStream(out), StandardCharsets.UTF_8)) {
+            GsonTool.toJson(obj, writer);
+        }
+    }
+
+    @Override
+    public <T> T decode(ByteBuf in, Class<T> classOfT, Class argClassOfT) throws Exception {
+        // 不释放 in，由调用方释放
+        try (InputStreamReader reader = new InputStreamReader(new ByteBufInputStream(in), StandardCharsets.UTF_8)) {
+            return GsonTool.fromJson(reader, classOfT, argClassOfT);
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.xxl.job.core.codec;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * <h1>调度中心和执行器之间远程调用的请求体、响应体的编解码器</h1>
+ * 编解码直接读写Netty的 ByteBuf，不生成中间的字符串。
+ * 请求使用哪种编解码器由 Content-Type 决定，响应使用哪种由请求头 XXL-JOB-CODEC-ACCEPT 协商，见 {@link RemotingCodecs}。
+ * 自定义的编解码器通过 RemotingCodecs#register 注册，调度中心和执行器两端都注册了才会被协商使用。
+ */
+public interface RemotingCodec {
+
+    /**
+     * 编解码器的名字，协商时使用，比如 json、binary
+     */
+    String name();
+
+    /**
+     * 请求、响应的 Content-Type，解码时据此选择编解码器
+     */
+    String contentType();
+
+    /**
+     * 把对象编码后写入 out
+     */
+    void encode(Object obj, ByteBuf out) throws Exception;
+
+    /**
+     * 从 in 中解码出 rawClass<classOfT> 的对象，和 GsonTool#fromJson 一致：
+     * classOfT 为 ReturnT 时 argClassOfT 为 content 的类型，classOfT 为 List 时 argClassOfT 为元素的类型，不需要时为空
+     */
+    <T> T decode(ByteBuf in, Class<T> classOfT, Class argClassOfT) throws Exception;
+
+}
@@ -0,0 +1,87 @@
+package com.xxl.job.core.codec;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <h1>编解码器的注册和协商</h1>
+ * 协商过程兼容新老版本混合部署：
+ * 1、调用方不知道对方是否支持时用 JSON 发送请求，同时在请求头 XXL-JOB-CODEC-ACCEPT 中带上自己首选的编解码器；
+ * 2、服务端支持该编解码器并且自己的首选也是它时，用它编码响应，否则用 JSON 响应；老版本服务端忽略该请求头，总是返回 JSON；
+ * 3、调用方收到首选编解码器的响应，说明对方两个方向都支持，之后发往该地址的请求直接用它编码；
+ *    某次响应又变回了 JSON（对方回退了老版本，或者改了配置），之后的请求重新用 JSON 发送。
+ * 解码总是按对方的 Content-Type 选择编解码器，不认识的 Content-Type 按 JSON 解码。
+ */
+public class RemotingCodecs {
+
+    /**
+     * 请求头，调用方首选的编解码器名字
+     */
+    public static final String XXL_JOB_CODEC_ACCEPT = "XXL-JOB-CODEC-ACCEPT";
+
+    public static final RemotingCodec JSON = new JsonRemotingCodec();
+    public static final RemotingCodec BINARY = new BinaryRemotingCodec();
+
+    // 编解码器名字 => 编解码器
+    private static final ConcurrentMap<String, RemotingCodec> codecsByName = new ConcurrentHashMap<>();
+    // Content-Type（不含参数）=> 编解码器
+    private static final ConcurrentMap<String, RemotingCodec> codecsByContentType = new ConcurrentHashMap<>();
+
+    /**
+     * 首选的编解码器，默认为二进制编解码器
+     */
+    private static volatile RemotingCodec preferredCodec = BINARY;
+
+    static {
+        register(JSON);
+        register(BINARY);
+    }
+
+    /**
+     * 注册一个编解码器，名字相同时覆盖
+     */
+    public static void register(RemotingCodec codec) {
+        codecsByName.put(codec.name(), codec);
+        codecsByContentType.put(mimeType(codec.contentType()), codec);
+    }
+
+    /**
+     * 设置首选的编解码器，名字不存在时使用 JSON，也就是关闭协商
+     */
+    public static void setPreferredCodec(String name) {
+        RemotingCodec codec = name != null ? codecsByName.get(name.trim()) : null;
+        preferredCodec = codec != null ? codec : JSON;
+    }
+
+    public static RemotingCodec getPreferredCodec() {
+        return preferredCodec;
+    }
+
+    /**
+     * 按 Content-Type 选择解码的编解码器，没有或不认识时为 JSON
+     */
+    public static RemotingCodec forContentType(String contentType) {
+        if (contentType == null) {
+            return JSON;
+        }
+        RemotingCodec codec = codecsByContentType.get(mimeType(contentType));
+        return codec != null ? codec : JSON;
+    }
+
+    /**
+     * 服务端选择响应的编解码器：调用方首选的恰好是自己的首选时使用它，否则使用 JSON
+     */
+    public static RemotingCodec forAccept(String accept) {
+        RemotingCodec codec = preferredCodec;
+        if (accept != null && codec.name().equalsIgnoreCase(accept.trim())) {
+            return codec;
+        }
+        return JSON;
+    }
+
+    private static String mimeType(String contentType) {
+        int index = contentType.indexOf(';');
+        return (index >= 0 ? contentType.substring(0, index) : contentType).trim().toLowerCase();
+    }
+
+}
@@ -2,6 +2,7 @@ package com.xxl.job.core.executor;
 
 import com.xxl.job.core.biz.AdminBiz;
 import com.xxl.job.core.biz.client.AdminBizClient;
+import com.xxl.job.core.biz.model.ExecutorLoad;
 import com.xxl.job.core.handler.IJobHandler;
 import com.xxl.job.core.handler.annotation.XxlJob;
 import com.xxl.job.core.handler.impl.MethodJobHandler;
@@ -12,16 +13,20 @@ import com.xxl.job.core.thread.JobThread;
 import com.xxl.job.core.thread.TriggerCallbackThread;
 import com.xxl.job.core.util.IpUtil;
 import com.xxl.job.core.util.NetUtil;
+import com.xxl.job.core.util.XxlJobAsyncRemotingUtil;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * 执行器启动的入口类，其实是从子类中开始执行，但是子类会调用到父类的#start方法，真正启动执行器组件。
@@ -56,6 +61,9 @@ public class XxlJobExecutor {
     private int logRetentionDays; // 执行器日志的保留天数，一般为30天，在配置文件中可以自己设定
 
     public void start() throws Exception {
+        // 登记为长连接池的使用方，注册、回调调度中心都使用它，destroy 时注销
+        XxlJobAsyncRemotingUtil.retain();
+
         // 初始化日志收集组件，并且把用户设置的存储日志的路径设置到该组件中
         XxlJobFileAppender.initLogPath(logPath);
 
@@ -105,6 +113,8 @@ public class XxlJobExecutor {
         JobLogFileCleanThread.getInstance().toStop();
         // 停止回调执行结果信息给调度中心的线程
         TriggerCallbackThread.getInstance().toStop();
+        // 注销长连接池的使用方，回调线程停止前还会使用；同一个JVM中的调度中心还在运行时连接池不会关闭
+        XxlJobAsyncRemotingUtil.release();
     }
 
 
@@ -324,4 +334,38 @@ public class XxlJobExecutor {
     public static JobThread loadJobThread(int jobId){
         return jobThreadRepository.get(jobId);
     }
+
+    /**
+     * 统计执行器当前的负载：正在执行的任务数、排队的触发数、内嵌服务器线程池的使用情况和进程的CPU使用率，
+     * 随注册心跳和 beat 响应发送给调度中心
+     */
+    public static ExecutorLoad loadSnapshot() {
+        ExecutorLoad executorLoad = new ExecutorLoad();
+        int runningJobThreads = 0;
+        int queuedTriggers = 0;
+        for (JobThread jobThread : jobThreadRepository.values()) {
+            if (jobThread.isRunning()) {
+                runningJobThreads++;
+            }
+            queuedTriggers += jobThread.getQueueSize();
+        }
+        executorLoad.setRunningJobThreads(runningJobThreads);
+        executorLoad.setQueuedTriggers(queuedTriggers);
+
+        ThreadPoolExecutor bizThreadPool = EmbedServer.getActiveBizThreadPool();
+        if (bizThreadPool != null) {
+            executorLoad.setBizActiveThreads(bizThreadPool.getActiveCount());
+            executorLoad.setBizQueuedRequests(bizThreadPool.getQueue().size());
+        }
+
+        try {
+            OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+            if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+                executorLoad.setProcessCpuLoad(((com.sun.management.OperatingSystemMXBean) osBean).getProcessCpuLoad());
+            }
+        } catch (Throwable e) {
+            // 非HotSpot的JDK可能没有这个接口，CPU使用率保持为-1
+        }
+        return executorLoad;
+    }
 }
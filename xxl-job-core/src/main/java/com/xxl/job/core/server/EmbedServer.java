@@ -7,12 +7,13 @@ import com.xxl.job.core.biz.model.KillParam;
 import com.xxl.job.core.biz.model.LogParam;
 import com.xxl.job.core.biz.model.ReturnT;
 import com.xxl.job.core.biz.model.TriggerParam;
+import com.xxl.job.core.codec.RemotingCodec;
+import com.xxl.job.core.codec.RemotingCodecs;
 import com.xxl.job.core.thread.ExecutorRegistryThread;
-import com.xxl.job.core.util.GsonTool;
 import com.xxl.job.core.util.ThrowableUtil;
 import com.xxl.job.core.util.XxlJobRemotingUtil;
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
@@ -25,10 +26,10 @@ import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.*;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.handler.timeout.IdleStateHandler;
-import io.netty.util.CharsetUtil;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Arrays;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -43,6 +44,15 @@ public class EmbedServer {
     private ExecutorBiz executorBiz;
      // 启动Netty服务器的线程，这说明内嵌服务器的启动也是异步的
     private Thread thread;
+    // 正在使用的 bizThreadPool，用于统计执行器的负载
+    private static volatile ThreadPoolExecutor activeBizThreadPool;
+
+    /**
+     * 正在使用的 bizThreadPool，内嵌服务器还没有启动时为null
+     */
+    public static ThreadPoolExecutor getActiveBizThreadPool() {
+        return activeBizThreadPool;
+    }
 
     /**
      * 启动执行器的内嵌Netty服务器
@@ -69,6 +79,7 @@ public class EmbedServer {
                         throw new RuntimeException("xxl-job, EmbedServer bizThreadPool is EXHAUSTED!");
                     }
             );
+            activeBizThreadPool = bizThreadPool;
 
             EventLoopGroup bossGroup = new NioEventLoopGroup();
             EventLoopGroup workerGroup = new NioEventLoopGroup();
@@ -138,8 +149,11 @@ public class EmbedServer {
 
         @Override
         protected void channelRead0(final ChannelHandlerContext ctx, FullHttpRequest msg) throws Exception {
-            // 获取发送过来的请求数据
-            String requestData = msg.content().toString(CharsetUtil.UTF_8);
+            // 获取发送过来的请求数据，不转成中间的字符串，在业务线程中直接从 ByteBuf 解码，解码完成前不能被释放
+            final ByteBuf requestData = msg.content().retain();
+            // 请求体按 Content-Type 解码，响应按调度中心首选的编解码器协商，老版本调度中心只支持 JSON
+            final RemotingCodec requestCodec = RemotingCodecs.forContentType(msg.headers().get(HttpHeaderNames.CONTENT_TYPE));
+            final RemotingCodec responseCodec = RemotingCodecs.forAccept(msg.headers().get(RemotingCodecs.XXL_JOB_CODEC_ACCEPT));
             // 获取调度中心访问Netty服务器时的URI
             String uri = msg.uri();
 
@@ -155,20 +169,29 @@ public class EmbedServer {
             上面Netty的单线程执行器为我们解析了消息，下面的工作就应该交给用户定义的工作
             线程来执行，否则会拖垮Netty的单线程执行器，从而影响其处理IO事件的效率。
              */
-            bizThreadPool.execute(() -> {
-                // ==调度中心触发定时任务==
-                Object responseObj = process(httpMethod, uri, requestData, accessTokenReq);
-                // 把定时任务执行的结果进行序列化
-                String responseJson = GsonTool.toJson(responseObj);
-                /*
-                把响应写回给调度中心，注意：这里回复消息的动作是业务线程发起的，
-                但真正发送消息还是由Netty的EventLoop单线程执行器来完成的。
-                 */
-                writeResponse(ctx, keepAlive, responseJson);
-            });
+            try {
+                bizThreadPool.execute(() -> {
+                    // ==调度中心触发定时任务==
+                    Object responseObj;
+                    try {
+                        responseObj = process(httpMethod, uri, requestCodec, requestData, accessTokenReq);
+                    } finally {
+                        requestData.release();
+                    }
+                    /*
+                    把定时任务执行的结果直接序列化到响应的 ByteBuf 并写回给调度中心，注意：这里回复消息的动作是业务线程发起的，
+                    但真正发送消息还是由Netty的EventLoop单线程执行器来完成的。
+                     */
+                    writeResponse(ctx, keepAlive, responseCodec, responseObj);
+                });
+            } catch (RuntimeException e) {
+                // 线程池已满，没有机会再释放
+                requestData.release();
+                throw e;
+            }
         }
 
-        private Object process(HttpMethod httpMethod, String uri, String requestData, String accessTokenReq) {
+        private Object process(HttpMethod httpMethod, String uri, RemotingCodec codec, ByteBuf requestData, String accessTokenReq) {
             // 判断是不是POST方法，因为调度中心发送消息时就是使用的post请求发送的
             if (HttpMethod.POST != httpMethod) {
                 return new ReturnT<String>(ReturnT.FAIL_CODE, "invalid request, HttpMethod not support.");
@@ -197,19 +220,23 @@ public class EmbedServer {
                         这里就是判断调度中心要调度的任务是否可以顺利执行，其实就是判断该任务是否正在被
                         执行器这一端执行或者在执行器的队列中，如果在的话，说明当前执行器比较繁忙
                          */
-                        IdleBeatParam idleBeatParam = GsonTool.fromJson(requestData, IdleBeatParam.class);
+                        IdleBeatParam idleBeatParam = codec.decode(requestData, IdleBeatParam.class, null);
                         return executorBiz.idleBeat(idleBeatParam);
                     // 触发任务
                     case "/run":
-                        TriggerParam triggerParam = GsonTool.fromJson(requestData, TriggerParam.class);
+                        TriggerParam triggerParam = codec.decode(requestData, TriggerParam.class, null);
                         return executorBiz.run(triggerParam);
+                    // 批量触发任务
+                    case "/runBatch":
+                        TriggerParam[] triggerParams = codec.decode(requestData, TriggerParam[].class, null);
+                        return executorBiz.runBatch(Arrays.asList(triggerParams));
                     // 终止任务
                     case "/kill":
-                        KillParam killParam = GsonTool.fromJson(requestData, KillParam.class);
+                        KillParam killParam = codec.decode(requestData, KillParam.class, null);
                         return executorBiz.kill(killParam);
                     // 查看任务执行日志
                     case "/log":
-                        LogParam logParam = GsonTool.fromJson(requestData, LogParam.class);
+                        LogParam logParam = codec.decode(requestData, LogParam.class, null);
                         return executorBiz.log(logParam);
                     default:
                         return new ReturnT<String>(ReturnT.FAIL_CODE, "invalid request, uri-mapping(" + uri + ") not found.");
@@ -220,10 +247,28 @@ public class EmbedServer {
             }
         }
 
-        private void writeResponse(ChannelHandlerContext ctx, boolean keepAlive, String responseJson) {
+        private void writeResponse(ChannelHandlerContext ctx, boolean keepAlive, RemotingCodec codec, Object responseObj) {
             // 设置响应结果
-            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.copiedBuffer(responseJson, CharsetUtil.UTF_8));
-            response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/html;charset=UTF-8");
+            ByteBuf content = ctx.alloc().buffer();
+            try {
+                codec.encode(responseObj, content);
+            } catch (Exception e) {
+                // 响应内容不被该编解码器支持时回退到 JSON
+                log.debug(">>>>>>>>>>> xxl-job remoting server, codec({}) encode fail, fallback to json.", codec.name(), e);
+                codec = RemotingCodecs.JSON;
+                content.clear();
+                try {
+                    codec.encode(responseObj, content);
+                } catch (Exception ex) {
+                    content.release();
+                    log.error(ex.getMessage(), ex);
+                    ctx.close();
+                    return;
+                }
+            }
+            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, content);
+            // JSON 响应的 Content-Type 和老版本保持一致
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, codec == RemotingCodecs.JSON ? "text/html;charset=UTF-8" : codec.contentType());
             // 设置消息字节的长度
             response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
             // 连接是存活状态
@@ -43,6 +43,8 @@ public class ExecutorRegistryThread {
                 try {
                     // 根据appName和address创建注册参数，注意，这里的address是执行器的地址，只有一个，别和调度中心的地址搞混了
                     RegistryParam registryParam = new RegistryParam(RegistryConfig.RegistType.EXECUTOR.name(), appname, address);
+                    // 附带执行器当前的负载，调度中心的"最低负载"路由策略会用到
+                    registryParam.setExecutorLoad(XxlJobExecutor.loadSnapshot());
                     // 这里考虑到调度中心也许是以集群的形式存在，所以从集合中得到每一个和调度中心通话地客户端，然后发送注册消息即可
                     for (AdminBiz adminBiz : XxlJobExecutor.getAdminBizList()) {
                         try {
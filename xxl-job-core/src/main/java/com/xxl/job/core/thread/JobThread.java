@@ -333,6 +333,20 @@ public class JobThread extends Thread {
         return running || !triggerQueue.isEmpty();
     }
 
+    /**
+     * 是否正在执行定时任务，用于统计执行器的负载
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 队列中等待执行的触发数，用于统计执行器的负载
+     */
+    public int getQueueSize() {
+        return triggerQueue.size();
+    }
+
     /**
      * 终止该线程
      */
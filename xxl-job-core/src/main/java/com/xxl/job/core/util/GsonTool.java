@@ -4,6 +4,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 
+import java.io.Reader;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.List;
@@ -48,9 +49,35 @@ public class GsonTool {
      * @return
      */
     public static <T> T fromJson(String json, Class<T> classOfT, Class argClassOfT) {
-        Type type = new ParameterizedType4ReturnT(classOfT, new Class[]{argClassOfT});
+        Type type = new ParameterizedType4ReturnT(classOfT, new Type[]{argClassOfT});
         return gson.fromJson(json, type);
     }
+    /**
+     * Object 直接写成 json 到 writer，不生成中间的字符串
+     *
+     * @param src
+     * @param writer
+     */
+    public static void toJson(Object src, Appendable writer) {
+        gson.toJson(src, writer);
+    }
+
+    /**
+     * 从 reader 中直接读取 json，转成 特定的 rawClass<classOfT> 的Object，argClassOfT 为空时就是 classOfT
+     *
+     * @param reader
+     * @param classOfT
+     * @param argClassOfT
+     * @return
+     */
+    public static <T> T fromJson(Reader reader, Class<T> classOfT, Class argClassOfT) {
+        if (argClassOfT == null) {
+            return gson.fromJson(reader, classOfT);
+        }
+        Type type = new ParameterizedType4ReturnT(classOfT, new Type[]{argClassOfT});
+        return gson.fromJson(reader, type);
+    }
+
     public static class ParameterizedType4ReturnT implements ParameterizedType {
         private final Class raw;
         private final Type[] args;
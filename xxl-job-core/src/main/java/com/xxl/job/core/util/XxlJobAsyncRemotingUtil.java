@@ -0,0 +1,579 @@
+package com.xxl.job.core.util;
+
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.codec.RemotingCodec;
+import com.xxl.job.core.codec.RemotingCodecs;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.pool.AbstractChannelPoolHandler;
+import io.netty.channel.pool.ChannelHealthChecker;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h1>用于执行异步远程调用的工具类</h1>
+ * 和 XxlJobRemotingUtil 的协议一样（HTTP + JSON），区别在于这里基于Netty实现，调用不会阻塞调用方线程：
+ * 请求发出后立刻返回一个 CompletableFuture，响应由少量的Netty IO线程接收并完成这个 Future。
+ * 每个执行器地址（scheme + host + port）维护一个固定上限的长连接池，连接复用，空闲一段时间后主动关闭，
+ * 关闭时间比执行器内嵌服务器的空闲检测（90秒）短，避免拿到一个正在被服务端关闭的连接；
+ * 复用的连接已经失效时（如执行器重启过）换一个连接重发，见 {@link RemoteCall}。
+ * 等待连接、等待响应的超时都按每次调用传入的 timeout 计算。
+ * <p>
+ * 和同步版本一样，返回的 Future 总是正常完成，远程调用失败时完成为一个失败的 ReturnT。
+ * <p>
+ * 同步版本 XxlJobRemotingUtil#postBody 也使用这里的连接池，调度中心调用执行器、执行器回调和注册调度中心都复用长连接，
+ * 每个地址的调用次数、失败次数、耗时和连接数见 {@link #hostStatsSnapshot()}。
+ * <p>
+ * 请求体、响应体的编码按地址协商（见 {@link RemotingCodecs}）：对方也支持首选的编解码器时改用它，
+ * 否则使用 JSON，编解码都直接读写 ByteBuf。
+ */
+@Slf4j
+public class XxlJobAsyncRemotingUtil {
+
+    /**
+     * 连接空闲多久后关闭，单位秒
+     */
+    private static final int IDLE_CLOSE_SECONDS = 60;
+
+    /**
+     * 建立连接的超时时间，单位毫秒，和同步版本一致
+     */
+    private static final int CONNECT_TIMEOUT_MS = 3 * 1000;
+
+    /**
+     * 每个地址最多排队等待连接的请求数，超过后直接失败
+     */
+    private static final int MAX_PENDING_ACQUIRES = 10000;
+
+    private static final AttributeKey<PendingCall> PENDING_CALL = AttributeKey.valueOf("xxl-job-pending-call");
+    // 连接已经被调用使用过，之后再取到就是复用的连接
+    private static final AttributeKey<Boolean> REUSED = AttributeKey.valueOf("xxl-job-reused");
+
+    private static final Object lock = new Object();
+    // 使用方的数量，见 retain、release
+    private static int users;
+    private static volatile EventLoopGroup eventLoopGroup;
+    private static volatile SslContext sslContext;
+    private static final ConcurrentMap<String, FixedChannelPool> channelPools = new ConcurrentHashMap<>();
+    // 每个地址的调用统计，key 和 channelPools 一致
+    private static final ConcurrentMap<String, HostStats> hostStats = new ConcurrentHashMap<>();
+    // 协商好的编解码器，key 和 channelPools 一致，没有时使用 JSON
+    private static final ConcurrentMap<String, RemotingCodec> peerCodecs = new ConcurrentHashMap<>();
+
+    /**
+     * 每个执行器地址的最大连接数，也就是对同一个执行器最多同时进行的调用数
+     */
+    private static volatile int maxConnectionsPerAddress = 64;
+
+    public static void setMaxConnectionsPerAddress(int maxConnections) {
+        maxConnectionsPerAddress = Math.max(1, maxConnections);
+    }
+
+    /**
+     * <h2>异步发送 POST 请求</h2>
+     */
+    public static CompletableFuture<ReturnT> postBodyAsync(String url,
+                                                           String accessToken,
+                                                           int timeout, Object requestObj,
+                                                           final Class returnTargClassOfT) {
+        final CompletableFuture<ReturnT> resultFuture = new CompletableFuture<>();
+        final FullHttpRequest request;
+        final FixedChannelPool pool;
+        final EventLoopGroup group;
+        HostStats stats = null;
+        String key;
+        try {
+            URI uri = new URI(url);
+            boolean useHttps = "https".equalsIgnoreCase(uri.getScheme());
+            String host = uri.getHost();
+            int port = uri.getPort() > 0 ? uri.getPort() : (useHttps ? 443 : 80);
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            if (uri.getRawQuery() != null) {
+                path = path + "?" + uri.getRawQuery();
+            }
+            key = (useHttps ? "https://" : "http://") + host + ":" + port;
+            stats = hostStats.computeIfAbsent(key, k -> new HostStats());
+            stats.requests.increment();
+
+            // 序列化请求实体，直接写入请求的 ByteBuf
+            RemotingCodec codec = peerCodecs.getOrDefault(key, RemotingCodecs.JSON);
+            ByteBuf content = Unpooled.EMPTY_BUFFER;
+            if (requestObj != null) {
+                content = encode(codec, requestObj);
+                if (content == null) {
+                    // 该编解码器不支持这个请求实体，这次使用 JSON
+                    codec = RemotingCodecs.JSON;
+                    content = encode(codec, requestObj);
+                }
+            }
+            request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, path, content);
+            request.headers().set(HttpHeaderNames.HOST, host + ":" + port);
+            request.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            request.headers().set(HttpHeaderNames.CONTENT_TYPE, codec.contentType());
+            request.headers().set(HttpHeaderNames.ACCEPT_CHARSET, "application/json;charset=UTF-8");
+            request.headers().set(RemotingCodecs.XXL_JOB_CODEC_ACCEPT, RemotingCodecs.getPreferredCodec().name());
+            request.headers().set(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+            if (accessToken != null && accessToken.trim().length() > 0) {
+                request.headers().set(XxlJobRemotingUtil.XXL_JOB_ACCESS_TOKEN, accessToken);
+            }
+
+            pool = channelPool(key, host, port, useHttps, stats);
+            group = eventLoopGroup;
+            if (group == null) {
+                request.release();
+                throw new IllegalStateException("xxl-job async remoting is shutdown.");
+            }
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            if (stats != null) {
+                stats.failures.increment();
+            }
+            resultFuture.complete(new ReturnT<String>(ReturnT.FAIL_CODE, "xxl-job remoting error(" + e.getMessage() + "), for url : " + url));
+            return resultFuture;
+        }
+
+        new RemoteCall(url, key, returnTargClassOfT, resultFuture, pool, group, stats, timeout, request).send();
+        return resultFuture;
+    }
+
+    /**
+     * 编码请求实体，编解码器不支持时返回空
+     */
+    private static ByteBuf encode(RemotingCodec codec, Object requestObj) throws Exception {
+        ByteBuf content = Unpooled.buffer();
+        try {
+            codec.encode(requestObj, content);
+            return content;
+        } catch (IllegalArgumentException e) {
+            content.release();
+            if (codec == RemotingCodecs.JSON) {
+                throw e;
+            }
+            log.debug(">>>>>>>>>>> xxl-job remoting, codec({}) encode fail, fallback to json.", codec.name(), e);
+            return null;
+        } catch (Exception e) {
+            content.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 当前线程是否是这里的Netty IO线程，IO线程中不能阻塞等待调用结果，否则响应永远不会被处理
+     */
+    public static boolean inEventLoop() {
+        EventLoopGroup group = eventLoopGroup;
+        if (group == null) {
+            return false;
+        }
+        for (EventExecutor executor : group) {
+            if (executor.inEventLoop()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 每个地址的调用统计：调用次数、失败次数（连接失败、超时、响应异常）、平均耗时、正在进行的调用数、打开的连接数
+     */
+    public static List<Map<String, Object>> hostStatsSnapshot() {
+        List<Map<String, Object>> snapshot = new ArrayList<>();
+        for (Map.Entry<String, HostStats> entry : hostStats.entrySet()) {
+            HostStats stats = entry.getValue();
+            long completed = stats.completed.sum();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("address", entry.getKey());
+            item.put("requests", stats.requests.sum());
+            item.put("failures", stats.failures.sum());
+            item.put("avgCostMs", completed > 0 ? stats.costNanos.sum() / completed / 1000000.0 : 0);
+            item.put("activeCalls", stats.activeCalls.get());
+            item.put("openConnections", stats.openConnections.get());
+            item.put("createdConnections", stats.createdConnections.sum());
+            snapshot.add(item);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 登记一个使用方（调度中心、执行器），同一个JVM中可能同时运行调度中心和执行器，它们共用这里的连接池和IO线程，
+     * 每个使用方启动时 retain、停止时 {@link #release()}，最后一个使用方停止时才关闭
+     */
+    public static void retain() {
+        synchronized (lock) {
+            users++;
+        }
+    }
+
+    /**
+     * 注销一个使用方，没有使用方时关闭所有连接和IO线程
+     */
+    public static void release() {
+        synchronized (lock) {
+            if (users > 0 && --users == 0) {
+                shutdown();
+            }
+        }
+    }
+
+    /**
+     * 关闭所有连接和IO线程，不管是否还有其他使用方
+     */
+    public static void shutdown() {
+        synchronized (lock) {
+            for (FixedChannelPool pool : channelPools.values()) {
+                pool.close();
+            }
+            channelPools.clear();
+            peerCodecs.clear();
+            if (eventLoopGroup != null) {
+                eventLoopGroup.shutdownGracefully();
+                eventLoopGroup = null;
+            }
+        }
+    }
+
+    private static FixedChannelPool channelPool(String key, String host, int port, boolean useHttps,
+                                                final HostStats stats) throws Exception {
+        FixedChannelPool pool = channelPools.get(key);
+        if (pool != null) {
+            return pool;
+        }
+        synchronized (lock) {
+            pool = channelPools.get(key);
+            if (pool != null) {
+                return pool;
+            }
+            if (eventLoopGroup == null) {
+                eventLoopGroup = new NioEventLoopGroup(0, new DefaultThreadFactory("xxl-job, async remoting", true));
+            }
+            if (useHttps && sslContext == null) {
+                // 和同步版本一样信任所有证书
+                sslContext = SslContextBuilder.forClient().trustManager(InsecureTrustManagerFactory.INSTANCE).build();
+            }
+            Bootstrap bootstrap = new Bootstrap()
+                    .group(eventLoopGroup)
+                    .channel(NioSocketChannel.class)
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNECT_TIMEOUT_MS)
+                    .option(ChannelOption.TCP_NODELAY, true)
+                    .option(ChannelOption.SO_KEEPALIVE, true)
+                    .remoteAddress(host, port);
+            final SslContext channelSslContext = useHttps ? sslContext : null;
+            pool = new FixedChannelPool(bootstrap, new AbstractChannelPoolHandler() {
+                @Override
+                public void channelCreated(Channel channel) {
+                    stats.createdConnections.increment();
+                    stats.openConnections.incrementAndGet();
+                    channel.closeFuture().addListener(closeFuture -> stats.openConnections.decrementAndGet());
+                    ChannelPipeline pipeline = channel.pipeline();
+                    if (channelSslContext != null) {
+                        pipeline.addLast(channelSslContext.newHandler(channel.alloc(), host, port));
+                    }
+                    pipeline.addLast(new IdleStateHandler(0, 0, IDLE_CLOSE_SECONDS, TimeUnit.SECONDS))
+                            .addLast(new HttpClientCodec())
+                            .addLast(new HttpObjectAggregator(5 * 1024 * 1024))
+                            .addLast(new ResponseHandler());
+                }
+            }, ChannelHealthChecker.ACTIVE, null, -1, maxConnectionsPerAddress, MAX_PENDING_ACQUIRES);
+            channelPools.put(key, pool);
+            return pool;
+        }
+    }
+
+    /**
+     * 一次远程调用，从等待连接到收到响应或失败
+     * <p>
+     * 长连接复用时可能拿到一个已经失效的连接：对方重启过、连接被中间设备断开，而本端还没有收到关闭事件。
+     * 在这样的复用连接上请求写出失败时，换一个连接重发，这时请求没有完整发出去，对方不可能处理过它。
+     * 请求已经写出之后连接再被关闭、重置，对方可能已经收到并执行了（执行器不会对已经出队执行的触发去重），不再重发，直接按失败处理。
+     * 失效的连接关闭后不会再被取到，重发次数不超过连接池上限，最终总会用上新建的连接；新建的连接失败不再重发。
+     */
+    private static class RemoteCall {
+        private final String url;
+        private final String key;
+        private final Class returnTargClassOfT;
+        private final CompletableFuture<ReturnT> resultFuture;
+        private final FixedChannelPool pool;
+        private final EventLoopGroup group;
+        private final HostStats stats;
+        private final int timeout;
+        // 调用结束前一直持有，每次发送写出它的一个副本，重发时内容不变
+        private final FullHttpRequest request;
+        private final long startTime = System.nanoTime();
+        private final AtomicInteger resends = new AtomicInteger();
+
+        private RemoteCall(String url, String key, Class returnTargClassOfT, CompletableFuture<ReturnT> resultFuture,
+                           FixedChannelPool pool, EventLoopGroup group, HostStats stats, int timeout, FullHttpRequest request) {
+            this.url = url;
+            this.key = key;
+            this.returnTargClassOfT = returnTargClassOfT;
+            this.resultFuture = resultFuture;
+            this.pool = pool;
+            this.group = group;
+            this.stats = stats;
+            this.timeout = timeout;
+            this.request = request;
+        }
+
+        private void send() {
+            final AtomicBoolean acquired = new AtomicBoolean(false);
+            final ScheduledFuture<?> acquireTimeoutFuture;
+            try {
+                // 等待连接的超时按每次调用自己的 timeout 计算，连接池本身不限制等待时间
+                acquireTimeoutFuture = group.next().schedule(() -> {
+                    if (acquired.compareAndSet(false, true)) {
+                        complete(new ReturnT<String>(ReturnT.FAIL_CODE, "xxl-job remoting timeout(acquire connection, " + timeout + "s), for url : " + url), true);
+                    }
+                }, Math.max(1, timeout), TimeUnit.SECONDS);
+            } catch (Exception e) {
+                // IO线程已经关闭
+                complete(new ReturnT<String>(ReturnT.FAIL_CODE, "xxl-job remoting error(" + e.getMessage() + "), for url : " + url), true);
+                return;
+            }
+            pool.acquire().addListener((io.netty.util.concurrent.Future<Channel> acquireFuture) -> {
+                if (!acquired.compareAndSet(false, true)) {
+                    // 等待连接已经超时，拿到的连接直接归还
+                    if (acquireFuture.isSuccess()) {
+                        pool.release(acquireFuture.getNow());
+                    }
+                    return;
+                }
+                acquireTimeoutFuture.cancel(false);
+                if (!acquireFuture.isSuccess()) {
+                    complete(new ReturnT<String>(ReturnT.FAIL_CODE, "xxl-job remoting error(" + acquireFuture.cause().getMessage() + "), for url : " + url), true);
+                    return;
+                }
+                final Channel channel = acquireFuture.getNow();
+                boolean reused = channel.attr(REUSED).getAndSet(Boolean.TRUE) != null;
+                stats.activeCalls.incrementAndGet();
+                final PendingCall call = new PendingCall(this, channel, reused);
+                channel.attr(PENDING_CALL).set(call);
+                // 读超时，和同步版本的 readTimeout 一致
+                call.timeoutFuture = channel.eventLoop().schedule(
+                        () -> call.fail("xxl-job remoting timeout(" + timeout + "s), for url : " + url, true, false),
+                        timeout, TimeUnit.SECONDS);
+                channel.writeAndFlush(request.retainedDuplicate()).addListener(writeFuture -> {
+                    if (!writeFuture.isSuccess()) {
+                        call.fail("xxl-job remoting error(" + writeFuture.cause().getMessage() + "), for url : " + url, true, true);
+                    }
+                });
+            });
+        }
+
+        /**
+         * 换一个连接重发，已经重发过连接池上限次时不再重发
+         */
+        private boolean resend() {
+            if (resends.incrementAndGet() > maxConnectionsPerAddress) {
+                return false;
+            }
+            send();
+            return true;
+        }
+
+        private void complete(ReturnT result, boolean failed) {
+            request.release();
+            stats.completed.increment();
+            stats.costNanos.add(System.nanoTime() - startTime);
+            if (failed) {
+                stats.failures.increment();
+            }
+            resultFuture.complete(result);
+        }
+    }
+
+    /**
+     * 一个连接上正在进行的调用，同一时间一个连接上只有一个调用，完成后连接归还连接池
+     */
+    private static class PendingCall {
+        private final RemoteCall remoteCall;
+        private final Channel channel;
+        // 连接之前已经完成过调用，不是这次新建的
+        private final boolean reused;
+        private final AtomicBoolean done = new AtomicBoolean(false);
+        private volatile ScheduledFuture<?> timeoutFuture;
+
+        private PendingCall(RemoteCall remoteCall, Channel channel, boolean reused) {
+            this.remoteCall = remoteCall;
+            this.channel = channel;
+            this.reused = reused;
+        }
+
+        private void succeed(FullHttpResponse response) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            String url = remoteCall.url;
+            boolean keepAlive = HttpUtil.isKeepAlive(response);
+            int statusCode = response.status().code();
+            // 解码在IO线程中完成，完成后才能归还连接，否则 response 会被释放
+            ReturnT result = null;
+            String invalidContent = null;
+            Exception decodeException = null;
+            if (statusCode == 200) {
+                RemotingCodec codec = RemotingCodecs.forContentType(response.headers().get(HttpHeaderNames.CONTENT_TYPE));
+                updatePeerCodec(codec);
+                ByteBuf content = response.content();
+                int readerIndex = content.readerIndex();
+                try {
+                    result = codec.decode(content, ReturnT.class, remoteCall.returnTargClassOfT);
+                } catch (Exception e) {
+                    decodeException = e;
+                    invalidContent = codec == RemotingCodecs.JSON
+                            ? content.toString(readerIndex, content.writerIndex() - readerIndex, CharsetUtil.UTF_8)
+                            : codec.name() + ", " + (content.writerIndex() - readerIndex) + " bytes";
+                }
+            }
+            release(!keepAlive);
+
+            if (statusCode != 200) {
+                remoteCall.complete(new ReturnT<String>(ReturnT.FAIL_CODE, "xxl-job remoting fail, StatusCode(" + statusCode + ") invalid. for url : " + url), true);
+                return;
+            }
+            if (decodeException != null || result == null) {
+                log.error("xxl-job remoting (url=" + url + ") response content invalid(" + invalidContent + ").", decodeException);
+                remoteCall.complete(new ReturnT<String>(ReturnT.FAIL_CODE, "xxl-job remoting (url=" + url + ") response content invalid(" + invalidContent + ")."), true);
+                return;
+            }
+            remoteCall.complete(result, false);
+        }
+
+        /**
+         * 对方用首选的编解码器响应，说明两个方向都支持，之后的请求也用它；响应变回其他编解码器时不再使用
+         */
+        private void updatePeerCodec(RemotingCodec responseCodec) {
+            String key = remoteCall.key;
+            RemotingCodec preferredCodec = RemotingCodecs.getPreferredCodec();
+            if (responseCodec == preferredCodec && preferredCodec != RemotingCodecs.JSON) {
+                if (peerCodecs.get(key) != preferredCodec) {
+                    peerCodecs.put(key, preferredCodec);
+                }
+            } else if (peerCodecs.containsKey(key)) {
+                peerCodecs.remove(key);
+            }
+        }
+
+        /**
+         * @param writeFailed 请求没有写出去，复用的连接上写出失败时换连接重发，其他失败都不重发
+         */
+        private void fail(String msg, boolean closeChannel, boolean writeFailed) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            release(closeChannel || writeFailed);
+            if (writeFailed && reused && remoteCall.resend()) {
+                log.debug(">>>>>>>>>>> xxl-job remoting, reused connection is stale({}), resend on another connection, for url : {}", msg, remoteCall.url);
+                return;
+            }
+            remoteCall.complete(new ReturnT<String>(ReturnT.FAIL_CODE, msg), true);
+        }
+
+        private void release(boolean closeChannel) {
+            if (timeoutFuture != null) {
+                timeoutFuture.cancel(false);
+            }
+            remoteCall.stats.activeCalls.decrementAndGet();
+            channel.attr(PENDING_CALL).set(null);
+            if (closeChannel) {
+                // 关闭的连接归还后会被连接池的健康检查丢弃
+                channel.close();
+            }
+            remoteCall.pool.release(channel);
+        }
+    }
+
+    /**
+     * 一个地址的调用统计
+     */
+    private static class HostStats {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder costNanos = new LongAdder();
+        private final AtomicInteger activeCalls = new AtomicInteger();
+        private final AtomicInteger openConnections = new AtomicInteger();
+        private final LongAdder createdConnections = new LongAdder();
+    }
+
+    private static class ResponseHandler extends SimpleChannelInboundHandler<FullHttpResponse> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+            PendingCall call = ctx.channel().attr(PENDING_CALL).get();
+            if (call != null) {
+                call.succeed(response);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            PendingCall call = ctx.channel().attr(PENDING_CALL).get();
+            if (call != null) {
+                call.fail("xxl-job remoting error(connection closed), for url : " + call.remoteCall.url, false, false);
+            }
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            PendingCall call = ctx.channel().attr(PENDING_CALL).get();
+            if (call != null) {
+                call.fail("xxl-job remoting error(" + cause.getMessage() + "), for url : " + call.remoteCall.url, true, false);
+            } else {
+                log.error(">>>>>>>>>>> xxl-job async remoting caught exception", cause);
+                ctx.close();
+            }
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            // 空闲的连接直接关闭，正在进行调用的连接由调用超时处理
+            if (evt instanceof IdleStateEvent && ctx.channel().attr(PENDING_CALL).get() == null) {
+                ctx.channel().close();
+            } else {
+                super.userEventTriggered(ctx, evt);
+            }
+        }
+    }
+}
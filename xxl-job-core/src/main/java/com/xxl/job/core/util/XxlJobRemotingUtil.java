@@ -6,45 +6,52 @@ import lombok.extern.slf4j.Slf4j;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
-import java.io.InputStreamReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 
 /**
  * <h1>用于执行远程调用的工具类</h1>
+ * 调用基于 XxlJobAsyncRemotingUtil 的长连接池，同一个地址的调用复用连接，不再每次新建 HttpURLConnection、
+ * 每次HTTPS调用也不再重新创建 SSLContext；调用方线程阻塞等待结果，超时和异步版本一致。
+ * 只有在Netty IO线程中调用时（IO线程不能阻塞等待自己要处理的响应），才使用 HttpURLConnection 发送请求。
  */
 @Slf4j
 public class XxlJobRemotingUtil {
 
     public static final String XXL_JOB_ACCESS_TOKEN = "XXL-JOB-ACCESS-TOKEN";
 
+    // 信任所有证书的 SSLSocketFactory，创建一次后共用
+    private static volatile SSLSocketFactory trustAllSocketFactory;
+
+    private static final HostnameVerifier trustAllHostnameVerifier = (hostname, session) -> true;
+
     /**
      * <h2>信任该 HTTP 链接</h2>
      */
     private static void trustAllHosts(HttpsURLConnection connection) {
         try {
-            SSLContext sc = SSLContext.getInstance("TLS");
-            sc.init(null, trustAllCerts, new java.security.SecureRandom());
-            SSLSocketFactory newFactory = sc.getSocketFactory();
-
-            connection.setSSLSocketFactory(newFactory);
+            SSLSocketFactory socketFactory = trustAllSocketFactory;
+            if (socketFactory == null) {
+                SSLContext sc = SSLContext.getInstance("TLS");
+                sc.init(null, trustAllCerts, new java.security.SecureRandom());
+                socketFactory = sc.getSocketFactory();
+                trustAllSocketFactory = socketFactory;
+            }
+            connection.setSSLSocketFactory(socketFactory);
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         }
-        connection.setHostnameVerifier(new HostnameVerifier() {
-            @Override
-            public boolean verify(String hostname, SSLSession session) {
-                return true;
-            }
-        });
+        connection.setHostnameVerifier(trustAllHostnameVerifier);
     }
 
     private static final TrustManager[] trustAllCerts = new TrustManager[]{new X509TrustManager() {
@@ -67,8 +74,22 @@ public class XxlJobRemotingUtil {
                                    String accessToken,
                                    int timeout, Object requestObj,
                                    Class returnTargClassOfT) {
+        if (XxlJobAsyncRemotingUtil.inEventLoop()) {
+            return postBodyByConnection(url, accessToken, timeout, requestObj, returnTargClassOfT);
+        }
+        // 返回的 Future 总是正常完成，连接超时、读超时之后一定会返回
+        return XxlJobAsyncRemotingUtil.postBodyAsync(url, accessToken, timeout, requestObj, returnTargClassOfT).join();
+    }
+
+    /**
+     * <h2>使用 HttpURLConnection 发送 POST 请求</h2>
+     * 读完响应后不调用 disconnect，连接由JDK的 keep-alive 缓存复用
+     */
+    private static ReturnT postBodyByConnection(String url,
+                                                String accessToken,
+                                                int timeout, Object requestObj,
+                                                Class returnTargClassOfT) {
         HttpURLConnection connection = null;
-        BufferedReader bufferedReader = null;
         try {
             // 创建连接
             URL realUrl = new URL(url);
@@ -102,33 +123,22 @@ public class XxlJobRemotingUtil {
             // write requestBody
             if (requestObj != null) {
                 // 序列化请求实体，也就是要发送的触发器参数
-                String requestBody = GsonTool.toJson(requestObj);
-                // 下面就开始正式发送消息了
-                DataOutputStream dataOutputStream = new DataOutputStream(connection.getOutputStream());
-                dataOutputStream.write(requestBody.getBytes("UTF-8"));
-                // 刷新缓冲区
-                dataOutputStream.flush();
-                // 释放资源
-                dataOutputStream.close();
+                try (OutputStream outputStream = connection.getOutputStream()) {
+                    outputStream.write(GsonTool.toJson(requestObj).getBytes(StandardCharsets.UTF_8));
+                }
             }
 
             // 获取响应码
             int statusCode = connection.getResponseCode();
             if (statusCode != 200) {
+                // 读完错误响应，连接才能被复用
+                readFully(connection.getErrorStream());
                 // 设置失败结果
                 return new ReturnT<String>(ReturnT.FAIL_CODE, "xxl-job remoting fail, StatusCode("+ statusCode +") invalid. for url : " + url);
             }
 
             // 接收返回信息
-            bufferedReader = new BufferedReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
-            StringBuilder result = new StringBuilder();
-            String line;
-            while ((line = bufferedReader.readLine()) != null) {
-                result.append(line);
-            }
-
-            // 转换为字符串
-            String resultJson = result.toString();
+            String resultJson = new String(readFully(connection.getInputStream()), StandardCharsets.UTF_8);
 
             try {
                 // 转换为 ReturnT 对象，返回给用户
@@ -140,18 +150,26 @@ public class XxlJobRemotingUtil {
             }
         } catch (Exception e) {
             log.error(e.getMessage(), e);
+            if (connection != null) {
+                // 出错的连接不再复用
+                connection.disconnect();
+            }
             return new ReturnT<String>(ReturnT.FAIL_CODE, "xxl-job remoting error("+ e.getMessage() +"), for url : " + url);
-        } finally {
-            try {
-                if (bufferedReader != null) {
-                    bufferedReader.close();
-                }
-                if (connection != null) {
-                    connection.disconnect();
-                }
-            } catch (Exception e2) {
-                log.error(e2.getMessage(), e2);
+        }
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            return new byte[0];
+        }
+        try (InputStream in = inputStream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
             }
+            return out.toByteArray();
         }
     }
 }